@@ -0,0 +1,241 @@
+package org.nebula.base.util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <br>
+ * <h2>ConcurrentPool</h2>
+ * <br>
+ * The ConcurrentPool class is a thread safe variant of {@link Pool} for objects that are requested and returned by
+ * several threads, e.g. worker threads producing render data.
+ * <p>
+ * Every thread has a small local cache that serves requests and takes returned objects without synchronization. When
+ * the cache is empty, it is refilled with half its capacity from a shared stripe, when it is full, half of it is moved
+ * to a shared stripe. The shared pool is split into one lock protected stripe per pair of processors, threads use the
+ * stripe selected by their id and only fall back to the other stripes when it is empty, so threads rarely contend for
+ * the same lock.
+ * </p>
+ * <p>
+ * The maximum size bounds the shared stripes, every thread additionally caches up to its local capacity. Trimming
+ * works like {@link Pool#trim()} on the shared stripes. {@link #clear()} only clears the cache of the calling thread,
+ * the caches of other threads are released when these threads terminate.
+ * </p>
+ *
+ * @param <T> The type of the pooled objects.
+ * @author Anton Schoenfeld
+ * @see Pool
+ */
+public abstract class ConcurrentPool<T extends Poolable> {
+    public static final int DEFAULT_LOCAL_CAPACITY = 64;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final ThreadLocal<LocalCache> caches;
+    private final int maxSize, localCapacity;
+    private final AtomicInteger sharedSize;
+    private final LongAdder hits, misses, created, dropped, trimmed;
+
+    /**
+     * Constructs an unbounded ConcurrentPool with the default local capacity.
+     */
+    public ConcurrentPool() {
+        this(Integer.MAX_VALUE, DEFAULT_LOCAL_CAPACITY);
+    }
+
+    /**
+     * Constructs a ConcurrentPool.
+     *
+     * @param maxSize       The maximum number of idle objects in the shared stripes.
+     * @param localCapacity The maximum number of idle objects cached by every thread, at least 2.
+     */
+    public ConcurrentPool(int maxSize, int localCapacity) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("Max size must not be negative: " + maxSize);
+        if (localCapacity < 2)
+            throw new IllegalArgumentException("Local capacity must be at least 2: " + localCapacity);
+        this.maxSize = maxSize;
+        this.localCapacity = localCapacity;
+
+        final int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++)
+            stripes[i] = new Stripe();
+        this.stripeMask = stripeCount - 1;
+
+        this.caches = ThreadLocal.withInitial(LocalCache::new);
+        this.sharedSize = new AtomicInteger();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.created = new LongAdder();
+        this.dropped = new LongAdder();
+        this.trimmed = new LongAdder();
+    }
+
+    /**
+     * Creates a new object. This may be called by several threads at once.
+     *
+     * @return The new object.
+     */
+    protected abstract T newPoolable();
+
+    public T get() {
+        final LocalCache cache = caches.get();
+        if (cache.size == 0)
+            refill(cache);
+
+        if (cache.size == 0) {
+            misses.increment();
+            created.increment();
+            return newPoolable();
+        }
+        hits.increment();
+        return cache.pop();
+    }
+
+    /**
+     * Cleans an object and returns it to the pool. It is dropped if the local cache of the calling thread and the
+     * shared stripes are full.
+     *
+     * @param poolable The object to return.
+     */
+    public void returnPoolable(T poolable) {
+        poolable.clean();
+        final LocalCache cache = caches.get();
+        if (cache.size == localCapacity)
+            spill(cache);
+        cache.push(poolable);
+    }
+
+    /**
+     * Moves up to half of the local capacity from the shared stripes into a local cache, starting with the stripe of
+     * the calling thread.
+     */
+    private void refill(LocalCache cache) {
+        final int home = stripeIndex();
+        for (int i = 0; i < stripes.length && cache.size == 0; i++) {
+            final Stripe stripe = stripes[(home + i) & stripeMask];
+            synchronized (stripe) {
+                final int count = Math.min(localCapacity / 2, stripe.poolables.size());
+                for (int j = 0; j < count; j++)
+                    cache.push(stripe.poolables.pop());
+                stripe.minIdle = Math.min(stripe.minIdle, stripe.poolables.size());
+                sharedSize.addAndGet(-count);
+            }
+        }
+    }
+
+    /**
+     * Moves half of a full local cache to the stripe of the calling thread, dropping objects if the stripes are full.
+     */
+    private void spill(LocalCache cache) {
+        final Stripe stripe = stripes[stripeIndex()];
+        synchronized (stripe) {
+            for (int i = localCapacity / 2; i > 0; i--) {
+                final Object poolable = cache.pop();
+                if (sharedSize.incrementAndGet() > maxSize) {
+                    sharedSize.decrementAndGet();
+                    dropped.increment();
+                } else {
+                    stripe.poolables.push(poolable);
+                }
+            }
+        }
+    }
+
+    private int stripeIndex() {
+        final long id = Thread.currentThread().threadId();
+        return (int) (id ^ id >>> 32) & stripeMask;
+    }
+
+    /**
+     * Clears the shared stripes and the local cache of the calling thread.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                sharedSize.addAndGet(-stripe.poolables.size());
+                stripe.poolables.clear();
+                stripe.minIdle = Integer.MAX_VALUE;
+            }
+        }
+        caches.get().clear();
+    }
+
+    /**
+     * Releases the objects of the shared stripes that were not needed since the last trim.
+     *
+     * @return The number of released objects.
+     * @see Pool#trim()
+     */
+    public int trim() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                final int count = Math.min(stripe.minIdle, stripe.poolables.size());
+                for (int i = 0; i < count; i++)
+                    stripe.poolables.removeLast();
+                stripe.minIdle = Integer.MAX_VALUE;
+                sharedSize.addAndGet(-count);
+                total += count;
+            }
+        }
+        trimmed.add(total);
+        return total;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getLocalCapacity() {
+        return localCapacity;
+    }
+
+    /**
+     * Gets the number of idle objects in the shared stripes and the local cache of the calling thread.
+     *
+     * @return The number of idle objects visible to the calling thread.
+     */
+    public int size() {
+        return sharedSize.get() + caches.get().size;
+    }
+
+    public PoolStats getStats() {
+        return new PoolStats(size(), hits.sum(), misses.sum(), created.sum(), dropped.sum(), trimmed.sum());
+    }
+
+    /**
+     * A shared part of the pool, guarded by its own monitor.
+     */
+    private static final class Stripe {
+        private final ArrayDeque<Object> poolables = new ArrayDeque<>();
+        private int minIdle = Integer.MAX_VALUE;
+    }
+
+    /**
+     * The objects cached by a single thread.
+     */
+    private final class LocalCache {
+        private final Object[] poolables = new Object[localCapacity];
+        private int size;
+
+        private void push(Object poolable) {
+            poolables[size++] = poolable;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T pop() {
+            final T poolable = (T) poolables[--size];
+            poolables[size] = null;
+            return poolable;
+        }
+
+        private void clear() {
+            Arrays.fill(poolables, 0, size, null);
+            size = 0;
+        }
+    }
+}
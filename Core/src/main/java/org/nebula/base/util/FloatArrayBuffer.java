@@ -0,0 +1,221 @@
+package org.nebula.base.util;
+
+import org.lwjgl.system.MemoryUtil;
+import org.nebula.base.interfaces.IDisposable;
+
+import java.nio.FloatBuffer;
+import java.util.Objects;
+
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+/**
+ * <br>
+ * <h2>FloatArrayBuffer</h2>
+ * <br>
+ * The FloatArrayBuffer class is a growable list of floats stored in native memory. The memory doubles whenever it is
+ * full, so appending is amortized constant time, and the contents can be handed to OpenGL without copying through
+ * {@link #view()}.
+ * <p>
+ * Views and addresses are invalidated when the buffer grows and when it is disposed. Clearing keeps the memory, so a
+ * buffer that is refilled every frame stops allocating once it has reached the size of the largest frame. This class
+ * is not thread safe.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see IntArrayBuffer
+ */
+public class FloatArrayBuffer implements IDisposable {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private long address;
+    private int capacity, size;
+
+    /**
+     * Constructs an empty FloatArrayBuffer with the default capacity.
+     */
+    public FloatArrayBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty FloatArrayBuffer.
+     *
+     * @param capacity The number of floats that fit before the buffer grows.
+     */
+    public FloatArrayBuffer(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        reallocate(Math.max(capacity, 1));
+        ResourceRegistry.register(this, ResourceRegistry.Memory.NATIVE, (long) this.capacity * Float.BYTES);
+    }
+
+    private void reallocate(int capacity) {
+        final long address = MemoryUtil.nmemRealloc(this.address, (long) capacity * Float.BYTES);
+        if (address == NULL)
+            throw new OutOfMemoryError("Failed to allocate " + capacity + " floats for FloatArrayBuffer");
+        this.address = address;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Ensures that the given number of floats fit without growing again.
+     *
+     * @param capacity The minimum capacity.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > this.capacity) {
+            reallocate((int) Math.min(Math.max(capacity, (long) this.capacity * 2), Integer.MAX_VALUE - 8));
+            ResourceRegistry.resize(this, (long) this.capacity * Float.BYTES);
+        }
+    }
+
+    public void add(float value) {
+        if (size == capacity)
+            ensureCapacity(size + 1);
+        MemoryUtil.memPutFloat(address + (long) size++ * Float.BYTES, value);
+    }
+
+    public void add(float x, float y) {
+        ensureCapacity(size + 2);
+        final long position = address + (long) size * Float.BYTES;
+        MemoryUtil.memPutFloat(position, x);
+        MemoryUtil.memPutFloat(position + 4, y);
+        size += 2;
+    }
+
+    public void add(float x, float y, float z) {
+        ensureCapacity(size + 3);
+        final long position = address + (long) size * Float.BYTES;
+        MemoryUtil.memPutFloat(position, x);
+        MemoryUtil.memPutFloat(position + 4, y);
+        MemoryUtil.memPutFloat(position + 8, z);
+        size += 3;
+    }
+
+    public void add(float x, float y, float z, float w) {
+        ensureCapacity(size + 4);
+        final long position = address + (long) size * Float.BYTES;
+        MemoryUtil.memPutFloat(position, x);
+        MemoryUtil.memPutFloat(position + 4, y);
+        MemoryUtil.memPutFloat(position + 8, z);
+        MemoryUtil.memPutFloat(position + 12, w);
+        size += 4;
+    }
+
+    public void addAll(float[] values) {
+        addAll(values, 0, values.length);
+    }
+
+    /**
+     * Appends a range of an array.
+     *
+     * @param values The array.
+     * @param offset The index of the first float to append.
+     * @param length The number of floats to append.
+     */
+    public void addAll(float[] values, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, values.length);
+        ensureCapacity(size + length);
+        MemoryUtil.memFloatBuffer(address + (long) size * Float.BYTES, length).put(values, offset, length);
+        size += length;
+    }
+
+    /**
+     * Appends the remaining floats of a buffer without changing its position.
+     *
+     * @param values The buffer.
+     */
+    public void addAll(FloatBuffer values) {
+        final int length = values.remaining();
+        ensureCapacity(size + length);
+        MemoryUtil.memFloatBuffer(address + (long) size * Float.BYTES, length).put(0, values, values.position(), length);
+        size += length;
+    }
+
+    /**
+     * Appends uninitialized floats, which are meant to be written with {@link #set(int, float)}.
+     *
+     * @param count The number of floats to append.
+     * @return The index of the first appended float.
+     */
+    public int extend(int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("Count must not be negative: " + count);
+        ensureCapacity(size + count);
+        final int start = size;
+        size += count;
+        return start;
+    }
+
+    public float get(int index) {
+        Objects.checkIndex(index, size);
+        return MemoryUtil.memGetFloat(address + (long) index * Float.BYTES);
+    }
+
+    /**
+     * Copies a range of this buffer into an array.
+     *
+     * @param index  The index of the first float to copy.
+     * @param dest   The array to copy to.
+     * @param offset The index in the array to copy to.
+     * @param length The number of floats to copy.
+     */
+    public void get(int index, float[] dest, int offset, int length) {
+        Objects.checkFromIndexSize(index, length, size);
+        MemoryUtil.memFloatBuffer(address + (long) index * Float.BYTES, length).get(dest, offset, length);
+    }
+
+    public void set(int index, float value) {
+        Objects.checkIndex(index, size);
+        MemoryUtil.memPutFloat(address + (long) index * Float.BYTES, value);
+    }
+
+    public float[] toArray() {
+        final float[] array = new float[size];
+        get(0, array, 0, size);
+        return array;
+    }
+
+    /**
+     * Gets a view of the contents, e.g. for uploading them with {@code glBufferData}. The view shares the memory of
+     * this buffer and becomes invalid when it grows.
+     *
+     * @return A buffer of the floats from index 0 to {@link #size()}.
+     */
+    public FloatBuffer view() {
+        return MemoryUtil.memFloatBuffer(address, size);
+    }
+
+    /**
+     * Removes all floats, keeping the memory.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long address() {
+        return address;
+    }
+
+    @Override
+    public void dispose() {
+        if (address != NULL)
+            MemoryUtil.nmemFree(address);
+        address = NULL;
+        capacity = 0;
+        size = 0;
+        ResourceRegistry.unregister(this);
+    }
+}
@@ -0,0 +1,137 @@
+package org.nebula.base.util;
+
+import org.nebula.base.interfaces.IDisposable;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * <br>
+ * <h2>FrameArena</h2>
+ * <br>
+ * The FrameArena class provides transient native memory for the duration of a frame. It cycles through a ring of
+ * {@link LinearArena LinearArenas}, one per frame in flight, and resets the next one in {@link #nextFrame()}.
+ * <p>
+ * Memory allocated in a frame therefore stays valid for as many frames as the ring is long, e.g. with double
+ * buffering the data of the previous frame can still be read while the current frame is built. Data that is copied
+ * right away, like uploads with {@code glBufferData}, only needs a single frame.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see LinearArena
+ */
+public class FrameArena implements IDisposable {
+    public static final int DEFAULT_FRAMES = 2;
+
+    private final LinearArena[] arenas;
+    private int frame;
+
+    /**
+     * Constructs a double buffered FrameArena that grows on overflow.
+     *
+     * @param capacity The initial capacity per frame in bytes.
+     */
+    public FrameArena(long capacity) {
+        this(DEFAULT_FRAMES, capacity, LinearArena.OverflowPolicy.GROW);
+    }
+
+    /**
+     * Constructs a FrameArena.
+     *
+     * @param frames   The number of frames an allocation stays valid, e.g. 2 for double or 3 for triple buffering.
+     * @param capacity The capacity per frame in bytes.
+     * @param policy   The policy for allocations exceeding the capacity of a frame.
+     */
+    public FrameArena(int frames, long capacity, LinearArena.OverflowPolicy policy) {
+        if (frames <= 0)
+            throw new IllegalArgumentException("Frame count must be positive: " + frames);
+        this.arenas = new LinearArena[frames];
+        for (int i = 0; i < frames; i++)
+            arenas[i] = new LinearArena(capacity, policy);
+    }
+
+    /**
+     * Starts a new frame, releasing the allocations made the given number of frames ago.
+     */
+    public void nextFrame() {
+        frame = (frame + 1) % arenas.length;
+        arenas[frame].reset();
+    }
+
+    /**
+     * Gets the arena of the current frame.
+     *
+     * @return The current arena.
+     */
+    public LinearArena current() {
+        return arenas[frame];
+    }
+
+    public long allocate(long bytes, int alignment) {
+        return arenas[frame].allocate(bytes, alignment);
+    }
+
+    public ByteBuffer malloc(int bytes) {
+        return arenas[frame].malloc(bytes);
+    }
+
+    public FloatBuffer mallocFloat(int count) {
+        return arenas[frame].mallocFloat(count);
+    }
+
+    public IntBuffer mallocInt(int count) {
+        return arenas[frame].mallocInt(count);
+    }
+
+    public ShortBuffer mallocShort(int count) {
+        return arenas[frame].mallocShort(count);
+    }
+
+    /**
+     * Gets the capacity of all frames.
+     *
+     * @return The number of bytes allocated by this arena.
+     */
+    public long getCapacity() {
+        long capacity = 0;
+        for (LinearArena arena : arenas)
+            capacity += arena.getCapacity();
+        return capacity;
+    }
+
+    public int getFrameCount() {
+        return arenas.length;
+    }
+
+    /**
+     * Gets the highest number of bytes used in a single frame.
+     *
+     * @return The high-water mark in bytes.
+     */
+    public long getHighWater() {
+        long highWater = 0;
+        for (LinearArena arena : arenas)
+            highWater = Math.max(highWater, arena.getHighWater());
+        return highWater;
+    }
+
+    /**
+     * Gets the number of allocations that did not fit into the memory of their frame.
+     *
+     * @return The number of overflows.
+     */
+    public long getOverflowCount() {
+        long overflows = 0;
+        for (LinearArena arena : arenas)
+            overflows += arena.getOverflowCount();
+        return overflows;
+    }
+
+    @Override
+    public void dispose() {
+        for (LinearArena arena : arenas)
+            arena.dispose();
+    }
+}
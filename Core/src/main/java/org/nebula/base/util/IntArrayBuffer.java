@@ -0,0 +1,211 @@
+package org.nebula.base.util;
+
+import org.lwjgl.system.MemoryUtil;
+import org.nebula.base.interfaces.IDisposable;
+
+import java.nio.IntBuffer;
+import java.util.Objects;
+
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+/**
+ * <br>
+ * <h2>IntArrayBuffer</h2>
+ * <br>
+ * The IntArrayBuffer class is a growable list of ints stored in native memory. The memory doubles whenever it is
+ * full, so appending is amortized constant time, and the contents can be handed to OpenGL without copying through
+ * {@link #view()}.
+ * <p>
+ * Views and addresses are invalidated when the buffer grows and when it is disposed. Clearing keeps the memory, so a
+ * buffer that is refilled every frame stops allocating once it has reached the size of the largest frame. This class
+ * is not thread safe.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see FloatArrayBuffer
+ */
+public class IntArrayBuffer implements IDisposable {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private long address;
+    private int capacity, size;
+
+    /**
+     * Constructs an empty IntArrayBuffer with the default capacity.
+     */
+    public IntArrayBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty IntArrayBuffer.
+     *
+     * @param capacity The number of ints that fit before the buffer grows.
+     */
+    public IntArrayBuffer(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        reallocate(Math.max(capacity, 1));
+        ResourceRegistry.register(this, ResourceRegistry.Memory.NATIVE, (long) this.capacity * Integer.BYTES);
+    }
+
+    private void reallocate(int capacity) {
+        final long address = MemoryUtil.nmemRealloc(this.address, (long) capacity * Integer.BYTES);
+        if (address == NULL)
+            throw new OutOfMemoryError("Failed to allocate " + capacity + " ints for IntArrayBuffer");
+        this.address = address;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Ensures that the given number of ints fit without growing again.
+     *
+     * @param capacity The minimum capacity.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > this.capacity) {
+            reallocate((int) Math.min(Math.max(capacity, (long) this.capacity * 2), Integer.MAX_VALUE - 8));
+            ResourceRegistry.resize(this, (long) this.capacity * Integer.BYTES);
+        }
+    }
+
+    public void add(int value) {
+        if (size == capacity)
+            ensureCapacity(size + 1);
+        MemoryUtil.memPutInt(address + (long) size++ * Integer.BYTES, value);
+    }
+
+    public void add(int a, int b) {
+        ensureCapacity(size + 2);
+        final long position = address + (long) size * Integer.BYTES;
+        MemoryUtil.memPutInt(position, a);
+        MemoryUtil.memPutInt(position + 4, b);
+        size += 2;
+    }
+
+    public void add(int a, int b, int c) {
+        ensureCapacity(size + 3);
+        final long position = address + (long) size * Integer.BYTES;
+        MemoryUtil.memPutInt(position, a);
+        MemoryUtil.memPutInt(position + 4, b);
+        MemoryUtil.memPutInt(position + 8, c);
+        size += 3;
+    }
+
+    public void addAll(int[] values) {
+        addAll(values, 0, values.length);
+    }
+
+    /**
+     * Appends a range of an array.
+     *
+     * @param values The array.
+     * @param offset The index of the first int to append.
+     * @param length The number of ints to append.
+     */
+    public void addAll(int[] values, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, values.length);
+        ensureCapacity(size + length);
+        MemoryUtil.memIntBuffer(address + (long) size * Integer.BYTES, length).put(values, offset, length);
+        size += length;
+    }
+
+    /**
+     * Appends the remaining ints of a buffer without changing its position.
+     *
+     * @param values The buffer.
+     */
+    public void addAll(IntBuffer values) {
+        final int length = values.remaining();
+        ensureCapacity(size + length);
+        MemoryUtil.memIntBuffer(address + (long) size * Integer.BYTES, length).put(0, values, values.position(), length);
+        size += length;
+    }
+
+    /**
+     * Appends uninitialized ints, which are meant to be written with {@link #set(int, int)}.
+     *
+     * @param count The number of ints to append.
+     * @return The index of the first appended int.
+     */
+    public int extend(int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("Count must not be negative: " + count);
+        ensureCapacity(size + count);
+        final int start = size;
+        size += count;
+        return start;
+    }
+
+    public int get(int index) {
+        Objects.checkIndex(index, size);
+        return MemoryUtil.memGetInt(address + (long) index * Integer.BYTES);
+    }
+
+    /**
+     * Copies a range of this buffer into an array.
+     *
+     * @param index  The index of the first int to copy.
+     * @param dest   The array to copy to.
+     * @param offset The index in the array to copy to.
+     * @param length The number of ints to copy.
+     */
+    public void get(int index, int[] dest, int offset, int length) {
+        Objects.checkFromIndexSize(index, length, size);
+        MemoryUtil.memIntBuffer(address + (long) index * Integer.BYTES, length).get(dest, offset, length);
+    }
+
+    public void set(int index, int value) {
+        Objects.checkIndex(index, size);
+        MemoryUtil.memPutInt(address + (long) index * Integer.BYTES, value);
+    }
+
+    public int[] toArray() {
+        final int[] array = new int[size];
+        get(0, array, 0, size);
+        return array;
+    }
+
+    /**
+     * Gets a view of the contents, e.g. for uploading them with {@code glBufferData}. The view shares the memory of
+     * this buffer and becomes invalid when it grows.
+     *
+     * @return A buffer of the ints from index 0 to {@link #size()}.
+     */
+    public IntBuffer view() {
+        return MemoryUtil.memIntBuffer(address, size);
+    }
+
+    /**
+     * Removes all ints, keeping the memory.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long address() {
+        return address;
+    }
+
+    @Override
+    public void dispose() {
+        if (address != NULL)
+            MemoryUtil.nmemFree(address);
+        address = NULL;
+        capacity = 0;
+        size = 0;
+        ResourceRegistry.unregister(this);
+    }
+}
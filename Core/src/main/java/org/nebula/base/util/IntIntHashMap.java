@@ -0,0 +1,275 @@
+package org.nebula.base.util;
+
+import java.util.Arrays;
+
+/**
+ * <br>
+ * <h2>IntIntHashMap</h2>
+ * <br>
+ * The IntIntHashMap class maps int keys to int values without boxing. Entries are stored in two parallel arrays with
+ * open addressing and linear probing, so a lookup is a multiplication and usually a single array read, and neither
+ * putting nor removing allocates unless the map grows.
+ * <p>
+ * Key 0 marks free slots and is stored outside the arrays. Removal shifts the following entries back instead of
+ * leaving tombstones, so lookups do not slow down when entries are put and removed repeatedly. This class is not
+ * thread safe.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see Object2IntIdentityMap
+ */
+public class IntIntHashMap {
+    public static final int DEFAULT_CAPACITY = 16;
+    private static final int FREE_KEY = 0;
+
+    /**
+     * Receives the entries of a map.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int key, int value);
+    }
+
+    private int[] keys, values;
+    private int mask, size, resizeThreshold;
+    private boolean hasFreeKey;
+    private int freeKeyValue;
+
+    /**
+     * Constructs an empty IntIntHashMap with the default capacity.
+     */
+    public IntIntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty IntIntHashMap.
+     *
+     * @param expectedSize The number of entries that fit before the map grows.
+     */
+    public IntIntHashMap(int expectedSize) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("Expected size must not be negative: " + expectedSize);
+        allocate(tableSize(expectedSize));
+    }
+
+    private static int tableSize(int expectedSize) {
+        // The table is kept at most half full
+        return Math.max(4, Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1);
+    }
+
+    private void allocate(int tableSize) {
+        keys = new int[tableSize];
+        values = new int[tableSize];
+        mask = tableSize - 1;
+        resizeThreshold = tableSize / 2;
+    }
+
+    private int slot(int key) {
+        final int hash = key * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & mask;
+    }
+
+    /**
+     * Maps a key to a value.
+     *
+     * @param key   The key.
+     * @param value The value.
+     * @return True if the key was not mapped before.
+     */
+    public boolean put(int key, int value) {
+        if (key == FREE_KEY) {
+            freeKeyValue = value;
+            if (hasFreeKey)
+                return false;
+            hasFreeKey = true;
+            size++;
+            return true;
+        }
+
+        int slot = slot(key);
+        while (keys[slot] != FREE_KEY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return false;
+            }
+            slot = slot + 1 & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold)
+            rehash(keys.length * 2);
+        return true;
+    }
+
+    /**
+     * Maps a range of keys to the values at the same indices.
+     *
+     * @param keys   The keys.
+     * @param values The values.
+     * @param offset The index of the first entry.
+     * @param length The number of entries.
+     */
+    public void putAll(int[] keys, int[] values, int offset, int length) {
+        ensureCapacity(size + length);
+        for (int i = offset; i < offset + length; i++)
+            put(keys[i], values[i]);
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key          The key.
+     * @param defaultValue The value returned if the key is not mapped.
+     * @return The value of the key or the default value.
+     */
+    public int get(int key, int defaultValue) {
+        if (key == FREE_KEY)
+            return hasFreeKey ? freeKeyValue : defaultValue;
+
+        int slot = slot(key);
+        int current;
+        while ((current = keys[slot]) != FREE_KEY) {
+            if (current == key)
+                return values[slot];
+            slot = slot + 1 & mask;
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Gets the values of a range of keys.
+     *
+     * @param keys         The keys.
+     * @param dest         The array receiving the values at the indices of their keys.
+     * @param offset       The index of the first key.
+     * @param length       The number of keys.
+     * @param defaultValue The value stored for keys that are not mapped.
+     */
+    public void getAll(int[] keys, int[] dest, int offset, int length, int defaultValue) {
+        for (int i = offset; i < offset + length; i++)
+            dest[i] = get(keys[i], defaultValue);
+    }
+
+    public boolean containsKey(int key) {
+        if (key == FREE_KEY)
+            return hasFreeKey;
+
+        int slot = slot(key);
+        int current;
+        while ((current = keys[slot]) != FREE_KEY) {
+            if (current == key)
+                return true;
+            slot = slot + 1 & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key          The key.
+     * @param defaultValue The value returned if the key is not mapped.
+     * @return The value the key was mapped to or the default value.
+     */
+    public int remove(int key, int defaultValue) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey)
+                return defaultValue;
+            hasFreeKey = false;
+            size--;
+            return freeKeyValue;
+        }
+
+        int slot = slot(key);
+        int current;
+        while ((current = keys[slot]) != FREE_KEY) {
+            if (current == key) {
+                final int value = values[slot];
+                shiftBack(slot);
+                size--;
+                return value;
+            }
+            slot = slot + 1 & mask;
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Closes the gap left by a removed entry by moving back the following entries of its probe sequence.
+     */
+    private void shiftBack(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = slot + 1 & mask;
+            final int key = keys[slot];
+            if (key == FREE_KEY)
+                break;
+            // Entries whose home slot lies cyclically in (gap, slot] must stay where they are
+            final int home = slot(key);
+            if ((slot - home & mask) >= (slot - gap & mask)) {
+                keys[gap] = key;
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        keys[gap] = FREE_KEY;
+    }
+
+    /**
+     * Ensures that the given number of entries fit without growing again.
+     *
+     * @param expectedSize The minimum number of entries.
+     */
+    public void ensureCapacity(int expectedSize) {
+        if (expectedSize > resizeThreshold)
+            rehash(tableSize(expectedSize));
+    }
+
+    private void rehash(int tableSize) {
+        final int[] oldKeys = keys, oldValues = values;
+        allocate(tableSize);
+        for (int i = 0; i < oldKeys.length; i++) {
+            final int key = oldKeys[i];
+            if (key != FREE_KEY) {
+                int slot = slot(key);
+                while (keys[slot] != FREE_KEY)
+                    slot = slot + 1 & mask;
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Passes all entries to a consumer, in no particular order.
+     *
+     * @param consumer The consumer.
+     */
+    public void forEach(EntryConsumer consumer) {
+        if (hasFreeKey)
+            consumer.accept(FREE_KEY, freeKeyValue);
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] != FREE_KEY)
+                consumer.accept(keys[i], values[i]);
+    }
+
+    /**
+     * Removes all entries, keeping the capacity.
+     */
+    public void clear() {
+        if (size == 0)
+            return;
+        Arrays.fill(keys, FREE_KEY);
+        hasFreeKey = false;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,250 @@
+package org.nebula.base.util;
+
+import org.lwjgl.system.MemoryUtil;
+import org.nebula.base.interfaces.IDisposable;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+/**
+ * <br>
+ * <h2>LinearArena</h2>
+ * <br>
+ * The LinearArena class hands out aligned native memory from a single preallocated block by bumping an offset. All
+ * allocations are released at once by {@link #reset()}, there is no way to free a single allocation, which makes
+ * allocating a matter of a few arithmetic operations instead of a call into malloc.
+ * <p>
+ * What happens when an allocation does not fit into the remaining block is decided by the {@link OverflowPolicy}. The
+ * arena tracks the highest number of bytes requested between two resets and the number of overflows, so the capacity
+ * can be tuned to the actual demand.
+ * </p>
+ * <p>
+ * Buffers returned by this arena must not be used after the next reset and must not be freed. This class is not
+ * thread safe.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see FrameArena
+ * @see ScratchArena
+ */
+public class LinearArena implements IDisposable {
+    public static final int DEFAULT_ALIGNMENT = 16;
+    private static final int BLOCK_ALIGNMENT = 64;
+
+    /**
+     * Decides how a LinearArena handles allocations that do not fit into its remaining memory.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Throws an IllegalStateException.
+         */
+        THROW,
+        /**
+         * Allocates the memory with malloc and frees it on the next reset.
+         */
+        FALLBACK,
+        /**
+         * Like FALLBACK, but additionally grows the block on the next reset to the number of bytes requested since
+         * the previous reset, so the demand fits from then on.
+         */
+        GROW
+    }
+
+    private final OverflowPolicy policy;
+    private long address, capacity, offset;
+    private long[] fallbacks;
+    private int fallbackCount;
+    private long fallbackBytes, cycleHighWater, highWater, overflowCount;
+
+    /**
+     * Constructs a LinearArena that grows on overflow.
+     *
+     * @param capacity The initial capacity in bytes.
+     */
+    public LinearArena(long capacity) {
+        this(capacity, OverflowPolicy.GROW);
+    }
+
+    /**
+     * Constructs a LinearArena.
+     *
+     * @param capacity The capacity in bytes.
+     * @param policy   The policy for allocations exceeding the capacity.
+     */
+    public LinearArena(long capacity, OverflowPolicy policy) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.policy = policy;
+        this.fallbacks = new long[4];
+        allocateBlock(capacity);
+    }
+
+    private void allocateBlock(long capacity) {
+        this.address = MemoryUtil.nmemAlignedAlloc(BLOCK_ALIGNMENT, capacity);
+        if (address == NULL)
+            throw new OutOfMemoryError("Failed to allocate " + capacity + " bytes for LinearArena");
+        this.capacity = capacity;
+    }
+
+    /**
+     * Allocates aligned memory.
+     *
+     * @param bytes     The number of bytes.
+     * @param alignment The alignment of the address, a power of two.
+     * @return The address of the memory.
+     * @throws IllegalStateException If the memory does not fit and the policy is {@link OverflowPolicy#THROW}.
+     */
+    public long allocate(long bytes, int alignment) {
+        final long address = tryAllocate(bytes, alignment);
+        if (address != NULL)
+            return address;
+
+        overflowCount++;
+        if (policy == OverflowPolicy.THROW)
+            throw new IllegalStateException("LinearArena overflow: requested " + bytes + " bytes with " +
+                    (capacity - offset) + " of " + capacity + " bytes left");
+
+        final long fallback = MemoryUtil.nmemAlignedAlloc(Math.max(alignment, Long.BYTES), Math.max(bytes, 1));
+        if (fallback == NULL)
+            throw new OutOfMemoryError("Failed to allocate " + bytes + " bytes");
+        if (fallbackCount == fallbacks.length)
+            fallbacks = Arrays.copyOf(fallbacks, fallbackCount * 2);
+        fallbacks[fallbackCount++] = fallback;
+        fallbackBytes += bytes + alignment;
+        updateHighWater();
+        return fallback;
+    }
+
+    /**
+     * Allocates aligned memory from the block of this arena, ignoring the overflow policy.
+     *
+     * @param bytes     The number of bytes.
+     * @param alignment The alignment of the address, a power of two.
+     * @return The address of the memory, or {@link MemoryUtil#NULL} if it does not fit.
+     */
+    public long tryAllocate(long bytes, int alignment) {
+        if (bytes < 0)
+            throw new IllegalArgumentException("Size must not be negative: " + bytes);
+        if (Integer.bitCount(alignment) != 1)
+            throw new IllegalArgumentException("Alignment must be a power of two: " + alignment);
+
+        // The block is aligned to at least BLOCK_ALIGNMENT, larger alignments are applied to the absolute address
+        final long start = (address + offset + alignment - 1 & -alignment) - address;
+        if (start + bytes > capacity)
+            return NULL;
+        offset = start + bytes;
+        updateHighWater();
+        return address + start;
+    }
+
+    private void updateHighWater() {
+        cycleHighWater = Math.max(cycleHighWater, offset + fallbackBytes);
+        highWater = Math.max(highWater, cycleHighWater);
+    }
+
+    public ByteBuffer malloc(int bytes) {
+        return MemoryUtil.memByteBuffer(allocate(bytes, DEFAULT_ALIGNMENT), bytes);
+    }
+
+    public FloatBuffer mallocFloat(int count) {
+        return MemoryUtil.memFloatBuffer(allocate((long) count * Float.BYTES, DEFAULT_ALIGNMENT), count);
+    }
+
+    public IntBuffer mallocInt(int count) {
+        return MemoryUtil.memIntBuffer(allocate((long) count * Integer.BYTES, DEFAULT_ALIGNMENT), count);
+    }
+
+    public ShortBuffer mallocShort(int count) {
+        return MemoryUtil.memShortBuffer(allocate((long) count * Short.BYTES, DEFAULT_ALIGNMENT), count);
+    }
+
+    /**
+     * Gets the current offset, which can be passed to {@link #reset(long)} to release all later allocations.
+     *
+     * @return The number of bytes used in the block.
+     */
+    public long mark() {
+        return offset;
+    }
+
+    /**
+     * Releases all allocations made from the block after a mark. Overflow allocations are only released by
+     * {@link #reset()}.
+     *
+     * @param mark The mark returned by {@link #mark()}.
+     */
+    public void reset(long mark) {
+        if (mark < 0 || mark > offset)
+            throw new IllegalArgumentException("Invalid mark " + mark + " for offset " + offset);
+        offset = mark;
+    }
+
+    /**
+     * Releases all allocations. With the {@link OverflowPolicy#GROW} policy, the block grows to the number of bytes
+     * requested since the last reset if they did not fit.
+     */
+    public void reset() {
+        final long requested = cycleHighWater;
+        freeFallbacks();
+        offset = 0;
+        cycleHighWater = 0;
+
+        if (policy == OverflowPolicy.GROW && requested > capacity) {
+            MemoryUtil.nmemAlignedFree(address);
+            allocateBlock(Math.max(requested, capacity + capacity / 2));
+        }
+    }
+
+    private void freeFallbacks() {
+        for (int i = 0; i < fallbackCount; i++)
+            MemoryUtil.nmemAlignedFree(fallbacks[i]);
+        Arrays.fill(fallbacks, 0, fallbackCount, NULL);
+        fallbackCount = 0;
+        fallbackBytes = 0;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public long getUsed() {
+        return offset;
+    }
+
+    /**
+     * Gets the highest number of bytes in use between two resets, including overflow allocations.
+     *
+     * @return The high-water mark in bytes.
+     */
+    public long getHighWater() {
+        return highWater;
+    }
+
+    /**
+     * Gets the number of allocations that did not fit into the block.
+     *
+     * @return The number of overflows.
+     */
+    public long getOverflowCount() {
+        return overflowCount;
+    }
+
+    @Override
+    public void dispose() {
+        freeFallbacks();
+        offset = 0;
+        if (address != NULL)
+            MemoryUtil.nmemAlignedFree(address);
+        address = NULL;
+        capacity = 0;
+    }
+}
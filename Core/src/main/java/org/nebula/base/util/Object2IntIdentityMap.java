@@ -0,0 +1,260 @@
+package org.nebula.base.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <br>
+ * <h2>Object2IntIdentityMap</h2>
+ * <br>
+ * The Object2IntIdentityMap class maps objects to int values without boxing. Keys are compared by identity like in an
+ * {@link java.util.IdentityHashMap}, which makes it a fast way to assign slots or indices to objects such as textures
+ * or meshes. Entries are stored in two parallel arrays with open addressing and linear probing.
+ * <p>
+ * Null keys are not permitted. Removal shifts the following entries back instead of leaving tombstones. This class is
+ * not thread safe.
+ * </p>
+ *
+ * @param <K> The type of the keys.
+ * @author Anton Schoenfeld
+ * @see IntIntHashMap
+ */
+public class Object2IntIdentityMap<K> {
+    public static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Receives the entries of a map.
+     *
+     * @param <K> The type of the keys.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<K> {
+        void accept(K key, int value);
+    }
+
+    private Object[] keys;
+    private int[] values;
+    private int mask, size, resizeThreshold;
+
+    /**
+     * Constructs an empty Object2IntIdentityMap with the default capacity.
+     */
+    public Object2IntIdentityMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty Object2IntIdentityMap.
+     *
+     * @param expectedSize The number of entries that fit before the map grows.
+     */
+    public Object2IntIdentityMap(int expectedSize) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("Expected size must not be negative: " + expectedSize);
+        allocate(tableSize(expectedSize));
+    }
+
+    private static int tableSize(int expectedSize) {
+        // The table is kept at most half full
+        return Math.max(4, Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1);
+    }
+
+    private void allocate(int tableSize) {
+        keys = new Object[tableSize];
+        values = new int[tableSize];
+        mask = tableSize - 1;
+        resizeThreshold = tableSize / 2;
+    }
+
+    private int slot(Object key) {
+        final int hash = System.identityHashCode(key) * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & mask;
+    }
+
+    /**
+     * Maps a key to a value.
+     *
+     * @param key   The key.
+     * @param value The value.
+     * @return True if the key was not mapped before.
+     */
+    public boolean put(K key, int value) {
+        Objects.requireNonNull(key, "key");
+        int slot = slot(key);
+        Object current;
+        while ((current = keys[slot]) != null) {
+            if (current == key) {
+                values[slot] = value;
+                return false;
+            }
+            slot = slot + 1 & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold)
+            rehash(keys.length * 2);
+        return true;
+    }
+
+    /**
+     * Maps a range of keys to the values at the same indices.
+     *
+     * @param keys   The keys.
+     * @param values The values.
+     * @param offset The index of the first entry.
+     * @param length The number of entries.
+     */
+    public void putAll(K[] keys, int[] values, int offset, int length) {
+        ensureCapacity(size + length);
+        for (int i = offset; i < offset + length; i++)
+            put(keys[i], values[i]);
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key          The key.
+     * @param defaultValue The value returned if the key is not mapped.
+     * @return The value of the key or the default value.
+     */
+    public int get(Object key, int defaultValue) {
+        if (key == null)
+            return defaultValue;
+        int slot = slot(key);
+        Object current;
+        while ((current = keys[slot]) != null) {
+            if (current == key)
+                return values[slot];
+            slot = slot + 1 & mask;
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Gets the values of a range of keys.
+     *
+     * @param keys         The keys.
+     * @param dest         The array receiving the values at the indices of their keys.
+     * @param offset       The index of the first key.
+     * @param length       The number of keys.
+     * @param defaultValue The value stored for keys that are not mapped.
+     */
+    public void getAll(Object[] keys, int[] dest, int offset, int length, int defaultValue) {
+        for (int i = offset; i < offset + length; i++)
+            dest[i] = get(keys[i], defaultValue);
+    }
+
+    public boolean containsKey(Object key) {
+        if (key == null)
+            return false;
+        int slot = slot(key);
+        Object current;
+        while ((current = keys[slot]) != null) {
+            if (current == key)
+                return true;
+            slot = slot + 1 & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key          The key.
+     * @param defaultValue The value returned if the key is not mapped.
+     * @return The value the key was mapped to or the default value.
+     */
+    public int remove(Object key, int defaultValue) {
+        if (key == null)
+            return defaultValue;
+        int slot = slot(key);
+        Object current;
+        while ((current = keys[slot]) != null) {
+            if (current == key) {
+                final int value = values[slot];
+                shiftBack(slot);
+                size--;
+                return value;
+            }
+            slot = slot + 1 & mask;
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Closes the gap left by a removed entry by moving back the following entries of its probe sequence.
+     */
+    private void shiftBack(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = slot + 1 & mask;
+            final Object key = keys[slot];
+            if (key == null)
+                break;
+            // Entries whose home slot lies cyclically in (gap, slot] must stay where they are
+            final int home = slot(key);
+            if ((slot - home & mask) >= (slot - gap & mask)) {
+                keys[gap] = key;
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        keys[gap] = null;
+    }
+
+    /**
+     * Ensures that the given number of entries fit without growing again.
+     *
+     * @param expectedSize The minimum number of entries.
+     */
+    public void ensureCapacity(int expectedSize) {
+        if (expectedSize > resizeThreshold)
+            rehash(tableSize(expectedSize));
+    }
+
+    private void rehash(int tableSize) {
+        final Object[] oldKeys = keys;
+        final int[] oldValues = values;
+        allocate(tableSize);
+        for (int i = 0; i < oldKeys.length; i++) {
+            final Object key = oldKeys[i];
+            if (key != null) {
+                int slot = slot(key);
+                while (keys[slot] != null)
+                    slot = slot + 1 & mask;
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Passes all entries to a consumer, in no particular order.
+     *
+     * @param consumer The consumer.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super K> consumer) {
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] != null)
+                consumer.accept((K) keys[i], values[i]);
+    }
+
+    /**
+     * Removes all entries, keeping the capacity.
+     */
+    public void clear() {
+        if (size == 0)
+            return;
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
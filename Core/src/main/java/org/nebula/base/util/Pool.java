@@ -3,35 +3,138 @@ package org.nebula.base.util;
 import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Deque;
-import java.util.List;
 
+/**
+ * <br>
+ * <h2>Pool</h2>
+ * <br>
+ * The Pool class keeps idle {@link Poolable} objects for reuse, creating new ones when it is empty. Returned objects
+ * are cleaned and kept up to a maximum size, further ones are dropped.
+ * <p>
+ * {@link #trim()} releases the objects that were idle during the whole time since the last trim, so a pool that is
+ * trimmed periodically shrinks back to the high-water mark of recent demand instead of holding the memory of a peak
+ * frame forever. The pool counts hits, misses, created, dropped and trimmed objects, see {@link #getStats()}.
+ * </p>
+ * <p>
+ * This class is not thread safe, see {@link ConcurrentPool} for pools shared between threads.
+ * </p>
+ *
+ * @param <T> The type of the pooled objects.
+ * @author Anton Schoenfeld
+ * @see Poolable
+ */
 public abstract class Pool<T extends Poolable> {
     protected final Deque<T> poolables;
+    private final int maxSize;
+    private int minIdle;
+    private long hits, misses, created, dropped, trimmed;
 
+    /**
+     * Constructs an unbounded Pool.
+     */
     public Pool() {
-        poolables = new ArrayDeque<>();
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a Pool.
+     *
+     * @param maxSize The maximum number of idle objects to keep.
+     */
+    public Pool(int maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("Max size must not be negative: " + maxSize);
+        this.poolables = new ArrayDeque<>();
+        this.maxSize = maxSize;
+        this.minIdle = Integer.MAX_VALUE;
     }
 
     protected abstract T newPoolable();
 
     public T get() {
-        return poolables.isEmpty() ? newPoolable() : poolables.pop();
+        if (poolables.isEmpty()) {
+            misses++;
+            created++;
+            minIdle = 0;
+            return newPoolable();
+        }
+        hits++;
+        final T poolable = poolables.pop();
+        minIdle = Math.min(minIdle, poolables.size());
+        return poolable;
     }
 
     public Deque<T> getAll() {
         return poolables;
     }
 
+    /**
+     * Cleans an object and returns it to the pool, or drops it if the pool is full.
+     *
+     * @param poolable The object to return.
+     */
     public void returnPoolable(T poolable) {
         poolable.clean();
+        if (poolables.size() >= maxSize) {
+            dropped++;
+            return;
+        }
         poolables.push(poolable);
     }
 
     public void clear() {
         poolables.clear();
+        minIdle = Integer.MAX_VALUE;
     }
 
+    /**
+     * Returns all objects of a collection to the pool, see {@link #returnPoolable(Poolable)}.
+     *
+     * @param poolables The objects to return.
+     */
     public void addAll(Collection<T> poolables) {
-        this.poolables.addAll(poolables);
+        for (T poolable : poolables)
+            returnPoolable(poolable);
+    }
+
+    /**
+     * Creates objects until the pool holds the given number of idle objects or is full.
+     *
+     * @param count The number of idle objects.
+     */
+    public void fill(int count) {
+        while (poolables.size() < Math.min(count, maxSize)) {
+            created++;
+            poolables.push(newPoolable());
+        }
+    }
+
+    /**
+     * Releases the objects that were not needed since the last trim, i.e. the smallest number of idle objects in that
+     * window, and starts a new window. Calling this when most objects are returned, e.g. at the start of a frame,
+     * every few frames keeps the pool at the high-water mark of these frames.
+     *
+     * @return The number of released objects.
+     */
+    public int trim() {
+        final int count = Math.min(minIdle, poolables.size());
+        // The objects at the bottom of the stack are the ones that were not used
+        for (int i = 0; i < count; i++)
+            poolables.removeLast();
+        trimmed += count;
+        minIdle = Integer.MAX_VALUE;
+        return count;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        return poolables.size();
+    }
+
+    public PoolStats getStats() {
+        return new PoolStats(poolables.size(), hits, misses, created, dropped, trimmed);
     }
 }
@@ -0,0 +1,28 @@
+package org.nebula.base.util;
+
+/**
+ * <br>
+ * <h2>PoolStats</h2>
+ * <br>
+ * The PoolStats record is a snapshot of the counters of a {@link Pool} or {@link ConcurrentPool}.
+ *
+ * @param size    The number of idle objects held by the pool.
+ * @param hits    The number of requests served from the pool.
+ * @param misses  The number of requests that found the pool empty.
+ * @param created The number of objects created by the pool.
+ * @param dropped The number of returned objects discarded because the pool was full.
+ * @param trimmed The number of idle objects released by trimming.
+ * @author Anton Schoenfeld
+ */
+public record PoolStats(int size, long hits, long misses, long created, long dropped, long trimmed) {
+
+    /**
+     * Gets the fraction of requests served from the pool.
+     *
+     * @return The hit rate between 0 and 1, or 0 if nothing was requested yet.
+     */
+    public double hitRate() {
+        final long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
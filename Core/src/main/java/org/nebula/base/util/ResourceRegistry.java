@@ -0,0 +1,253 @@
+package org.nebula.base.util;
+
+import org.nebula.base.interfaces.IDisposable;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <br>
+ * <h2>ResourceRegistry</h2>
+ * <br>
+ * The ResourceRegistry class keeps track of live {@link IDisposable} resources, the memory they hold and where they
+ * were created, to size memory budgets and to find resources that are never disposed.
+ * <p>
+ * Tracking is opt-in: it is enabled with the system property {@value ResourceRegistry#ENABLED_PROPERTY} or
+ * {@link #setEnabled(boolean)}. While disabled, every method returns after reading a single flag. Resources register
+ * themselves on creation, update their size when they reallocate and unregister in {@code dispose()}. Memory is
+ * accounted as native memory allocated by the process or as GPU memory owned by OpenGL objects.
+ * </p>
+ * <p>
+ * The creation site of every n-th registration is recorded as a stack trace, see
+ * {@value ResourceRegistry#SAMPLE_RATE_PROPERTY}. When tracking is enabled, resources that are still alive at
+ * shutdown are reported to the standard error stream, grouped by type and creation site.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see IDisposable
+ */
+public final class ResourceRegistry {
+    public static final String ENABLED_PROPERTY = "nebula.resources.track";
+    public static final String SAMPLE_RATE_PROPERTY = "nebula.resources.sampleRate";
+
+    /**
+     * The kind of memory held by a resource.
+     */
+    public enum Memory {
+        NATIVE, GPU
+    }
+
+    /**
+     * A live resource.
+     *
+     * @param type   The name of the resource's class.
+     * @param memory The kind of memory the resource holds.
+     * @param bytes  The number of bytes the resource holds.
+     * @param site   The creation site, or null if it was not sampled.
+     */
+    public record Resource(String type, Memory memory, long bytes, Throwable site) {
+    }
+
+    /**
+     * The live resources of a type.
+     *
+     * @param type   The name of the resources' class.
+     * @param memory The kind of memory the resources hold.
+     * @param count  The number of live resources.
+     * @param bytes  The number of bytes held by all of them.
+     */
+    public record Totals(String type, Memory memory, int count, long bytes) {
+    }
+
+    private static final Map<IDisposable, Resource> RESOURCES = new IdentityHashMap<>();
+    private static volatile boolean enabled;
+    private static volatile int sampleRate = Math.max(1, Integer.getInteger(SAMPLE_RATE_PROPERTY, 1));
+    private static boolean shutdownReportInstalled;
+    private static long registrations;
+
+    static {
+        if (Boolean.getBoolean(ENABLED_PROPERTY))
+            setEnabled(true);
+    }
+
+    private ResourceRegistry() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables tracking. Resources created while tracking is disabled are not tracked, disabling it keeps
+     * the recorded resources until {@link #clear()}.
+     *
+     * @param enabled Whether resources are tracked.
+     */
+    public static synchronized void setEnabled(boolean enabled) {
+        ResourceRegistry.enabled = enabled;
+        if (enabled && !shutdownReportInstalled) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (getLiveCount() > 0)
+                    report(System.err);
+            }, "ResourceRegistry shutdown report"));
+            shutdownReportInstalled = true;
+        }
+    }
+
+    /**
+     * Sets how often creation sites are recorded.
+     *
+     * @param sampleRate Records the stack trace of every n-th registration, 1 records all of them.
+     */
+    public static void setSampleRate(int sampleRate) {
+        if (sampleRate < 1)
+            throw new IllegalArgumentException("Sample rate must be at least 1: " + sampleRate);
+        ResourceRegistry.sampleRate = sampleRate;
+    }
+
+    /**
+     * Registers a resource, or updates it if it is already registered.
+     *
+     * @param resource The resource.
+     * @param memory   The kind of memory the resource holds.
+     * @param bytes    The number of bytes the resource holds.
+     */
+    public static void register(IDisposable resource, Memory memory, long bytes) {
+        if (!enabled)
+            return;
+        synchronized (RESOURCES) {
+            final Resource existing = RESOURCES.get(resource);
+            if (existing != null) {
+                RESOURCES.put(resource, new Resource(existing.type, memory, bytes, existing.site));
+                return;
+            }
+            final Throwable site = registrations++ % sampleRate == 0 ? new Throwable("Created at") : null;
+            RESOURCES.put(resource, new Resource(typeName(resource), memory, bytes, site));
+        }
+    }
+
+    /**
+     * Updates the number of bytes held by a registered resource. Unregistered resources are ignored.
+     *
+     * @param resource The resource.
+     * @param bytes    The number of bytes the resource holds.
+     */
+    public static void resize(IDisposable resource, long bytes) {
+        if (!enabled)
+            return;
+        synchronized (RESOURCES) {
+            final Resource existing = RESOURCES.get(resource);
+            if (existing != null && existing.bytes != bytes)
+                RESOURCES.put(resource, new Resource(existing.type, existing.memory, bytes, existing.site));
+        }
+    }
+
+    /**
+     * Removes a disposed resource.
+     *
+     * @param resource The resource.
+     */
+    public static void unregister(IDisposable resource) {
+        if (!enabled)
+            return;
+        synchronized (RESOURCES) {
+            RESOURCES.remove(resource);
+        }
+    }
+
+    private static String typeName(Object resource) {
+        Class<?> type = resource.getClass();
+        while (type.isAnonymousClass())
+            type = type.getSuperclass();
+        return type.getSimpleName();
+    }
+
+    public static int getLiveCount() {
+        synchronized (RESOURCES) {
+            return RESOURCES.size();
+        }
+    }
+
+    public static List<Resource> getLiveResources() {
+        synchronized (RESOURCES) {
+            return new ArrayList<>(RESOURCES.values());
+        }
+    }
+
+    /**
+     * Gets the number of bytes held by all live resources.
+     *
+     * @param memory The kind of memory.
+     * @return The number of bytes.
+     */
+    public static long getTotalBytes(Memory memory) {
+        long bytes = 0;
+        for (Resource resource : getLiveResources())
+            if (resource.memory == memory)
+                bytes += resource.bytes;
+        return bytes;
+    }
+
+    /**
+     * Gets the totals of the live resources per type, largest first.
+     *
+     * @return The totals per type.
+     */
+    public static List<Totals> getTotals() {
+        final Map<String, Totals> totals = new LinkedHashMap<>();
+        for (Resource resource : getLiveResources())
+            totals.merge(resource.type, new Totals(resource.type, resource.memory, 1, resource.bytes),
+                    (a, b) -> new Totals(a.type, a.memory, a.count + b.count, a.bytes + b.bytes));
+        final List<Totals> sorted = new ArrayList<>(totals.values());
+        sorted.sort(Comparator.comparingLong(Totals::bytes).reversed().thenComparing(Totals::type));
+        return sorted;
+    }
+
+    /**
+     * Prints the totals per type and the live resources grouped by type and creation site.
+     *
+     * @param out The stream to print to.
+     */
+    public static void report(PrintStream out) {
+        out.println("Live resources: " + getLiveCount() + ", native memory " + getTotalBytes(Memory.NATIVE) +
+                " bytes, GPU memory " + getTotalBytes(Memory.GPU) + " bytes");
+        for (Totals totals : getTotals())
+            out.println("  " + totals.type + ": " + totals.count + " live, " + totals.bytes + " bytes " +
+                    totals.memory);
+
+        final Map<String, long[]> sites = new LinkedHashMap<>();
+        for (Resource resource : getLiveResources()) {
+            if (resource.site == null)
+                continue;
+            final String key = resource.type + " created at\n" + formatSite(resource.site);
+            final long[] counts = sites.computeIfAbsent(key, k -> new long[2]);
+            counts[0]++;
+            counts[1] += resource.bytes;
+        }
+        for (Map.Entry<String, long[]> site : sites.entrySet())
+            out.println(site.getValue()[0] + " x " + site.getValue()[1] + " bytes: " + site.getKey());
+    }
+
+    private static String formatSite(Throwable site) {
+        final StringBuilder builder = new StringBuilder();
+        Arrays.stream(site.getStackTrace())
+                .filter(element -> !element.getClassName().equals(ResourceRegistry.class.getName()))
+                .forEach(element -> builder.append("    at ").append(element).append('\n'));
+        return builder.toString();
+    }
+
+    /**
+     * Forgets all recorded resources.
+     */
+    public static void clear() {
+        synchronized (RESOURCES) {
+            RESOURCES.clear();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package org.nebula.base.util;
+
+import org.lwjgl.system.MemoryUtil;
+import org.nebula.base.interfaces.IDisposable;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+/**
+ * <br>
+ * <h2>ScratchArena</h2>
+ * <br>
+ * The ScratchArena class provides temporary native memory of any size for loaders, e.g. file contents that are
+ * decoded right away. Unlike the thread's {@code MemoryStack}, it grows on demand: allocations that do not fit are
+ * served from a new chunk of at least twice the size, so earlier allocations stay valid. When the arena is reset
+ * completely, all chunks are merged into one, after which the same demand fits into a single block.
+ * <p>
+ * Allocations are released in stack order with {@link #push()}, which returns a {@link Scope} for try-with-resources
+ * blocks. Every thread can use its own arena through {@link #get()}, which is freed by {@link #disposeForThread()}.
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see LinearArena
+ */
+public class ScratchArena implements IDisposable {
+    public static final long DEFAULT_CHUNK_SIZE = 1 << 20;
+    private static final int CHUNK_SHIFT = 48;
+    private static final long OFFSET_MASK = (1L << CHUNK_SHIFT) - 1;
+    private static final ThreadLocal<ScratchArena> ARENAS = new ThreadLocal<>();
+
+    private final List<LinearArena> chunks;
+    private int current;
+    private long highWater;
+
+    /**
+     * Constructs a ScratchArena.
+     *
+     * @param chunkSize The size of the first chunk in bytes.
+     */
+    public ScratchArena(long chunkSize) {
+        this.chunks = new ArrayList<>();
+        chunks.add(new LinearArena(chunkSize, LinearArena.OverflowPolicy.THROW));
+        ResourceRegistry.register(this, ResourceRegistry.Memory.NATIVE, chunkSize);
+    }
+
+    /**
+     * Gets the ScratchArena of the calling thread, creating it with the default chunk size on first use.
+     *
+     * @return The arena of the calling thread.
+     */
+    public static ScratchArena get() {
+        ScratchArena arena = ARENAS.get();
+        if (arena == null) {
+            arena = new ScratchArena(DEFAULT_CHUNK_SIZE);
+            ARENAS.set(arena);
+        }
+        return arena;
+    }
+
+    /**
+     * Frees the ScratchArena of the calling thread, if it has one.
+     */
+    public static void disposeForThread() {
+        final ScratchArena arena = ARENAS.get();
+        if (arena != null) {
+            arena.dispose();
+            ARENAS.remove();
+        }
+    }
+
+    /**
+     * Allocates aligned memory, adding a chunk if it does not fit.
+     *
+     * @param bytes     The number of bytes.
+     * @param alignment The alignment of the address, a power of two.
+     * @return The address of the memory.
+     */
+    public long allocate(long bytes, int alignment) {
+        long address = chunks.get(current).tryAllocate(bytes, alignment);
+        while (address == NULL) {
+            if (current + 1 == chunks.size()) {
+                final long size = Math.max(chunks.get(current).getCapacity() * 2, bytes + alignment);
+                chunks.add(new LinearArena(size, LinearArena.OverflowPolicy.THROW));
+                ResourceRegistry.resize(this, getCapacity());
+            }
+            address = chunks.get(++current).tryAllocate(bytes, alignment);
+        }
+        highWater = Math.max(highWater, getUsed());
+        return address;
+    }
+
+    public ByteBuffer malloc(int bytes) {
+        return MemoryUtil.memByteBuffer(allocate(bytes, LinearArena.DEFAULT_ALIGNMENT), bytes);
+    }
+
+    public FloatBuffer mallocFloat(int count) {
+        return MemoryUtil.memFloatBuffer(allocate((long) count * Float.BYTES, LinearArena.DEFAULT_ALIGNMENT), count);
+    }
+
+    public IntBuffer mallocInt(int count) {
+        return MemoryUtil.memIntBuffer(allocate((long) count * Integer.BYTES, LinearArena.DEFAULT_ALIGNMENT), count);
+    }
+
+    /**
+     * Marks the current position, see {@link #reset(long)}.
+     *
+     * @return The mark.
+     */
+    public long mark() {
+        return (long) current << CHUNK_SHIFT | chunks.get(current).mark();
+    }
+
+    /**
+     * Releases all allocations made after a mark.
+     *
+     * @param mark The mark returned by {@link #mark()}.
+     */
+    public void reset(long mark) {
+        final int chunk = (int) (mark >>> CHUNK_SHIFT);
+        for (int i = current; i > chunk; i--)
+            chunks.get(i).reset();
+        chunks.get(chunk).reset(mark & OFFSET_MASK);
+        current = chunk;
+    }
+
+    /**
+     * Releases all allocations and merges all chunks into one.
+     */
+    public void reset() {
+        if (chunks.size() > 1) {
+            final long capacity = getCapacity();
+            for (LinearArena chunk : chunks)
+                chunk.dispose();
+            chunks.clear();
+            chunks.add(new LinearArena(capacity, LinearArena.OverflowPolicy.THROW));
+        } else {
+            chunks.get(0).reset();
+        }
+        current = 0;
+    }
+
+    /**
+     * Marks the current position and returns a scope that resets to it when closed.
+     *
+     * @return The scope of the following allocations.
+     */
+    public Scope push() {
+        return new Scope(this, mark());
+    }
+
+    public long getCapacity() {
+        long capacity = 0;
+        for (LinearArena chunk : chunks)
+            capacity += chunk.getCapacity();
+        return capacity;
+    }
+
+    /**
+     * Gets the number of bytes in use, counting earlier chunks as full.
+     *
+     * @return The used bytes.
+     */
+    public long getUsed() {
+        long used = chunks.get(current).getUsed();
+        for (int i = 0; i < current; i++)
+            used += chunks.get(i).getCapacity();
+        return used;
+    }
+
+    /**
+     * Gets the highest number of bytes in use since this arena was created.
+     *
+     * @return The high-water mark in bytes.
+     */
+    public long getHighWater() {
+        return highWater;
+    }
+
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    @Override
+    public void dispose() {
+        for (LinearArena chunk : chunks)
+            chunk.dispose();
+        chunks.clear();
+        ResourceRegistry.unregister(this);
+    }
+
+    /**
+     * The allocations of a ScratchArena made after a mark, which are released when the scope is closed.
+     *
+     * @param arena The arena.
+     * @param mark  The mark to reset to.
+     */
+    public record Scope(ScratchArena arena, long mark) implements AutoCloseable {
+        @Override
+        public void close() {
+            arena.reset(mark);
+        }
+    }
+}
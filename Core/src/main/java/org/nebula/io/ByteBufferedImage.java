@@ -1,6 +1,7 @@
 package org.nebula.io;
 
 import org.nebula.base.interfaces.IDisposable;
+import org.nebula.base.util.ResourceRegistry;
 
 import java.nio.ByteBuffer;
 
@@ -15,6 +16,7 @@ public class ByteBufferedImage implements IDisposable {
         this.width = width;
         this.height = height;
         this.channels = channels;
+        ResourceRegistry.register(this, ResourceRegistry.Memory.NATIVE, bytes.capacity());
     }
 
     public int getWidth() {
@@ -36,5 +38,6 @@ public class ByteBufferedImage implements IDisposable {
     @Override
     public void dispose() {
         stbi_image_free(bytes);
+        ResourceRegistry.unregister(this);
     }
 }
@@ -0,0 +1,281 @@
+package org.nebula.io;
+
+import org.lwjgl.system.MemoryUtil;
+import org.nebula.base.interfaces.IDisposable;
+import org.nebula.base.util.ResourceRegistry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.OptionalLong;
+
+/**
+ * <br>
+ * <h2>CookedTexture</h2>
+ * <br>
+ * The CookedTexture class reads textures cooked by {@link TextureCooker}. A cooked texture stores its mip levels as
+ * they are uploaded, so loading it only maps the file and, if the levels are LZ4 compressed, decompresses them. No
+ * image is decoded.
+ * <p>
+ * The file is little endian and starts with a header of {@value #HEADER_SIZE} bytes:
+ * </p>
+ * <pre>
+ *  0 int  magic "NTEX"        24 int channels
+ *  4 int  version             28 int GL internal format
+ *  8 long content hash        32 int GL format
+ * 16 int  width               36 int mip count
+ * 20 int  height              40 int flags
+ *                             44 int row alignment
+ * </pre>
+ * <p>
+ * It is followed by one entry of {@value #LEVEL_ENTRY_SIZE} bytes per mip level, holding the width, height, offset in
+ * the file, stored size and uncompressed size. Rows of every level are padded to the row alignment.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see TextureCooker
+ */
+public class CookedTexture implements IDisposable {
+    public static final int MAGIC = 'N' | 'T' << 8 | 'E' << 16 | 'X' << 24;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 48, LEVEL_ENTRY_SIZE = 20;
+    /**
+     * Flag set if every level is an LZ4 block.
+     */
+    public static final int FLAG_LZ4 = 1;
+    /**
+     * The row alignment of the levels, which matches the default {@code GL_UNPACK_ALIGNMENT}.
+     */
+    public static final int ROW_ALIGNMENT = 4;
+
+    private final FileBuffer file;
+    private final ByteBuffer decompressed;
+    private final long contentHash;
+    private final int width, height, channels, internalFormat, format, flags;
+    private final int[] levelWidths, levelHeights;
+    private final ByteBuffer[] levels;
+
+    private CookedTexture(FileBuffer file) {
+        final ByteBuffer bytes = file.getBytes().duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (bytes.limit() < HEADER_SIZE || bytes.getInt(0) != MAGIC)
+            throw new IllegalArgumentException("Not a cooked texture");
+        if (bytes.getInt(4) != VERSION)
+            throw new IllegalArgumentException("Unsupported cooked texture version " + bytes.getInt(4));
+
+        this.file = file;
+        contentHash = bytes.getLong(8);
+        width = bytes.getInt(16);
+        height = bytes.getInt(20);
+        channels = bytes.getInt(24);
+        internalFormat = bytes.getInt(28);
+        format = bytes.getInt(32);
+        final int mipCount = bytes.getInt(36);
+        flags = bytes.getInt(40);
+        if (bytes.getInt(44) != ROW_ALIGNMENT)
+            throw new IllegalArgumentException("Unsupported row alignment " + bytes.getInt(44));
+        if (mipCount < 1 || HEADER_SIZE + mipCount * LEVEL_ENTRY_SIZE > bytes.limit())
+            throw new IllegalArgumentException("Invalid mip count " + mipCount);
+
+        levelWidths = new int[mipCount];
+        levelHeights = new int[mipCount];
+        levels = new ByteBuffer[mipCount];
+
+        final boolean compressed = isCompressed();
+        long totalSize = 0;
+        for (int i = 0; i < mipCount; i++)
+            totalSize += bytes.getInt(HEADER_SIZE + i * LEVEL_ENTRY_SIZE + 16);
+        if (compressed && totalSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Cooked texture is too large: " + totalSize + " bytes");
+        decompressed = compressed ? MemoryUtil.memAlloc((int) totalSize) : null;
+
+        try {
+            readLevels(bytes, compressed);
+        } catch (RuntimeException e) {
+            if (decompressed != null)
+                MemoryUtil.memFree(decompressed);
+            throw e;
+        }
+        if (compressed)
+            ResourceRegistry.register(this, ResourceRegistry.Memory.NATIVE, totalSize);
+    }
+
+    private void readLevels(ByteBuffer bytes, boolean compressed) {
+        int decompressedOffset = 0;
+        for (int i = 0; i < levels.length; i++) {
+            final int entry = HEADER_SIZE + i * LEVEL_ENTRY_SIZE;
+            levelWidths[i] = bytes.getInt(entry);
+            levelHeights[i] = bytes.getInt(entry + 4);
+            final int offset = bytes.getInt(entry + 8), storedSize = bytes.getInt(entry + 12);
+            final int size = bytes.getInt(entry + 16);
+            if (size != getRowStride(levelWidths[i], channels) * levelHeights[i] || offset < 0 ||
+                    offset + storedSize > bytes.limit())
+                throw new IllegalArgumentException("Invalid mip level " + i);
+
+            if (compressed) {
+                Lz4.decompress(bytes, offset, storedSize, decompressed, decompressedOffset, size);
+                levels[i] = decompressed.slice(decompressedOffset, size);
+                decompressedOffset += size;
+            } else {
+                levels[i] = bytes.slice(offset, size);
+            }
+        }
+    }
+
+    /**
+     * Reads a cooked texture from a file, which is memory-mapped if it is large enough.
+     *
+     * @param filePath The path of the cooked texture.
+     * @return The cooked texture, which must be disposed.
+     * @throws IllegalArgumentException If the file is not a valid cooked texture.
+     */
+    public static CookedTexture read(String filePath) {
+        return read(Files.readFileBuffer(filePath));
+    }
+
+    /**
+     * Reads a cooked texture from a resource.
+     *
+     * @param resourceName The name of the cooked texture resource.
+     * @return The cooked texture, which must be disposed.
+     * @throws IllegalArgumentException If the resource is not a valid cooked texture.
+     */
+    public static CookedTexture readResource(String resourceName) {
+        return read(Files.readResourceBuffer(resourceName));
+    }
+
+    /**
+     * Reads a cooked texture from the contents of a file. Uncompressed levels are views of the file buffer.
+     *
+     * @param file The contents of the cooked texture, which are disposed with the texture.
+     * @return The cooked texture, which must be disposed.
+     * @throws IllegalArgumentException If the contents are not a valid cooked texture.
+     */
+    public static CookedTexture read(FileBuffer file) {
+        try {
+            return new CookedTexture(file);
+        } catch (RuntimeException e) {
+            file.dispose();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads only the content hash from the header of a cooked texture.
+     *
+     * @param path The path of the cooked texture.
+     * @return The content hash, or empty if the file does not exist or is not a cooked texture of this version.
+     * @throws IOException If the file can not be read.
+     */
+    static OptionalLong readContentHash(Path path) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (header.hasRemaining())
+                if (channel.read(header) < 0)
+                    return OptionalLong.empty();
+        } catch (NoSuchFileException e) {
+            return OptionalLong.empty();
+        }
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+            return OptionalLong.empty();
+        return OptionalLong.of(header.getLong(8));
+    }
+
+    /**
+     * Gets the number of bytes of a row padded to {@value #ROW_ALIGNMENT} bytes.
+     *
+     * @param width    The width in pixels.
+     * @param channels The number of channels.
+     * @return The row stride in bytes.
+     */
+    public static int getRowStride(int width, int channels) {
+        return width * channels + ROW_ALIGNMENT - 1 & -ROW_ALIGNMENT;
+    }
+
+    /**
+     * Gets the pixels of a mip level, row by row with rows padded to {@value #ROW_ALIGNMENT} bytes.
+     *
+     * @param level The mip level, 0 being the full size image.
+     * @return The pixels, which are valid until the texture is disposed.
+     */
+    public ByteBuffer getLevel(int level) {
+        return levels[level];
+    }
+
+    public int getLevelWidth(int level) {
+        return levelWidths[level];
+    }
+
+    public int getLevelHeight(int level) {
+        return levelHeights[level];
+    }
+
+    public int getMipCount() {
+        return levels.length;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * Gets the sized GL internal format, e.g. {@code GL_RGBA8}.
+     *
+     * @return The internal format.
+     */
+    public int getInternalFormat() {
+        return internalFormat;
+    }
+
+    /**
+     * Gets the GL pixel format of the levels, e.g. {@code GL_RGBA}.
+     *
+     * @return The pixel format.
+     */
+    public int getFormat() {
+        return format;
+    }
+
+    /**
+     * Gets the hash of the source the texture was cooked from.
+     *
+     * @return The content hash.
+     * @see TextureCooker#contentHash(ByteBuffer)
+     */
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    public boolean isCompressed() {
+        return (flags & FLAG_LZ4) != 0;
+    }
+
+    /**
+     * Gets whether the levels are views of a memory-mapped file.
+     *
+     * @return Whether no bytes were copied to load the levels.
+     */
+    public boolean isMapped() {
+        return file.isMapped() && !isCompressed();
+    }
+
+    @Override
+    public void dispose() {
+        file.dispose();
+        if (decompressed != null) {
+            MemoryUtil.memFree(decompressed);
+            ResourceRegistry.unregister(this);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.nebula.io;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * <br>
+ * <h2>DirectBufferPool</h2>
+ * <br>
+ * The DirectBufferPool class recycles direct buffers for file contents that can not be memory-mapped, e.g. resources
+ * inside a jar. Buffers are pooled in power of two size classes, with at most {@value #MAX_PER_CLASS} idle buffers
+ * per class. Buffers larger than the largest class are allocated exactly and freed on release.
+ *
+ * @author Anton Schoenfeld
+ * @see FileBuffer
+ */
+final class DirectBufferPool {
+    private static final int MIN_SHIFT = 12, MAX_SHIFT = 24;
+    private static final int MAX_PER_CLASS = 2;
+    @SuppressWarnings("unchecked")
+    private static final Queue<ByteBuffer>[] FREE = new Queue[MAX_SHIFT - MIN_SHIFT + 1];
+
+    static {
+        for (int i = 0; i < FREE.length; i++)
+            FREE[i] = new ConcurrentLinkedQueue<>();
+    }
+
+    private DirectBufferPool() {
+    }
+
+    private static int sizeClass(int size) {
+        final int shift = Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1));
+        return shift <= MAX_SHIFT ? shift - MIN_SHIFT : -1;
+    }
+
+    /**
+     * Gets a direct buffer whose limit is the given size.
+     *
+     * @param size The number of bytes.
+     * @return A cleared buffer of at least the size.
+     */
+    static ByteBuffer acquire(int size) {
+        final int sizeClass = sizeClass(size);
+        if (sizeClass < 0)
+            return MemoryUtil.memAlloc(size);
+
+        ByteBuffer buffer = FREE[sizeClass].poll();
+        if (buffer == null)
+            buffer = MemoryUtil.memAlloc(1 << sizeClass + MIN_SHIFT);
+        return buffer.clear().limit(size);
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #acquire(int)}.
+     *
+     * @param buffer The buffer, which must not be used afterwards.
+     */
+    static void release(ByteBuffer buffer) {
+        final int capacity = buffer.capacity();
+        final int sizeClass = sizeClass(capacity);
+        if (sizeClass >= 0 && 1 << sizeClass + MIN_SHIFT == capacity && FREE[sizeClass].size() < MAX_PER_CLASS)
+            FREE[sizeClass].add(buffer);
+        else
+            MemoryUtil.memFree(buffer);
+    }
+
+    /**
+     * Frees all idle buffers.
+     */
+    static void clear() {
+        for (Queue<ByteBuffer> free : FREE) {
+            ByteBuffer buffer;
+            while ((buffer = free.poll()) != null)
+                MemoryUtil.memFree(buffer);
+        }
+    }
+}
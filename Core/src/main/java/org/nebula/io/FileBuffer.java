@@ -0,0 +1,74 @@
+package org.nebula.io;
+
+import org.nebula.base.interfaces.IDisposable;
+import org.nebula.base.util.ResourceRegistry;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <br>
+ * <h2>FileBuffer</h2>
+ * <br>
+ * The FileBuffer class holds the contents of a file or resource in a direct buffer, which can be passed to native
+ * decoders like stb without copying. Large files are memory-mapped, so their contents are never copied into the
+ * process; small files and resources inside a jar are read into a pooled direct buffer, which is returned to the pool
+ * on {@link #dispose()}.
+ * <p>
+ * The buffer must not be used after it is disposed. Mapped buffers are unmapped by the garbage collector.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see Files#readFileBuffer(String)
+ * @see Files#readResourceBuffer(String)
+ */
+public class FileBuffer implements IDisposable {
+    private final ByteBuffer bytes;
+    private final boolean mapped;
+    private final long bytesCopied;
+    private boolean disposed;
+
+    FileBuffer(ByteBuffer bytes, boolean mapped, long bytesCopied) {
+        this.bytes = bytes;
+        this.mapped = mapped;
+        this.bytesCopied = bytesCopied;
+        if (!mapped)
+            ResourceRegistry.register(this, ResourceRegistry.Memory.NATIVE, bytes.capacity());
+    }
+
+    /**
+     * Gets the contents, from position 0 to the limit.
+     *
+     * @return The direct buffer of the contents.
+     */
+    public ByteBuffer getBytes() {
+        return bytes;
+    }
+
+    public int size() {
+        return bytes.limit();
+    }
+
+    public boolean isMapped() {
+        return mapped;
+    }
+
+    /**
+     * Gets the number of bytes that were copied in memory to load the contents, 0 if the file is mapped.
+     *
+     * @return The copied bytes.
+     */
+    public long getBytesCopied() {
+        return bytesCopied;
+    }
+
+    @Override
+    public void dispose() {
+        if (disposed)
+            return;
+        disposed = true;
+        if (!mapped) {
+            DirectBufferPool.release(bytes);
+            ResourceRegistry.unregister(this);
+        }
+    }
+}
@@ -1,20 +1,40 @@
 package org.nebula.io;
 
 import org.lwjgl.system.MemoryStack;
+import org.nebula.base.util.ScratchArena;
 
 import java.io.BufferedInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
 
 import static org.lwjgl.stb.STBImage.*;
 import static org.lwjgl.system.MemoryStack.stackPush;
 
 public class Files {
+    /**
+     * Files of at least this size are memory-mapped, smaller files are read, which is cheaper than mapping them.
+     */
+    public static final int MAP_THRESHOLD = 64 << 10;
+    private static final int STREAM_BUFFER_SIZE = 8 << 10;
+    private static final LongAdder BYTES_COPIED = new LongAdder(), BYTES_MAPPED = new LongAdder();
+    private static final List<PakArchive> MOUNTED = new CopyOnWriteArrayList<>();
+
     public static ByteBufferedImage readImage(String filePath) {
         ByteBufferedImage bbi;
 
@@ -43,34 +63,108 @@ public class Files {
     }
 
     public static String readFileAsString(String filePath) {
-        return new String(readFile(filePath));
+        try (FileBuffer file = readFileBuffer(filePath)) {
+            return StandardCharsets.UTF_8.decode(file.getBytes()).toString();
+        }
     }
 
-    public static ByteBufferedImage readImageFromResource(String resourceName) {
-        byte[] byteArr = readResource(resourceName);
+    /**
+     * Reads a file into a direct buffer without copying it through the heap. Files of at least
+     * {@value #MAP_THRESHOLD} bytes are memory-mapped.
+     *
+     * @param filePath The path of the file.
+     * @return The contents of the file, which must be disposed.
+     */
+    public static FileBuffer readFileBuffer(String filePath) {
+        try {
+            return readFileBuffer(Path.of(filePath));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-        ByteBufferedImage bbi;
+    private static FileBuffer readFileBuffer(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("File is too large to be read into a buffer: " + path);
 
-        try (MemoryStack stack = stackPush()) {
-            ByteBuffer byteBuffer = stack.malloc(byteArr.length);
-            byteBuffer.put(byteArr, 0, byteArr.length);
-            byteBuffer.flip();
+            if (size >= MAP_THRESHOLD) {
+                // The mapping stays valid after the channel is closed
+                BYTES_MAPPED.add(size);
+                return new FileBuffer(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), true, 0);
+            }
 
+            final ByteBuffer buffer = DirectBufferPool.acquire((int) size);
+            try {
+                while (buffer.hasRemaining())
+                    if (channel.read(buffer) < 0)
+                        break;
+            } catch (IOException e) {
+                DirectBufferPool.release(buffer);
+                throw e;
+            }
+            buffer.flip();
+            BYTES_COPIED.add(buffer.limit());
+            return new FileBuffer(buffer, false, buffer.limit());
+        }
+    }
+
+    public static ByteBufferedImage readImageFromResource(String resourceName) {
+        try (FileBuffer file = readResourceBuffer(resourceName)) {
+            return decodeImage(file.getBytes());
+        }
+    }
+
+    /**
+     * Decodes an image file, e.g. a PNG, from a direct buffer such as a {@link FileBuffer}.
+     *
+     * @param encoded The contents of the image file, from its position to its limit.
+     * @return The decoded image.
+     */
+    public static ByteBufferedImage decodeImage(ByteBuffer encoded) {
+        try (MemoryStack stack = stackPush()) {
             IntBuffer width = stack.mallocInt(1);
             IntBuffer height = stack.mallocInt(1);
             IntBuffer channels = stack.mallocInt(1);
 
-            ByteBuffer image = stbi_load_from_memory(byteBuffer, width, height, channels, STBI_default);
+            ByteBuffer image = stbi_load_from_memory(encoded, width, height, channels, STBI_default);
             if (image == null)
                 throw new RuntimeException("STB Failure reason: " + stbi_failure_reason());
 
-            bbi = new ByteBufferedImage(image, width.get(), height.get(), channels.get());
+            return new ByteBufferedImage(image, width.get(), height.get(), channels.get());
         }
+    }
 
-        return bbi;
+    /**
+     * Decodes an image file, e.g. a PNG, that has already been read into memory. Unlike reading, decoding is CPU bound
+     * and can be run on worker threads.
+     *
+     * @param byteArr The contents of the image file.
+     * @return The decoded image.
+     */
+    public static ByteBufferedImage decodeImage(byte[] byteArr) {
+        // The encoded image is usually larger than the thread's MemoryStack, so it goes into the scratch arena
+        final ScratchArena scratch = ScratchArena.get();
+        try (ScratchArena.Scope scope = scratch.push()) {
+            ByteBuffer byteBuffer = scratch.malloc(byteArr.length);
+            byteBuffer.put(0, byteArr);
+            return decodeImage(byteBuffer);
+        }
     }
 
     public static byte[] readResource(String resourceName) {
+        for (PakArchive archive : MOUNTED) {
+            final int index = archive.indexOf(resourceName);
+            if (index >= 0) {
+                try (FileBuffer file = archive.read(index)) {
+                    final byte[] bytes = new byte[file.size()];
+                    file.getBytes().get(0, bytes);
+                    return bytes;
+                }
+            }
+        }
+
         URL url = ClassLoader.getSystemClassLoader().getResource(resourceName);
         Objects.requireNonNull(url);
 
@@ -88,7 +182,120 @@ public class Files {
         return bytes;
     }
 
+    /**
+     * Reads a resource into a direct buffer. Resources in a {@link #mount(PakArchive) mounted} archive are read from
+     * the archive, resources in a directory are read like files with {@link #readFileBuffer(String)}, resources in a
+     * jar are streamed into a pooled direct buffer.
+     *
+     * @param resourceName The name of the resource.
+     * @return The contents of the resource, which must be disposed.
+     */
+    public static FileBuffer readResourceBuffer(String resourceName) {
+        for (PakArchive archive : MOUNTED) {
+            final int index = archive.indexOf(resourceName);
+            if (index >= 0)
+                return archive.read(index);
+        }
+
+        URL url = ClassLoader.getSystemClassLoader().getResource(resourceName);
+        if (url == null)
+            throw new RuntimeException(new FileNotFoundException("Could not find resource: " + resourceName));
+
+        try {
+            if ("file".equals(url.getProtocol()))
+                return readFileBuffer(Path.of(url.toURI()));
+
+            final URLConnection connection = url.openConnection();
+            try (InputStream in = connection.getInputStream()) {
+                return readStream(in, connection.getContentLengthLong());
+            }
+        } catch (IOException | URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static FileBuffer readStream(InputStream in, long sizeHint) throws IOException {
+        final ReadableByteChannel channel = Channels.newChannel(in);
+        ByteBuffer buffer = DirectBufferPool.acquire(sizeHint >= 0 && sizeHint < Integer.MAX_VALUE ?
+                (int) sizeHint : STREAM_BUFFER_SIZE);
+        long copied = 0;
+        try {
+            while (true) {
+                if (!buffer.hasRemaining()) {
+                    // The size is unknown or was wrong, so the buffer grows unless the stream has ended
+                    final int next = in.read();
+                    if (next < 0)
+                        break;
+                    final ByteBuffer grown = DirectBufferPool.acquire(Math.max(buffer.limit() * 2, STREAM_BUFFER_SIZE));
+                    grown.put(buffer.flip()).put((byte) next);
+                    copied += buffer.limit();
+                    DirectBufferPool.release(buffer);
+                    buffer = grown;
+                }
+                if (channel.read(buffer) < 0)
+                    break;
+            }
+        } catch (IOException e) {
+            DirectBufferPool.release(buffer);
+            throw e;
+        }
+        buffer.flip();
+        copied += buffer.limit();
+        BYTES_COPIED.add(copied);
+        return new FileBuffer(buffer, false, copied);
+    }
+
     public static String readResourceAsString(String resourceName) {
-        return new String(readResource(resourceName));
+        try (FileBuffer file = readResourceBuffer(resourceName)) {
+            return StandardCharsets.UTF_8.decode(file.getBytes()).toString();
+        }
+    }
+
+    /**
+     * Gets the number of bytes copied into buffers by all loads through {@link FileBuffer FileBuffers}, including
+     * the copies made when a buffer grows.
+     *
+     * @return The copied bytes.
+     */
+    public static long getBytesCopied() {
+        return BYTES_COPIED.sum();
+    }
+
+    /**
+     * Gets the number of bytes of all files that were memory-mapped instead of copied.
+     *
+     * @return The mapped bytes.
+     */
+    public static long getBytesMapped() {
+        return BYTES_MAPPED.sum();
+    }
+
+    /**
+     * Mounts an archive, so that resources are read from it before the class path. Archives mounted later are searched
+     * first.
+     *
+     * @param archive The archive.
+     */
+    public static void mount(PakArchive archive) {
+        MOUNTED.add(0, archive);
+    }
+
+    public static void unmount(PakArchive archive) {
+        MOUNTED.remove(archive);
+    }
+
+    static void countCopied(long bytes) {
+        BYTES_COPIED.add(bytes);
+    }
+
+    static void countMapped(long bytes) {
+        BYTES_MAPPED.add(bytes);
+    }
+
+    /**
+     * Frees the idle direct buffers kept for reading small files and resources.
+     */
+    public static void releasePooledBuffers() {
+        DirectBufferPool.clear();
     }
 }
@@ -0,0 +1,254 @@
+package org.nebula.io;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * <br>
+ * <h2>Lz4</h2>
+ * <br>
+ * The Lz4 class compresses and decompresses data in the LZ4 block format. Decompression only copies literals and
+ * earlier output, which makes it fast enough to run while loading, unlike inflating a PNG. Compression uses a single
+ * hash table of recent positions and is meant for offline cooking.
+ * <p>
+ * Blocks do not store their uncompressed size, it has to be kept next to the block.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see CookedTexture
+ */
+public final class Lz4 {
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MATCH_FIND_LIMIT = 12;
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_LOG = 16;
+
+    private Lz4() {
+    }
+
+    /**
+     * Gets the size of the largest block the given number of bytes can compress to.
+     *
+     * @param length The uncompressed size.
+     * @return The maximum compressed size.
+     */
+    public static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses a range of a buffer.
+     *
+     * @param src       The buffer to compress.
+     * @param srcOffset The index of the first byte to compress.
+     * @param srcLength The number of bytes to compress.
+     * @param dst       The buffer receiving the block, with at least {@link #maxCompressedLength(int)} bytes left.
+     * @param dstOffset The index to write the block to.
+     * @return The size of the block.
+     */
+    public static int compress(ByteBuffer src, int srcOffset, int srcLength, ByteBuffer dst, int dstOffset) {
+        final int end = srcOffset + srcLength;
+        final int matchLimit = end - LAST_LITERALS, matchFindLimit = end - MATCH_FIND_LIMIT;
+        final int[] table = new int[1 << HASH_LOG];
+
+        int position = srcOffset, anchor = srcOffset, out = dstOffset;
+        while (position < matchFindLimit) {
+            final int sequence = src.getInt(position);
+            final int hash = sequence * -1640531535 >>> 32 - HASH_LOG;
+            // Positions are stored plus one, so 0 marks an empty entry
+            int candidate = table[hash] - 1;
+            table[hash] = position + 1;
+            if (candidate < 0 || position - candidate > MAX_OFFSET || src.getInt(candidate) != sequence) {
+                position++;
+                continue;
+            }
+
+            int start = position;
+            while (start > anchor && candidate > srcOffset && src.get(start - 1) == src.get(candidate - 1)) {
+                start--;
+                candidate--;
+            }
+            int matchLength = position - start + MIN_MATCH;
+            while (start + matchLength < matchLimit && src.get(candidate + matchLength) == src.get(start + matchLength))
+                matchLength++;
+
+            out = writeSequence(src, anchor, start - anchor, start - candidate, matchLength, dst, out);
+            position = start + matchLength;
+            anchor = position;
+        }
+
+        // The block ends with a sequence of literals only
+        final int literals = end - anchor;
+        final int token = out++;
+        dst.put(token, (byte) (Math.min(literals, 15) << 4));
+        if (literals >= 15)
+            out = writeLength(dst, out, literals - 15);
+        dst.put(out, src, anchor, literals);
+        return out + literals - dstOffset;
+    }
+
+    private static int writeSequence(ByteBuffer src, int anchor, int literals, int offset, int matchLength,
+                                     ByteBuffer dst, int out) {
+        final int token = out++;
+        final int extraMatchLength = matchLength - MIN_MATCH;
+        dst.put(token, (byte) (Math.min(literals, 15) << 4 | Math.min(extraMatchLength, 15)));
+        if (literals >= 15)
+            out = writeLength(dst, out, literals - 15);
+        dst.put(out, src, anchor, literals);
+        out += literals;
+        dst.put(out++, (byte) offset);
+        dst.put(out++, (byte) (offset >>> 8));
+        if (extraMatchLength >= 15)
+            out = writeLength(dst, out, extraMatchLength - 15);
+        return out;
+    }
+
+    private static int writeLength(ByteBuffer dst, int out, int length) {
+        while (length >= 255) {
+            dst.put(out++, (byte) 255);
+            length -= 255;
+        }
+        dst.put(out++, (byte) length);
+        return out;
+    }
+
+    /**
+     * Decompresses a block.
+     *
+     * @param src       The buffer containing the block.
+     * @param srcOffset The index of the block.
+     * @param srcLength The size of the block.
+     * @param dst       The buffer receiving the decompressed bytes.
+     * @param dstOffset The index to write the decompressed bytes to.
+     * @param dstLength The uncompressed size.
+     * @throws IllegalArgumentException If the block is corrupt or does not decompress to the given size.
+     */
+    public static void decompress(ByteBuffer src, int srcOffset, int srcLength, ByteBuffer dst, int dstOffset,
+                                  int dstLength) {
+        if (srcOffset < 0 || srcOffset + srcLength > src.limit() || dstOffset < 0 || dstOffset + dstLength > dst.limit())
+            throw new IndexOutOfBoundsException("Block exceeds the buffers");
+        if (src.isDirect() && dst.isDirect()) {
+            decompress(memAddress0(src) + srcOffset, srcLength, memAddress0(dst) + dstOffset, dstLength);
+            return;
+        }
+
+        final int srcEnd = srcOffset + srcLength, dstEnd = dstOffset + dstLength;
+        int in = srcOffset, out = dstOffset;
+        while (in < srcEnd) {
+            final int token = src.get(in++) & 0xFF;
+
+            int literals = token >>> 4;
+            if (literals == 15) {
+                int b;
+                do {
+                    b = src.get(in++) & 0xFF;
+                    literals += b;
+                } while (b == 255);
+            }
+            if (in + literals > srcEnd || out + literals > dstEnd)
+                throw new IllegalArgumentException("Corrupt LZ4 block: literals exceed the block");
+            dst.put(out, src, in, literals);
+            in += literals;
+            out += literals;
+            if (in == srcEnd)
+                break;
+
+            final int offset = src.get(in) & 0xFF | (src.get(in + 1) & 0xFF) << 8;
+            in += 2;
+            int matchLength = token & 15;
+            if (matchLength == 15) {
+                int b;
+                do {
+                    b = src.get(in++) & 0xFF;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+
+            final int match = out - offset;
+            if (offset == 0 || match < dstOffset || out + matchLength > dstEnd)
+                throw new IllegalArgumentException("Corrupt LZ4 block: invalid match at " + (in - srcOffset));
+            if (offset >= matchLength) {
+                dst.put(out, dst, match, matchLength);
+            } else {
+                // Overlapping matches repeat the last offset bytes
+                for (int i = 0; i < matchLength; i++)
+                    dst.put(out + i, dst.get(match + i));
+            }
+            out += matchLength;
+        }
+        if (out != dstEnd)
+            throw new IllegalArgumentException("LZ4 block decompressed to " + (out - dstOffset) + " instead of " +
+                    dstLength + " bytes");
+    }
+
+    /**
+     * Decompresses a block between native addresses. Every copy is bounds checked before it is made, short copies
+     * move 8 bytes at a time where the buffers have room for it.
+     */
+    private static void decompress(long src, int srcLength, long dst, int dstLength) {
+        int in = 0, out = 0;
+        while (in < srcLength) {
+            final int token = memGetByte(src + in++) & 0xFF;
+
+            int literals = token >>> 4;
+            if (literals == 15) {
+                int b;
+                do {
+                    if (in >= srcLength)
+                        throw new IllegalArgumentException("Corrupt LZ4 block: truncated literal length");
+                    b = memGetByte(src + in++) & 0xFF;
+                    literals += b;
+                } while (b == 255);
+            }
+            if (in + literals > srcLength || out + literals > dstLength)
+                throw new IllegalArgumentException("Corrupt LZ4 block: literals exceed the block");
+            if (literals <= 16 && in + 16 <= srcLength && out + 16 <= dstLength) {
+                memPutLong(dst + out, memGetLong(src + in));
+                memPutLong(dst + out + 8, memGetLong(src + in + 8));
+            } else {
+                memCopy(src + in, dst + out, literals);
+            }
+            in += literals;
+            out += literals;
+            if (in == srcLength)
+                break;
+
+            if (in + 2 > srcLength)
+                throw new IllegalArgumentException("Corrupt LZ4 block: truncated offset");
+            final int offset = memGetByte(src + in) & 0xFF | (memGetByte(src + in + 1) & 0xFF) << 8;
+            in += 2;
+            int matchLength = token & 15;
+            if (matchLength == 15) {
+                int b;
+                do {
+                    if (in >= srcLength)
+                        throw new IllegalArgumentException("Corrupt LZ4 block: truncated match length");
+                    b = memGetByte(src + in++) & 0xFF;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+
+            final int match = out - offset;
+            if (offset == 0 || match < 0 || out + matchLength > dstLength)
+                throw new IllegalArgumentException("Corrupt LZ4 block: invalid match at " + in);
+            if (offset >= 8 && out + matchLength + 8 <= dstLength) {
+                // Copying forward in steps of 8 also repeats overlapping matches correctly
+                for (int i = 0; i < matchLength; i += 8)
+                    memPutLong(dst + out + i, memGetLong(dst + match + i));
+            } else if (offset >= matchLength) {
+                memCopy(dst + match, dst + out, matchLength);
+            } else {
+                for (int i = 0; i < matchLength; i++)
+                    memPutByte(dst + out + i, memGetByte(dst + match + i));
+            }
+            out += matchLength;
+        }
+        if (out != dstLength)
+            throw new IllegalArgumentException("LZ4 block decompressed to " + out + " instead of " + dstLength +
+                    " bytes");
+    }
+}
@@ -0,0 +1,273 @@
+package org.nebula.io;
+
+import org.nebula.base.interfaces.IDisposable;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * <br>
+ * <h2>PakArchive</h2>
+ * <br>
+ * The PakArchive class reads many small assets from a single memory-mapped file, so loading them costs one open
+ * instead of one open and stat per asset. Archives are written by {@link PakBuilder}.
+ * <p>
+ * The archive is little endian and consists of:
+ * </p>
+ * <ol>
+ *     <li>A {@value #HEADER_SIZE} byte header: magic {@code "NPAK"}, version, entry count, reserved, the offset of
+ *     the name table and the offset of the entry data.</li>
+ *     <li>The index, one {@value #ENTRY_SIZE} byte entry per asset sorted by path hash: path hash, data offset,
+ *     stored size, size, name offset, name length and flags.</li>
+ *     <li>The name table holding the UTF-8 path of every entry, to resolve hash collisions.</li>
+ *     <li>The entry data in path order, each entry aligned to {@value #ALIGNMENT} bytes and LZ4 compressed if
+ *     {@link #FLAG_LZ4} is set.</li>
+ * </ol>
+ * <p>
+ * Uncompressed entries are read as slices of the mapped file without copying. Reading is thread safe, and
+ * {@link #readAll(List)} decompresses entries in parallel. An archive mounted with {@link Files#mount(PakArchive)}
+ * serves the resources read through {@link Files}.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see PakBuilder
+ */
+public class PakArchive implements IDisposable {
+    public static final int MAGIC = 'N' | 'P' << 8 | 'A' << 16 | 'K' << 24;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32, ENTRY_SIZE = 32;
+    public static final int ALIGNMENT = 16;
+    public static final int FLAG_LZ4 = 1;
+
+    private final Path path;
+    private final ByteBuffer file;
+    private final long[] hashes;
+    private final int namesOffset;
+
+    private PakArchive(Path path, ByteBuffer file) {
+        this.path = path;
+        this.file = file;
+        if (file.limit() < HEADER_SIZE || file.getInt(0) != MAGIC)
+            throw new IllegalArgumentException(path + " is not a pak archive");
+        if (file.getInt(4) != VERSION)
+            throw new IllegalArgumentException("Unsupported pak archive version " + file.getInt(4) + " in " + path);
+
+        final int entryCount = file.getInt(8);
+        final long namesOffset = file.getLong(16);
+        if (entryCount < 0 || HEADER_SIZE + (long) entryCount * ENTRY_SIZE > namesOffset ||
+                namesOffset > file.limit())
+            throw new IllegalArgumentException("Corrupt index in pak archive " + path);
+        this.namesOffset = (int) namesOffset;
+
+        hashes = new long[entryCount];
+        for (int i = 0; i < entryCount; i++)
+            hashes[i] = file.getLong(HEADER_SIZE + i * ENTRY_SIZE);
+    }
+
+    /**
+     * Memory-maps a pak archive.
+     *
+     * @param path The path of the archive.
+     * @return The archive.
+     * @throws IllegalArgumentException If the file is not a valid pak archive.
+     */
+    public static PakArchive open(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Pak archive " + path + " exceeds " + Integer.MAX_VALUE + " bytes");
+            final ByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            Files.countMapped(size);
+            return new PakArchive(path, file);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static PakArchive open(String filePath) {
+        return open(Path.of(filePath));
+    }
+
+    /**
+     * Normalizes a path to the form stored in archives: forward slashes and no leading slash.
+     *
+     * @param path The path.
+     * @return The normalized path.
+     */
+    public static String normalize(String path) {
+        path = path.replace('\\', '/');
+        int start = 0;
+        while (start < path.length() && path.charAt(start) == '/')
+            start++;
+        return path.substring(start);
+    }
+
+    /**
+     * Hashes a normalized path with 64 bit FNV-1a over its UTF-8 bytes.
+     *
+     * @param path The normalized path.
+     * @return The hash.
+     */
+    public static long hash(byte[] path) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : path)
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        return hash;
+    }
+
+    /**
+     * Finds the entry of a path.
+     *
+     * @param path The path of the asset.
+     * @return The index of the entry, or -1 if the archive does not contain the path.
+     */
+    public int indexOf(String path) {
+        final byte[] name = normalize(path).getBytes(StandardCharsets.UTF_8);
+        final long hash = hash(name);
+
+        int low = 0, high = hashes.length - 1;
+        while (low <= high) {
+            final int middle = low + high >>> 1;
+            if (hashes[middle] < hash)
+                low = middle + 1;
+            else
+                high = middle - 1;
+        }
+        for (int i = low; i < hashes.length && hashes[i] == hash; i++)
+            if (nameEquals(i, name))
+                return i;
+        return -1;
+    }
+
+    private boolean nameEquals(int index, byte[] name) {
+        final int entry = HEADER_SIZE + index * ENTRY_SIZE;
+        if ((file.getShort(entry + 28) & 0xFFFF) != name.length)
+            return false;
+        final int offset = namesOffset + file.getInt(entry + 24);
+        for (int i = 0; i < name.length; i++)
+            if (file.get(offset + i) != name[i])
+                return false;
+        return true;
+    }
+
+    public boolean contains(String path) {
+        return indexOf(path) >= 0;
+    }
+
+    /**
+     * Reads an asset.
+     *
+     * @param path The path of the asset.
+     * @return The contents, which must be disposed.
+     * @throws RuntimeException If the archive does not contain the path.
+     */
+    public FileBuffer read(String path) {
+        final int index = indexOf(path);
+        if (index < 0)
+            throw new RuntimeException(new FileNotFoundException("Could not find " + path + " in " + this.path));
+        return read(index);
+    }
+
+    /**
+     * Reads the entry at an index of the index. Uncompressed entries are slices of the mapped archive, compressed
+     * entries are decompressed into a pooled direct buffer.
+     *
+     * @param index The index of the entry.
+     * @return The contents, which must be disposed.
+     */
+    public FileBuffer read(int index) {
+        final int entry = HEADER_SIZE + index * ENTRY_SIZE;
+        final long offset = file.getLong(entry + 8);
+        final int storedSize = file.getInt(entry + 16), size = file.getInt(entry + 20);
+        if (offset < 0 || offset + storedSize > file.limit())
+            throw new IllegalArgumentException("Corrupt entry " + getPath(index) + " in pak archive " + path);
+
+        if ((file.getShort(entry + 30) & FLAG_LZ4) == 0)
+            return new FileBuffer(file.slice((int) offset, size), true, 0);
+
+        final ByteBuffer buffer = DirectBufferPool.acquire(size);
+        try {
+            Lz4.decompress(file, (int) offset, storedSize, buffer, 0, size);
+        } catch (RuntimeException e) {
+            DirectBufferPool.release(buffer);
+            throw e;
+        }
+        Files.countCopied(size);
+        return new FileBuffer(buffer, false, size);
+    }
+
+    /**
+     * Reads several assets, decompressing them in parallel.
+     *
+     * @param paths The paths of the assets.
+     * @return The contents in the order of the paths, which must be disposed.
+     * @throws RuntimeException If the archive does not contain one of the paths, in which case nothing is returned.
+     */
+    public FileBuffer[] readAll(List<String> paths) {
+        final int[] indices = new int[paths.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = indexOf(paths.get(i));
+            if (indices[i] < 0)
+                throw new RuntimeException(new FileNotFoundException("Could not find " + paths.get(i) + " in " + path));
+        }
+
+        final FileBuffer[] buffers = new FileBuffer[indices.length];
+        try {
+            IntStream.range(0, indices.length).parallel().forEach(i -> buffers[i] = read(indices[i]));
+        } catch (RuntimeException e) {
+            for (FileBuffer buffer : buffers)
+                if (buffer != null)
+                    buffer.dispose();
+            throw e;
+        }
+        return buffers;
+    }
+
+    /**
+     * Gets the path of an entry.
+     *
+     * @param index The index of the entry.
+     * @return The normalized path.
+     */
+    public String getPath(int index) {
+        final int entry = HEADER_SIZE + index * ENTRY_SIZE;
+        final byte[] name = new byte[file.getShort(entry + 28) & 0xFFFF];
+        file.get(namesOffset + file.getInt(entry + 24), name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the uncompressed size of an entry.
+     *
+     * @param index The index of the entry.
+     * @return The size in bytes.
+     */
+    public int getSize(int index) {
+        return file.getInt(HEADER_SIZE + index * ENTRY_SIZE + 20);
+    }
+
+    public int getEntryCount() {
+        return hashes.length;
+    }
+
+    public Path getArchivePath() {
+        return path;
+    }
+
+    /**
+     * Unmounts the archive from {@link Files}. Buffers read from the archive stay valid, the mapping is released by
+     * the garbage collector once they are unreachable.
+     */
+    @Override
+    public void dispose() {
+        Files.unmount(this);
+    }
+}
@@ -0,0 +1,179 @@
+package org.nebula.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * <br>
+ * <h2>PakBuilder</h2>
+ * <br>
+ * The PakBuilder class writes the archives read by {@link PakArchive}. Entries are stored in path order, so assets of
+ * the same directory end up next to each other in the file. With compression enabled, every entry is LZ4 compressed
+ * and stored compressed only if that makes it smaller.
+ *
+ * @author Anton Schoenfeld
+ * @see PakArchive
+ */
+public class PakBuilder {
+    private final Map<String, byte[]> entries = new TreeMap<>();
+    private boolean compress;
+
+    /**
+     * Adds an asset, replacing any asset with the same path.
+     *
+     * @param path     The path of the asset, which is normalized with {@link PakArchive#normalize(String)}.
+     * @param contents The contents of the asset.
+     * @return This builder.
+     */
+    public PakBuilder add(String path, byte[] contents) {
+        final String name = PakArchive.normalize(path);
+        if (name.getBytes(StandardCharsets.UTF_8).length > 0xFFFF)
+            throw new IllegalArgumentException("Path is too long: " + name);
+        entries.put(name, contents);
+        return this;
+    }
+
+    /**
+     * Adds a file as an asset.
+     *
+     * @param path The path of the asset.
+     * @param file The file to add.
+     * @return This builder.
+     */
+    public PakBuilder addFile(String path, Path file) {
+        try {
+            return add(path, java.nio.file.Files.readAllBytes(file));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Adds every file below a directory, with its path relative to the directory.
+     *
+     * @param directory The directory, e.g. {@code assets/}.
+     * @return This builder.
+     */
+    public PakBuilder addDirectory(Path directory) {
+        try (Stream<Path> files = java.nio.file.Files.walk(directory)) {
+            files.filter(java.nio.file.Files::isRegularFile)
+                    .forEach(file -> addFile(directory.relativize(file).toString(), file));
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException(e);
+        }
+        return this;
+    }
+
+    public PakBuilder setCompression(boolean compress) {
+        this.compress = compress;
+        return this;
+    }
+
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Writes the archive. The file is replaced atomically.
+     *
+     * @param output The path of the archive.
+     */
+    public void write(Path output) {
+        final class Entry {
+            private final long hash;
+            private final byte[] name, contents;
+            private long offset;
+            private int storedSize, nameOffset, flags;
+
+            private Entry(byte[] name, byte[] contents) {
+                this.hash = PakArchive.hash(name);
+                this.name = name;
+                this.contents = contents;
+            }
+        }
+
+        // The data stays in path order, only the index is sorted by hash
+        final List<Entry> byPath = new ArrayList<>(entries.size());
+        int namesSize = 0;
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            final Entry pakEntry = new Entry(entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue());
+            pakEntry.nameOffset = namesSize;
+            namesSize += pakEntry.name.length;
+            byPath.add(pakEntry);
+        }
+        final List<Entry> byHash = new ArrayList<>(byPath);
+        byHash.sort(Comparator.comparingLong(entry -> entry.hash));
+
+        final int namesOffset = PakArchive.HEADER_SIZE + byHash.size() * PakArchive.ENTRY_SIZE;
+        final long dataOffset = align(namesOffset + namesSize);
+
+        final Path directory = output.toAbsolutePath().getParent();
+        try {
+            java.nio.file.Files.createDirectories(directory);
+            final Path temp = java.nio.file.Files.createTempFile(directory, output.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    long offset = dataOffset;
+                    channel.position(offset);
+                    for (Entry entry : byPath) {
+                        final ByteBuffer stored = store(entry.contents);
+                        entry.offset = offset;
+                        entry.storedSize = stored.remaining();
+                        entry.flags = stored.array() != entry.contents ? PakArchive.FLAG_LZ4 : 0;
+                        while (stored.hasRemaining())
+                            channel.write(stored);
+
+                        offset = align(offset + entry.storedSize);
+                        channel.position(offset);
+                    }
+
+                    final ByteBuffer index = ByteBuffer.allocate((int) dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+                    index.putInt(PakArchive.MAGIC).putInt(PakArchive.VERSION).putInt(byHash.size()).putInt(0)
+                            .putLong(namesOffset).putLong(dataOffset);
+                    for (Entry entry : byHash)
+                        index.putLong(entry.hash).putLong(entry.offset).putInt(entry.storedSize)
+                                .putInt(entry.contents.length).putInt(entry.nameOffset)
+                                .putShort((short) entry.name.length).putShort((short) entry.flags);
+                    for (Entry entry : byPath)
+                        index.put(entry.name);
+                    index.clear();
+                    channel.position(0);
+                    while (index.hasRemaining())
+                        channel.write(index);
+                }
+                java.nio.file.Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                java.nio.file.Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private ByteBuffer store(byte[] contents) {
+        final ByteBuffer raw = ByteBuffer.wrap(contents);
+        if (!compress || contents.length == 0)
+            return raw;
+        final ByteBuffer compressed = ByteBuffer.allocate(Lz4.maxCompressedLength(contents.length));
+        final int size = Lz4.compress(raw, 0, contents.length, compressed, 0);
+        return size < contents.length ? compressed.limit(size) : raw;
+    }
+
+    private static long align(long offset) {
+        return offset + PakArchive.ALIGNMENT - 1 & -PakArchive.ALIGNMENT;
+    }
+}
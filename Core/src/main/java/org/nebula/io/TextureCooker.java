@@ -0,0 +1,337 @@
+package org.nebula.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.OptionalLong;
+import java.util.stream.IntStream;
+
+import static org.lwjgl.opengl.GL30C.*;
+
+/**
+ * <br>
+ * <h2>TextureCooker</h2>
+ * <br>
+ * The TextureCooker class converts decoded images into the cooked texture format read by {@link CookedTexture}. It
+ * builds the mip chain with a {@link MipFilter}, pads the rows of every level to {@value CookedTexture#ROW_ALIGNMENT}
+ * bytes and optionally compresses the levels with {@link Lz4}. Rows of large levels are filtered in parallel.
+ * <p>
+ * Cooked files remember a hash of the source file and of the cooking options, so
+ * {@link #cook(String, String, MipFilter, boolean)} only cooks a file again if its source or options changed.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see CookedTexture
+ */
+public final class TextureCooker {
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L, PRIME_2 = 0xC2B2AE3D27D4EB4FL,
+            PRIME_3 = 0x165667B19E3779F9L;
+    private static final int DATA_ALIGNMENT = 16;
+    private static final int PARALLEL_THRESHOLD = 256 * 256;
+    private static final float KAISER_RADIUS = 3, KAISER_ALPHA = 4;
+
+    /**
+     * How the mip chain is built.
+     */
+    public enum MipFilter {
+        /**
+         * Only the full size level is cooked.
+         */
+        NONE,
+        /**
+         * Every level averages 2x2 pixels of the previous one. Fast, but slightly blurry.
+         */
+        BOX,
+        /**
+         * Every level is filtered from the previous one with a Kaiser-windowed sinc of radius 3, which keeps minified
+         * textures sharper at the cost of slight ringing at hard edges.
+         */
+        KAISER
+    }
+
+    private TextureCooker() {
+    }
+
+    /**
+     * Cooks an image file if the cooked file is missing or was cooked from different contents or options.
+     *
+     * @param sourcePath The path of the image file, e.g. a PNG.
+     * @param cookedPath The path of the cooked texture.
+     * @param mipFilter  How the mip chain is built.
+     * @param compress   Whether the levels are LZ4 compressed.
+     * @return Whether the texture was cooked, false if the cooked file was up to date.
+     */
+    public static boolean cook(String sourcePath, String cookedPath, MipFilter mipFilter, boolean compress) {
+        try (FileBuffer source = Files.readFileBuffer(sourcePath)) {
+            final long hash = contentHash(source.getBytes()) * 31 + mipFilter.ordinal() + (compress ? 4 : 0);
+            final Path cooked = Path.of(cookedPath);
+            final OptionalLong cookedHash = CookedTexture.readContentHash(cooked);
+            if (cookedHash.isPresent() && cookedHash.getAsLong() == hash)
+                return false;
+
+            try (ByteBufferedImage image = Files.decodeImage(source.getBytes())) {
+                cook(image, hash, mipFilter, compress, cooked);
+            }
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Cooks a decoded image and writes it to a file. The file is replaced atomically, so readers never see a
+     * partially written texture.
+     *
+     * @param image       The image, with 1 to 4 channels.
+     * @param contentHash The hash stored in the header to detect stale files.
+     * @param mipFilter   How the mip chain is built.
+     * @param compress    Whether the levels are LZ4 compressed.
+     * @param output      The path of the cooked texture.
+     * @throws IOException If the file can not be written.
+     */
+    public static void cook(ByteBufferedImage image, long contentHash, MipFilter mipFilter, boolean compress,
+                            Path output) throws IOException {
+        final ByteBuffer cooked = cook(image, contentHash, mipFilter, compress);
+        final Path directory = output.toAbsolutePath().getParent();
+        java.nio.file.Files.createDirectories(directory);
+        final Path temp = java.nio.file.Files.createTempFile(directory, output.getFileName().toString(), ".tmp");
+        try {
+            java.nio.file.Files.write(temp, cooked.array());
+            java.nio.file.Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            java.nio.file.Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Cooks a decoded image into memory.
+     *
+     * @param image       The image, with 1 to 4 channels.
+     * @param contentHash The hash stored in the header to detect stale files.
+     * @param mipFilter   How the mip chain is built.
+     * @param compress    Whether the levels are LZ4 compressed.
+     * @return A heap buffer holding the cooked texture, from position 0 to its limit.
+     */
+    public static ByteBuffer cook(ByteBufferedImage image, long contentHash, MipFilter mipFilter, boolean compress) {
+        final int width = image.getWidth(), height = image.getHeight(), channels = image.getChannels();
+        if (channels < 1 || channels > 4)
+            throw new IllegalArgumentException("Unsupported number of channels: " + channels);
+
+        final int mipCount = mipFilter == MipFilter.NONE ? 1
+                : 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+        final byte[][] levels = new byte[mipCount][];
+        final int[] widths = new int[mipCount], heights = new int[mipCount];
+        widths[0] = width;
+        heights[0] = height;
+        levels[0] = pad(image.getBytes(), width, height, channels);
+        for (int i = 1; i < mipCount; i++) {
+            widths[i] = Math.max(1, widths[i - 1] / 2);
+            heights[i] = Math.max(1, heights[i - 1] / 2);
+            levels[i] = mipFilter == MipFilter.KAISER
+                    ? downsampleKaiser(levels[i - 1], widths[i - 1], heights[i - 1], widths[i], heights[i], channels)
+                    : downsample(levels[i - 1], widths[i - 1], heights[i - 1], widths[i], heights[i], channels);
+        }
+
+        int capacity = align(CookedTexture.HEADER_SIZE + mipCount * CookedTexture.LEVEL_ENTRY_SIZE);
+        for (byte[] level : levels)
+            capacity += align(compress ? Lz4.maxCompressedLength(level.length) : level.length);
+        final ByteBuffer out = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+
+        out.putInt(CookedTexture.MAGIC).putInt(CookedTexture.VERSION).putLong(contentHash)
+                .putInt(width).putInt(height).putInt(channels)
+                .putInt(getInternalFormat(channels)).putInt(getFormat(channels))
+                .putInt(mipCount).putInt(compress ? CookedTexture.FLAG_LZ4 : 0).putInt(CookedTexture.ROW_ALIGNMENT);
+
+        int offset = align(CookedTexture.HEADER_SIZE + mipCount * CookedTexture.LEVEL_ENTRY_SIZE);
+        for (int i = 0; i < mipCount; i++) {
+            final int storedSize;
+            if (compress) {
+                storedSize = Lz4.compress(ByteBuffer.wrap(levels[i]), 0, levels[i].length, out, offset);
+            } else {
+                out.put(offset, levels[i]);
+                storedSize = levels[i].length;
+            }
+            out.putInt(widths[i]).putInt(heights[i]).putInt(offset).putInt(storedSize).putInt(levels[i].length);
+            offset = align(offset + storedSize);
+        }
+        return out.position(0).limit(offset);
+    }
+
+    private static int align(int offset) {
+        return offset + DATA_ALIGNMENT - 1 & -DATA_ALIGNMENT;
+    }
+
+    private static byte[] pad(ByteBuffer pixels, int width, int height, int channels) {
+        final int rowSize = width * channels, stride = CookedTexture.getRowStride(width, channels);
+        final byte[] padded = new byte[stride * height];
+        for (int y = 0; y < height; y++)
+            pixels.get(y * rowSize, padded, y * stride, rowSize);
+        return padded;
+    }
+
+    private static IntStream rows(int height, int pixels) {
+        final IntStream rows = IntStream.range(0, height);
+        return pixels >= PARALLEL_THRESHOLD ? rows.parallel() : rows;
+    }
+
+    /**
+     * Halves a level with a 2x2 box filter. Odd edges repeat their last row or column.
+     */
+    private static byte[] downsample(byte[] src, int srcWidth, int srcHeight, int width, int height, int channels) {
+        final int srcStride = CookedTexture.getRowStride(srcWidth, channels);
+        final int stride = CookedTexture.getRowStride(width, channels);
+        final byte[] dst = new byte[stride * height];
+        rows(height, width * height).forEach(y -> {
+            final int row0 = Math.min(y * 2, srcHeight - 1) * srcStride;
+            final int row1 = Math.min(y * 2 + 1, srcHeight - 1) * srcStride;
+            for (int x = 0; x < width; x++) {
+                final int column0 = Math.min(x * 2, srcWidth - 1) * channels;
+                final int column1 = Math.min(x * 2 + 1, srcWidth - 1) * channels;
+                for (int c = 0; c < channels; c++) {
+                    final int sum = (src[row0 + column0 + c] & 0xFF) + (src[row0 + column1 + c] & 0xFF) +
+                            (src[row1 + column0 + c] & 0xFF) + (src[row1 + column1 + c] & 0xFF);
+                    dst[y * stride + x * channels + c] = (byte) (sum + 2 >> 2);
+                }
+            }
+        });
+        return dst;
+    }
+
+    /**
+     * The taps of a resampling filter along one axis. Output pixel i reads the source pixels from first[i] on, with
+     * the normalized weights[i]. Source indices outside the image are clamped to the edge.
+     */
+    private record Kernel(int[] first, float[][] weights) {
+        static Kernel kaiser(int srcSize, int size) {
+            final float scale = (float) srcSize / size;
+            // Filtering is only needed when minifying, a size of 1 on both sides copies the pixel
+            final float support = KAISER_RADIUS * Math.max(scale, 1);
+            final int[] first = new int[size];
+            final float[][] weights = new float[size][];
+            for (int i = 0; i < size; i++) {
+                final float center = (i + 0.5f) * scale - 0.5f;
+                final int start = (int) Math.ceil(center - support), end = (int) Math.floor(center + support);
+                final float[] w = new float[end - start + 1];
+                float sum = 0;
+                for (int j = start; j <= end; j++) {
+                    final float t = (j - center) / Math.max(scale, 1);
+                    w[j - start] = sinc(t) * kaiser(t / KAISER_RADIUS);
+                    sum += w[j - start];
+                }
+                for (int j = 0; j < w.length; j++)
+                    w[j] /= sum;
+                first[i] = start;
+                weights[i] = w;
+            }
+            return new Kernel(first, weights);
+        }
+
+        private static float sinc(float x) {
+            if (Math.abs(x) < 1e-6f)
+                return 1;
+            final double px = Math.PI * x;
+            return (float) (Math.sin(px) / px);
+        }
+
+        private static float kaiser(float x) {
+            if (Math.abs(x) >= 1)
+                return 0;
+            return (float) (besselI0(KAISER_ALPHA * Math.sqrt(1 - x * x)) / besselI0(KAISER_ALPHA));
+        }
+
+        private static double besselI0(double x) {
+            double sum = 1, term = 1;
+            for (int k = 1; term > 1e-12 * sum; k++) {
+                final double factor = x / (2 * k);
+                term *= factor * factor;
+                sum += term;
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * Resamples a level with a separable Kaiser-windowed sinc, first along the rows, then along the columns.
+     */
+    private static byte[] downsampleKaiser(byte[] src, int srcWidth, int srcHeight, int width, int height,
+                                           int channels) {
+        final Kernel horizontal = Kernel.kaiser(srcWidth, width), vertical = Kernel.kaiser(srcHeight, height);
+        final int srcStride = CookedTexture.getRowStride(srcWidth, channels);
+        final int rowSize = width * channels;
+        final float[] filteredRows = new float[srcHeight * rowSize];
+        rows(srcHeight, width * srcHeight).forEach(y -> {
+            for (int x = 0; x < width; x++) {
+                final int first = horizontal.first()[x];
+                final float[] weights = horizontal.weights()[x];
+                for (int c = 0; c < channels; c++) {
+                    float sum = 0;
+                    for (int k = 0; k < weights.length; k++) {
+                        final int column = Math.min(Math.max(first + k, 0), srcWidth - 1);
+                        sum += (src[y * srcStride + column * channels + c] & 0xFF) * weights[k];
+                    }
+                    filteredRows[y * rowSize + x * channels + c] = sum;
+                }
+            }
+        });
+
+        final int stride = CookedTexture.getRowStride(width, channels);
+        final byte[] dst = new byte[stride * height];
+        rows(height, width * height).forEach(y -> {
+            final int first = vertical.first()[y];
+            final float[] weights = vertical.weights()[y];
+            for (int i = 0; i < rowSize; i++) {
+                float sum = 0;
+                for (int k = 0; k < weights.length; k++) {
+                    final int row = Math.min(Math.max(first + k, 0), srcHeight - 1);
+                    sum += filteredRows[row * rowSize + i] * weights[k];
+                }
+                dst[y * stride + i] = (byte) Math.min(Math.max(Math.round(sum), 0), 255);
+            }
+        });
+        return dst;
+    }
+
+    private static int getInternalFormat(int channels) {
+        return switch (channels) {
+            case 1 -> GL_R8;
+            case 2 -> GL_RG8;
+            case 3 -> GL_RGB8;
+            default -> GL_RGBA8;
+        };
+    }
+
+    private static int getFormat(int channels) {
+        return switch (channels) {
+            case 1 -> GL_RED;
+            case 2 -> GL_RG;
+            case 3 -> GL_RGB;
+            default -> GL_RGBA;
+        };
+    }
+
+    /**
+     * Hashes the contents of a buffer with a 64 bit hash, 8 bytes at a time.
+     *
+     * @param bytes The buffer, hashed from its position to its limit.
+     * @return The hash.
+     */
+    public static long contentHash(ByteBuffer bytes) {
+        final ByteBuffer buffer = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        final int end = buffer.limit();
+        long hash = PRIME_3 + (long) buffer.remaining() * PRIME_1;
+        int i = buffer.position();
+        for (; i + 8 <= end; i += 8)
+            hash = Long.rotateLeft(hash ^ Long.rotateLeft(buffer.getLong(i) * PRIME_2, 31) * PRIME_1, 27) * PRIME_1
+                    + PRIME_3;
+        for (; i < end; i++)
+            hash = Long.rotateLeft(hash ^ (buffer.get(i) & 0xFFL) * PRIME_3, 11) * PRIME_1;
+        hash ^= hash >>> 33;
+        hash *= PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME_3;
+        return hash ^ hash >>> 32;
+    }
+}
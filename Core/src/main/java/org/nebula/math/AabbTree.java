@@ -0,0 +1,610 @@
+package org.nebula.math;
+
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+
+/**
+ * <br>
+ * <h2>AabbTree</h2>
+ * <br>
+ * The AabbTree class is a dynamic bounding volume hierarchy of axis aligned boxes, used as scene index for culling
+ * and picking.
+ * <p>
+ * Every object is a leaf, identified by the proxy id returned from {@link AabbTree#insert(Vector3f, Vector3f, int)}.
+ * Leaves store a box fattened by a margin and, when moving, by the predicted displacement, so small movements do not
+ * change the tree at all. Objects leaving their fat box are removed and inserted again. Insertion descends towards the
+ * sibling with the lowest surface area heuristic (SAH) cost, and every refitted node on the way back up is rotated if
+ * swapping a child with a grandchild reduces the surface area of the tree.
+ * </p>
+ * <p>
+ * Nodes live in one pool of primitive arrays with a free list, so the tree does not allocate after it has grown to its
+ * working size. The six floats of a box and the links of a node are stored next to each other, so visiting a node
+ * touches few cache lines. Queries write the user data of all hits into arrays of the caller. They use scratch memory
+ * of the tree, so an AabbTree must not be queried by several threads at once.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see Frustum
+ */
+public class AabbTree {
+    public static final int NULL = -1;
+    public static final float DEFAULT_MARGIN = 0.1f;
+    public static final float DISPLACEMENT_MULTIPLIER = 2f;
+
+    // Layout of a node in boxes and links. The parent links the free list for unused nodes, which have a height of -1
+    private static final int BOX_SIZE = 6;
+    private static final int LINK_SIZE = 4, PARENT = 0, CHILD1 = 1, CHILD2 = 2, HEIGHT = 3;
+
+    private final float margin;
+    private float[] boxes;
+    private int[] links, userData;
+    private int capacity, root, freeList, nodeCount, proxyCount;
+    private int[] stack;
+
+    /**
+     * Constructs an empty AabbTree with the default margin.
+     */
+    public AabbTree() {
+        this(DEFAULT_MARGIN);
+    }
+
+    /**
+     * Constructs an empty AabbTree.
+     *
+     * @param margin The distance by which the boxes of the leaves are enlarged in every direction.
+     */
+    public AabbTree(float margin) {
+        if (margin < 0)
+            throw new IllegalArgumentException("Margin must not be negative: " + margin);
+        this.margin = margin;
+        this.root = NULL;
+        this.freeList = NULL;
+        this.boxes = new float[0];
+        this.links = new int[0];
+        this.userData = new int[0];
+        this.stack = new int[64];
+        resize(16);
+    }
+
+    /**
+     * Inserts an object.
+     *
+     * @param min      The minimum corner of the box of the object.
+     * @param max      The maximum corner of the box of the object.
+     * @param userData The value reported by queries for this object, e.g. its index in a list.
+     * @return The proxy id of the object.
+     */
+    public int insert(Vector3f min, Vector3f max, int userData) {
+        final int leaf = allocateNode();
+        setFatBox(leaf, min, max, 0, 0, 0);
+        this.userData[leaf] = userData;
+        insertLeaf(leaf);
+        proxyCount++;
+        return leaf;
+    }
+
+    /**
+     * Inserts an object by its Bounds.
+     *
+     * @param bounds   The bounds of the object, must not be empty.
+     * @param userData The value reported by queries for this object.
+     * @return The proxy id of the object.
+     */
+    public int insert(Bounds bounds, int userData) {
+        if (bounds.isEmpty())
+            throw new IllegalArgumentException("Cannot insert empty bounds");
+        return insert(bounds.getMin(), bounds.getMax(), userData);
+    }
+
+    /**
+     * Removes an object.
+     *
+     * @param proxy The proxy id of the object.
+     */
+    public void remove(int proxy) {
+        checkProxy(proxy);
+        removeLeaf(proxy);
+        freeNode(proxy);
+        proxyCount--;
+    }
+
+    /**
+     * Updates the box of an object which did not move by a known displacement.
+     *
+     * @param proxy The proxy id of the object.
+     * @param min   The new minimum corner of the box of the object.
+     * @param max   The new maximum corner of the box of the object.
+     * @return true if the object left its fat box and was inserted again, false if the tree did not change
+     */
+    public boolean move(int proxy, Vector3f min, Vector3f max) {
+        return move(proxy, min, max, 0, 0, 0);
+    }
+
+    /**
+     * Updates the box of a moving object. The fat box is extended along the displacement, so an object moving at
+     * constant velocity is only reinserted every few frames.
+     *
+     * @param proxy        The proxy id of the object.
+     * @param min          The new minimum corner of the box of the object.
+     * @param max          The new maximum corner of the box of the object.
+     * @param displacement The movement of the object since the last update.
+     * @return true if the object left its fat box and was inserted again, false if the tree did not change
+     */
+    public boolean move(int proxy, Vector3f min, Vector3f max, Vector3f displacement) {
+        return move(proxy, min, max, displacement.x, displacement.y, displacement.z);
+    }
+
+    private boolean move(int proxy, Vector3f min, Vector3f max, float dx, float dy, float dz) {
+        checkProxy(proxy);
+        final int o = proxy * BOX_SIZE;
+        if (boxes[o] <= min.x && boxes[o + 1] <= min.y && boxes[o + 2] <= min.z
+                && boxes[o + 3] >= max.x && boxes[o + 4] >= max.y && boxes[o + 5] >= max.z)
+            return false;
+
+        removeLeaf(proxy);
+        setFatBox(proxy, min, max, dx, dy, dz);
+        insertLeaf(proxy);
+        return true;
+    }
+
+    /**
+     * Collects all objects whose fat box overlaps a box.
+     *
+     * @param min     The minimum corner of the box.
+     * @param max     The maximum corner of the box.
+     * @param results The array receiving the user data of the hits, in no particular order.
+     * @return The number of hits. If it exceeds the length of results, only the first hits were stored.
+     */
+    public int queryAabb(Vector3f min, Vector3f max, int[] results) {
+        if (root == NULL)
+            return 0;
+
+        int count = 0, top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            final int node = stack[--top];
+            final int o = node * BOX_SIZE;
+            if (boxes[o] > max.x || boxes[o + 1] > max.y || boxes[o + 2] > max.z
+                    || boxes[o + 3] < min.x || boxes[o + 4] < min.y || boxes[o + 5] < min.z)
+                continue;
+
+            if (isLeaf(node)) {
+                if (count < results.length)
+                    results[count] = userData[node];
+                count++;
+            } else {
+                top = pushChildren(top, node);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Collects all objects whose fat box may intersect a frustum. Subtrees completely inside the frustum are collected
+     * without testing their leaves.
+     *
+     * @param frustum The frustum.
+     * @param results The array receiving the user data of the hits, in no particular order.
+     * @return The number of hits. If it exceeds the length of results, only the first hits were stored.
+     */
+    public int queryFrustum(Frustum frustum, int[] results) {
+        if (root == NULL)
+            return 0;
+
+        int count = 0, top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            final int node = stack[--top];
+            final int o = node * BOX_SIZE;
+            final int classification = frustum.classifyAabb(boxes[o], boxes[o + 1], boxes[o + 2],
+                    boxes[o + 3], boxes[o + 4], boxes[o + 5]);
+            if (classification == Frustum.OUTSIDE)
+                continue;
+
+            if (isLeaf(node)) {
+                if (count < results.length)
+                    results[count] = userData[node];
+                count++;
+            } else if (classification == Frustum.INSIDE) {
+                count = collectLeaves(node, top, results, count);
+            } else {
+                top = pushChildren(top, node);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Collects all objects whose fat box is hit by a ray segment.
+     *
+     * @param origin      The origin of the ray.
+     * @param direction   The direction of the ray, distances are measured in multiples of its length.
+     * @param maxDistance The length of the segment.
+     * @param results     The array receiving the user data of the hits, in no particular order.
+     * @param distances   The array receiving the distance at which the ray enters the fat box of every hit, 0 if the
+     *                    origin is inside the box, or null.
+     * @return The number of hits. If it exceeds the length of results, only the first hits were stored.
+     */
+    public int raycast(Vector3f origin, Vector3f direction, float maxDistance, int[] results, float[] distances) {
+        if (root == NULL)
+            return 0;
+
+        final float inverseX = 1 / direction.x, inverseY = 1 / direction.y, inverseZ = 1 / direction.z;
+        int count = 0, top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            final int node = stack[--top];
+            final int o = node * BOX_SIZE;
+
+            // Slab test; the infinite inverse components of axis parallel rays compare correctly
+            final float x1 = (boxes[o] - origin.x) * inverseX, x2 = (boxes[o + 3] - origin.x) * inverseX;
+            final float y1 = (boxes[o + 1] - origin.y) * inverseY, y2 = (boxes[o + 4] - origin.y) * inverseY;
+            final float z1 = (boxes[o + 2] - origin.z) * inverseZ, z2 = (boxes[o + 5] - origin.z) * inverseZ;
+            final float entry = Math.max(Math.max(Math.min(x1, x2), Math.min(y1, y2)), Math.max(Math.min(z1, z2), 0));
+            final float exit = Math.min(Math.min(Math.max(x1, x2), Math.max(y1, y2)),
+                    Math.min(Math.max(z1, z2), maxDistance));
+            // NaN from an axis parallel ray starting exactly on a slab fails the comparison, which counts as a hit
+            if (entry > exit)
+                continue;
+
+            if (isLeaf(node)) {
+                if (count < results.length) {
+                    results[count] = userData[node];
+                    if (distances != null)
+                        distances[count] = entry;
+                }
+                count++;
+            } else {
+                top = pushChildren(top, node);
+            }
+        }
+        return count;
+    }
+
+    private int collectLeaves(int subtree, int top, int[] results, int count) {
+        final int bottom = top;
+        stack[top++] = subtree;
+        while (top > bottom) {
+            final int node = stack[--top];
+            if (isLeaf(node)) {
+                if (count < results.length)
+                    results[count] = userData[node];
+                count++;
+            } else {
+                top = pushChildren(top, node);
+            }
+        }
+        return count;
+    }
+
+    private int pushChildren(int top, int node) {
+        if (top + 2 > stack.length)
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        stack[top] = links[node * LINK_SIZE + CHILD1];
+        stack[top + 1] = links[node * LINK_SIZE + CHILD2];
+        return top + 2;
+    }
+
+    public int getUserData(int proxy) {
+        checkProxy(proxy);
+        return userData[proxy];
+    }
+
+    /**
+     * Gets the fat box of an object.
+     *
+     * @param proxy The proxy id of the object.
+     * @param min   The vector to store the minimum corner in.
+     * @param max   The vector to store the maximum corner in.
+     */
+    public void getFatBox(int proxy, Vector3f min, Vector3f max) {
+        checkProxy(proxy);
+        final int o = proxy * BOX_SIZE;
+        min.set(boxes[o], boxes[o + 1], boxes[o + 2]);
+        max.set(boxes[o + 3], boxes[o + 4], boxes[o + 5]);
+    }
+
+    public int getProxyCount() {
+        return proxyCount;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Gets the height of the tree.
+     *
+     * @return The number of edges on the longest path from the root to a leaf, or -1 if the tree is empty.
+     */
+    public int getHeight() {
+        return root == NULL ? -1 : height(root);
+    }
+
+    /**
+     * Calculates the quality of the tree as the ratio of the summed surface areas of all inner nodes to the surface
+     * area of the root. Lower is better.
+     *
+     * @return The area ratio, or 0 if the tree is empty.
+     */
+    public float getAreaRatio() {
+        if (root == NULL)
+            return 0;
+        float totalArea = 0;
+        for (int node = 0; node < capacity; node++)
+            if (height(node) > 0)
+                totalArea += area(node);
+        final float rootArea = area(root);
+        return rootArea > 0 ? totalArea / rootArea : 0;
+    }
+
+    /*
+     * Insertion and removal
+     */
+
+    private void insertLeaf(int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            setParent(leaf, NULL);
+            return;
+        }
+
+        // Descend towards the sibling with the lowest cost: the area of the new parent plus the area the ancestors
+        // grow by (Box2D)
+        int index = root;
+        while (!isLeaf(index)) {
+            final float area = area(index);
+            final float combinedArea = unionArea(index, leaf);
+            final float cost = 2 * combinedArea;
+            final float inheritanceCost = 2 * (combinedArea - area);
+
+            final int child1 = child1(index), child2 = child2(index);
+            final float cost1 = descendCost(child1, leaf) + inheritanceCost;
+            final float cost2 = descendCost(child2, leaf) + inheritanceCost;
+            if (cost < cost1 && cost < cost2)
+                break;
+            index = cost1 < cost2 ? child1 : child2;
+        }
+
+        final int sibling = index;
+        final int oldParent = parent(sibling);
+        final int newParent = allocateNode();
+        final int l = newParent * LINK_SIZE;
+        links[l + PARENT] = oldParent;
+        links[l + CHILD1] = sibling;
+        links[l + CHILD2] = leaf;
+        links[l + HEIGHT] = height(sibling) + 1;
+        userData[newParent] = NULL;
+        setUnion(newParent, sibling, leaf);
+        setParent(sibling, newParent);
+        setParent(leaf, newParent);
+
+        if (oldParent == NULL)
+            root = newParent;
+        else
+            replaceChild(oldParent, sibling, newParent);
+        refit(newParent);
+    }
+
+    private float descendCost(int child, int leaf) {
+        final float combinedArea = unionArea(child, leaf);
+        return isLeaf(child) ? combinedArea : combinedArea - area(child);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+
+        final int oldParent = parent(leaf);
+        final int grandParent = parent(oldParent);
+        final int sibling = child1(oldParent) == leaf ? child2(oldParent) : child1(oldParent);
+        freeNode(oldParent);
+        setParent(sibling, grandParent);
+        if (grandParent == NULL) {
+            root = sibling;
+        } else {
+            replaceChild(grandParent, oldParent, sibling);
+            refit(grandParent);
+        }
+    }
+
+    /**
+     * Refits the boxes and heights from a node up to the root, rotating every node on the way.
+     */
+    private void refit(int index) {
+        while (index != NULL) {
+            rotate(index);
+            updateNode(index);
+            index = parent(index);
+        }
+    }
+
+    /**
+     * Swaps a child of a node with a grandchild below the other child if that reduces the area of the other child.
+     * The area of the node itself does not change, so this is the largest possible SAH improvement of the swap
+     * (Kensler, tree rotations).
+     */
+    private void rotate(int a) {
+        final int b = child1(a), c = child2(a);
+        final boolean leafB = isLeaf(b), leafC = isLeaf(c);
+        if (leafB && leafC)
+            return;
+
+        float bestGain = 0;
+        int bestChild = NULL, bestGrandChild = NULL;
+        if (!leafC) {
+            // b swaps with f, leaving c = b + g, or with g, leaving c = b + f
+            final int f = child1(c), g = child2(c);
+            final float area = area(c);
+            final float gainF = area - unionArea(b, g);
+            final float gainG = area - unionArea(b, f);
+            if (gainF > bestGain) {
+                bestGain = gainF;
+                bestChild = b;
+                bestGrandChild = f;
+            }
+            if (gainG > bestGain) {
+                bestGain = gainG;
+                bestChild = b;
+                bestGrandChild = g;
+            }
+        }
+        if (!leafB) {
+            final int d = child1(b), e = child2(b);
+            final float area = area(b);
+            final float gainD = area - unionArea(c, e);
+            final float gainE = area - unionArea(c, d);
+            if (gainD > bestGain) {
+                bestGain = gainD;
+                bestChild = c;
+                bestGrandChild = d;
+            }
+            if (gainE > bestGain) {
+                bestChild = c;
+                bestGrandChild = e;
+            }
+        }
+        if (bestChild == NULL)
+            return;
+
+        // Exchange the child of a with the grandchild below its sibling and refit the sibling
+        final int sibling = parent(bestGrandChild);
+        replaceChild(a, bestChild, bestGrandChild);
+        setParent(bestGrandChild, a);
+        replaceChild(sibling, bestGrandChild, bestChild);
+        setParent(bestChild, sibling);
+        updateNode(sibling);
+    }
+
+    private void updateNode(int node) {
+        final int child1 = child1(node), child2 = child2(node);
+        setUnion(node, child1, child2);
+        links[node * LINK_SIZE + HEIGHT] = 1 + Math.max(height(child1), height(child2));
+    }
+
+    private void replaceChild(int node, int oldChild, int newChild) {
+        final int l = node * LINK_SIZE;
+        if (links[l + CHILD1] == oldChild)
+            links[l + CHILD1] = newChild;
+        else
+            links[l + CHILD2] = newChild;
+    }
+
+    /*
+     * Node pool
+     */
+
+    private int allocateNode() {
+        if (freeList == NULL)
+            resize(capacity * 2);
+
+        final int node = freeList;
+        final int l = node * LINK_SIZE;
+        freeList = links[l + PARENT];
+        links[l + PARENT] = NULL;
+        links[l + CHILD1] = NULL;
+        links[l + CHILD2] = NULL;
+        links[l + HEIGHT] = 0;
+        nodeCount++;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        final int l = node * LINK_SIZE;
+        links[l + PARENT] = freeList;
+        links[l + HEIGHT] = -1;
+        freeList = node;
+        nodeCount--;
+    }
+
+    private void resize(int newCapacity) {
+        boxes = Arrays.copyOf(boxes, newCapacity * BOX_SIZE);
+        links = Arrays.copyOf(links, newCapacity * LINK_SIZE);
+        userData = Arrays.copyOf(userData, newCapacity);
+
+        // Link the new nodes into the free list, lowest index first
+        for (int node = newCapacity - 1; node >= capacity; node--) {
+            links[node * LINK_SIZE + PARENT] = freeList;
+            links[node * LINK_SIZE + HEIGHT] = -1;
+            freeList = node;
+        }
+        capacity = newCapacity;
+    }
+
+    /*
+     * Node access
+     */
+
+    private boolean isLeaf(int node) {
+        return links[node * LINK_SIZE + CHILD1] == NULL;
+    }
+
+    private int parent(int node) {
+        return links[node * LINK_SIZE + PARENT];
+    }
+
+    private void setParent(int node, int parent) {
+        links[node * LINK_SIZE + PARENT] = parent;
+    }
+
+    private int child1(int node) {
+        return links[node * LINK_SIZE + CHILD1];
+    }
+
+    private int child2(int node) {
+        return links[node * LINK_SIZE + CHILD2];
+    }
+
+    private int height(int node) {
+        return links[node * LINK_SIZE + HEIGHT];
+    }
+
+    private void checkProxy(int proxy) {
+        if (proxy < 0 || proxy >= capacity || height(proxy) != 0 || !isLeaf(proxy))
+            throw new IllegalArgumentException("Invalid proxy: " + proxy);
+    }
+
+    private void setFatBox(int node, Vector3f min, Vector3f max, float dx, float dy, float dz) {
+        dx *= DISPLACEMENT_MULTIPLIER;
+        dy *= DISPLACEMENT_MULTIPLIER;
+        dz *= DISPLACEMENT_MULTIPLIER;
+        final int o = node * BOX_SIZE;
+        boxes[o] = min.x - margin + Math.min(dx, 0);
+        boxes[o + 1] = min.y - margin + Math.min(dy, 0);
+        boxes[o + 2] = min.z - margin + Math.min(dz, 0);
+        boxes[o + 3] = max.x + margin + Math.max(dx, 0);
+        boxes[o + 4] = max.y + margin + Math.max(dy, 0);
+        boxes[o + 5] = max.z + margin + Math.max(dz, 0);
+    }
+
+    private void setUnion(int node, int a, int b) {
+        final int o = node * BOX_SIZE, oa = a * BOX_SIZE, ob = b * BOX_SIZE;
+        boxes[o] = Math.min(boxes[oa], boxes[ob]);
+        boxes[o + 1] = Math.min(boxes[oa + 1], boxes[ob + 1]);
+        boxes[o + 2] = Math.min(boxes[oa + 2], boxes[ob + 2]);
+        boxes[o + 3] = Math.max(boxes[oa + 3], boxes[ob + 3]);
+        boxes[o + 4] = Math.max(boxes[oa + 4], boxes[ob + 4]);
+        boxes[o + 5] = Math.max(boxes[oa + 5], boxes[ob + 5]);
+    }
+
+    /**
+     * Calculates half the surface area of the box of a node, which is proportional to the probability of a random
+     * ray hitting it.
+     */
+    private float area(int node) {
+        final int o = node * BOX_SIZE;
+        final float x = boxes[o + 3] - boxes[o], y = boxes[o + 4] - boxes[o + 1], z = boxes[o + 5] - boxes[o + 2];
+        return x * y + y * z + z * x;
+    }
+
+    private float unionArea(int a, int b) {
+        final int oa = a * BOX_SIZE, ob = b * BOX_SIZE;
+        final float x = Math.max(boxes[oa + 3], boxes[ob + 3]) - Math.min(boxes[oa], boxes[ob]);
+        final float y = Math.max(boxes[oa + 4], boxes[ob + 4]) - Math.min(boxes[oa + 1], boxes[ob + 1]);
+        final float z = Math.max(boxes[oa + 5], boxes[ob + 5]) - Math.min(boxes[oa + 2], boxes[ob + 2]);
+        return x * y + y * z + z * x;
+    }
+}
@@ -0,0 +1,237 @@
+package org.nebula.math;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.nio.FloatBuffer;
+
+/**
+ * <br>
+ * <h2>Bounds</h2>
+ * <br>
+ * The Bounds class represents the bounding volumes of a set of points: an axis aligned bounding box (AABB) and a
+ * bounding sphere around the center of the box.
+ * <p>
+ * Bounds are used to reject geometry that can not be visible before it is sent to the GPU, see {@link Frustum}.
+ * Empty bounds, which contain no points, have a minimum greater than their maximum and a negative radius.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see Frustum
+ */
+public class Bounds {
+    private final Vector3f min;
+    private final Vector3f max;
+    private final Vector3f center;
+    private float radius;
+
+    /**
+     * Constructs empty Bounds.
+     */
+    public Bounds() {
+        this.min = new Vector3f(Float.POSITIVE_INFINITY);
+        this.max = new Vector3f(Float.NEGATIVE_INFINITY);
+        this.center = new Vector3f();
+        this.radius = -1;
+    }
+
+    /**
+     * Constructs Bounds from an axis aligned bounding box. The bounding sphere encloses the box.
+     *
+     * @param min The minimum corner of the box.
+     * @param max The maximum corner of the box.
+     */
+    public Bounds(Vector3f min, Vector3f max) {
+        this.min = new Vector3f(min);
+        this.max = new Vector3f(max);
+        this.center = new Vector3f(min).add(max).mul(0.5f);
+        this.radius = center.distance(max);
+    }
+
+    public Bounds(Bounds that) {
+        this();
+        set(that);
+    }
+
+    public Bounds set(Bounds that) {
+        this.min.set(that.min);
+        this.max.set(that.max);
+        this.center.set(that.center);
+        this.radius = that.radius;
+        return this;
+    }
+
+    /**
+     * Sets the box and the sphere to precomputed values, e.g. bounds stored in a file.
+     *
+     * @param min    The minimum corner of the box.
+     * @param max    The maximum corner of the box.
+     * @param center The center of the sphere.
+     * @param radius The radius of the sphere.
+     * @return This Bounds.
+     */
+    public Bounds set(Vector3f min, Vector3f max, Vector3f center, float radius) {
+        this.min.set(min);
+        this.max.set(max);
+        this.center.set(center);
+        this.radius = radius;
+        return this;
+    }
+
+    /**
+     * Computes the bounds of the positions of interleaved vertices. Positions are expected in the first three floats
+     * of every vertex. The sphere is centered on the box and as small as possible for that center.
+     *
+     * @param vertices   The vertex data, from index 0 to its limit.
+     * @param vertexSize The number of floats per vertex.
+     * @return This Bounds.
+     */
+    public Bounds set(FloatBuffer vertices, int vertexSize) {
+        final int vertexCount = vertices.limit() / vertexSize;
+        if (vertexCount == 0)
+            return setEmpty();
+
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        for (int i = 0, end = vertexCount * vertexSize; i < end; i += vertexSize) {
+            final float x = vertices.get(i), y = vertices.get(i + 1), z = vertices.get(i + 2);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+        }
+        min.set(minX, minY, minZ);
+        max.set(maxX, maxY, maxZ);
+        center.set(min).add(max).mul(0.5f);
+
+        float radiusSquared = 0;
+        for (int i = 0, end = vertexCount * vertexSize; i < end; i += vertexSize) {
+            final float dx = vertices.get(i) - center.x, dy = vertices.get(i + 1) - center.y,
+                    dz = vertices.get(i + 2) - center.z;
+            radiusSquared = Math.max(radiusSquared, dx * dx + dy * dy + dz * dz);
+        }
+        radius = (float) Math.sqrt(radiusSquared);
+        return this;
+    }
+
+    /**
+     * Makes these bounds empty.
+     *
+     * @return This Bounds.
+     */
+    public Bounds setEmpty() {
+        min.set(Float.POSITIVE_INFINITY);
+        max.set(Float.NEGATIVE_INFINITY);
+        center.zero();
+        radius = -1;
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return radius < 0;
+    }
+
+    /**
+     * Transforms these bounds by an affine matrix. The box is the AABB of the transformed box and the sphere is
+     * scaled by the largest scale of the matrix, so both still enclose the transformed points.
+     *
+     * @param matrix The affine transformation.
+     * @param dest   The Bounds to store the result in, may be this.
+     * @return The destination Bounds.
+     */
+    public Bounds transform(Matrix4f matrix, Bounds dest) {
+        if (isEmpty())
+            return dest.setEmpty();
+
+        // Transformed center plus the extents projected onto every axis (Arvo)
+        final float cx = (min.x + max.x) / 2, cy = (min.y + max.y) / 2, cz = (min.z + max.z) / 2;
+        final float ex = (max.x - min.x) / 2, ey = (max.y - min.y) / 2, ez = (max.z - min.z) / 2;
+        final float tx = matrix.m00() * cx + matrix.m10() * cy + matrix.m20() * cz + matrix.m30();
+        final float ty = matrix.m01() * cx + matrix.m11() * cy + matrix.m21() * cz + matrix.m31();
+        final float tz = matrix.m02() * cx + matrix.m12() * cy + matrix.m22() * cz + matrix.m32();
+        final float rx = Math.abs(matrix.m00()) * ex + Math.abs(matrix.m10()) * ey + Math.abs(matrix.m20()) * ez;
+        final float ry = Math.abs(matrix.m01()) * ex + Math.abs(matrix.m11()) * ey + Math.abs(matrix.m21()) * ez;
+        final float rz = Math.abs(matrix.m02()) * ex + Math.abs(matrix.m12()) * ey + Math.abs(matrix.m22()) * ez;
+
+        final float scaledRadius = radius * maxScale(matrix);
+        matrix.transformPosition(center, dest.center);
+        dest.min.set(tx - rx, ty - ry, tz - rz);
+        dest.max.set(tx + rx, ty + ry, tz + rz);
+        dest.radius = scaledRadius;
+        return dest;
+    }
+
+    /**
+     * Transforms these bounds by a Transform.
+     *
+     * @param transform The transformation, applied like {@link Maths#transform(Vector3f, Transform)}.
+     * @param dest      The Bounds to store the result in, may be this.
+     * @return The destination Bounds.
+     */
+    public Bounds transform(Transform transform, Bounds dest) {
+        return transform(Maths.toMatrix(transform, new Matrix4f()), dest);
+    }
+
+    /**
+     * Calculates the largest factor by which an affine matrix scales lengths.
+     *
+     * @param matrix The affine matrix.
+     * @return The length of the longest basis vector of the matrix.
+     */
+    public static float maxScale(Matrix4f matrix) {
+        final float x = matrix.m00() * matrix.m00() + matrix.m01() * matrix.m01() + matrix.m02() * matrix.m02();
+        final float y = matrix.m10() * matrix.m10() + matrix.m11() * matrix.m11() + matrix.m12() * matrix.m12();
+        final float z = matrix.m20() * matrix.m20() + matrix.m21() * matrix.m21() + matrix.m22() * matrix.m22();
+        return (float) Math.sqrt(Math.max(x, Math.max(y, z)));
+    }
+
+    public Vector3f getMin() {
+        return min;
+    }
+
+    public Vector3f getMax() {
+        return max;
+    }
+
+    public Vector3f getCenter() {
+        return center;
+    }
+
+    public float getRadius() {
+        return radius;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Bounds bounds = (Bounds) o;
+
+        if (Float.compare(bounds.radius, radius) != 0) return false;
+        if (!min.equals(bounds.min)) return false;
+        if (!max.equals(bounds.max)) return false;
+        return center.equals(bounds.center);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = min.hashCode();
+        result = 31 * result + max.hashCode();
+        result = 31 * result + center.hashCode();
+        result = 31 * result + Float.floatToIntBits(radius);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Bounds{" +
+                "min=" + min +
+                ", max=" + max +
+                ", center=" + center +
+                ", radius=" + radius +
+                '}';
+    }
+}
@@ -0,0 +1,215 @@
+package org.nebula.math;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+
+/**
+ * <br>
+ * <h2>Frustum</h2>
+ * <br>
+ * The Frustum class holds the six clipping planes of a view frustum and tests bounding volumes against them.
+ * <p>
+ * The planes are extracted from a combined clip matrix (Gribb and Hartmann) and point inwards, so a point is inside
+ * the frustum if its signed distance to every plane is positive. Besides tests of single volumes, the Frustum can cull
+ * whole batches of spheres or boxes stored as structure of arrays. These batch tests loop over one plane at a time
+ * with branch-free arithmetic on consecutive array elements, which the JIT compiles to SIMD instructions.
+ * </p>
+ * <p>
+ * A Frustum keeps scratch memory for the batch tests and must not be shared between threads.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see Bounds
+ */
+public class Frustum {
+    public static final int PLANE_COUNT = 6;
+    public static final int OUTSIDE = 0, INTERSECTING = 1, INSIDE = 2;
+
+    private final float[] planeX, planeY, planeZ, planeW;
+    private final Vector4f plane;
+    private float[] distances;
+
+    /**
+     * Constructs a Frustum which contains everything.
+     */
+    public Frustum() {
+        this.planeX = new float[PLANE_COUNT];
+        this.planeY = new float[PLANE_COUNT];
+        this.planeZ = new float[PLANE_COUNT];
+        this.planeW = new float[PLANE_COUNT];
+        this.plane = new Vector4f();
+        this.distances = new float[0];
+        for (int i = 0; i < PLANE_COUNT; i++)
+            planeW[i] = Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Extracts the planes of the frustum of a clip matrix.
+     *
+     * @param clipMatrix The matrix transforming world space into clip space, e.g. view * projection for the shaders
+     *                   of this engine.
+     * @return This Frustum.
+     */
+    public Frustum set(Matrix4f clipMatrix) {
+        for (int i = 0; i < PLANE_COUNT; i++) {
+            clipMatrix.frustumPlane(i, plane);
+            planeX[i] = plane.x;
+            planeY[i] = plane.y;
+            planeZ[i] = plane.z;
+            planeW[i] = plane.w;
+        }
+        return this;
+    }
+
+    /**
+     * Tests whether a sphere intersects the frustum.
+     *
+     * @param x      The x coordinate of the center.
+     * @param y      The y coordinate of the center.
+     * @param z      The z coordinate of the center.
+     * @param radius The radius.
+     * @return true if the sphere is at least partially inside the frustum, false otherwise
+     */
+    public boolean intersectsSphere(float x, float y, float z, float radius) {
+        for (int i = 0; i < PLANE_COUNT; i++)
+            if (planeX[i] * x + planeY[i] * y + planeZ[i] * z + planeW[i] < -radius)
+                return false;
+        return true;
+    }
+
+    public boolean intersectsSphere(Vector3f center, float radius) {
+        return intersectsSphere(center.x, center.y, center.z, radius);
+    }
+
+    /**
+     * Tests whether an axis aligned box intersects the frustum. The test is conservative: boxes near the corners of
+     * the frustum may be reported as intersecting although they are outside.
+     *
+     * @param min The minimum corner of the box.
+     * @param max The maximum corner of the box.
+     * @return true if the box may be inside the frustum, false if it is definitely outside
+     */
+    public boolean intersectsAabb(Vector3f min, Vector3f max) {
+        for (int i = 0; i < PLANE_COUNT; i++) {
+            // The corner furthest along the plane normal
+            final float x = planeX[i] >= 0 ? max.x : min.x;
+            final float y = planeY[i] >= 0 ? max.y : min.y;
+            final float z = planeZ[i] >= 0 ? max.z : min.z;
+            if (planeX[i] * x + planeY[i] * y + planeZ[i] * z + planeW[i] < 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Classifies an axis aligned box against the frustum, conservatively like
+     * {@link Frustum#intersectsAabb(Vector3f, Vector3f)}. Hierarchies use this to accept whole subtrees without testing
+     * them.
+     *
+     * @param minX The minimum x coordinate.
+     * @param minY The minimum y coordinate.
+     * @param minZ The minimum z coordinate.
+     * @param maxX The maximum x coordinate.
+     * @param maxY The maximum y coordinate.
+     * @param maxZ The maximum z coordinate.
+     * @return {@link Frustum#OUTSIDE}, {@link Frustum#INTERSECTING} or {@link Frustum#INSIDE} if the box is
+     * completely inside the frustum
+     */
+    public int classifyAabb(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        int result = INSIDE;
+        for (int i = 0; i < PLANE_COUNT; i++) {
+            final float px = planeX[i], py = planeY[i], pz = planeZ[i], pw = planeW[i];
+            // The corner furthest along the plane normal decides whether the box is outside, the nearest corner
+            // whether it is completely inside
+            if (px * (px >= 0 ? maxX : minX) + py * (py >= 0 ? maxY : minY) + pz * (pz >= 0 ? maxZ : minZ) + pw < 0)
+                return OUTSIDE;
+            if (px * (px >= 0 ? minX : maxX) + py * (py >= 0 ? minY : maxY) + pz * (pz >= 0 ? minZ : maxZ) + pw < 0)
+                result = INTERSECTING;
+        }
+        return result;
+    }
+
+    /**
+     * Tests whether Bounds intersect the frustum, using the cheaper sphere test first. Empty bounds never intersect.
+     *
+     * @param bounds The bounds to test.
+     * @return true if the bounds may be inside the frustum, false if they are definitely outside
+     */
+    public boolean intersects(Bounds bounds) {
+        return !bounds.isEmpty() && intersectsSphere(bounds.getCenter(), bounds.getRadius())
+                && intersectsAabb(bounds.getMin(), bounds.getMax());
+    }
+
+    /**
+     * Culls a batch of spheres.
+     *
+     * @param x       The x coordinates of the centers.
+     * @param y       The y coordinates of the centers.
+     * @param z       The z coordinates of the centers.
+     * @param radius  The radii.
+     * @param count   The number of spheres to test.
+     * @param visible The array receiving the indices of all spheres intersecting the frustum, in ascending order. It
+     *                has to hold at least {@code count} elements.
+     * @return The number of visible spheres.
+     */
+    public int cullSpheres(float[] x, float[] y, float[] z, float[] radius, int count, int[] visible) {
+        final float[] distances = distances(count);
+        for (int i = 0; i < count; i++)
+            distances[i] = Float.POSITIVE_INFINITY;
+
+        for (int p = 0; p < PLANE_COUNT; p++) {
+            final float px = planeX[p], py = planeY[p], pz = planeZ[p], pw = planeW[p];
+            for (int i = 0; i < count; i++)
+                distances[i] = Math.min(distances[i], px * x[i] + py * y[i] + pz * z[i] + pw + radius[i]);
+        }
+        return compact(distances, count, visible);
+    }
+
+    /**
+     * Culls a batch of axis aligned boxes, conservatively like {@link Frustum#intersectsAabb(Vector3f, Vector3f)}.
+     *
+     * @param minX    The minimum x coordinates.
+     * @param minY    The minimum y coordinates.
+     * @param minZ    The minimum z coordinates.
+     * @param maxX    The maximum x coordinates.
+     * @param maxY    The maximum y coordinates.
+     * @param maxZ    The maximum z coordinates.
+     * @param count   The number of boxes to test.
+     * @param visible The array receiving the indices of all boxes that may intersect the frustum, in ascending order.
+     *                It has to hold at least {@code count} elements.
+     * @return The number of visible boxes.
+     */
+    public int cullAabbs(float[] minX, float[] minY, float[] minZ, float[] maxX, float[] maxY, float[] maxZ,
+                         int count, int[] visible) {
+        final float[] distances = distances(count);
+        for (int i = 0; i < count; i++)
+            distances[i] = Float.POSITIVE_INFINITY;
+
+        for (int p = 0; p < PLANE_COUNT; p++) {
+            final float px = planeX[p], py = planeY[p], pz = planeZ[p], pw = planeW[p];
+            // The corner furthest along the normal is the same for all boxes, so it is chosen once per plane
+            final float[] xs = px >= 0 ? maxX : minX;
+            final float[] ys = py >= 0 ? maxY : minY;
+            final float[] zs = pz >= 0 ? maxZ : minZ;
+            for (int i = 0; i < count; i++)
+                distances[i] = Math.min(distances[i], px * xs[i] + py * ys[i] + pz * zs[i] + pw);
+        }
+        return compact(distances, count, visible);
+    }
+
+    private float[] distances(int count) {
+        if (distances.length < count)
+            distances = new float[Math.max(count, distances.length * 2)];
+        return distances;
+    }
+
+    private static int compact(float[] distances, int count, int[] visible) {
+        int visibleCount = 0;
+        for (int i = 0; i < count; i++) {
+            visible[visibleCount] = i;
+            visibleCount += distances[i] >= 0 ? 1 : 0;
+        }
+        return visibleCount;
+    }
+}
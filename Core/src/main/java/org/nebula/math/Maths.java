@@ -1,5 +1,7 @@
 package org.nebula.math;
 
+import org.joml.Matrix4f;
+import org.joml.Matrix4x3f;
 import org.joml.Vector3f;
 
 public class Maths {
@@ -39,4 +41,35 @@ public class Maths {
 
         return position;
     }
+
+    /**
+     * Writes the transformations specified in the given Transform object into the provided matrix.
+     * The resulting matrix applies the transformations in the same order as
+     * {@link Maths#transform(Vector3f, Transform)}: Rotation, Scaling, and then Translation.
+     *
+     * @param transform The Transform object containing rotation, scaling, and translation information.
+     * @param dest      The matrix to store the result in.
+     * @return The destination matrix.
+     */
+    public static Matrix4f toMatrix(Transform transform, Matrix4f dest) {
+        return dest.translation(transform.getTranslation())
+                .scale(transform.getScale())
+                .rotateX((float) Math.toRadians(transform.getRotation().y))
+                .rotateZ((float) Math.toRadians(transform.getRotation().x));
+    }
+
+    /**
+     * Writes the transformations specified in the given Transform object into the provided affine matrix.
+     *
+     * @param transform The Transform object containing rotation, scaling, and translation information.
+     * @param dest      The matrix to store the result in.
+     * @return The destination matrix.
+     * @see Maths#toMatrix(Transform, Matrix4f)
+     */
+    public static Matrix4x3f toMatrix(Transform transform, Matrix4x3f dest) {
+        return dest.translation(transform.getTranslation())
+                .scale(transform.getScale())
+                .rotateX((float) Math.toRadians(transform.getRotation().y))
+                .rotateZ((float) Math.toRadians(transform.getRotation().x));
+    }
 }
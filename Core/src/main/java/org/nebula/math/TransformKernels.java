@@ -0,0 +1,214 @@
+package org.nebula.math;
+
+import org.joml.Matrix4f;
+
+import java.nio.FloatBuffer;
+
+/**
+ * <br>
+ * <h2>TransformKernels</h2>
+ * <br>
+ * The TransformKernels class transforms whole arrays of positions by a {@link Transform} or an affine matrix, for
+ * pre-transforming vertices on the CPU.
+ * <p>
+ * The transformation is reduced to an affine 3x4 matrix once per call, so sine and cosine of the rotation are computed
+ * once instead of once per vertex as in {@link Maths#transform(org.joml.Vector3f, Transform)}. The matrix is stored
+ * column major in a float array of {@value TransformKernels#AFFINE_SIZE} elements, like the first three rows of a
+ * JOML matrix.
+ * </p>
+ * <p>
+ * Interleaved positions, e.g. the first three floats of every vertex, are transformed by a scalar loop, which is
+ * bound by memory bandwidth rather than arithmetic. Positions stored as structure of arrays are transformed with the
+ * Vector API if the {@code jdk.incubator.vector} module is present, i.e. the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}, processing as many positions per instruction as the CPU's preferred
+ * vector width allows. Otherwise, or if the system property {@value TransformKernels#SCALAR_PROPERTY} is true, a
+ * scalar loop with the same results is used.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see Transform
+ */
+public final class TransformKernels {
+    public static final int AFFINE_SIZE = 12;
+    public static final String SCALAR_PROPERTY = "nebula.math.scalar";
+    private static final boolean VECTORIZED = !Boolean.getBoolean(SCALAR_PROPERTY)
+            && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private TransformKernels() {
+    }
+
+    /**
+     * Checks whether the structure of arrays kernels use the Vector API.
+     *
+     * @return true if the kernels are vectorized, false if they fall back to scalar loops
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * Computes the affine matrix of a Transform, which applies the transformations in the same order as
+     * {@link Maths#transform(org.joml.Vector3f, Transform)}.
+     *
+     * @param transform The Transform.
+     * @param dest      The array to store the matrix in, with at least {@value TransformKernels#AFFINE_SIZE} elements.
+     * @return The destination array.
+     */
+    public static float[] toAffine(Transform transform, float[] dest) {
+        final double angleZ = Math.toRadians(transform.getRotation().x);
+        final double angleX = Math.toRadians(transform.getRotation().y);
+        final float cz = (float) Math.cos(angleZ), sz = (float) Math.sin(angleZ);
+        final float cx = (float) Math.cos(angleX), sx = (float) Math.sin(angleX);
+        final float scaleX = transform.getScale().x, scaleY = transform.getScale().y, scaleZ = transform.getScale().z;
+
+        // Rotation around z, then around x, then scale, then translation
+        dest[0] = scaleX * cz;
+        dest[1] = scaleY * sz * cx;
+        dest[2] = scaleZ * sz * sx;
+        dest[3] = -scaleX * sz;
+        dest[4] = scaleY * cz * cx;
+        dest[5] = scaleZ * cz * sx;
+        dest[6] = 0;
+        dest[7] = -scaleY * sx;
+        dest[8] = scaleZ * cx;
+        dest[9] = transform.getTranslation().x;
+        dest[10] = transform.getTranslation().y;
+        dest[11] = transform.getTranslation().z;
+        return dest;
+    }
+
+    /**
+     * Copies the affine part of a matrix.
+     *
+     * @param matrix The matrix, its last row is ignored.
+     * @param dest   The array to store the matrix in, with at least {@value TransformKernels#AFFINE_SIZE} elements.
+     * @return The destination array.
+     */
+    public static float[] toAffine(Matrix4f matrix, float[] dest) {
+        dest[0] = matrix.m00();
+        dest[1] = matrix.m01();
+        dest[2] = matrix.m02();
+        dest[3] = matrix.m10();
+        dest[4] = matrix.m11();
+        dest[5] = matrix.m12();
+        dest[6] = matrix.m20();
+        dest[7] = matrix.m21();
+        dest[8] = matrix.m22();
+        dest[9] = matrix.m30();
+        dest[10] = matrix.m31();
+        dest[11] = matrix.m32();
+        return dest;
+    }
+
+    /**
+     * Transforms interleaved positions by a Transform in place.
+     *
+     * @see TransformKernels#transformPositions(float[], int, int, int, float[])
+     */
+    public static void transformPositions(float[] data, int offset, int count, int stride, Transform transform) {
+        transformPositions(data, offset, count, stride, toAffine(transform, new float[AFFINE_SIZE]));
+    }
+
+    /**
+     * Transforms interleaved positions by an affine matrix in place. Every position consists of three consecutive
+     * floats, e.g. the first three floats of every vertex.
+     *
+     * @param data   The array holding the positions.
+     * @param offset The index of the x coordinate of the first position.
+     * @param count  The number of positions.
+     * @param stride The number of floats from one position to the next, at least 3.
+     * @param affine The affine matrix, see {@link TransformKernels#toAffine(Transform, float[])}.
+     */
+    public static void transformPositions(float[] data, int offset, int count, int stride, float[] affine) {
+        checkStride(stride);
+        final float m00 = affine[0], m01 = affine[1], m02 = affine[2];
+        final float m10 = affine[3], m11 = affine[4], m12 = affine[5];
+        final float m20 = affine[6], m21 = affine[7], m22 = affine[8];
+        final float m30 = affine[9], m31 = affine[10], m32 = affine[11];
+        for (int i = 0, o = offset; i < count; i++, o += stride) {
+            final float x = data[o], y = data[o + 1], z = data[o + 2];
+            data[o] = m00 * x + m10 * y + m20 * z + m30;
+            data[o + 1] = m01 * x + m11 * y + m21 * z + m31;
+            data[o + 2] = m02 * x + m12 * y + m22 * z + m32;
+        }
+    }
+
+    /**
+     * Transforms interleaved positions of a buffer by a Transform in place.
+     *
+     * @see TransformKernels#transformPositions(FloatBuffer, int, int, int, float[])
+     */
+    public static void transformPositions(FloatBuffer data, int offset, int count, int stride, Transform transform) {
+        transformPositions(data, offset, count, stride, toAffine(transform, new float[AFFINE_SIZE]));
+    }
+
+    /**
+     * Transforms interleaved positions of a buffer by an affine matrix in place. The position and limit of the buffer
+     * are not changed.
+     *
+     * @param data   The buffer holding the positions.
+     * @param offset The absolute index of the x coordinate of the first position.
+     * @param count  The number of positions.
+     * @param stride The number of floats from one position to the next, at least 3.
+     * @param affine The affine matrix, see {@link TransformKernels#toAffine(Transform, float[])}.
+     */
+    public static void transformPositions(FloatBuffer data, int offset, int count, int stride, float[] affine) {
+        checkStride(stride);
+        if (data.hasArray()) {
+            transformPositions(data.array(), data.arrayOffset() + offset, count, stride, affine);
+            return;
+        }
+
+        final float m00 = affine[0], m01 = affine[1], m02 = affine[2];
+        final float m10 = affine[3], m11 = affine[4], m12 = affine[5];
+        final float m20 = affine[6], m21 = affine[7], m22 = affine[8];
+        final float m30 = affine[9], m31 = affine[10], m32 = affine[11];
+        for (int i = 0, o = offset; i < count; i++, o += stride) {
+            final float x = data.get(o), y = data.get(o + 1), z = data.get(o + 2);
+            data.put(o, m00 * x + m10 * y + m20 * z + m30);
+            data.put(o + 1, m01 * x + m11 * y + m21 * z + m31);
+            data.put(o + 2, m02 * x + m12 * y + m22 * z + m32);
+        }
+    }
+
+    /**
+     * Transforms positions stored as structure of arrays by a Transform in place.
+     *
+     * @see TransformKernels#transformPositions(float[], float[], float[], int, float[])
+     */
+    public static void transformPositions(float[] x, float[] y, float[] z, int count, Transform transform) {
+        transformPositions(x, y, z, count, toAffine(transform, new float[AFFINE_SIZE]));
+    }
+
+    /**
+     * Transforms positions stored as structure of arrays by an affine matrix in place. This layout needs no gathers
+     * and is the fastest one for the vectorized kernels.
+     *
+     * @param x      The x coordinates.
+     * @param y      The y coordinates.
+     * @param z      The z coordinates.
+     * @param count  The number of positions, starting at index 0.
+     * @param affine The affine matrix, see {@link TransformKernels#toAffine(Transform, float[])}.
+     */
+    public static void transformPositions(float[] x, float[] y, float[] z, int count, float[] affine) {
+        int done = 0;
+        if (VECTORIZED)
+            done = VectorKernels.transformSoa(x, y, z, count, affine);
+
+        final float m00 = affine[0], m01 = affine[1], m02 = affine[2];
+        final float m10 = affine[3], m11 = affine[4], m12 = affine[5];
+        final float m20 = affine[6], m21 = affine[7], m22 = affine[8];
+        final float m30 = affine[9], m31 = affine[10], m32 = affine[11];
+        for (int i = done; i < count; i++) {
+            final float px = x[i], py = y[i], pz = z[i];
+            x[i] = m00 * px + m10 * py + m20 * pz + m30;
+            y[i] = m01 * px + m11 * py + m21 * pz + m31;
+            z[i] = m02 * px + m12 * py + m22 * pz + m32;
+        }
+    }
+
+    private static void checkStride(int stride) {
+        if (stride < 3)
+            throw new IllegalArgumentException("Stride must be at least 3: " + stride);
+    }
+}
@@ -0,0 +1,329 @@
+package org.nebula.math;
+
+import org.joml.Matrix4f;
+import org.joml.Matrix4x3f;
+import org.joml.Matrix4x3fc;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <br>
+ * <h2>TransformNode</h2>
+ * <br>
+ * The TransformNode class is a node of a transform hierarchy. It holds a local {@link Transform} relative to its
+ * parent and caches the local matrix and the world matrix, which is the product of the world matrix of the parent and
+ * the local matrix.
+ * <p>
+ * Changes to a node mark it dirty and flag all of its ancestors as having a dirty descendant. {@link #update()} on the
+ * root then only visits flagged subtrees and only recomputes the matrices of changed nodes and their descendants, so
+ * static parts of a hierarchy cost nothing per frame. {@link #updateParallel()} does the same, but updates subtrees of
+ * at least {@value TransformNode#PARALLEL_THRESHOLD} nodes as separate ForkJoin tasks.
+ * </p>
+ * <p>
+ * The setters of this class mark the node dirty. If the vectors of {@link #getLocal()} are changed directly,
+ * {@link #markDirty()} has to be called. The hierarchy must not be modified while it is updated.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see Transform
+ */
+public class TransformNode {
+    /**
+     * The minimum number of nodes of a subtree to update it as a separate task in {@link #updateParallel()}.
+     */
+    public static final int PARALLEL_THRESHOLD = 512;
+
+    private final Transform local;
+    private final Matrix4x3f localMatrix, worldMatrix;
+    private final List<TransformNode> children;
+    private TransformNode parent;
+    private int subtreeSize;
+    private boolean localDirty, worldDirty, descendantDirty;
+    private int worldVersion;
+
+    /**
+     * Constructs a TransformNode with an identity transform.
+     */
+    public TransformNode() {
+        this(new Transform());
+    }
+
+    /**
+     * Constructs a TransformNode.
+     *
+     * @param local The local transform relative to the parent, which is copied.
+     */
+    public TransformNode(Transform local) {
+        this.local = new Transform(local);
+        this.localMatrix = new Matrix4x3f();
+        this.worldMatrix = new Matrix4x3f();
+        this.children = new ArrayList<>();
+        this.subtreeSize = 1;
+        this.localDirty = true;
+        this.worldDirty = true;
+    }
+
+    /**
+     * Adds a child to this node. If the child has a parent, it is removed from it first.
+     *
+     * @param child The node to add.
+     * @throws IllegalArgumentException If the child is this node or one of its ancestors.
+     */
+    public void addChild(TransformNode child) {
+        for (TransformNode node = this; node != null; node = node.parent)
+            if (node == child)
+                throw new IllegalArgumentException("A node can not be a child of itself or its descendants");
+
+        if (child.parent != null)
+            child.parent.removeChild(child);
+        children.add(child);
+        child.parent = this;
+        addSubtreeSize(child.subtreeSize);
+        child.markWorldDirty();
+    }
+
+    /**
+     * Removes a child from this node, making it the root of its own hierarchy.
+     *
+     * @param child The node to remove.
+     * @return true if the node was a child of this node, false otherwise
+     */
+    public boolean removeChild(TransformNode child) {
+        if (child.parent != this)
+            return false;
+        children.remove(child);
+        child.parent = null;
+        addSubtreeSize(-child.subtreeSize);
+        child.markWorldDirty();
+        return true;
+    }
+
+    private void addSubtreeSize(int delta) {
+        for (TransformNode node = this; node != null; node = node.parent)
+            node.subtreeSize += delta;
+    }
+
+    /**
+     * Marks the local transform of this node as changed. This is only required after changing the vectors of
+     * {@link #getLocal()} directly.
+     */
+    public void markDirty() {
+        localDirty = true;
+        markWorldDirty();
+    }
+
+    private void markWorldDirty() {
+        worldDirty = true;
+        for (TransformNode node = parent; node != null && !node.descendantDirty; node = node.parent)
+            node.descendantDirty = true;
+    }
+
+    /**
+     * Updates the matrices of all changed nodes of this subtree. The world matrices of the ancestors of this node have
+     * to be up to date, so this is usually called on the root.
+     */
+    public void update() {
+        updateSubtree(false);
+    }
+
+    /**
+     * Updates the matrices of all changed nodes of this subtree like {@link #update()}, updating large subtrees in
+     * parallel on the common ForkJoinPool.
+     */
+    public void updateParallel() {
+        updateParallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Updates the matrices of all changed nodes of this subtree like {@link #update()}, updating large subtrees in
+     * parallel.
+     *
+     * @param pool The pool to run the update in.
+     */
+    public void updateParallel(ForkJoinPool pool) {
+        if (subtreeSize < PARALLEL_THRESHOLD)
+            update();
+        else
+            pool.invoke(new UpdateTask(this, false));
+    }
+
+    /**
+     * Recomputes the matrices of this node if required.
+     *
+     * @param parentChanged Whether the world matrix of the parent changed during this update.
+     * @return Whether the world matrix of this node changed, in which case all children have to be updated.
+     */
+    private boolean updateNode(boolean parentChanged) {
+        if (localDirty) {
+            Maths.toMatrix(local, localMatrix);
+            localDirty = false;
+        }
+
+        final boolean changed = parentChanged || worldDirty;
+        if (changed) {
+            if (parent == null)
+                worldMatrix.set(localMatrix);
+            else
+                parent.worldMatrix.mul(localMatrix, worldMatrix);
+            worldDirty = false;
+            worldVersion++;
+        }
+        return changed;
+    }
+
+    private boolean needsUpdate(boolean parentChanged) {
+        return parentChanged || worldDirty || descendantDirty;
+    }
+
+    private void updateSubtree(boolean parentChanged) {
+        final boolean changed = updateNode(parentChanged);
+        if (changed || descendantDirty) {
+            for (int i = 0; i < children.size(); i++) {
+                final TransformNode child = children.get(i);
+                if (child.needsUpdate(changed))
+                    child.updateSubtree(changed);
+            }
+        }
+        descendantDirty = false;
+    }
+
+    /**
+     * Updates a subtree, forking the updates of large child subtrees.
+     */
+    private static final class UpdateTask extends RecursiveAction {
+        private final TransformNode node;
+        private final boolean parentChanged;
+
+        private UpdateTask(TransformNode node, boolean parentChanged) {
+            this.node = node;
+            this.parentChanged = parentChanged;
+        }
+
+        @Override
+        protected void compute() {
+            final boolean changed = node.updateNode(parentChanged);
+            if (changed || node.descendantDirty) {
+                List<UpdateTask> tasks = null;
+                for (int i = 0; i < node.children.size(); i++) {
+                    final TransformNode child = node.children.get(i);
+                    if (!child.needsUpdate(changed))
+                        continue;
+
+                    if (child.subtreeSize >= PARALLEL_THRESHOLD) {
+                        if (tasks == null)
+                            tasks = new ArrayList<>();
+                        tasks.add(new UpdateTask(child, changed));
+                    } else {
+                        child.updateSubtree(changed);
+                    }
+                }
+                if (tasks != null)
+                    ForkJoinTask.invokeAll(tasks);
+            }
+            node.descendantDirty = false;
+        }
+    }
+
+    public Transform getLocal() {
+        return local;
+    }
+
+    /**
+     * Sets the local transform relative to the parent.
+     *
+     * @param local The new local transform, which is copied.
+     */
+    public void setLocal(Transform local) {
+        this.local.set(local);
+        markDirty();
+    }
+
+    public void setTranslation(Vector3f translation) {
+        local.setTranslation(translation);
+        markDirty();
+    }
+
+    public void setScale(Vector3f scale) {
+        local.setScale(scale);
+        markDirty();
+    }
+
+    public void setRotation(Vector2f rotation) {
+        local.setRotation(rotation);
+        markDirty();
+    }
+
+    public TransformNode getParent() {
+        return parent;
+    }
+
+    public List<TransformNode> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    /**
+     * Gets the number of nodes in this subtree.
+     *
+     * @return The number of nodes including this node.
+     */
+    public int getSubtreeSize() {
+        return subtreeSize;
+    }
+
+    /**
+     * Gets the cached local matrix, which is valid after the last update.
+     *
+     * @return The local matrix.
+     */
+    public Matrix4x3fc getLocalMatrix() {
+        return localMatrix;
+    }
+
+    /**
+     * Gets the cached world matrix, which is valid after the last update.
+     *
+     * @return The world matrix.
+     */
+    public Matrix4x3fc getWorldMatrix() {
+        return worldMatrix;
+    }
+
+    /**
+     * Gets the cached world matrix as 4x4 matrix, e.g. for uploading it as instance transform.
+     *
+     * @param dest The matrix to store the world matrix in.
+     * @return The destination matrix.
+     */
+    public Matrix4f getWorldMatrix(Matrix4f dest) {
+        return dest.set(worldMatrix);
+    }
+
+    /**
+     * Gets the number of times the world matrix was recomputed, so consumers can detect changes cheaply.
+     *
+     * @return The version of the world matrix.
+     */
+    public int getWorldVersion() {
+        return worldVersion;
+    }
+
+    public boolean isDirty() {
+        return localDirty || worldDirty || descendantDirty;
+    }
+
+    @Override
+    public String toString() {
+        return "TransformNode{" +
+                "local=" + local +
+                ", children=" + children.size() +
+                ", subtreeSize=" + subtreeSize +
+                '}';
+    }
+}
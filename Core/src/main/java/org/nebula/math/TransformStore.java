@@ -0,0 +1,547 @@
+package org.nebula.math;
+
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+import org.nebula.base.interfaces.IDisposable;
+import org.nebula.base.util.ResourceRegistry;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * <br>
+ * <h2>TransformStore</h2>
+ * <br>
+ * The TransformStore class stores the transforms of many entities as structure of arrays in off-heap memory. Every
+ * component, e.g. the x coordinate of the translation, is a contiguous direct buffer, so the stored transforms are
+ * neither separate heap objects nor scanned by the garbage collector.
+ * <p>
+ * Transforms are addressed by handles, which stay valid until they are removed. Internally the transforms are packed
+ * densely, removing one moves the last transform into its slot, so the bulk operations {@link #translateAll},
+ * {@link #integrate} and {@link #computeMatrices} run over contiguous memory in simple counted loops, which the JIT
+ * compiles to vector instructions where the hardware allows. Sine and cosine of the rotation are computed when the
+ * rotation is set rather than for every matrix.
+ * </p>
+ * <p>
+ * {@link #view(int)} returns a {@link View}, a flyweight which reads and writes a stored transform in place. The store
+ * must be disposed to free its memory and is not thread safe.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see Transform
+ */
+public class TransformStore implements IDisposable {
+    public static final int MATRIX_SIZE = 16;
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int TRANSLATION_X = 0, TRANSLATION_Y = 1, TRANSLATION_Z = 2;
+    private static final int SCALE_X = 3, SCALE_Y = 4, SCALE_Z = 5;
+    private static final int ROTATION_Z = 6, ROTATION_X = 7;
+    private static final int COS_Z = 8, SIN_Z = 9, COS_X = 10, SIN_X = 11;
+    private static final int VELOCITY_X = 12, VELOCITY_Y = 13, VELOCITY_Z = 14;
+    private static final int COLUMNS = 15;
+
+    private final FloatBuffer[] columns;
+    private int[] handleToIndex, indexToHandle, freeHandles;
+    private int size, capacity, handleCount, freeCount;
+
+    /**
+     * Constructs a TransformStore with the default capacity.
+     */
+    public TransformStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a TransformStore.
+     *
+     * @param capacity The initial number of transforms the store can hold, it grows when required.
+     */
+    public TransformStore(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        this.columns = new FloatBuffer[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++)
+            columns[i] = MemoryUtil.memAllocFloat(capacity);
+        this.handleToIndex = new int[capacity];
+        this.indexToHandle = new int[capacity];
+        this.freeHandles = new int[capacity];
+        ResourceRegistry.register(this, ResourceRegistry.Memory.NATIVE, getMemorySize());
+    }
+
+    /**
+     * Adds an identity transform with zero velocity.
+     *
+     * @return The handle of the new transform.
+     */
+    public int add() {
+        if (size == capacity)
+            grow(capacity * 2);
+
+        final int handle = freeCount > 0 ? freeHandles[--freeCount] : handleCount++;
+        final int index = size++;
+        handleToIndex[handle] = index;
+        indexToHandle[index] = handle;
+
+        for (FloatBuffer column : columns)
+            column.put(index, 0);
+        columns[SCALE_X].put(index, 1);
+        columns[SCALE_Y].put(index, 1);
+        columns[SCALE_Z].put(index, 1);
+        columns[COS_Z].put(index, 1);
+        columns[COS_X].put(index, 1);
+        return handle;
+    }
+
+    /**
+     * Adds a transform with zero velocity.
+     *
+     * @param transform The transform to copy.
+     * @return The handle of the new transform.
+     */
+    public int add(Transform transform) {
+        final int handle = add();
+        set(handle, transform);
+        return handle;
+    }
+
+    /**
+     * Removes a transform. Its handle may be returned by later calls to {@link #add()}.
+     *
+     * @param handle The handle of the transform.
+     */
+    public void remove(int handle) {
+        final int index = indexOf(handle);
+        final int last = --size;
+        if (index != last) {
+            for (FloatBuffer column : columns)
+                column.put(index, column.get(last));
+            final int moved = indexToHandle[last];
+            indexToHandle[index] = moved;
+            handleToIndex[moved] = index;
+        }
+        handleToIndex[handle] = -1;
+        freeHandles[freeCount++] = handle;
+    }
+
+    /**
+     * Removes all transforms, invalidating all handles.
+     */
+    public void clear() {
+        size = 0;
+        handleCount = 0;
+        freeCount = 0;
+    }
+
+    private void grow(int newCapacity) {
+        for (int i = 0; i < COLUMNS; i++)
+            columns[i] = MemoryUtil.memRealloc(columns[i], newCapacity);
+        handleToIndex = Arrays.copyOf(handleToIndex, newCapacity);
+        indexToHandle = Arrays.copyOf(indexToHandle, newCapacity);
+        freeHandles = Arrays.copyOf(freeHandles, newCapacity);
+        capacity = newCapacity;
+        ResourceRegistry.resize(this, getMemorySize());
+    }
+
+    public boolean contains(int handle) {
+        return handle >= 0 && handle < handleCount && handleToIndex[handle] >= 0;
+    }
+
+    /**
+     * Gets the index of a transform in the bulk operations, which changes when other transforms are removed.
+     *
+     * @param handle The handle of the transform.
+     * @return The index of the transform.
+     * @throws IllegalArgumentException If the handle is invalid.
+     */
+    public int indexOf(int handle) {
+        if (!contains(handle))
+            throw new IllegalArgumentException("Invalid handle: " + handle);
+        return handleToIndex[handle];
+    }
+
+    /**
+     * Gets the handle of the transform at an index.
+     *
+     * @param index The index of the transform, less than {@link #size()}.
+     * @return The handle of the transform.
+     */
+    public int handleAt(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        return indexToHandle[index];
+    }
+
+    /**
+     * Copies a transform into the store.
+     *
+     * @param handle    The handle of the transform.
+     * @param transform The transform to copy.
+     */
+    public void set(int handle, Transform transform) {
+        final int index = indexOf(handle);
+        putTranslation(index, transform.getTranslation().x, transform.getTranslation().y,
+                transform.getTranslation().z);
+        putScale(index, transform.getScale().x, transform.getScale().y, transform.getScale().z);
+        putRotation(index, transform.getRotation().x, transform.getRotation().y);
+    }
+
+    /**
+     * Copies a stored transform.
+     *
+     * @param handle The handle of the transform.
+     * @param dest   The transform to store the result in.
+     * @return The destination transform.
+     */
+    public Transform get(int handle, Transform dest) {
+        final int index = indexOf(handle);
+        dest.getTranslation().set(columns[TRANSLATION_X].get(index), columns[TRANSLATION_Y].get(index),
+                columns[TRANSLATION_Z].get(index));
+        dest.getScale().set(columns[SCALE_X].get(index), columns[SCALE_Y].get(index), columns[SCALE_Z].get(index));
+        dest.getRotation().set(columns[ROTATION_Z].get(index), columns[ROTATION_X].get(index));
+        return dest;
+    }
+
+    public void setTranslation(int handle, float x, float y, float z) {
+        putTranslation(indexOf(handle), x, y, z);
+    }
+
+    public Vector3f getTranslation(int handle, Vector3f dest) {
+        return get(indexOf(handle), TRANSLATION_X, dest);
+    }
+
+    public void setScale(int handle, float x, float y, float z) {
+        putScale(indexOf(handle), x, y, z);
+    }
+
+    public Vector3f getScale(int handle, Vector3f dest) {
+        return get(indexOf(handle), SCALE_X, dest);
+    }
+
+    /**
+     * Sets the rotation of a transform, see {@link Transform#getRotation()}.
+     *
+     * @param handle    The handle of the transform.
+     * @param rotationZ The rotation around the z-axis in degrees.
+     * @param rotationX The rotation around the x-axis in degrees.
+     */
+    public void setRotation(int handle, float rotationZ, float rotationX) {
+        putRotation(indexOf(handle), rotationZ, rotationX);
+    }
+
+    public Vector2f getRotation(int handle, Vector2f dest) {
+        final int index = indexOf(handle);
+        return dest.set(columns[ROTATION_Z].get(index), columns[ROTATION_X].get(index));
+    }
+
+    /**
+     * Sets the velocity of a transform, which is applied by {@link #integrate(float)}.
+     *
+     * @param handle The handle of the transform.
+     * @param x      The velocity along the x-axis in units per second.
+     * @param y      The velocity along the y-axis in units per second.
+     * @param z      The velocity along the z-axis in units per second.
+     */
+    public void setVelocity(int handle, float x, float y, float z) {
+        final int index = indexOf(handle);
+        columns[VELOCITY_X].put(index, x);
+        columns[VELOCITY_Y].put(index, y);
+        columns[VELOCITY_Z].put(index, z);
+    }
+
+    public Vector3f getVelocity(int handle, Vector3f dest) {
+        return get(indexOf(handle), VELOCITY_X, dest);
+    }
+
+    private void putTranslation(int index, float x, float y, float z) {
+        columns[TRANSLATION_X].put(index, x);
+        columns[TRANSLATION_Y].put(index, y);
+        columns[TRANSLATION_Z].put(index, z);
+    }
+
+    private void putScale(int index, float x, float y, float z) {
+        columns[SCALE_X].put(index, x);
+        columns[SCALE_Y].put(index, y);
+        columns[SCALE_Z].put(index, z);
+    }
+
+    private void putRotation(int index, float rotationZ, float rotationX) {
+        final double angleZ = Math.toRadians(rotationZ), angleX = Math.toRadians(rotationX);
+        columns[ROTATION_Z].put(index, rotationZ);
+        columns[ROTATION_X].put(index, rotationX);
+        columns[COS_Z].put(index, (float) Math.cos(angleZ));
+        columns[SIN_Z].put(index, (float) Math.sin(angleZ));
+        columns[COS_X].put(index, (float) Math.cos(angleX));
+        columns[SIN_X].put(index, (float) Math.sin(angleX));
+    }
+
+    private Vector3f get(int index, int firstColumn, Vector3f dest) {
+        return dest.set(columns[firstColumn].get(index), columns[firstColumn + 1].get(index),
+                columns[firstColumn + 2].get(index));
+    }
+
+    /**
+     * Translates all transforms.
+     *
+     * @param x The translation along the x-axis.
+     * @param y The translation along the y-axis.
+     * @param z The translation along the z-axis.
+     */
+    public void translateAll(float x, float y, float z) {
+        add(columns[TRANSLATION_X], x);
+        add(columns[TRANSLATION_Y], y);
+        add(columns[TRANSLATION_Z], z);
+    }
+
+    private void add(FloatBuffer column, float value) {
+        for (int i = 0; i < size; i++)
+            column.put(i, column.get(i) + value);
+    }
+
+    /**
+     * Moves all transforms by their velocity.
+     *
+     * @param delta The elapsed time in seconds.
+     */
+    public void integrate(float delta) {
+        integrate(columns[TRANSLATION_X], columns[VELOCITY_X], delta);
+        integrate(columns[TRANSLATION_Y], columns[VELOCITY_Y], delta);
+        integrate(columns[TRANSLATION_Z], columns[VELOCITY_Z], delta);
+    }
+
+    private void integrate(FloatBuffer translation, FloatBuffer velocity, float delta) {
+        for (int i = 0; i < size; i++)
+            translation.put(i, translation.get(i) + velocity.get(i) * delta);
+    }
+
+    /**
+     * Computes the matrices of all transforms in index order.
+     *
+     * @see TransformStore#computeMatrices(int, int, FloatBuffer, int)
+     */
+    public void computeMatrices(FloatBuffer dest, int offset) {
+        computeMatrices(0, size, dest, offset);
+    }
+
+    /**
+     * Computes the matrices of a range of transforms, like {@link Maths#toMatrix(Transform, org.joml.Matrix4f)}.
+     * Every matrix is written column major as {@value TransformStore#MATRIX_SIZE} floats, e.g. as instance matrices.
+     * The position and limit of the buffer are not changed.
+     *
+     * @param first  The index of the first transform.
+     * @param count  The number of transforms.
+     * @param dest   The buffer to store the matrices in.
+     * @param offset The absolute index in the buffer to store the first matrix at.
+     */
+    public void computeMatrices(int first, int count, FloatBuffer dest, int offset) {
+        if (first < 0 || count < 0 || first + count > size)
+            throw new IndexOutOfBoundsException("Range " + first + ".." + (first + count) + " out of bounds for size "
+                    + size);
+
+        final FloatBuffer tx = columns[TRANSLATION_X], ty = columns[TRANSLATION_Y], tz = columns[TRANSLATION_Z];
+        final FloatBuffer sx = columns[SCALE_X], sy = columns[SCALE_Y], sz = columns[SCALE_Z];
+        final FloatBuffer cosZ = columns[COS_Z], sinZ = columns[SIN_Z], cosX = columns[COS_X], sinX = columns[SIN_X];
+        for (int i = first, o = offset; i < first + count; i++, o += MATRIX_SIZE) {
+            final float scaleX = sx.get(i), scaleY = sy.get(i), scaleZ = sz.get(i);
+            final float cz = cosZ.get(i), sinz = sinZ.get(i), cx = cosX.get(i), sinx = sinX.get(i);
+
+            // Rotation around z, then around x, then scale, then translation, see TransformKernels#toAffine
+            dest.put(o, scaleX * cz);
+            dest.put(o + 1, scaleY * sinz * cx);
+            dest.put(o + 2, scaleZ * sinz * sinx);
+            dest.put(o + 3, 0);
+            dest.put(o + 4, -scaleX * sinz);
+            dest.put(o + 5, scaleY * cz * cx);
+            dest.put(o + 6, scaleZ * cz * sinx);
+            dest.put(o + 7, 0);
+            dest.put(o + 8, 0);
+            dest.put(o + 9, -scaleY * sinx);
+            dest.put(o + 10, scaleZ * cx);
+            dest.put(o + 11, 0);
+            dest.put(o + 12, tx.get(i));
+            dest.put(o + 13, ty.get(i));
+            dest.put(o + 14, tz.get(i));
+            dest.put(o + 15, 1);
+        }
+    }
+
+    /**
+     * Creates a view of a stored transform.
+     *
+     * @param handle The handle of the transform.
+     * @return A new view.
+     */
+    public View view(int handle) {
+        return new View(handle);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of bytes of off-heap memory allocated by this store.
+     *
+     * @return The size of the allocated memory in bytes.
+     */
+    public long getMemorySize() {
+        return (long) COLUMNS * capacity * Float.BYTES;
+    }
+
+    @Override
+    public void dispose() {
+        for (int i = 0; i < COLUMNS; i++) {
+            if (columns[i] != null)
+                MemoryUtil.memFree(columns[i]);
+            columns[i] = null;
+        }
+        size = 0;
+        ResourceRegistry.unregister(this);
+    }
+
+    /**
+     * <br>
+     * <h2>View</h2>
+     * <br>
+     * The View class is a flyweight over a transform of a TransformStore. It holds nothing but a handle, every getter
+     * reads the columns of the store and every setter writes them, so a view never goes stale, e.g. after bulk
+     * operations. A single view can be pointed at one transform after another with {@link #setHandle(int)} to avoid
+     * allocations. {@link #get(Transform)} copies the transform for APIs that take Transform objects.
+     *
+     * @author Anton Schoenfeld
+     */
+    public class View {
+        private int handle;
+
+        private View(int handle) {
+            setHandle(handle);
+        }
+
+        public int getHandle() {
+            return handle;
+        }
+
+        /**
+         * Points this view at another transform.
+         *
+         * @param handle The handle of the transform.
+         * @throws IllegalArgumentException If the handle is invalid.
+         */
+        public void setHandle(int handle) {
+            indexOf(handle);
+            this.handle = handle;
+        }
+
+        private float get(int column) {
+            return columns[column].get(indexOf(handle));
+        }
+
+        public float getTranslationX() {
+            return get(TRANSLATION_X);
+        }
+
+        public float getTranslationY() {
+            return get(TRANSLATION_Y);
+        }
+
+        public float getTranslationZ() {
+            return get(TRANSLATION_Z);
+        }
+
+        public float getScaleX() {
+            return get(SCALE_X);
+        }
+
+        public float getScaleY() {
+            return get(SCALE_Y);
+        }
+
+        public float getScaleZ() {
+            return get(SCALE_Z);
+        }
+
+        public float getRotationZ() {
+            return get(ROTATION_Z);
+        }
+
+        public float getRotationX() {
+            return get(ROTATION_X);
+        }
+
+        public Vector3f getTranslation(Vector3f dest) {
+            return TransformStore.this.getTranslation(handle, dest);
+        }
+
+        public void setTranslation(float x, float y, float z) {
+            TransformStore.this.setTranslation(handle, x, y, z);
+        }
+
+        /**
+         * Moves the transform.
+         *
+         * @param x The translation along the x-axis.
+         * @param y The translation along the y-axis.
+         * @param z The translation along the z-axis.
+         */
+        public void translate(float x, float y, float z) {
+            final int index = indexOf(handle);
+            putTranslation(index, columns[TRANSLATION_X].get(index) + x, columns[TRANSLATION_Y].get(index) + y,
+                    columns[TRANSLATION_Z].get(index) + z);
+        }
+
+        public Vector3f getScale(Vector3f dest) {
+            return TransformStore.this.getScale(handle, dest);
+        }
+
+        public void setScale(float x, float y, float z) {
+            TransformStore.this.setScale(handle, x, y, z);
+        }
+
+        public Vector2f getRotation(Vector2f dest) {
+            return TransformStore.this.getRotation(handle, dest);
+        }
+
+        /**
+         * Sets the rotation, see {@link Transform#getRotation()}.
+         *
+         * @param rotationZ The rotation around the z-axis in degrees.
+         * @param rotationX The rotation around the x-axis in degrees.
+         */
+        public void setRotation(float rotationZ, float rotationX) {
+            TransformStore.this.setRotation(handle, rotationZ, rotationX);
+        }
+
+        public Vector3f getVelocity(Vector3f dest) {
+            return TransformStore.this.getVelocity(handle, dest);
+        }
+
+        public void setVelocity(float x, float y, float z) {
+            TransformStore.this.setVelocity(handle, x, y, z);
+        }
+
+        /**
+         * Copies the viewed transform.
+         *
+         * @param dest The transform to store the result in.
+         * @return The destination transform.
+         */
+        public Transform get(Transform dest) {
+            return TransformStore.this.get(handle, dest);
+        }
+
+        /**
+         * Overwrites the viewed transform.
+         *
+         * @param transform The transform to copy.
+         */
+        public void set(Transform transform) {
+            TransformStore.this.set(handle, transform);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.nebula.math;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The Vector API implementations of {@link TransformKernels}. This class is only loaded if the
+ * {@code jdk.incubator.vector} module is present. Every kernel processes whole vectors only and returns the number of
+ * positions it transformed, the remainder is left to the scalar loops.
+ * <p>
+ * Interleaved positions are not vectorized: gathering them was several times slower than the scalar loop, which is
+ * bound by memory bandwidth anyway, and crashed C2 on AVX-512 machines with JDK 21.0.1.
+ * </p>
+ */
+final class VectorKernels {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private VectorKernels() {
+    }
+
+    static int transformSoa(float[] xs, float[] ys, float[] zs, int count, float[] affine) {
+        final int lanes = SPECIES.length();
+        final int bound = SPECIES.loopBound(count);
+
+        final float m00 = affine[0], m01 = affine[1], m02 = affine[2];
+        final float m10 = affine[3], m11 = affine[4], m12 = affine[5];
+        final float m20 = affine[6], m21 = affine[7], m22 = affine[8];
+        final float m30 = affine[9], m31 = affine[10], m32 = affine[11];
+        for (int i = 0; i < bound; i += lanes) {
+            final FloatVector x = FloatVector.fromArray(SPECIES, xs, i);
+            final FloatVector y = FloatVector.fromArray(SPECIES, ys, i);
+            final FloatVector z = FloatVector.fromArray(SPECIES, zs, i);
+            x.mul(m00).add(y.mul(m10)).add(z.mul(m20)).add(m30).intoArray(xs, i);
+            x.mul(m01).add(y.mul(m11)).add(z.mul(m21)).add(m31).intoArray(ys, i);
+            x.mul(m02).add(y.mul(m12)).add(z.mul(m22)).add(m32).intoArray(zs, i);
+        }
+        return bound;
+    }
+}
@@ -0,0 +1,117 @@
+package org.nebula;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.nebula.math.AabbTree;
+import org.nebula.math.Frustum;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Measures the update and query costs of {@link AabbTree} against testing every object with {@link Frustum}. Pass
+ * the number of objects as first argument, the default is 100000.
+ */
+public class AabbTreeBenchmark {
+    private static final int RUNS = 5;
+    private static final float WORLD_SIZE = 2000;
+
+    public static void main(String[] args) {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        final Random random = new Random(42);
+        final float[] minX = new float[count], minY = new float[count], minZ = new float[count];
+        final float[] maxX = new float[count], maxY = new float[count], maxZ = new float[count];
+        final float[] velocityX = new float[count], velocityZ = new float[count];
+        for (int i = 0; i < count; i++) {
+            minX[i] = random.nextFloat() * WORLD_SIZE;
+            minY[i] = random.nextFloat() * 50;
+            minZ[i] = random.nextFloat() * WORLD_SIZE;
+            maxX[i] = minX[i] + 1 + random.nextFloat() * 4;
+            maxY[i] = minY[i] + 1 + random.nextFloat() * 4;
+            maxZ[i] = minZ[i] + 1 + random.nextFloat() * 4;
+            // A tenth of the objects move
+            if (i % 10 == 0) {
+                velocityX[i] = random.nextFloat() - 0.5f;
+                velocityZ[i] = random.nextFloat() - 0.5f;
+            }
+        }
+
+        final Vector3f min = new Vector3f(), max = new Vector3f(), displacement = new Vector3f();
+        final int[] proxies = new int[count];
+        final int[] results = new int[count];
+        final Frustum frustum = new Frustum();
+        final Matrix4f projection = new Matrix4f().perspective((float) Math.toRadians(60), 16 / 9f, 0.1f, 500);
+        final Matrix4f clipMatrix = new Matrix4f();
+
+        for (int run = 0; run < RUNS; run++) {
+            final AabbTree tree = new AabbTree(0.5f);
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++)
+                proxies[i] = tree.insert(min.set(minX[i], minY[i], minZ[i]), max.set(maxX[i], maxY[i], maxZ[i]), i);
+            final double buildMillis = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            int reinserted = 0;
+            for (int frame = 0; frame < 10; frame++) {
+                for (int i = 0; i < count; i += 10) {
+                    minX[i] += velocityX[i];
+                    maxX[i] += velocityX[i];
+                    minZ[i] += velocityZ[i];
+                    maxZ[i] += velocityZ[i];
+                    if (tree.move(proxies[i], min.set(minX[i], minY[i], minZ[i]),
+                            max.set(maxX[i], maxY[i], maxZ[i]), displacement.set(velocityX[i], 0, velocityZ[i])))
+                        reinserted++;
+                }
+            }
+            final double updateMillis = (System.nanoTime() - start) / 1e6 / 10;
+
+            long visible = 0;
+            start = System.nanoTime();
+            for (int view = 0; view < 100; view++) {
+                setView(frustum, projection, clipMatrix, view);
+                visible += tree.queryFrustum(frustum, results);
+            }
+            final double frustumMicros = (System.nanoTime() - start) / 1e3 / 100;
+
+            long bruteVisible = 0;
+            start = System.nanoTime();
+            for (int view = 0; view < 100; view++) {
+                setView(frustum, projection, clipMatrix, view);
+                bruteVisible += frustum.cullAabbs(minX, minY, minZ, maxX, maxY, maxZ, count, results);
+            }
+            final double bruteMicros = (System.nanoTime() - start) / 1e3 / 100;
+
+            long overlaps = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < 10_000; i++) {
+                final float x = random.nextFloat() * WORLD_SIZE, z = random.nextFloat() * WORLD_SIZE;
+                overlaps += tree.queryAabb(min.set(x - 10, 0, z - 10), max.set(x + 10, 60, z + 10), results);
+            }
+            final double aabbMicros = (System.nanoTime() - start) / 1e3 / 10_000;
+
+            long hits = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < 10_000; i++) {
+                min.set(random.nextFloat() * WORLD_SIZE, 100, random.nextFloat() * WORLD_SIZE);
+                hits += tree.raycast(min, max.set(random.nextFloat() - 0.5f, -1, random.nextFloat() - 0.5f), 200,
+                        results, null);
+            }
+            final double rayMicros = (System.nanoTime() - start) / 1e3 / 10_000;
+
+            System.out.printf(Locale.ROOT, "Run %d: height %d, area ratio %.1f, build %.1f ms, update %.2f ms/frame " +
+                            "(%d reinserted), frustum %.1f us (%d visible) vs brute force %.1f us (%d visible), " +
+                            "aabb %.2f us (%.1f hits), ray %.2f us (%.2f hits)%n",
+                    run, tree.getHeight(), tree.getAreaRatio(), buildMillis, updateMillis, reinserted, frustumMicros,
+                    visible / 100, bruteMicros, bruteVisible / 100, aabbMicros, overlaps / 1e4, rayMicros,
+                    hits / 1e4);
+        }
+    }
+
+    private static void setView(Frustum frustum, Matrix4f projection, Matrix4f clipMatrix, int view) {
+        final float angle = view * 0.0628f;
+        final float x = WORLD_SIZE / 2 + (float) Math.cos(angle) * 600;
+        final float z = WORLD_SIZE / 2 + (float) Math.sin(angle) * 600;
+        projection.lookAt(x, 20, z, WORLD_SIZE / 2, 0, WORLD_SIZE / 2, 0, 1, 0, clipMatrix);
+        frustum.set(clipMatrix);
+    }
+}
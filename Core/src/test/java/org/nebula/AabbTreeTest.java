@@ -0,0 +1,137 @@
+package org.nebula;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.nebula.math.AabbTree;
+import org.nebula.math.Frustum;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AabbTreeTest {
+    private static final int COUNT = 2000;
+
+    @Test
+    public void testStructure() {
+        final AabbTree tree = new AabbTree();
+        assertEquals(-1, tree.getHeight());
+
+        final int[] proxies = insertRandom(tree, new Random(1), COUNT);
+        assertEquals(COUNT, tree.getProxyCount());
+        assertEquals(2 * COUNT - 1, tree.getNodeCount());
+        // A balanced tree of 2000 leaves has a height of 11
+        assertTrue(tree.getHeight() < 30, "Height " + tree.getHeight());
+
+        for (int proxy : proxies)
+            tree.remove(proxy);
+        assertEquals(0, tree.getProxyCount());
+        assertEquals(0, tree.getNodeCount());
+        assertEquals(-1, tree.getHeight());
+        assertThrows(IllegalArgumentException.class, () -> tree.remove(proxies[0]));
+    }
+
+    @Test
+    public void testMove() {
+        final AabbTree tree = new AabbTree(0.5f);
+        final int proxy = tree.insert(new Vector3f(0), new Vector3f(1), 7);
+        tree.insert(new Vector3f(10), new Vector3f(11), 8);
+
+        assertFalse(tree.move(proxy, new Vector3f(0.2f), new Vector3f(1.2f)));
+        assertTrue(tree.move(proxy, new Vector3f(5), new Vector3f(6), new Vector3f(1, 0, 0)));
+
+        final Vector3f min = new Vector3f(), max = new Vector3f();
+        tree.getFatBox(proxy, min, max);
+        assertEquals(new Vector3f(4.5f), min);
+        // Extended along the displacement
+        assertEquals(new Vector3f(8.5f, 6.5f, 6.5f), max);
+        assertEquals(7, tree.getUserData(proxy));
+    }
+
+    @Test
+    public void testQueriesMatchBruteForce() {
+        final Random random = new Random(2);
+        final AabbTree tree = new AabbTree();
+        final int[] proxies = insertRandom(tree, random, COUNT);
+        // Move and remove some objects so the queries run on an updated tree
+        final Vector3f min = new Vector3f(), max = new Vector3f();
+        for (int i = 0; i < COUNT; i += 3) {
+            tree.getFatBox(proxies[i], min, max);
+            tree.move(proxies[i], min.add(5, 0, 0), max.add(5, 0, 0));
+        }
+        for (int i = 1; i < COUNT; i += 10) {
+            tree.remove(proxies[i]);
+            proxies[i] = AabbTree.NULL;
+        }
+
+        final int[] results = new int[COUNT];
+        final Vector3f queryMin = new Vector3f(-20, -20, -20), queryMax = new Vector3f(20, 30, 10);
+        int count = tree.queryAabb(queryMin, queryMax, results);
+        assertArrayEquals(bruteForce(tree, proxies, (a, b) -> a.x <= queryMax.x && a.y <= queryMax.y
+                        && a.z <= queryMax.z && b.x >= queryMin.x && b.y >= queryMin.y && b.z >= queryMin.z),
+                sorted(results, count));
+
+        final Frustum frustum = new Frustum().set(new Matrix4f().perspective((float) Math.toRadians(60), 1, 1, 80)
+                .mul(new Matrix4f().lookAt(0, 0, 60, 0, 0, 0, 0, 1, 0)));
+        count = tree.queryFrustum(frustum, results);
+        assertArrayEquals(bruteForce(tree, proxies, frustum::intersectsAabb), sorted(results, count));
+
+        // Aim at the first object
+        tree.getFatBox(proxies[0], min, max);
+        final Vector3f origin = new Vector3f(-150, 3, 2);
+        final Vector3f direction = min.add(max).mul(0.5f).sub(origin).normalize();
+        final float[] distances = new float[COUNT];
+        count = tree.raycast(origin, direction, 500, results, distances);
+        assertTrue(Arrays.stream(results, 0, count).anyMatch(userData -> userData == 0));
+        for (int i = 0; i < count; i++) {
+            // The hit point lies on the fat box of the hit
+            final Vector3f point = new Vector3f(direction).mul(distances[i]).add(origin);
+            tree.getFatBox(proxies[results[i]], min, max);
+            assertTrue(point.x >= min.x - 1e-3f && point.x <= max.x + 1e-3f
+                    && point.y >= min.y - 1e-3f && point.y <= max.y + 1e-3f
+                    && point.z >= min.z - 1e-3f && point.z <= max.z + 1e-3f);
+        }
+    }
+
+    @Test
+    public void testTruncatedResults() {
+        final AabbTree tree = new AabbTree();
+        insertRandom(tree, new Random(3), 100);
+        final int[] results = new int[10];
+        assertEquals(100, tree.queryAabb(new Vector3f(-1000), new Vector3f(1000), results));
+    }
+
+    private static int[] insertRandom(AabbTree tree, Random random, int count) {
+        final int[] proxies = new int[count];
+        for (int i = 0; i < count; i++) {
+            final Vector3f min = new Vector3f(random.nextFloat(), random.nextFloat(), random.nextFloat())
+                    .mul(200).sub(100, 100, 100);
+            final Vector3f max = new Vector3f(random.nextFloat(), random.nextFloat(), random.nextFloat())
+                    .mul(4).add(min);
+            proxies[i] = tree.insert(min, max, i);
+        }
+        return proxies;
+    }
+
+    private interface BoxPredicate {
+        boolean test(Vector3f min, Vector3f max);
+    }
+
+    private static int[] bruteForce(AabbTree tree, int[] proxies, BoxPredicate predicate) {
+        final Vector3f min = new Vector3f(), max = new Vector3f();
+        return Arrays.stream(proxies).filter(proxy -> {
+            if (proxy == AabbTree.NULL)
+                return false;
+            tree.getFatBox(proxy, min, max);
+            return predicate.test(min, max);
+        }).map(tree::getUserData).sorted().toArray();
+    }
+
+    private static int[] sorted(int[] results, int count) {
+        final int[] sorted = Arrays.copyOf(results, count);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
@@ -0,0 +1,100 @@
+package org.nebula;
+
+import org.nebula.base.util.FrameArena;
+import org.nebula.base.util.LinearArena;
+import org.nebula.base.util.ScratchArena;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.lwjgl.system.MemoryUtil.memAddress;
+
+public class ArenaTest {
+
+    @Test
+    public void testAlignmentAndMark() {
+        try (LinearArena arena = new LinearArena(1024, LinearArena.OverflowPolicy.THROW)) {
+            final long first = arena.allocate(3, 1);
+            final long aligned = arena.allocate(8, 64);
+            assertEquals(0, aligned % 64);
+            assertTrue(aligned > first);
+
+            final long mark = arena.mark();
+            final FloatBuffer floats = arena.mallocFloat(10);
+            assertEquals(10, floats.capacity());
+            assertEquals(0, memAddress(floats) % LinearArena.DEFAULT_ALIGNMENT);
+
+            // Memory after the mark is handed out again
+            arena.reset(mark);
+            assertEquals(memAddress(floats), memAddress(arena.mallocFloat(10)));
+            assertThrows(IllegalArgumentException.class, () -> arena.allocate(4, 3));
+        }
+    }
+
+    @Test
+    public void testOverflowPolicies() {
+        try (LinearArena arena = new LinearArena(64, LinearArena.OverflowPolicy.THROW)) {
+            arena.malloc(48);
+            assertThrows(IllegalStateException.class, () -> arena.malloc(32));
+            assertEquals(1, arena.getOverflowCount());
+        }
+
+        try (LinearArena arena = new LinearArena(64, LinearArena.OverflowPolicy.FALLBACK)) {
+            arena.malloc(48);
+            final ByteBuffer fallback = arena.malloc(100);
+            fallback.put(99, (byte) 1);
+            arena.reset();
+            assertEquals(64, arena.getCapacity());
+            assertTrue(arena.getHighWater() >= 148);
+        }
+
+        try (LinearArena arena = new LinearArena(64)) {
+            arena.malloc(48);
+            arena.malloc(100);
+            assertEquals(1, arena.getOverflowCount());
+            // The next frame fits without overflow
+            arena.reset();
+            assertTrue(arena.getCapacity() >= 148);
+            arena.malloc(48);
+            arena.malloc(100);
+            assertEquals(1, arena.getOverflowCount());
+        }
+    }
+
+    @Test
+    public void testFrameArenaKeepsPreviousFrame() {
+        try (FrameArena arena = new FrameArena(3, 256, LinearArena.OverflowPolicy.THROW)) {
+            final FloatBuffer first = arena.mallocFloat(4).put(0, 42);
+            arena.nextFrame();
+            arena.mallocFloat(4).put(0, 7);
+            arena.nextFrame();
+            // Two frames later the memory of the first frame is untouched
+            assertEquals(42, first.get(0));
+            arena.nextFrame();
+            assertEquals(memAddress(first), memAddress(arena.mallocFloat(4)));
+            assertEquals(16, arena.getHighWater());
+        }
+    }
+
+    @Test
+    public void testScratchArenaGrowsAndMerges() {
+        try (ScratchArena arena = new ScratchArena(64)) {
+            final ByteBuffer small = arena.malloc(32).put(0, (byte) 5);
+            try (ScratchArena.Scope scope = arena.push()) {
+                arena.malloc(1000);
+                assertEquals(2, arena.getChunkCount());
+                // Earlier allocations stay valid when a chunk is added
+                assertEquals(5, small.get(0));
+            }
+            assertEquals(32, arena.getUsed());
+
+            arena.reset();
+            assertEquals(1, arena.getChunkCount());
+            assertTrue(arena.getCapacity() >= 1032);
+            arena.malloc(1000);
+            assertEquals(1, arena.getChunkCount());
+        }
+    }
+}
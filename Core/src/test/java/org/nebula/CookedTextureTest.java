@@ -0,0 +1,144 @@
+package org.nebula;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nebula.io.CookedTexture;
+import org.nebula.io.Lz4;
+import org.nebula.io.TextureCooker;
+import org.nebula.io.TextureCooker.MipFilter;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CookedTextureTest {
+    @TempDir
+    Path directory;
+
+    private static void assertRoundTrip(byte[] data) {
+        final ByteBuffer compressed = ByteBuffer.allocate(Lz4.maxCompressedLength(data.length));
+        final int size = Lz4.compress(ByteBuffer.wrap(data), 0, data.length, compressed, 0);
+        final ByteBuffer decompressed = ByteBuffer.allocateDirect(data.length);
+        Lz4.decompress(compressed, 0, size, decompressed, 0, data.length);
+        final byte[] result = new byte[data.length];
+        decompressed.get(0, result);
+        assertArrayEquals(data, result);
+
+        // Direct buffers take the native path
+        final ByteBuffer directCompressed = ByteBuffer.allocateDirect(size).put(0, compressed, 0, size);
+        final ByteBuffer directResult = ByteBuffer.allocateDirect(data.length);
+        Lz4.decompress(directCompressed, 0, size, directResult, 0, data.length);
+        directResult.get(0, result);
+        assertArrayEquals(data, result);
+    }
+
+    private Path writeImage(String name, int width, int height, int argb) throws IOException {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++)
+            for (int x = 0; x < width; x++)
+                image.setRGB(x, y, (x + y) % 2 == 0 ? argb : 0xFF000000);
+        final Path path = directory.resolve(name);
+        ImageIO.write(image, "png", path.toFile());
+        return path;
+    }
+
+    @Test
+    public void testLz4RoundTrip() {
+        final Random random = new Random(7);
+        final byte[] noise = new byte[10_000];
+        random.nextBytes(noise);
+        assertRoundTrip(noise);
+        assertRoundTrip(new byte[0]);
+        assertRoundTrip(new byte[]{1, 2, 3});
+
+        // Long runs produce overlapping matches and extra length bytes
+        final byte[] runs = new byte[100_000];
+        for (int i = 0; i < runs.length; i++)
+            runs[i] = (byte) (i / 1000 % 3 == 0 ? random.nextInt(4) : i % 7);
+        assertRoundTrip(runs);
+
+        final ByteBuffer compressed = ByteBuffer.allocate(Lz4.maxCompressedLength(runs.length));
+        assertTrue(Lz4.compress(ByteBuffer.wrap(runs), 0, runs.length, compressed, 0) < runs.length / 4);
+    }
+
+    @Test
+    public void testCookedMipChain() throws IOException {
+        final Path source = writeImage("checker.png", 5, 3, 0xFFFFFFFF);
+        final Path raw = directory.resolve("raw.ntex"), compressed = directory.resolve("compressed.ntex");
+        assertTrue(TextureCooker.cook(source.toString(), raw.toString(), MipFilter.BOX, false));
+        assertTrue(TextureCooker.cook(source.toString(), compressed.toString(), MipFilter.BOX, true));
+
+        try (CookedTexture a = CookedTexture.read(raw.toString());
+             CookedTexture b = CookedTexture.read(compressed.toString())) {
+            assertFalse(a.isCompressed());
+            assertTrue(b.isCompressed());
+            assertEquals(3, a.getMipCount());
+            assertEquals(5, a.getWidth());
+            assertEquals(4, a.getChannels());
+            assertEquals(a.getContentHash(), b.getContentHash() - 4);
+
+            final int[][] sizes = {{5, 3}, {2, 1}, {1, 1}};
+            for (int level = 0; level < a.getMipCount(); level++) {
+                assertEquals(sizes[level][0], a.getLevelWidth(level));
+                assertEquals(sizes[level][1], a.getLevelHeight(level));
+                assertEquals(a.getLevel(level), b.getLevel(level));
+            }
+
+            // Pixel (1, 0) is black, pixel (1, 1) white
+            assertEquals(0, a.getLevel(0).get(4));
+            assertEquals((byte) 0xFF, a.getLevel(0).get(CookedTexture.getRowStride(5, 4) + 4));
+            // A 2x2 box of the checkerboard averages to grey
+            assertEquals((byte) 128, a.getLevel(1).get(0));
+        }
+    }
+
+    @Test
+    public void testCookingIsSkippedUntilTheSourceChanges() throws IOException {
+        final Path source = writeImage("image.png", 8, 8, 0xFFFF0000);
+        final Path cooked = directory.resolve("image.ntex");
+        assertTrue(TextureCooker.cook(source.toString(), cooked.toString(), MipFilter.BOX, true));
+        assertFalse(TextureCooker.cook(source.toString(), cooked.toString(), MipFilter.BOX, true));
+        // Changing the options cooks again
+        assertTrue(TextureCooker.cook(source.toString(), cooked.toString(), MipFilter.NONE, true));
+
+        writeImage("image.png", 8, 8, 0xFF00FF00);
+        assertTrue(TextureCooker.cook(source.toString(), cooked.toString(), MipFilter.NONE, true));
+        try (CookedTexture texture = CookedTexture.read(cooked.toString())) {
+            assertEquals(1, texture.getMipCount());
+            assertEquals(0, texture.getLevel(0).get(0));
+            assertEquals((byte) 0xFF, texture.getLevel(0).get(1));
+        }
+    }
+
+    @Test
+    public void testKaiserMipChainKeepsFlatColors() throws IOException {
+        // Large enough for the levels to be filtered in parallel
+        final BufferedImage image = new BufferedImage(600, 400, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 400; y++)
+            for (int x = 0; x < 600; x++)
+                image.setRGB(x, y, 0x336699);
+        final Path source = directory.resolve("flat.png"), cooked = directory.resolve("flat.ntex");
+        ImageIO.write(image, "png", source.toFile());
+        assertTrue(TextureCooker.cook(source.toString(), cooked.toString(), MipFilter.KAISER, false));
+
+        try (CookedTexture texture = CookedTexture.read(cooked.toString())) {
+            assertEquals(10, texture.getMipCount());
+            assertEquals(3, texture.getChannels());
+            for (int level = 0; level < texture.getMipCount(); level++) {
+                final ByteBuffer pixels = texture.getLevel(level);
+                final int stride = CookedTexture.getRowStride(texture.getLevelWidth(level), 3);
+                for (int y = 0; y < texture.getLevelHeight(level); y++)
+                    for (int x = 0; x < texture.getLevelWidth(level); x++) {
+                        assertEquals(0x33, pixels.get(y * stride + x * 3));
+                        assertEquals(0x66, pixels.get(y * stride + x * 3 + 1));
+                        assertEquals((byte) 0x99, pixels.get(y * stride + x * 3 + 2));
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.nebula;
+
+import org.nebula.io.ByteBufferedImage;
+import org.nebula.io.FileBuffer;
+import org.nebula.io.Files;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilesTest {
+    @TempDir
+    Path directory;
+
+    private Path write(String name, byte[] contents) throws IOException {
+        return java.nio.file.Files.write(directory.resolve(name), contents);
+    }
+
+    @Test
+    public void testSmallFilesAreCopiedAndLargeFilesMapped() throws IOException {
+        final byte[] small = new byte[100], large = new byte[Files.MAP_THRESHOLD + 1];
+        for (int i = 0; i < large.length; i++)
+            large[i] = (byte) (i * 31);
+        System.arraycopy(large, 0, small, 0, small.length);
+
+        try (FileBuffer file = Files.readFileBuffer(write("small.bin", small).toString())) {
+            assertFalse(file.isMapped());
+            assertTrue(file.getBytes().isDirect());
+            assertEquals(100, file.size());
+            assertEquals(100, file.getBytesCopied());
+            assertEquals(small[99], file.getBytes().get(99));
+        }
+
+        final long mappedBefore = Files.getBytesMapped();
+        try (FileBuffer file = Files.readFileBuffer(write("large.bin", large).toString())) {
+            assertTrue(file.isMapped());
+            assertEquals(0, file.getBytesCopied());
+            assertEquals(large.length, file.size());
+            assertEquals(large[large.length - 1], file.getBytes().get(large.length - 1));
+        }
+        assertEquals(large.length, Files.getBytesMapped() - mappedBefore);
+    }
+
+    @Test
+    public void testReadFileAsString() throws IOException {
+        final String text = "#version 330 core\n// Grüße\n";
+        final Path path = write("shader.vert", text.getBytes(StandardCharsets.UTF_8));
+        assertEquals(text, Files.readFileAsString(path.toString()));
+    }
+
+    @Test
+    public void testDecodeImageFromBuffer() throws IOException {
+        final BufferedImage image = new BufferedImage(3, 2, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(2, 1, 0xFF00FF00);
+        final Path path = directory.resolve("image.png");
+        ImageIO.write(image, "png", path.toFile());
+
+        try (FileBuffer file = Files.readFileBuffer(path.toString());
+             ByteBufferedImage decoded = Files.decodeImage(file.getBytes())) {
+            assertEquals(3, decoded.getWidth());
+            assertEquals(2, decoded.getHeight());
+            assertEquals(4, decoded.getChannels());
+            final ByteBuffer pixels = decoded.getBytes();
+            final int last = (3 + 2) * 4;
+            assertEquals(0, pixels.get(last));
+            assertEquals((byte) 0xFF, pixels.get(last + 1));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.nebula;
+
+import org.joml.Matrix4f;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.nebula.math.Bounds;
+import org.nebula.math.Frustum;
+import org.nebula.math.Transform;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrustumTest {
+    private Frustum frustum;
+
+    @BeforeEach
+    public void setUp() {
+        // Camera at the origin looking down -z, like the view matrices of this engine
+        final Matrix4f projection = new Matrix4f().perspective((float) Math.toRadians(90), 1, 0.1f, 100);
+        final Matrix4f view = new Matrix4f().lookAt(0, 0, 0, 0, 0, -1, 0, 1, 0);
+        frustum = new Frustum().set(projection.mul(view, new Matrix4f()));
+    }
+
+    @Test
+    public void testSpheres() {
+        assertTrue(frustum.intersectsSphere(0, 0, -10, 1));
+        assertFalse(frustum.intersectsSphere(0, 0, 10, 1));
+        assertFalse(frustum.intersectsSphere(0, 0, -200, 1));
+        assertFalse(frustum.intersectsSphere(-20, 0, -10, 1));
+        // Intersects the left plane only partially
+        assertTrue(frustum.intersectsSphere(-10.5f, 0, -10, 1));
+    }
+
+    @Test
+    public void testAabbs() {
+        assertTrue(frustum.intersectsAabb(new Vector3f(-1, -1, -11), new Vector3f(1, 1, -9)));
+        assertFalse(frustum.intersectsAabb(new Vector3f(-1, -1, 9), new Vector3f(1, 1, 11)));
+        // Contains the whole frustum
+        assertTrue(frustum.intersectsAabb(new Vector3f(-500), new Vector3f(500)));
+    }
+
+    @Test
+    public void testBatchesMatchSingleTests() {
+        final Random random = new Random(7);
+        final int count = 1000;
+        final float[] x = new float[count], y = new float[count], z = new float[count], r = new float[count];
+        final float[] minX = new float[count], minY = new float[count], minZ = new float[count];
+        final float[] maxX = new float[count], maxY = new float[count], maxZ = new float[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = random.nextFloat() * 200 - 100;
+            y[i] = random.nextFloat() * 200 - 100;
+            z[i] = random.nextFloat() * 200 - 100;
+            r[i] = random.nextFloat() * 5;
+            minX[i] = x[i] - r[i];
+            minY[i] = y[i] - r[i];
+            minZ[i] = z[i] - r[i];
+            maxX[i] = x[i] + r[i];
+            maxY[i] = y[i] + r[i];
+            maxZ[i] = z[i] + r[i];
+        }
+
+        final int[] visible = new int[count];
+        final int visibleSpheres = frustum.cullSpheres(x, y, z, r, count, visible);
+        int expected = 0;
+        for (int i = 0; i < count; i++)
+            if (frustum.intersectsSphere(x[i], y[i], z[i], r[i]))
+                assertEquals(i, visible[expected++]);
+        assertEquals(expected, visibleSpheres);
+        assertTrue(visibleSpheres > 0 && visibleSpheres < count);
+
+        final int visibleAabbs = frustum.cullAabbs(minX, minY, minZ, maxX, maxY, maxZ, count, visible);
+        expected = 0;
+        for (int i = 0; i < count; i++)
+            if (frustum.intersectsAabb(new Vector3f(minX[i], minY[i], minZ[i]),
+                    new Vector3f(maxX[i], maxY[i], maxZ[i])))
+                assertEquals(i, visible[expected++]);
+        assertEquals(expected, visibleAabbs);
+    }
+
+    @Test
+    public void testTransformedBounds() {
+        final Bounds bounds = new Bounds(new Vector3f(-1), new Vector3f(1));
+        final Transform transform = new Transform(new Vector3f(0, 0, -10), new Vector3f(2), new Vector2f());
+        final Bounds transformed = bounds.transform(transform, new Bounds());
+
+        assertEquals(new Vector3f(-2, -2, -12), transformed.getMin());
+        assertEquals(new Vector3f(2, 2, -8), transformed.getMax());
+        assertEquals(new Vector3f(0, 0, -10), transformed.getCenter());
+        assertEquals(bounds.getRadius() * 2, transformed.getRadius(), 1e-5f);
+        assertTrue(frustum.intersects(transformed));
+        assertFalse(frustum.intersects(new Bounds()));
+    }
+}
@@ -0,0 +1,89 @@
+package org.nebula;
+
+import org.nebula.io.FileBuffer;
+import org.nebula.io.Files;
+import org.nebula.io.PakArchive;
+import org.nebula.io.PakBuilder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares loading small assets as loose files with loading them from a pak archive: every asset one by one, and all
+ * assets at once with {@link PakArchive#readAll(List)}. The archive is opened once per run, like at startup. The
+ * assets are text-like, 256 to 4096 bytes. Pass the asset count as first argument, the default is 10 000.
+ * <p>
+ * Files are served from the page cache after the first run, so cold-disk latency is not included.
+ * </p>
+ */
+public class PakArchiveBenchmark {
+    private static final int RUNS = 10;
+
+    public static void main(String[] args) throws IOException {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        final Path directory = java.nio.file.Files.createTempDirectory("pak-benchmark");
+        final Path assets = directory.resolve("assets");
+        final Random random = new Random(42);
+        final List<String> paths = new ArrayList<>(count);
+        final String[] words = {"vertex", "texture", "shader", "uniform", "float", "vec4", "mat4", "sampler2D"};
+        for (int i = 0; i < count; i++) {
+            final String path = "dir" + i % 64 + "/asset" + i + ".txt";
+            final StringBuilder contents = new StringBuilder();
+            final int size = 256 + random.nextInt(4096 - 256);
+            while (contents.length() < size)
+                contents.append(words[random.nextInt(words.length)]).append(random.nextInt(100)).append(' ');
+            java.nio.file.Files.createDirectories(assets.resolve(path).getParent());
+            java.nio.file.Files.writeString(assets.resolve(path), contents);
+            paths.add(path);
+        }
+
+        final Path raw = directory.resolve("raw.pak"), compressed = directory.resolve("compressed.pak");
+        new PakBuilder().addDirectory(assets).write(raw);
+        new PakBuilder().setCompression(true).addDirectory(assets).write(compressed);
+        System.out.printf(Locale.ROOT, "%d assets, loose %d KiB, pak %d KiB, compressed pak %d KiB%n", count,
+                java.nio.file.Files.walk(assets).filter(java.nio.file.Files::isRegularFile)
+                        .mapToLong(path -> path.toFile().length()).sum() >> 10,
+                java.nio.file.Files.size(raw) >> 10, java.nio.file.Files.size(compressed) >> 10);
+
+        for (int run = 0; run < RUNS; run++) {
+            long checksum = 0;
+            long start = System.nanoTime();
+            for (String path : paths)
+                try (FileBuffer file = Files.readFileBuffer(assets.resolve(path).toString())) {
+                    checksum += file.getBytes().get(0);
+                }
+            final double looseTime = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            PakArchive archive = PakArchive.open(raw);
+            for (String path : paths)
+                try (FileBuffer file = archive.read(path)) {
+                    checksum += file.getBytes().get(0);
+                }
+            final double pakTime = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            archive = PakArchive.open(compressed);
+            for (String path : paths)
+                try (FileBuffer file = archive.read(path)) {
+                    checksum += file.getBytes().get(0);
+                }
+            final double compressedTime = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            archive = PakArchive.open(compressed);
+            for (FileBuffer file : archive.readAll(paths)) {
+                checksum += file.getBytes().get(0);
+                file.dispose();
+            }
+            final double batchTime = (System.nanoTime() - start) / 1e6;
+
+            System.out.printf(Locale.ROOT, "Run %d: loose files %.1f ms, pak %.1f ms, compressed pak %.1f ms, " +
+                    "compressed pak batch %.1f ms (%d)%n", run, looseTime, pakTime, compressedTime, batchTime, checksum);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.nebula;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nebula.io.FileBuffer;
+import org.nebula.io.Files;
+import org.nebula.io.PakArchive;
+import org.nebula.io.PakBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PakArchiveTest {
+    @TempDir
+    Path directory;
+
+    private static byte[] bytes(FileBuffer file) {
+        final byte[] bytes = new byte[file.size()];
+        file.getBytes().get(0, bytes);
+        return bytes;
+    }
+
+    @Test
+    public void testReadCompressedAndStoredEntries() {
+        final byte[] text = "void main() { gl_Position = vec4(0); }\n".repeat(50).getBytes(StandardCharsets.UTF_8);
+        final byte[] noise = new byte[1000];
+        new Random(3).nextBytes(noise);
+
+        final Path path = directory.resolve("assets.pak");
+        new PakBuilder().setCompression(true)
+                .add("shaders/test.vert", text)
+                .add("/images/noise.bin", noise)
+                .add("empty.txt", new byte[0])
+                .write(path);
+
+        final PakArchive archive = PakArchive.open(path);
+        assertEquals(3, archive.getEntryCount());
+        try (FileBuffer shader = archive.read("shaders/test.vert");
+             FileBuffer image = archive.read("images\\noise.bin");
+             FileBuffer empty = archive.read("empty.txt")) {
+            assertArrayEquals(text, bytes(shader));
+            assertFalse(shader.isMapped());
+            // Noise does not compress and is served from the mapping
+            assertArrayEquals(noise, bytes(image));
+            assertTrue(image.isMapped());
+            assertEquals(0, empty.size());
+        }
+        assertEquals(-1, archive.indexOf("missing.txt"));
+        assertThrows(RuntimeException.class, () -> archive.read("missing.txt"));
+    }
+
+    @Test
+    public void testReadAllAndDirectories() throws IOException {
+        final Path assets = directory.resolve("assets");
+        java.nio.file.Files.createDirectories(assets.resolve("a/b"));
+        for (int i = 0; i < 100; i++)
+            java.nio.file.Files.writeString(assets.resolve(i % 2 == 0 ? "a/b/" + i + ".txt" : "a/" + i + ".txt"),
+                    "asset " + i + " ".repeat(i));
+
+        final Path path = directory.resolve("assets.pak");
+        new PakBuilder().setCompression(true).addDirectory(assets).write(path);
+        final PakArchive archive = PakArchive.open(path);
+        assertEquals(100, archive.getEntryCount());
+
+        final List<String> paths = List.of("a/b/98.txt", "a/1.txt", "a/b/0.txt");
+        final FileBuffer[] files = archive.readAll(paths);
+        for (int i = 0; i < files.length; i++) {
+            assertEquals(java.nio.file.Files.readString(assets.resolve(paths.get(i))),
+                    new String(bytes(files[i]), StandardCharsets.UTF_8));
+            files[i].dispose();
+        }
+        assertThrows(RuntimeException.class, () -> archive.readAll(List.of("a/1.txt", "a/2.txt")));
+    }
+
+    @Test
+    public void testMountedArchiveServesResources() {
+        final Path path = directory.resolve("override.pak");
+        new PakBuilder().add("shaders/default/default.vert", "// from pak".getBytes(StandardCharsets.UTF_8))
+                .write(path);
+        final PakArchive archive = PakArchive.open(path);
+        Files.mount(archive);
+        try {
+            assertEquals("// from pak", Files.readResourceAsString("shaders/default/default.vert"));
+            assertArrayEquals("// from pak".getBytes(StandardCharsets.UTF_8),
+                    Files.readResource("shaders/default/default.vert"));
+        } finally {
+            archive.dispose();
+        }
+        assertThrows(RuntimeException.class, () -> Files.readResourceBuffer("shaders/default/default.vert"));
+    }
+}
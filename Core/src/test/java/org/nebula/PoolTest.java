@@ -0,0 +1,133 @@
+package org.nebula;
+
+import org.nebula.base.util.ConcurrentPool;
+import org.nebula.base.util.Pool;
+import org.nebula.base.util.PoolStats;
+import org.nebula.base.util.Poolable;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PoolTest {
+
+    private static final class Item implements Poolable {
+        private boolean clean = true;
+
+        @Override
+        public void clean() {
+            clean = true;
+        }
+    }
+
+    private static Pool<Item> pool(int maxSize) {
+        return new Pool<>(maxSize) {
+            @Override
+            protected Item newPoolable() {
+                return new Item();
+            }
+        };
+    }
+
+    @Test
+    public void testBoundAndStats() {
+        final Pool<Item> pool = pool(2);
+        final List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final Item item = pool.get();
+            item.clean = false;
+            items.add(item);
+        }
+        pool.addAll(items);
+        assertEquals(2, pool.size());
+        assertTrue(pool.get().clean);
+
+        final PoolStats stats = pool.getStats();
+        assertEquals(new PoolStats(1, 1, 3, 3, 1, 0), stats);
+        assertEquals(0.25, stats.hitRate(), 1e-9);
+    }
+
+    @Test
+    public void testTrimKeepsHighWaterMark() {
+        final Pool<Item> pool = pool(Integer.MAX_VALUE);
+        pool.fill(100);
+        assertEquals(100, pool.getStats().created());
+
+        // Only 30 objects are needed per frame during the window, the other 70 stay idle
+        for (int frame = 0; frame < 5; frame++) {
+            final List<Item> items = new ArrayList<>();
+            for (int i = 0; i < 30; i++)
+                items.add(pool.get());
+            pool.addAll(items);
+        }
+        assertEquals(70, pool.trim());
+        assertEquals(30, pool.size());
+
+        // A window without requests releases everything
+        assertEquals(30, pool.trim());
+        assertEquals(100, pool.getStats().trimmed());
+    }
+
+    @Test
+    public void testConcurrentPool() throws Exception {
+        final AtomicInteger created = new AtomicInteger();
+        final ConcurrentPool<Item> pool = new ConcurrentPool<>(1000, 8) {
+            @Override
+            protected Item newPoolable() {
+                created.incrementAndGet();
+                return new Item();
+            }
+        };
+
+        final int threads = 4, iterations = 10_000;
+        final Set<Item> borrowed = ConcurrentHashMap.newKeySet();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    final List<Item> items = new ArrayList<>();
+                    for (int i = 0; i < iterations; i++) {
+                        for (int j = 0; j < 20; j++) {
+                            final Item item = pool.get();
+                            // No object may be handed out twice at the same time
+                            assertTrue(borrowed.add(item));
+                            assertTrue(item.clean);
+                            item.clean = false;
+                            items.add(item);
+                        }
+                        for (Item item : items) {
+                            borrowed.remove(item);
+                            pool.returnPoolable(item);
+                        }
+                        items.clear();
+                    }
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        final PoolStats stats = pool.getStats();
+        assertEquals(created.get(), stats.created());
+        assertEquals((long) threads * iterations * 20, stats.hits() + stats.misses());
+        // Objects are reused instead of created for every request
+        assertTrue(stats.hitRate() > 0.9, "Hit rate " + stats.hitRate());
+
+        // Nothing was requested since the first trim, so the second one releases the shared stripes. The local cache
+        // of the test thread is empty, as it never used the pool.
+        pool.trim();
+        pool.trim();
+        assertEquals(0, pool.size());
+    }
+}
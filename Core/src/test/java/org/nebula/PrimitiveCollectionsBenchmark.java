@@ -0,0 +1,98 @@
+package org.nebula;
+
+import org.nebula.base.util.FloatArrayBuffer;
+import org.nebula.base.util.IntIntHashMap;
+import org.nebula.base.util.Object2IntIdentityMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the primitive collections with the JDK collections they replace on the batch paths: filling and reading a
+ * list of floats that is cleared every frame, and looking up int values by random int keys and by object identity.
+ * Pass the element count as first argument, the default is one million.
+ */
+public class PrimitiveCollectionsBenchmark {
+    private static final int RUNS = 10;
+
+    public static void main(String[] args) {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        final Object[] objects = new Object[count];
+        final int[] keys = new int[count];
+        final Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            objects[i] = new Object();
+            keys[i] = random.nextInt();
+        }
+
+        final List<Float> floatList = new ArrayList<>();
+        final Map<Integer, Integer> intMap = new HashMap<>();
+        final Map<Object, Integer> identityMap = new IdentityHashMap<>();
+        try (FloatArrayBuffer floatBuffer = new FloatArrayBuffer()) {
+            final IntIntHashMap intIntMap = new IntIntHashMap();
+            final Object2IntIdentityMap<Object> object2IntMap = new Object2IntIdentityMap<>();
+
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                floatList.clear();
+                for (int i = 0; i < count; i++)
+                    floatList.add((float) i);
+                float sum = 0;
+                for (int i = 0; i < count; i++)
+                    sum += floatList.get(i);
+                final double listTime = (System.nanoTime() - start) / 1e6;
+
+                start = System.nanoTime();
+                floatBuffer.clear();
+                for (int i = 0; i < count; i++)
+                    floatBuffer.add(i);
+                for (int i = 0; i < count; i++)
+                    sum += floatBuffer.get(i);
+                final double bufferTime = (System.nanoTime() - start) / 1e6;
+
+                start = System.nanoTime();
+                intMap.clear();
+                for (int i = 0; i < count; i++)
+                    intMap.put(keys[i], i);
+                long hits = 0;
+                for (int i = 0; i < count; i++)
+                    hits += intMap.getOrDefault(keys[count - 1 - i], -1);
+                final double intMapTime = (System.nanoTime() - start) / 1e6;
+
+                start = System.nanoTime();
+                intIntMap.clear();
+                for (int i = 0; i < count; i++)
+                    intIntMap.put(keys[i], i);
+                for (int i = 0; i < count; i++)
+                    hits += intIntMap.get(keys[count - 1 - i], -1);
+                final double intIntMapTime = (System.nanoTime() - start) / 1e6;
+
+                start = System.nanoTime();
+                identityMap.clear();
+                for (int i = 0; i < count; i++)
+                    identityMap.put(objects[i], i);
+                for (int i = count - 1; i >= 0; i--)
+                    hits += identityMap.get(objects[i]);
+                final double identityMapTime = (System.nanoTime() - start) / 1e6;
+
+                start = System.nanoTime();
+                object2IntMap.clear();
+                for (int i = 0; i < count; i++)
+                    object2IntMap.put(objects[i], i);
+                for (int i = count - 1; i >= 0; i--)
+                    hits += object2IntMap.get(objects[i], -1);
+                final double object2IntMapTime = (System.nanoTime() - start) / 1e6;
+
+                System.out.printf(Locale.ROOT, "Run %d: ArrayList<Float> %.1f ms, FloatArrayBuffer %.1f ms, " +
+                                "HashMap<Integer, Integer> %.1f ms, IntIntHashMap %.1f ms, IdentityHashMap %.1f ms, " +
+                                "Object2IntIdentityMap %.1f ms (%s)%n", run, listTime, bufferTime, intMapTime,
+                        intIntMapTime, identityMapTime, object2IntMapTime, sum + hits);
+            }
+        }
+    }
+}
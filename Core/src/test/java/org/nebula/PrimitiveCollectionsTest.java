@@ -0,0 +1,128 @@
+package org.nebula;
+
+import org.nebula.base.util.FloatArrayBuffer;
+import org.nebula.base.util.IntArrayBuffer;
+import org.nebula.base.util.IntIntHashMap;
+import org.nebula.base.util.Object2IntIdentityMap;
+import org.junit.jupiter.api.Test;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.lwjgl.system.MemoryUtil.memAddress;
+
+public class PrimitiveCollectionsTest {
+
+    @Test
+    public void testFloatArrayBufferGrowsAndViews() {
+        try (FloatArrayBuffer buffer = new FloatArrayBuffer(2)) {
+            for (int i = 0; i < 100; i++)
+                buffer.add(i);
+            buffer.addAll(new float[]{-1, -2, -3}, 1, 2);
+            final FloatBuffer source = FloatBuffer.wrap(new float[]{7, 8});
+            buffer.addAll(source);
+            assertEquals(0, source.position());
+
+            assertEquals(104, buffer.size());
+            assertTrue(buffer.capacity() >= 104);
+            assertEquals(99, buffer.get(99));
+            assertEquals(-3, buffer.get(101));
+            assertEquals(8, buffer.get(103));
+            assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(104));
+
+            // The view shares the memory of the buffer
+            final FloatBuffer view = buffer.view();
+            assertEquals(104, view.remaining());
+            assertEquals(buffer.address(), memAddress(view));
+            buffer.set(0, 42);
+            assertEquals(42, view.get(0));
+
+            final float[] range = new float[3];
+            buffer.get(100, range, 0, 3);
+            assertArrayEquals(new float[]{-2, -3, 7}, range);
+
+            final int capacity = buffer.capacity();
+            buffer.clear();
+            assertEquals(0, buffer.view().remaining());
+            assertEquals(capacity, buffer.capacity());
+        }
+    }
+
+    @Test
+    public void testIntArrayBuffer() {
+        try (IntArrayBuffer buffer = new IntArrayBuffer()) {
+            buffer.add(1, 2, 3);
+            final int start = buffer.extend(2);
+            buffer.set(start, 4);
+            buffer.set(start + 1, 5);
+            buffer.addAll(new int[]{6, 7});
+            assertArrayEquals(new int[]{1, 2, 3, 4, 5, 6, 7}, buffer.toArray());
+
+            final IntBuffer view = buffer.view();
+            assertEquals(7, view.remaining());
+            assertEquals(5, view.get(4));
+        }
+    }
+
+    @Test
+    public void testIntIntHashMapMatchesHashMap() {
+        final IntIntHashMap map = new IntIntHashMap(4);
+        final Map<Integer, Integer> expected = new HashMap<>();
+        final Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            // A small key range produces long probe sequences and many removals of colliding keys
+            final int key = random.nextInt(512) - 64;
+            if (random.nextInt(3) == 0) {
+                final Integer removed = expected.remove(key);
+                assertEquals(removed == null ? -1 : removed, map.remove(key, -1));
+            } else
+                assertEquals(expected.put(key, i) == null, map.put(key, i));
+            assertEquals(expected.size(), map.size());
+        }
+        for (int key = -64; key < 448; key++) {
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            assertEquals(expected.getOrDefault(key, Integer.MIN_VALUE), map.get(key, Integer.MIN_VALUE));
+        }
+
+        final int[] keys = {0, 1, 2}, values = new int[3];
+        map.putAll(keys, new int[]{10, 11, 12}, 0, 3);
+        map.getAll(keys, values, 0, 3, -1);
+        assertArrayEquals(new int[]{10, 11, 12}, values);
+
+        final int[] sum = new int[1];
+        map.forEach((key, value) -> sum[0]++);
+        assertEquals(map.size(), sum[0]);
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(0));
+    }
+
+    @Test
+    public void testObject2IntIdentityMapUsesIdentity() {
+        final Object2IntIdentityMap<String> map = new Object2IntIdentityMap<>();
+        final String name = "uColor";
+        final String copy = new String(name);
+        map.put(name, 1);
+        assertEquals(1, map.get(name, -1));
+        assertEquals(-1, map.get(copy, -1));
+        map.put(copy, 2);
+        assertEquals(2, map.size());
+
+        final Object[] objects = new Object[1000];
+        for (int i = 0; i < objects.length; i++)
+            objects[i] = new Object();
+        final Object2IntIdentityMap<Object> objectMap = new Object2IntIdentityMap<>();
+        for (int i = 0; i < objects.length; i++)
+            objectMap.put(objects[i], i);
+        for (int i = 0; i < objects.length; i += 2)
+            assertEquals(i, objectMap.remove(objects[i], -1));
+        for (int i = 0; i < objects.length; i++)
+            assertEquals(i % 2 == 0 ? -1 : i, objectMap.get(objects[i], -1));
+        assertEquals(500, objectMap.size());
+        assertThrows(NullPointerException.class, () -> objectMap.put(null, 0));
+    }
+}
@@ -0,0 +1,72 @@
+package org.nebula;
+
+import org.nebula.base.interfaces.IDisposable;
+import org.nebula.base.util.ResourceRegistry;
+import org.nebula.base.util.ScratchArena;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResourceRegistryTest {
+
+    private static class DummyResource implements IDisposable {
+        @Override
+        public void dispose() {
+            ResourceRegistry.unregister(this);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ResourceRegistry.setEnabled(false);
+        ResourceRegistry.clear();
+    }
+
+    @Test
+    public void testTracksLiveResources() {
+        ResourceRegistry.setEnabled(true);
+        final DummyResource first = new DummyResource();
+        final DummyResource second = new DummyResource();
+        ResourceRegistry.register(first, ResourceRegistry.Memory.GPU, 100);
+        ResourceRegistry.register(second, ResourceRegistry.Memory.GPU, 50);
+        assertEquals(2, ResourceRegistry.getLiveCount());
+        assertEquals(150, ResourceRegistry.getTotalBytes(ResourceRegistry.Memory.GPU));
+        assertEquals(0, ResourceRegistry.getTotalBytes(ResourceRegistry.Memory.NATIVE));
+
+        ResourceRegistry.resize(first, 400);
+        final ResourceRegistry.Totals totals = ResourceRegistry.getTotals().get(0);
+        assertEquals("DummyResource", totals.type());
+        assertEquals(2, totals.count());
+        assertEquals(450, totals.bytes());
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ResourceRegistry.report(new PrintStream(output));
+        assertTrue(output.toString().contains("testTracksLiveResources"));
+
+        first.dispose();
+        second.dispose();
+        assertEquals(0, ResourceRegistry.getLiveCount());
+    }
+
+    @Test
+    public void testTracksArenaGrowth() {
+        ResourceRegistry.setEnabled(true);
+        try (ScratchArena arena = new ScratchArena(64)) {
+            assertEquals(64, ResourceRegistry.getTotalBytes(ResourceRegistry.Memory.NATIVE));
+            arena.malloc(1000);
+            assertEquals(arena.getCapacity(), ResourceRegistry.getTotalBytes(ResourceRegistry.Memory.NATIVE));
+        }
+        assertEquals(0, ResourceRegistry.getLiveCount());
+    }
+
+    @Test
+    public void testDisabledRecordsNothing() {
+        final DummyResource resource = new DummyResource();
+        ResourceRegistry.register(resource, ResourceRegistry.Memory.NATIVE, 100);
+        assertEquals(0, ResourceRegistry.getLiveCount());
+    }
+}
@@ -0,0 +1,73 @@
+package org.nebula;
+
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+import org.nebula.math.Maths;
+import org.nebula.math.Transform;
+import org.nebula.math.TransformKernels;
+
+import java.nio.FloatBuffer;
+import java.util.Locale;
+
+/**
+ * Compares {@link TransformKernels} with transforming every vertex through {@link Maths#transform(Vector3f, Transform)}.
+ * Run with {@code --add-modules jdk.incubator.vector} to measure the vectorized kernels and without it, or with
+ * {@code -Dnebula.math.scalar=true}, to measure the scalar fallback. Pass the vertex count as first argument, the
+ * default is one million vertices of 7 floats.
+ */
+public class TransformKernelsBenchmark {
+    private static final int RUNS = 10;
+    private static final int STRIDE = 7;
+
+    public static void main(String[] args) {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        final Transform transform = new Transform(new Vector3f(1, 2, 3), new Vector3f(2), new Vector2f(30, 45));
+        final float[] data = new float[count * STRIDE];
+        final float[] x = new float[count], y = new float[count], z = new float[count];
+        final FloatBuffer buffer = MemoryUtil.memAllocFloat(count * STRIDE);
+        final Vector3f position = new Vector3f();
+        System.out.println("Vectorized: " + TransformKernels.isVectorized());
+
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            for (int o = 0; o < data.length; o += STRIDE) {
+                Maths.transform(position.set(data[o], data[o + 1], data[o + 2]), transform);
+                data[o] = position.x;
+                data[o + 1] = position.y;
+                data[o + 2] = position.z;
+            }
+            final double perVertex = (System.nanoTime() - start) / 1e6;
+            reset(data, x, y, z, buffer);
+
+            start = System.nanoTime();
+            TransformKernels.transformPositions(data, 0, count, STRIDE, transform);
+            final double array = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            TransformKernels.transformPositions(buffer, 0, count, STRIDE, transform);
+            final double directBuffer = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            TransformKernels.transformPositions(x, y, z, count, transform);
+            final double soa = (System.nanoTime() - start) / 1e6;
+            reset(data, x, y, z, buffer);
+
+            System.out.printf(Locale.ROOT, "Run %d: per vertex %.2f ms, interleaved array %.2f ms, direct buffer " +
+                    "%.2f ms, structure of arrays %.2f ms%n", run, perVertex, array, directBuffer, soa);
+        }
+        MemoryUtil.memFree(buffer);
+    }
+
+    private static void reset(float[] data, float[] x, float[] y, float[] z, FloatBuffer buffer) {
+        for (int i = 0; i < data.length; i++)
+            data[i] = i % 97 * 0.01f;
+        for (int i = 0; i < x.length; i++) {
+            x[i] = i % 89 * 0.01f;
+            y[i] = i % 83 * 0.01f;
+            z[i] = i % 79 * 0.01f;
+        }
+        buffer.clear();
+        buffer.put(0, data);
+    }
+}
@@ -0,0 +1,106 @@
+package org.nebula;
+
+import org.joml.Matrix4f;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+import org.nebula.math.Maths;
+import org.nebula.math.Transform;
+import org.nebula.math.TransformKernels;
+import org.junit.jupiter.api.Test;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransformKernelsTest {
+    private static final int STRIDE = 7;
+    // Not a multiple of any vector width, so the scalar tail runs as well
+    private static final int COUNT = 1001;
+    private static final float EPSILON = 1e-3f;
+
+    private final Transform transform = new Transform(new Vector3f(3, -2, 5), new Vector3f(2, 0.5f, 1.5f),
+            new Vector2f(37, -71));
+
+    @Test
+    public void testAffineMatchesMatrix() {
+        final float[] affine = TransformKernels.toAffine(transform, new float[TransformKernels.AFFINE_SIZE]);
+        final float[] expected = TransformKernels.toAffine(Maths.toMatrix(transform, new Matrix4f()),
+                new float[TransformKernels.AFFINE_SIZE]);
+        assertArrayEquals(expected, affine, 1e-5f);
+    }
+
+    @Test
+    public void testInterleavedArray() {
+        final float[] data = randomData(new Random(1));
+        final float[] expected = perVertex(data);
+        TransformKernels.transformPositions(data, 0, COUNT, STRIDE, transform);
+        assertArrayEquals(expected, data, EPSILON);
+    }
+
+    @Test
+    public void testDirectBuffer() {
+        final float[] data = randomData(new Random(2));
+        final float[] expected = perVertex(data);
+        final FloatBuffer buffer = MemoryUtil.memAllocFloat(data.length + STRIDE);
+        try {
+            // Start at the second vertex to test the absolute offset
+            buffer.put(new float[STRIDE]).put(data).flip().position(3);
+            TransformKernels.transformPositions(buffer, STRIDE, COUNT, STRIDE, transform);
+            assertEquals(3, buffer.position());
+
+            final float[] result = new float[data.length];
+            buffer.get(STRIDE, result);
+            assertArrayEquals(expected, result, EPSILON);
+        } finally {
+            MemoryUtil.memFree(buffer);
+        }
+    }
+
+    @Test
+    public void testStructureOfArrays() {
+        final Random random = new Random(3);
+        final float[] x = new float[COUNT], y = new float[COUNT], z = new float[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            x[i] = random.nextFloat() * 10 - 5;
+            y[i] = random.nextFloat() * 10 - 5;
+            z[i] = random.nextFloat() * 10 - 5;
+        }
+        final float[] expectedX = x.clone(), expectedY = y.clone(), expectedZ = z.clone();
+        for (int i = 0; i < COUNT; i++) {
+            final Vector3f position = Maths.transform(new Vector3f(x[i], y[i], z[i]), transform);
+            expectedX[i] = position.x;
+            expectedY[i] = position.y;
+            expectedZ[i] = position.z;
+        }
+
+        TransformKernels.transformPositions(x, y, z, COUNT, transform);
+        assertArrayEquals(expectedX, x, EPSILON);
+        assertArrayEquals(expectedY, y, EPSILON);
+        assertArrayEquals(expectedZ, z, EPSILON);
+    }
+
+    private static float[] randomData(Random random) {
+        final float[] data = new float[COUNT * STRIDE];
+        for (int i = 0; i < data.length; i++)
+            data[i] = random.nextFloat() * 10 - 5;
+        return data;
+    }
+
+    /**
+     * Transforms the positions one by one with {@link Maths#transform(Vector3f, Transform)}, leaving all other
+     * attributes untouched.
+     */
+    private float[] perVertex(float[] data) {
+        final float[] result = data.clone();
+        final Vector3f position = new Vector3f();
+        for (int o = 0; o < result.length; o += STRIDE) {
+            Maths.transform(position.set(result[o], result[o + 1], result[o + 2]), transform);
+            result[o] = position.x;
+            result[o + 1] = position.y;
+            result[o + 2] = position.z;
+        }
+        return result;
+    }
+}
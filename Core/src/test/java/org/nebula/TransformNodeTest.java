@@ -0,0 +1,126 @@
+package org.nebula;
+
+import org.joml.Matrix4f;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.nebula.math.Maths;
+import org.nebula.math.Transform;
+import org.nebula.math.TransformNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransformNodeTest {
+    private static final float EPSILON = 1e-4f;
+
+    @Test
+    public void testWorldMatrix() {
+        final Transform rootTransform = new Transform(new Vector3f(1, 2, 3), new Vector3f(2), new Vector2f(30, 0));
+        final Transform childTransform = new Transform(new Vector3f(0, 1, 0), new Vector3f(1), new Vector2f(0, 45));
+        final TransformNode root = new TransformNode(rootTransform);
+        final TransformNode child = new TransformNode(childTransform);
+        root.addChild(child);
+        root.update();
+
+        final Matrix4f expected = Maths.toMatrix(rootTransform, new Matrix4f())
+                .mul(Maths.toMatrix(childTransform, new Matrix4f()));
+        assertTrue(expected.equals(child.getWorldMatrix(new Matrix4f()), EPSILON));
+
+        // The world position of a point matches transforming it through both transforms
+        final Vector3f point = new Vector3f(1, 0, 0);
+        final Vector3f expectedPoint = Maths.transform(Maths.transform(new Vector3f(point), childTransform),
+                rootTransform);
+        assertTrue(expectedPoint.equals(child.getWorldMatrix().transformPosition(point), EPSILON));
+    }
+
+    @Test
+    public void testOnlyChangedSubtreesUpdate() {
+        final TransformNode root = new TransformNode();
+        final TransformNode left = new TransformNode(), right = new TransformNode();
+        final TransformNode leftChild = new TransformNode(), rightChild = new TransformNode();
+        root.addChild(left);
+        root.addChild(right);
+        left.addChild(leftChild);
+        right.addChild(rightChild);
+        root.update();
+        assertFalse(root.isDirty());
+        assertEquals(5, root.getSubtreeSize());
+
+        final int rootVersion = root.getWorldVersion(), rightVersion = right.getWorldVersion();
+        final int leftChildVersion = leftChild.getWorldVersion(), rightChildVersion = rightChild.getWorldVersion();
+        left.setTranslation(new Vector3f(5, 0, 0));
+        assertTrue(root.isDirty());
+        root.update();
+
+        assertEquals(rootVersion, root.getWorldVersion());
+        assertEquals(rightVersion, right.getWorldVersion());
+        assertEquals(rightChildVersion, rightChild.getWorldVersion());
+        assertEquals(leftChildVersion + 1, leftChild.getWorldVersion());
+        assertEquals(5, leftChild.getWorldMatrix().m30(), EPSILON);
+
+        // Reparenting moves the node into the space of its new parent
+        right.addChild(leftChild);
+        root.update();
+        assertEquals(0, leftChild.getWorldMatrix().m30(), EPSILON);
+        assertEquals(1, left.getSubtreeSize());
+        assertEquals(3, right.getSubtreeSize());
+    }
+
+    @Test
+    public void testCycleIsRejected() {
+        final TransformNode root = new TransformNode(), child = new TransformNode();
+        root.addChild(child);
+        assertThrows(IllegalArgumentException.class, () -> child.addChild(root));
+        assertThrows(IllegalArgumentException.class, () -> root.addChild(root));
+    }
+
+    @Test
+    public void testParallelMatchesSequential() {
+        final int count = TransformNode.PARALLEL_THRESHOLD * 8;
+        final List<TransformNode> sequential = buildTree(new Random(7), count);
+        final List<TransformNode> parallel = buildTree(new Random(7), count);
+        sequential.get(0).update();
+        parallel.get(0).updateParallel();
+        assertWorldMatricesEqual(sequential, parallel);
+
+        // Change a few nodes and update again
+        final Random random = new Random(11);
+        for (int i = 0; i < 50; i++) {
+            final int index = random.nextInt(count);
+            final Vector3f translation = new Vector3f(random.nextFloat(), random.nextFloat(), random.nextFloat());
+            sequential.get(index).setTranslation(translation);
+            parallel.get(index).setTranslation(translation);
+        }
+        sequential.get(0).update();
+        parallel.get(0).updateParallel();
+        assertWorldMatricesEqual(sequential, parallel);
+    }
+
+    private static List<TransformNode> buildTree(Random random, int count) {
+        final List<TransformNode> nodes = new ArrayList<>(count);
+        nodes.add(new TransformNode());
+        for (int i = 1; i < count; i++) {
+            final TransformNode node = new TransformNode(new Transform(
+                    new Vector3f(random.nextFloat(), random.nextFloat(), random.nextFloat()),
+                    new Vector3f(0.9f + random.nextFloat() * 0.2f),
+                    new Vector2f(random.nextFloat() * 10, random.nextFloat() * 10)));
+            // Attach to one of the first nodes, so the tree has wide subtrees that are updated in parallel
+            nodes.get(random.nextInt(Math.min(i, 16))).addChild(node);
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    private static void assertWorldMatricesEqual(List<TransformNode> expected, List<TransformNode> actual) {
+        final Matrix4f a = new Matrix4f(), b = new Matrix4f();
+        for (int i = 0; i < expected.size(); i++) {
+            assertFalse(actual.get(i).isDirty());
+            assertTrue(expected.get(i).getWorldMatrix(a).equals(actual.get(i).getWorldMatrix(b), 0),
+                    "World matrix of node " + i);
+        }
+    }
+}
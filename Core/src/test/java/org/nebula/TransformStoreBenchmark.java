@@ -0,0 +1,89 @@
+package org.nebula;
+
+import org.joml.Matrix4f;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+import org.nebula.math.Maths;
+import org.nebula.math.Transform;
+import org.nebula.math.TransformStore;
+
+import java.nio.FloatBuffer;
+import java.util.Locale;
+
+/**
+ * Compares the heap footprint and the per-frame update throughput of a {@link TransformStore} with an array of
+ * {@link Transform} objects and their velocities. Pass the entity count as first argument, the default is one million.
+ */
+public class TransformStoreBenchmark {
+    private static final int RUNS = 10;
+    private static final float DELTA = 1 / 60f;
+
+    public static void main(String[] args) {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        long before = usedHeap();
+        final Transform[] transforms = new Transform[count];
+        final Vector3f[] velocities = new Vector3f[count];
+        for (int i = 0; i < count; i++) {
+            transforms[i] = new Transform(new Vector3f(i % 101, i % 103, i % 107), new Vector3f(1),
+                    new Vector2f(i % 360, i % 180));
+            velocities[i] = new Vector3f(1, 0, -1);
+        }
+        final long arrayHeap = usedHeap() - before;
+
+        before = usedHeap();
+        final TransformStore store = new TransformStore(count);
+        for (int i = 0; i < count; i++) {
+            final int handle = store.add(transforms[i]);
+            store.setVelocity(handle, 1, 0, -1);
+        }
+        final long storeHeap = usedHeap() - before;
+        System.out.printf(Locale.ROOT, "Heap: Transform[] %.1f MB, TransformStore %.1f MB heap + %.1f MB off-heap%n",
+                arrayHeap / 1e6, storeHeap / 1e6, store.getMemorySize() / 1e6);
+
+        final FloatBuffer matrices = MemoryUtil.memAllocFloat(count * TransformStore.MATRIX_SIZE);
+        final Matrix4f matrix = new Matrix4f();
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            for (Transform transform : transforms)
+                transform.getTranslation().add(0.1f, 0, 0);
+            final double arrayTranslate = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++)
+                transforms[i].getTranslation().fma(DELTA, velocities[i]);
+            final double arrayIntegrate = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++)
+                Maths.toMatrix(transforms[i], matrix).get(i * TransformStore.MATRIX_SIZE, matrices);
+            final double arrayMatrices = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            store.translateAll(0.1f, 0, 0);
+            final double storeTranslate = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            store.integrate(DELTA);
+            final double storeIntegrate = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            store.computeMatrices(matrices, 0);
+            final double storeMatrices = (System.nanoTime() - start) / 1e6;
+
+            System.out.printf(Locale.ROOT, "Run %d: translate %.2f / %.2f ms, integrate %.2f / %.2f ms, " +
+                            "matrices %.2f / %.2f ms (Transform[] / TransformStore)%n", run,
+                    arrayTranslate, storeTranslate, arrayIntegrate, storeIntegrate, arrayMatrices, storeMatrices);
+        }
+        MemoryUtil.memFree(matrices);
+        store.dispose();
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,139 @@
+package org.nebula;
+
+import org.joml.Matrix4f;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+import org.nebula.base.util.ResourceRegistry;
+import org.nebula.math.Maths;
+import org.nebula.math.Transform;
+import org.nebula.math.TransformStore;
+import org.junit.jupiter.api.Test;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransformStoreTest {
+    private static final float EPSILON = 1e-3f;
+
+    @Test
+    public void testHandlesSurviveRemoval() {
+        try (TransformStore store = new TransformStore(2)) {
+            final int a = store.add(new Transform(new Vector3f(1, 0, 0)));
+            final int b = store.add(new Transform(new Vector3f(2, 0, 0)));
+            final int c = store.add(new Transform(new Vector3f(3, 0, 0)));
+            assertEquals(3, store.size());
+            assertTrue(store.capacity() >= 3);
+
+            store.remove(a);
+            assertFalse(store.contains(a));
+            assertThrows(IllegalArgumentException.class, () -> store.indexOf(a));
+            assertEquals(2, store.getTranslation(b, new Vector3f()).x);
+            assertEquals(3, store.getTranslation(c, new Vector3f()).x);
+            assertEquals(c, store.handleAt(store.indexOf(c)));
+
+            // The removed handle is reused and starts as identity
+            final int d = store.add();
+            assertEquals(a, d);
+            assertEquals(new Transform(), store.get(d, new Transform()));
+        }
+    }
+
+    @Test
+    public void testMatricesMatchTransforms() {
+        final Random random = new Random(5);
+        final int count = 100;
+        final Transform[] transforms = new Transform[count];
+        final FloatBuffer matrices = MemoryUtil.memAllocFloat(count * TransformStore.MATRIX_SIZE + 3);
+        try (TransformStore store = new TransformStore(16)) {
+            for (int i = 0; i < count; i++) {
+                transforms[i] = new Transform(
+                        new Vector3f(random.nextFloat() * 10, random.nextFloat() * 10, random.nextFloat() * 10),
+                        new Vector3f(random.nextFloat() + 0.5f, random.nextFloat() + 0.5f, random.nextFloat() + 0.5f),
+                        new Vector2f(random.nextFloat() * 360, random.nextFloat() * 360));
+                store.add(transforms[i]);
+            }
+            store.computeMatrices(matrices, 3);
+            assertEquals(0, matrices.position());
+
+            final Matrix4f expected = new Matrix4f(), actual = new Matrix4f();
+            for (int i = 0; i < count; i++) {
+                final int handle = store.handleAt(i);
+                Maths.toMatrix(transforms[handle], expected);
+                actual.set(3 + i * TransformStore.MATRIX_SIZE, matrices);
+                assertTrue(expected.equals(actual, EPSILON), "Matrix " + i);
+            }
+        } finally {
+            MemoryUtil.memFree(matrices);
+        }
+    }
+
+    @Test
+    public void testBulkOperations() {
+        try (TransformStore store = new TransformStore()) {
+            final int a = store.add(new Transform(new Vector3f(1, 2, 3)));
+            final int b = store.add();
+            store.setVelocity(b, 2, 0, -4);
+
+            store.translateAll(1, 1, 1);
+            store.integrate(0.5f);
+            assertEquals(new Vector3f(2, 3, 4), store.getTranslation(a, new Vector3f()));
+            assertEquals(new Vector3f(2, 1, -1), store.getTranslation(b, new Vector3f()));
+        }
+    }
+
+    @Test
+    public void testViewReadsAndWritesTheStore() {
+        try (TransformStore store = new TransformStore()) {
+            final int handle = store.add();
+            final TransformStore.View view = store.view(handle);
+            view.setTranslation(4, 5, 6);
+            view.setRotation(90, 0);
+            view.setScale(2, 2, 2);
+            assertEquals(new Vector3f(4, 5, 6), store.getTranslation(handle, new Vector3f()));
+            assertEquals(new Vector3f(2), store.getScale(handle, new Vector3f()));
+
+            // The view holds no copy, so bulk operations are visible at once
+            store.translateAll(1, 0, 0);
+            assertEquals(5, view.getTranslationX());
+            view.translate(0, 1, 0);
+            assertEquals(new Vector3f(5, 6, 6), view.getTranslation(new Vector3f()));
+
+            // Removing other transforms moves this one, the view follows its handle
+            final int other = store.add();
+            store.remove(handle);
+            final int moved = store.add(new Transform(new Vector3f(7, 0, 0)));
+            view.setHandle(moved);
+            assertEquals(7, view.getTranslationX());
+            assertEquals(0, store.indexOf(other));
+
+            // Copies bridge to APIs that take Transform objects
+            final Transform transform = view.get(new Transform());
+            final Matrix4f expected = Maths.toMatrix(transform, new Matrix4f());
+            final FloatBuffer matrix = MemoryUtil.memAllocFloat(TransformStore.MATRIX_SIZE);
+            try {
+                store.computeMatrices(store.indexOf(moved), 1, matrix, 0);
+                assertTrue(expected.equals(new Matrix4f(matrix), EPSILON));
+            } finally {
+                MemoryUtil.memFree(matrix);
+            }
+        }
+    }
+
+    @Test
+    public void testStoreIsTrackedUntilDisposed() {
+        final boolean enabled = ResourceRegistry.isEnabled();
+        ResourceRegistry.setEnabled(true);
+        try {
+            final int live = ResourceRegistry.getLiveCount();
+            final TransformStore store = new TransformStore(4);
+            assertEquals(live + 1, ResourceRegistry.getLiveCount());
+            store.dispose();
+            assertEquals(live, ResourceRegistry.getLiveCount());
+        } finally {
+            ResourceRegistry.setEnabled(enabled);
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package org.nebula.jgl;
 
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import static org.lwjgl.opengl.EXTTextureFilterAnisotropic.GL_MAX_TEXTURE_MAX_ANISOTROPY_EXT;
 import static org.lwjgl.opengl.GL33C.*;
 
 /**
@@ -39,4 +43,37 @@ public final class JGL {
         glGetIntegerv(GL_MAX_TEXTURE_IMAGE_UNITS, arr);
         return arr[0];
     }
+
+    /**
+     * Checks whether the current OpenGL context supports {@code glMultiDrawElementsIndirect} including the base
+     * instance of draw commands, which is core in OpenGL 4.3.
+     *
+     * @return true if multi draw indirect is supported, false otherwise
+     */
+    public static boolean isMultiDrawIndirectSupported() {
+        final GLCapabilities capabilities = GL.getCapabilities();
+        return capabilities.OpenGL43
+                || capabilities.GL_ARB_multi_draw_indirect && capabilities.GL_ARB_base_instance;
+    }
+
+    /**
+     * Checks whether the current OpenGL context supports anisotropic texture filtering, which is core in OpenGL 4.6
+     * and available as an extension almost everywhere else.
+     *
+     * @return true if anisotropic filtering is supported, false otherwise
+     */
+    public static boolean isAnisotropicFilteringSupported() {
+        final GLCapabilities capabilities = GL.getCapabilities();
+        return capabilities.OpenGL46 || capabilities.GL_ARB_texture_filter_anisotropic
+                || capabilities.GL_EXT_texture_filter_anisotropic;
+    }
+
+    /**
+     * Retrieves the maximum degree of anisotropy supported by the OpenGL context.
+     *
+     * @return The maximum anisotropy, or 1 if anisotropic filtering is not supported.
+     */
+    public static float getMaxAnisotropy() {
+        return isAnisotropicFilteringSupported() ? glGetFloat(GL_MAX_TEXTURE_MAX_ANISOTROPY_EXT) : 1;
+    }
 }
@@ -0,0 +1,365 @@
+package org.nebula.jgl.asset;
+
+import org.nebula.base.interfaces.IDisposable;
+import org.nebula.io.CookedTexture;
+import org.nebula.io.FileBuffer;
+import org.nebula.io.Files;
+import org.nebula.jgl.data.buffer.Mesh;
+import org.nebula.jgl.data.shader.Shader;
+import org.nebula.jgl.data.texture.Texture;
+import org.nebula.jgl.io.MeshFile;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import static org.lwjgl.system.MemoryUtil.memAllocFloat;
+import static org.lwjgl.system.MemoryUtil.memAllocInt;
+import static org.lwjgl.system.MemoryUtil.memCopy;
+
+/**
+ * <br>
+ * <h2>AssetManager</h2>
+ * <br>
+ * The AssetManager class shares assets like textures, shaders and meshes by path and keeps their estimated memory
+ * within a budget. Every {@link #acquire(Class, String)} of the same type and path returns a reference counted
+ * {@link Handle} to the same asset, which is only loaded once.
+ * <p>
+ * When the resident assets exceed the budget, assets are evicted: unreferenced ones first, then the least recently
+ * used. Assets used during the current frame are never evicted, so the budget can be exceeded temporarily. An evicted
+ * asset is loaded again the next time its handle is used, which is why callers must get the asset from the handle
+ * every frame instead of keeping it. {@link #update()} starts a new frame and is meant to be called once per frame.
+ * </p>
+ * <p>
+ * Loaders for {@link Texture} (resources, {@code .ntex} resources are read as cooked textures), {@link Shader} (the
+ * {@code .vert} and {@code .frag} resources of a path without extension) and {@link Mesh} (mesh file resources) are
+ * registered by default. Like all resources, they are read from {@link Files#mount(org.nebula.io.PakArchive) mounted}
+ * archives first. All methods must be called on the thread owning the OpenGL context.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see Handle
+ */
+public class AssetManager implements IDisposable {
+    public static final long DEFAULT_BUDGET_BYTES = 512L << 20;
+    public static final String COOKED_TEXTURE_EXTENSION = ".ntex";
+
+    /**
+     * A snapshot of the cache statistics. Hits and misses are counted when an asset is acquired or used after being
+     * evicted.
+     *
+     * @param hits          The number of requests served by a resident asset.
+     * @param misses        The number of requests which had to load the asset.
+     * @param evictions     The number of evicted assets.
+     * @param residentBytes The estimated memory of the resident assets.
+     * @param residentCount The number of resident assets.
+     */
+    public record Metrics(long hits, long misses, long evictions, long residentBytes, int residentCount) {
+        public double hitRatio() {
+            final long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+
+    /**
+     * A reference to a shared asset. The asset is released by disposing the handle.
+     *
+     * @param <T> The type of the asset.
+     */
+    public final class Handle<T extends IDisposable> implements IDisposable {
+        private Entry<T> entry;
+
+        private Handle(Entry<T> entry) {
+            this.entry = entry;
+        }
+
+        /**
+         * Gets the asset, loading it again if it was evicted. The asset must not be kept beyond the current frame.
+         *
+         * @return The asset.
+         * @throws IllegalStateException If the handle was disposed.
+         */
+        public T get() {
+            if (entry == null)
+                throw new IllegalStateException("Asset handle was already disposed");
+            return use(entry);
+        }
+
+        public String getPath() {
+            if (entry == null)
+                throw new IllegalStateException("Asset handle was already disposed");
+            return entry.path;
+        }
+
+        /**
+         * Gets whether the asset is loaded, i.e. {@link #get()} will not load it.
+         *
+         * @return Whether the asset is resident.
+         */
+        public boolean isResident() {
+            return entry != null && entry.asset != null;
+        }
+
+        @Override
+        public void dispose() {
+            if (entry == null)
+                return;
+            release(entry);
+            entry = null;
+        }
+    }
+
+    private record Loader<T>(Function<String, ? extends T> load, ToLongFunction<? super T> sizeOf) {
+    }
+
+    private record Key(Class<?> type, String path) {
+    }
+
+    private static final class Entry<T extends IDisposable> {
+        private final Key key;
+        private final String path;
+        private final Loader<T> loader;
+        private T asset;
+        private long bytes, lastUsedFrame;
+        private int references;
+
+        private Entry(Key key, Loader<T> loader) {
+            this.key = key;
+            this.path = key.path();
+            this.loader = loader;
+        }
+    }
+
+    private final Map<Class<?>, Loader<?>> loaders = new HashMap<>();
+    private final Map<Key, Entry<?>> entries = new HashMap<>();
+    private long budgetBytes, residentBytes, frame;
+    private long hits, misses, evictions;
+    private int residentCount;
+    private boolean disposed;
+
+    public AssetManager() {
+        this(DEFAULT_BUDGET_BYTES);
+    }
+
+    /**
+     * Creates an asset manager with the default loaders.
+     *
+     * @param budgetBytes The estimated memory the resident assets may use.
+     */
+    public AssetManager(long budgetBytes) {
+        setBudgetBytes(budgetBytes);
+        registerLoader(Texture.class, path -> path.endsWith(COOKED_TEXTURE_EXTENSION)
+                ? new Texture(CookedTexture.readResource(path), false)
+                : new Texture(path), Texture::getSizeInBytes);
+        registerLoader(Shader.class, path -> new Shader(Files.readResourceAsString(path + ".vert"),
+                Files.readResourceAsString(path + ".frag")), shader -> 0);
+        registerLoader(Mesh.class, AssetManager::loadMesh,
+                mesh -> ((long) mesh.getVertices().capacity() + mesh.getIndices().capacity()) * Float.BYTES);
+    }
+
+    /**
+     * Loads level 0 of a mesh file resource. Memory-mapped resources are wrapped without copying, resources read into
+     * a pooled buffer are copied into memory owned by the mesh, since the buffer is reused once it is disposed.
+     */
+    private static Mesh loadMesh(String path) {
+        final FileBuffer file = Files.readResourceBuffer(path);
+        final MeshFile meshFile;
+        try {
+            meshFile = MeshFile.load(file.getBytes(), path, Shader.getCurrentlyBoundShader());
+        } catch (RuntimeException e) {
+            file.dispose();
+            throw e;
+        }
+        final Mesh wrapped = meshFile.getMesh();
+        if (file.isMapped())
+            return wrapped;
+
+        final FloatBuffer vertices = memAllocFloat(wrapped.getVertexDataSize());
+        final IntBuffer indices = memAllocInt(wrapped.getIndexCount());
+        wrapped.copyVertices(vertices, 0);
+        memCopy(wrapped.getIndices(), indices);
+        final Mesh mesh = new Mesh(wrapped.getShader(), vertices, indices);
+        if (wrapped.getVertexDataSize() > 0) {
+            final int vertexSize = meshFile.getLayout().getVertexSize();
+            mesh.setBounds(wrapped.getBounds(vertexSize), vertexSize);
+        }
+        wrapped.dispose();
+        file.dispose();
+        return mesh;
+    }
+
+    /**
+     * Registers how assets of a type are loaded, replacing any previous loader of the type.
+     *
+     * @param type   The type of the assets.
+     * @param load   Loads the asset of a path.
+     * @param sizeOf Estimates the memory of a loaded asset in bytes. Assets of size 0 are never evicted.
+     * @param <T>    The type of the assets.
+     */
+    public <T extends IDisposable> void registerLoader(Class<T> type, Function<String, ? extends T> load,
+                                                       ToLongFunction<? super T> sizeOf) {
+        loaders.put(type, new Loader<T>(load, sizeOf));
+    }
+
+    /**
+     * Acquires a reference to the asset of a path, loading it if it is not resident.
+     *
+     * @param type The type of the asset.
+     * @param path The path of the asset, interpreted by the loader of the type.
+     * @param <T>  The type of the asset.
+     * @return The handle, which must be disposed when the asset is no longer needed.
+     * @throws IllegalArgumentException If no loader is registered for the type.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends IDisposable> Handle<T> acquire(Class<T> type, String path) {
+        if (disposed)
+            throw new IllegalStateException("AssetManager was already disposed");
+        final Loader<T> loader = (Loader<T>) loaders.get(type);
+        if (loader == null)
+            throw new IllegalArgumentException("No loader registered for " + type.getName());
+
+        final Key key = new Key(type, path);
+        Entry<T> entry = (Entry<T>) entries.get(key);
+        if (entry == null) {
+            entry = new Entry<>(key, loader);
+            entries.put(key, entry);
+        }
+        if (entry.asset != null)
+            hits++;
+        try {
+            use(entry);
+        } catch (RuntimeException e) {
+            if (entry.references == 0)
+                entries.remove(key);
+            throw e;
+        }
+        entry.references++;
+        return new Handle<>(entry);
+    }
+
+    public Handle<Texture> texture(String path) {
+        return acquire(Texture.class, path);
+    }
+
+    public Handle<Shader> shader(String path) {
+        return acquire(Shader.class, path);
+    }
+
+    public Handle<Mesh> mesh(String path) {
+        return acquire(Mesh.class, path);
+    }
+
+    private <T extends IDisposable> T use(Entry<T> entry) {
+        if (disposed)
+            throw new IllegalStateException("AssetManager was already disposed");
+        entry.lastUsedFrame = frame;
+        if (entry.asset == null) {
+            misses++;
+            final T asset = entry.loader.load().apply(entry.path);
+            entry.asset = asset;
+            entry.bytes = entry.loader.sizeOf().applyAsLong(asset);
+            residentBytes += entry.bytes;
+            residentCount++;
+            evictToBudget();
+        }
+        return entry.asset;
+    }
+
+    private void release(Entry<?> entry) {
+        if (disposed)
+            return;
+        if (--entry.references == 0 && entry.asset == null)
+            entries.remove(entry.key);
+    }
+
+    /**
+     * Starts a new frame and evicts assets until the budget is met. Assets used during the previous frame become
+     * eligible for eviction again.
+     */
+    public void update() {
+        frame++;
+        evictToBudget();
+    }
+
+    private void evictToBudget() {
+        if (residentBytes <= budgetBytes)
+            return;
+
+        final List<Entry<?>> candidates = new ArrayList<>();
+        for (Entry<?> entry : entries.values())
+            if (entry.asset != null && entry.bytes > 0 && entry.lastUsedFrame < frame)
+                candidates.add(entry);
+        candidates.sort(Comparator.<Entry<?>>comparingInt(entry -> entry.references > 0 ? 1 : 0)
+                .thenComparingLong(entry -> entry.lastUsedFrame));
+
+        for (int i = 0; i < candidates.size() && residentBytes > budgetBytes; i++) {
+            final Entry<?> entry = candidates.get(i);
+            unload(entry);
+            evictions++;
+            if (entry.references == 0)
+                entries.remove(entry.key);
+        }
+    }
+
+    private void unload(Entry<?> entry) {
+        entry.asset.dispose();
+        entry.asset = null;
+        residentBytes -= entry.bytes;
+        residentCount--;
+        entry.bytes = 0;
+    }
+
+    /**
+     * Disposes all resident assets without references, regardless of the budget.
+     */
+    public void purgeUnreferenced() {
+        entries.values().removeIf(entry -> {
+            if (entry.references > 0)
+                return false;
+            if (entry.asset != null)
+                unload(entry);
+            return true;
+        });
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * Sets the estimated memory the resident assets may use. Lowering the budget evicts on the next
+     * {@link #update()}.
+     *
+     * @param budgetBytes The budget in bytes.
+     */
+    public void setBudgetBytes(long budgetBytes) {
+        if (budgetBytes < 0)
+            throw new IllegalArgumentException("Budget must not be negative: " + budgetBytes);
+        this.budgetBytes = budgetBytes;
+    }
+
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(hits, misses, evictions, residentBytes, residentCount);
+    }
+
+    @Override
+    public void dispose() {
+        if (disposed)
+            return;
+        for (Entry<?> entry : entries.values())
+            if (entry.asset != null)
+                unload(entry);
+        entries.clear();
+        disposed = true;
+    }
+}
@@ -1,22 +1,31 @@
 package org.nebula.jgl.batch;
 
-import org.lwjgl.glfw.GLFWNativeWin32;
-import org.lwjgl.opengl.ARBFragmentShader;
-import org.lwjgl.system.MemoryUtil;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.nebula.base.util.FrameArena;
+import org.nebula.base.util.ResourceRegistry;
 import org.nebula.jgl.JGL;
 import org.nebula.jgl.data.buffer.Buffer;
 import org.nebula.jgl.data.buffer.Mesh;
+import org.nebula.jgl.data.buffer.MeshArena;
+import org.nebula.jgl.data.buffer.MeshLod;
 import org.nebula.jgl.data.buffer.VertexArray;
 import org.nebula.jgl.data.shader.Shader;
+import org.nebula.jgl.data.shader.VertexAttrib;
 import org.nebula.jgl.data.shader.VertexAttribs;
+import org.nebula.math.Bounds;
+import org.nebula.math.Frustum;
+import org.nebula.math.Maths;
 import org.nebula.math.Transform;
+import org.nebula.math.TransformKernels;
 
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ShortBuffer;
+import java.util.*;
 
 import static org.lwjgl.opengl.GL33C.*;
+import static org.lwjgl.opengl.GL43C.glMultiDrawElementsIndirect;
 
 /**
  * <br>
@@ -26,8 +35,38 @@ import static org.lwjgl.opengl.GL33C.*;
  * in a single draw call using batch rendering. It supports vertex transformations, depth testing, and can handle both
  * indexed and non-indexed meshes.
  * <p>
- * This class assumes that the provided shader accepts additional transform values (translation, scale, rotation) after
- * each vertex for proper rendering.
+ * Meshes submitted through {@link MeshBatch#mesh(Mesh)} are expected to be in world space and to consist of vertices
+ * matching the vertex layout of the shader. Meshes in local space can be submitted with a Transform through
+ * {@link MeshBatch#mesh(Mesh, Transform)}, their positions are then transformed on the CPU after merging.
+ * </p>
+ * <p>
+ * Instanced meshes are drawn with a separate instance shader, see {@link MeshBatch#setInstanceShader(Shader)}.
+ * All instances of the same Mesh submitted between {@code begin()} and {@code end()} are grouped by identity and
+ * drawn with a single {@code glDrawElementsInstanced} call.
+ * </p>
+ * <p>
+ * By default, mesh data is uploaded anew every frame. If a {@link MeshArena} is set, submitted meshes are instead made
+ * resident in the arena once and drawn from their stored offsets with base vertex draw calls, so unchanged meshes
+ * never cross the bus again.
+ * </p>
+ * <p>
+ * Meshes with a level of detail chain are submitted through {@link MeshBatch#mesh(MeshLod)}, which draws the coarsest
+ * level whose error is not visible at the mesh's projected size.
+ * </p>
+ * <p>
+ * Unless disabled with {@link MeshBatch#setCullingEnabled(boolean)}, meshes and instances whose bounds lie outside the
+ * view frustum are rejected before they are merged or uploaded. The bounds of meshes are cached per Mesh, the bounds
+ * of instances are transformed along with their Transform at submission.
+ * </p>
+ * <p>
+ * With a mesh arena on drivers supporting OpenGL 4.3, all resident meshes and all instance groups are each drawn with
+ * one {@code glMultiDrawElementsIndirect} call, see {@link MeshBatch#setMultiDrawIndirectEnabled(boolean)}. The
+ * instance matrices are fetched through the instance attribute offset by the base instance of every draw command.
+ * Without OpenGL 4.3, every mesh and instance group is drawn with its own base vertex draw call.
+ * </p>
+ * <p>
+ * Merged vertices, indices, instance matrices and draw commands are staged in a {@link FrameArena} that is reset in
+ * {@code begin()}, so flushing does not allocate native memory once the arena has grown to the largest frame.
  * </p>
  *
  * @see Batch
@@ -39,12 +78,51 @@ import static org.lwjgl.opengl.GL33C.*;
  * @see Transform
  */
 public class MeshBatch extends Batch {
-    private static final int TRANSFORM_SIZE = 5;
-    private final List<Mesh> meshes;
-    private final VertexArray vertexArray;
+    private static final int INSTANCE_MATRIX_SIZE = 16;
+    private static final int INSTANCE_MATRIX_SIZE_BYTES = INSTANCE_MATRIX_SIZE * Float.BYTES;
+    /**
+     * The number of ints of a {@code DrawElementsIndirectCommand}: count, instanceCount, firstIndex, baseVertex and
+     * baseInstance.
+     */
+    private static final int DRAW_COMMAND_SIZE = 5;
+    /**
+     * The default LOD threshold, roughly one pixel at a screen height of 1080 pixels.
+     */
+    public static final float DEFAULT_LOD_THRESHOLD = 2f / 1080;
+    public static final float DEFAULT_LOD_HYSTERESIS = 0.25f;
+    /**
+     * The initial size of the frame arena in bytes, it grows to the demand of the largest frame.
+     */
+    public static final int FRAME_ARENA_SIZE = 1 << 20;
+    private final List<Mesh> meshes, visibleMeshes, instancedMeshes;
+    private final Map<Mesh, InstanceGroup> instanceGroups;
+    private final List<InstanceGroup> uploadedInstanceGroups;
+    private int[] uploadedInstanceVersions;
+    private final VertexArray vertexArray, instanceVertexArray;
     private final Buffer buffer, elementBuffer;
-    private VertexAttribs vertexAttribs;
+    private final Buffer instanceMeshBuffer, instanceElementBuffer, instanceBuffer, indirectBuffer;
+    private final Matrix4f instanceMatrix, clipMatrix;
+    private final Frustum frustum;
+    private final AabbArrays meshBounds;
+    private final Bounds transformedBounds;
+    private final float[] affine;
+    private float[] meshAffines;
+    private boolean[] meshTransformed;
+    private int[] visibleSubmissions;
+    private int transformedMeshCount;
+    private final MeshMerger merger;
+    private final FrameArena frameArena;
+    private VertexAttribs vertexAttribs, instanceMeshAttribs;
     private Shader instanceShader;
+    private int instanceTransformLoc;
+    private MeshArena meshArena;
+    private int arenaGeneration;
+    private float lodThreshold, lodHysteresis;
+    private boolean cullingEnabled;
+    private int testedCount, culledCount, drawnCount;
+    private final boolean multiDrawIndirectSupported;
+    private boolean multiDrawIndirectEnabled;
+    private int drawCallCount;
 
     /**
      * Constructs a MeshBatch with necessary buffers and arrays for batch rendering.
@@ -52,9 +130,37 @@ public class MeshBatch extends Batch {
     public MeshBatch() {
         super();
         this.meshes = new ArrayList<>();
+        this.visibleMeshes = new ArrayList<>();
+        this.instanceGroups = new IdentityHashMap<>();
+        this.instancedMeshes = new ArrayList<>();
+        this.uploadedInstanceGroups = new ArrayList<>();
+        this.uploadedInstanceVersions = new int[16];
         this.vertexArray = new VertexArray();
+        this.instanceVertexArray = new VertexArray();
         this.buffer = new Buffer(Buffer.Type.ARRAY_BUFFER);
         this.elementBuffer = new Buffer(Buffer.Type.ELEMENT_ARRAY_BUFFER);
+        this.instanceMeshBuffer = new Buffer(Buffer.Type.ARRAY_BUFFER);
+        this.instanceElementBuffer = new Buffer(Buffer.Type.ELEMENT_ARRAY_BUFFER);
+        this.instanceBuffer = new Buffer(Buffer.Type.ARRAY_BUFFER);
+        this.multiDrawIndirectSupported = JGL.isMultiDrawIndirectSupported();
+        this.indirectBuffer = multiDrawIndirectSupported ? new Buffer(Buffer.Type.DRAW_INDIRECT_BUFFER) : null;
+        this.multiDrawIndirectEnabled = true;
+        this.instanceMatrix = new Matrix4f();
+        this.clipMatrix = new Matrix4f();
+        this.frustum = new Frustum();
+        this.meshBounds = new AabbArrays();
+        this.transformedBounds = new Bounds();
+        this.affine = new float[TransformKernels.AFFINE_SIZE];
+        this.meshAffines = new float[16 * TransformKernels.AFFINE_SIZE];
+        this.meshTransformed = new boolean[16];
+        this.visibleSubmissions = new int[16];
+        this.merger = new MeshMerger();
+        this.frameArena = new FrameArena(FRAME_ARENA_SIZE);
+        this.lodThreshold = DEFAULT_LOD_THRESHOLD;
+        this.lodHysteresis = DEFAULT_LOD_HYSTERESIS;
+        this.cullingEnabled = true;
+        // The GL objects are tracked by themselves, this accounts for the transient memory of the frame arena
+        ResourceRegistry.register(this, ResourceRegistry.Memory.NATIVE, frameArena.getCapacity());
     }
 
     /**
@@ -66,18 +172,229 @@ public class MeshBatch extends Batch {
     public void setShader(Shader shader) {
         super.setShader(shader);
         this.vertexAttribs = shader.getVertexAttribs();
-        buffer.bind();
-        vertexAttribs.configure(vertexArray);
+        configureVertexArrays();
+    }
+
+    /**
+     * Sets the shader used for instanced rendering and configures its vertex attributes. The shader has to declare
+     * a per-instance {@code mat4} attribute named {@value Shader#INSTANCE_TRANSFORM_NAME}, which occupies four
+     * consecutive attribute locations. All other attributes are sourced per vertex from the instanced Mesh.
+     *
+     * @param instanceShader The shader to use for instanced rendering.
+     * @throws IllegalArgumentException If the shader does not declare the instance transform attribute.
+     */
+    public void setInstanceShader(Shader instanceShader) {
+        final VertexAttribs attribs = instanceShader.getVertexAttribs();
+        final VertexAttrib transformAttrib = attribs.get(Shader.INSTANCE_TRANSFORM_NAME);
+        if (transformAttrib == null || transformAttrib.getSize() != INSTANCE_MATRIX_SIZE)
+            throw new IllegalArgumentException("Instance shader does not declare 'mat4 " +
+                    Shader.INSTANCE_TRANSFORM_NAME + "'");
+
+        this.instanceShader = instanceShader;
+        this.instanceMeshAttribs = attribs.without(Shader.INSTANCE_TRANSFORM_NAME);
+        // The uploaded instance meshes may not match the new layout
+        uploadedInstanceGroups.clear();
+        this.instanceTransformLoc = transformAttrib.getLocation();
+        configureVertexArrays();
+    }
+
+    public Shader getInstanceShader() {
+        return instanceShader;
+    }
+
+    /**
+     * Sets the MeshArena used to keep submitted meshes resident on the GPU. The layout of the arena has to match the
+     * vertex layout of the shader and the instance shader.
+     *
+     * @param meshArena The MeshArena to draw from, or null to upload mesh data every frame.
+     */
+    public void setMeshArena(MeshArena meshArena) {
+        this.meshArena = meshArena;
+        configureVertexArrays();
+    }
+
+    public MeshArena getMeshArena() {
+        return meshArena;
+    }
+
+    /**
+     * Sets the maximum on-screen error of LOD levels selected by {@link MeshBatch#mesh(MeshLod)}, in normalized
+     * device coordinates where the screen height is 2.
+     *
+     * @param lodThreshold The maximum on-screen error.
+     */
+    public void setLodThreshold(float lodThreshold) {
+        this.lodThreshold = lodThreshold;
+    }
+
+    public float getLodThreshold() {
+        return lodThreshold;
+    }
+
+    /**
+     * Sets the fraction the LOD threshold has to be crossed by before the level of a MeshLod changes.
+     *
+     * @param lodHysteresis The hysteresis fraction, e.g. 0.25.
+     */
+    public void setLodHysteresis(float lodHysteresis) {
+        this.lodHysteresis = lodHysteresis;
+    }
+
+    public float getLodHysteresis() {
+        return lodHysteresis;
+    }
+
+    public boolean isCullingEnabled() {
+        return cullingEnabled;
+    }
+
+    /**
+     * Enables or disables frustum culling of meshes and instances.
+     *
+     * @param cullingEnabled true to skip meshes and instances outside the view frustum, false to draw everything
+     */
+    public void setCullingEnabled(boolean cullingEnabled) {
+        this.cullingEnabled = cullingEnabled;
+    }
+
+    /**
+     * Gets the number of meshes and instances tested against the view frustum since the last {@code begin()}.
+     *
+     * @return The number of tested meshes and instances.
+     */
+    public int getTestedCount() {
+        return testedCount;
+    }
+
+    /**
+     * Gets the number of meshes and instances rejected by frustum culling since the last {@code begin()}.
+     *
+     * @return The number of culled meshes and instances.
+     */
+    public int getCulledCount() {
+        return culledCount;
+    }
+
+    /**
+     * Gets the number of meshes and instances drawn since the last {@code begin()}.
+     *
+     * @return The number of drawn meshes and instances.
+     */
+    public int getDrawnCount() {
+        return drawnCount;
+    }
+
+    /**
+     * Checks whether the OpenGL context this MeshBatch was created in supports multi draw indirect.
+     *
+     * @return true if resident meshes can be drawn with {@code glMultiDrawElementsIndirect}, false otherwise
+     */
+    public boolean isMultiDrawIndirectSupported() {
+        return multiDrawIndirectSupported;
+    }
+
+    public boolean isMultiDrawIndirectEnabled() {
+        return multiDrawIndirectEnabled;
+    }
+
+    /**
+     * Enables or disables drawing resident meshes with {@code glMultiDrawElementsIndirect}. It is only used with a mesh
+     * arena and if {@link MeshBatch#isMultiDrawIndirectSupported()}, otherwise every mesh is drawn with its own base
+     * vertex draw call.
+     *
+     * @param multiDrawIndirectEnabled true to use multi draw indirect where possible, false to always draw per mesh
+     */
+    public void setMultiDrawIndirectEnabled(boolean multiDrawIndirectEnabled) {
+        this.multiDrawIndirectEnabled = multiDrawIndirectEnabled;
+    }
+
+    /**
+     * Gets the number of draw calls issued since the last {@code begin()}.
+     *
+     * @return The number of draw calls.
+     */
+    public int getDrawCallCount() {
+        return drawCallCount;
+    }
+
+    /**
+     * Gets the arena providing the transient memory of every frame, e.g. to inspect its high-water mark.
+     *
+     * @return The frame arena.
+     */
+    public FrameArena getFrameArena() {
+        return frameArena;
+    }
+
+    private boolean useMultiDrawIndirect() {
+        return meshArena != null && multiDrawIndirectEnabled && multiDrawIndirectSupported;
+    }
+
+    /**
+     * Points the vertex arrays at the buffers their data is sourced from, which are either the per-frame buffers of
+     * this batch or the buffers of the mesh arena.
+     */
+    private void configureVertexArrays() {
+        final boolean resident = meshArena != null;
+
+        if (vertexAttribs != null) {
+            vertexArray.bind();
+            (resident ? meshArena.getVertexBuffer() : buffer).bind();
+            vertexAttribs.configure(vertexArray);
+            (resident ? meshArena.getIndexBuffer() : elementBuffer).bind();
+            vertexArray.unbind();
+        }
+
+        if (instanceShader != null) {
+            instanceVertexArray.bind();
+            (resident ? meshArena.getVertexBuffer() : instanceMeshBuffer).bind();
+            instanceMeshAttribs.configure(instanceVertexArray);
+            instanceBuffer.bind();
+            for (int column = 0; column < 4; column++) {
+                final int loc = instanceTransformLoc + column;
+                instanceVertexArray.vertexAttribPointer(loc, 4, Buffer.Datatype.FLOAT,
+                        INSTANCE_MATRIX_SIZE_BYTES, column * 4 * Float.BYTES);
+                instanceVertexArray.vertexAttribDivisor(loc, 1);
+            }
+            (resident ? meshArena.getIndexBuffer() : instanceElementBuffer).bind();
+            instanceVertexArray.unbind();
+        }
+
+        arenaGeneration = resident ? meshArena.getGeneration() : -1;
+    }
+
+    /**
+     * Makes all submitted meshes resident in the mesh arena and reconfigures the vertex arrays if the arena had to
+     * recreate its buffers in the process.
+     */
+    private void makeResident(VertexAttribs layout, Iterable<Mesh> meshes) {
+        if (meshArena.getLayout().getVertexSize() != layout.getVertexSize())
+            throw new IllegalStateException("MeshArena layout " + meshArena.getLayout() +
+                    " does not match shader layout " + layout);
+
+        for (Mesh mesh : meshes)
+            meshArena.makeResident(mesh);
+        if (meshArena.getGeneration() != arenaGeneration)
+            configureVertexArrays();
     }
 
     /**
-     * Begins the rendering process, clearing the stored meshes.
+     * Begins the rendering process, clearing the stored meshes and instances.
      */
     @Override
     public void begin() {
         super.begin();
 
+        frameArena.nextFrame();
+        ResourceRegistry.resize(this, frameArena.getCapacity());
         meshes.clear();
+        transformedMeshCount = 0;
+        testedCount = culledCount = drawnCount = drawCallCount = 0;
+
+        // Groups which were not used during the last frame are dropped, all others are reused
+        instanceGroups.values().removeIf(group -> group.count == 0);
+        for (InstanceGroup group : instanceGroups.values())
+            group.count = 0;
     }
 
     /**
@@ -89,95 +406,335 @@ public class MeshBatch extends Batch {
         glEnable(GL_DEPTH_TEST);
         glDepthFunc(GL_LEQUAL);
 
-        final int totalVerticesSize = calculateTotalVerticesSize();
-        FloatBuffer vertices = getBatchVertices(totalVerticesSize);
-        IntBuffer indices = getBatchIndices(totalVerticesSize);
+        if (cullingEnabled)
+            frustum.set(viewMatrix.mul(projectionMatrix, clipMatrix));
+
+        cullMeshes();
+        if (!visibleMeshes.isEmpty())
+            flushMeshes();
+        flushInstances();
+    }
+
+    /**
+     * Collects the submitted meshes whose bounds intersect the view frustum. The bounds of all meshes are tested as
+     * one batch.
+     */
+    private void cullMeshes() {
+        visibleMeshes.clear();
+        final int count = meshes.size();
+        if (visibleSubmissions.length < count)
+            visibleSubmissions = new int[Math.max(count, visibleSubmissions.length * 2)];
+        if (!cullingEnabled) {
+            visibleMeshes.addAll(meshes);
+            for (int i = 0; i < count; i++)
+                visibleSubmissions[i] = i;
+            drawnCount += count;
+            return;
+        }
+
+        meshBounds.ensureCapacity(count);
+        final int vertexSize = vertexAttribs.getVertexSize();
+        for (int i = 0; i < count; i++) {
+            Bounds bounds = meshes.get(i).getBounds(vertexSize);
+            if (meshTransformed[i]) {
+                final int o = i * TransformKernels.AFFINE_SIZE;
+                instanceMatrix.set(meshAffines[o], meshAffines[o + 1], meshAffines[o + 2], 0,
+                        meshAffines[o + 3], meshAffines[o + 4], meshAffines[o + 5], 0,
+                        meshAffines[o + 6], meshAffines[o + 7], meshAffines[o + 8], 0,
+                        meshAffines[o + 9], meshAffines[o + 10], meshAffines[o + 11], 1);
+                bounds = bounds.transform(instanceMatrix, transformedBounds);
+            }
+            meshBounds.set(i, bounds);
+        }
+
+        final int visibleCount = frustum.cullAabbs(meshBounds.minX, meshBounds.minY, meshBounds.minZ,
+                meshBounds.maxX, meshBounds.maxY, meshBounds.maxZ, count, meshBounds.visible);
+        for (int i = 0; i < visibleCount; i++) {
+            visibleMeshes.add(meshes.get(meshBounds.visible[i]));
+            visibleSubmissions[i] = meshBounds.visible[i];
+        }
+
+        testedCount += count;
+        culledCount += count - visibleCount;
+        drawnCount += visibleCount;
+    }
+
+    /**
+     * Culls the instances of a group against the view frustum and moves the matrices of the visible instances to the
+     * front of the group.
+     */
+    private void cullInstances(InstanceGroup group) {
+        if (!cullingEnabled) {
+            group.visibleCount = group.count;
+            drawnCount += group.count;
+            return;
+        }
+
+        final int[] visible = group.visible;
+        final int visibleCount = frustum.cullSpheres(group.centerX, group.centerY, group.centerZ, group.radius,
+                group.count, visible);
+        if (visibleCount < group.count) {
+            // The visible indices are ascending, so the matrices can be moved in place
+            for (int i = 0; i < visibleCount; i++)
+                System.arraycopy(group.matrices, visible[i] * INSTANCE_MATRIX_SIZE, group.matrices,
+                        i * INSTANCE_MATRIX_SIZE, INSTANCE_MATRIX_SIZE);
+        }
+        group.visibleCount = visibleCount;
+
+        testedCount += group.count;
+        culledCount += group.count - visibleCount;
+        drawnCount += visibleCount;
+    }
+
+    /**
+     * Draws all meshes submitted through {@link MeshBatch#mesh(Mesh)}. Without a mesh arena, all meshes are merged
+     * and drawn with a single draw call, using unsigned short indices whenever the merged vertex count allows it.
+     */
+    private void flushMeshes() {
+        if (meshArena != null) {
+            flushResidentMeshes();
+            return;
+        }
+
+        merger.prepare(visibleMeshes, vertexAttribs.getVertexSize());
+
+        FloatBuffer vertices = frameArena.mallocFloat(merger.getVertexDataSize());
+        merger.mergeVertices(visibleMeshes, vertices);
+        if (transformedMeshCount > 0)
+            transformMergedVertices(vertices);
+        buffer.data(vertices, Buffer.Usage.STREAM_DRAW);
+
+        final int indexType;
+        if (merger.fitsShortIndices()) {
+            ShortBuffer indices = frameArena.mallocShort(merger.getIndexCount());
+            merger.mergeIndices(visibleMeshes, indices);
+            elementBuffer.data(indices, Buffer.Usage.STREAM_DRAW);
+            indexType = GL_UNSIGNED_SHORT;
+        } else {
+            IntBuffer indices = frameArena.mallocInt(merger.getIndexCount());
+            merger.mergeIndices(visibleMeshes, indices);
+            elementBuffer.data(indices, Buffer.Usage.STREAM_DRAW);
+            indexType = GL_UNSIGNED_INT;
+        }
 
-        buffer.data(vertices, Buffer.Usage.STATIC_DRAW);
-        elementBuffer.data(indices, Buffer.Usage.STATIC_DRAW);
         vertexArray.bind();
         elementBuffer.bind();
-        final int totalVertexCount = totalVerticesSize / vertexAttribs.getVertexSize();
         shader.bind();
-        shader.uploadUniformMat4f("uView", viewMatrix);
-        shader.uploadUniformMat4f("uProjection", projectionMatrix);
-        glDrawElements(GL_TRIANGLES, totalVerticesSize, GL_UNSIGNED_INT, 0);
+        shader.uploadUniformMat4f(Shader.VIEW_MAT_NAME, viewMatrix);
+        shader.uploadUniformMat4f(Shader.PROJECTION_MAT_NAME, projectionMatrix);
+        glDrawElements(GL_TRIANGLES, merger.getIndexCount(), indexType, 0);
+        drawCallCount++;
         JGL.checkForOpenGLError();
-
-        MemoryUtil.memFree(vertices);
-        MemoryUtil.memFree(indices);
+        vertexArray.unbind();
     }
 
     /**
-     * Disposes of the buffers used by the MeshBatch.
+     * Transforms the positions of all meshes submitted with a Transform within the merged vertex data.
      */
-    @Override
-    public void dispose() {
-        buffer.dispose();
-        vertexArray.dispose();
+    private void transformMergedVertices(FloatBuffer vertices) {
+        final int vertexSize = vertexAttribs.getVertexSize();
+        for (int i = 0; i < visibleMeshes.size(); i++) {
+            final int submission = visibleSubmissions[i];
+            if (!meshTransformed[submission])
+                continue;
+            System.arraycopy(meshAffines, submission * TransformKernels.AFFINE_SIZE, affine, 0, affine.length);
+            TransformKernels.transformPositions(vertices, merger.getVertexOffset(i) * vertexSize,
+                    visibleMeshes.get(i).getVertexCount(vertexSize), vertexSize, affine);
+        }
     }
 
     /**
-     * Returns the concatenated vertices of all stored Meshes in one native FloatBuffer. The transform values
-     * are inserted after each vertex. This assumes that the shader accepts these values.
-     *
-     * @param len the result of {@link MeshBatch#calculateTotalVerticesSize()}
-     * @return a native FloatBuffer containing the concatenated vertices of all stored meshes
+     * Draws all submitted meshes from the mesh arena, either with one multi draw indirect call or with one base vertex
+     * draw call per mesh.
      */
-    private FloatBuffer getBatchVertices(final int len) {
-        FloatBuffer meshVertices = MemoryUtil.memAllocFloat(len);
-        for (Mesh mesh : meshes) {
-            final FloatBuffer vertices = mesh.getVertices();
+    private void flushResidentMeshes() {
+        makeResident(vertexAttribs, visibleMeshes);
 
-            meshVertices.put(vertices);
+        shader.bind();
+        shader.uploadUniformMat4f(Shader.VIEW_MAT_NAME, viewMatrix);
+        shader.uploadUniformMat4f(Shader.PROJECTION_MAT_NAME, projectionMatrix);
+        vertexArray.bind();
+        if (useMultiDrawIndirect()) {
+            IntBuffer commands = frameArena.mallocInt(visibleMeshes.size() * DRAW_COMMAND_SIZE);
+            for (Mesh mesh : visibleMeshes)
+                putDrawCommand(commands, meshArena.getRegion(mesh), 1, 0);
+            multiDrawIndirect(commands.flip());
+        } else {
+            for (Mesh mesh : visibleMeshes) {
+                final MeshArena.Region region = meshArena.getRegion(mesh);
+                glDrawElementsBaseVertex(GL_TRIANGLES, region.indexCount(), GL_UNSIGNED_INT,
+                        region.indexOffsetBytes(), region.baseVertex());
+            }
+            drawCallCount += visibleMeshes.size();
         }
+        JGL.checkForOpenGLError();
+        vertexArray.unbind();
+    }
 
-        return meshVertices.flip();
+    private static void putDrawCommand(IntBuffer commands, MeshArena.Region region, int instanceCount,
+                                       int baseInstance) {
+        commands.put(region.indexCount()).put(instanceCount).put(region.firstIndex()).put(region.baseVertex())
+                .put(baseInstance);
     }
 
     /**
-     * Returns the concatenated indices of all stored Meshes in one native IntBuffer.
-     *
-     * @param len the result of {@link MeshBatch#calculateTotalVerticesSize()}
-     * @return a native IntBuffer containing the concatenated indices of all stored meshes
+     * Uploads draw commands into the indirect buffer and draws all of them with a single call.
      */
-    private IntBuffer getBatchIndices(final int len) {
-        IntBuffer batchIndices = MemoryUtil.memAllocInt(len);
-        int offset = 0; // Keep track of the offset for each mesh
+    private void multiDrawIndirect(IntBuffer commands) {
+        indirectBuffer.data(commands, Buffer.Usage.STREAM_DRAW);
+        glMultiDrawElementsIndirect(GL_TRIANGLES, GL_UNSIGNED_INT, 0, commands.remaining() / DRAW_COMMAND_SIZE, 0);
+        indirectBuffer.unbind();
+        drawCallCount++;
+    }
 
-        for (Mesh mesh : meshes) {
-            IntBuffer indices = mesh.getIndices();
+    /**
+     * Points the instance transform attribute at the matrix of an instance in the instance buffer, which has to be
+     * bound.
+     */
+    private void pointInstanceMatrices(int baseInstance) {
+        for (int column = 0; column < 4; column++)
+            glVertexAttribPointer(instanceTransformLoc + column, 4, GL_FLOAT, false, INSTANCE_MATRIX_SIZE_BYTES,
+                    (long) baseInstance * INSTANCE_MATRIX_SIZE_BYTES + column * 4L * Float.BYTES);
+    }
 
-            // Iterate through the indices and add them to the batchIndices with offset
-            while (indices.hasRemaining()) {
-                int index = indices.get() + offset;
-                batchIndices.put(index);
+    /**
+     * Draws all instances submitted through {@link MeshBatch#meshInstanced(Mesh, Transform[], int)}. The instance
+     * matrices of all groups are uploaded at once, after which every group is drawn with one instanced draw call.
+     */
+    private void flushInstances() {
+        int totalInstances = 0;
+        for (InstanceGroup group : instanceGroups.values()) {
+            cullInstances(group);
+            totalInstances += group.visibleCount;
+        }
+        if (totalInstances == 0)
+            return;
+
+        FloatBuffer matrices = frameArena.mallocFloat(totalInstances * INSTANCE_MATRIX_SIZE);
+        for (InstanceGroup group : instanceGroups.values())
+            matrices.put(group.matrices, 0, group.visibleCount * INSTANCE_MATRIX_SIZE);
+        instanceBuffer.data(matrices.flip(), Buffer.Usage.STREAM_DRAW);
+
+        if (meshArena != null) {
+            instancedMeshes.clear();
+            for (InstanceGroup group : instanceGroups.values())
+                if (group.visibleCount > 0)
+                    instancedMeshes.add(group.mesh);
+            makeResident(instanceMeshAttribs, instancedMeshes);
+        } else {
+            uploadInstanceMeshes();
+        }
+
+        instanceShader.bind();
+        instanceShader.uploadUniformMat4f(Shader.VIEW_MAT_NAME, viewMatrix);
+        instanceShader.uploadUniformMat4f(Shader.PROJECTION_MAT_NAME, projectionMatrix);
+        instanceVertexArray.bind();
+
+        if (useMultiDrawIndirect()) {
+            // The base instance of every command offsets the instance attribute, so it points at the first matrix
+            instanceBuffer.bind();
+            pointInstanceMatrices(0);
+
+            IntBuffer commands = frameArena.mallocInt(instanceGroups.size() * DRAW_COMMAND_SIZE);
+            int baseInstance = 0;
+            for (InstanceGroup group : instanceGroups.values()) {
+                if (group.visibleCount == 0)
+                    continue;
+                putDrawCommand(commands, meshArena.getRegion(group.mesh), group.visibleCount, baseInstance);
+                baseInstance += group.visibleCount;
             }
+            multiDrawIndirect(commands.flip());
+            JGL.checkForOpenGLError();
+            instanceVertexArray.unbind();
+            return;
+        }
 
-            // Update the offset for the next mesh
-            offset += indices.capacity(); // Assuming indices.capacity() is equivalent to the vertex count
+        int baseInstance = 0;
+        for (InstanceGroup group : instanceGroups.values()) {
+            if (group.visibleCount == 0)
+                continue;
+
+            // GL 3.3 has no base instance, so the instance attribute is re-pointed at the group's matrices
+            instanceBuffer.bind();
+            pointInstanceMatrices(baseInstance);
+
+            final Mesh mesh = group.mesh;
+            if (meshArena != null) {
+                final MeshArena.Region region = meshArena.getRegion(mesh);
+                glDrawElementsInstancedBaseVertex(GL_TRIANGLES, region.indexCount(), GL_UNSIGNED_INT,
+                        region.indexOffsetBytes(), group.visibleCount, region.baseVertex());
+            } else {
+                glDrawElementsInstancedBaseVertex(GL_TRIANGLES, mesh.getIndexCount(), GL_UNSIGNED_INT,
+                        (long) group.firstIndex * Integer.BYTES, group.visibleCount, group.baseVertex);
+            }
+            drawCallCount++;
+            JGL.checkForOpenGLError();
+            baseInstance += group.visibleCount;
         }
 
-        return batchIndices.flip();
+        instanceVertexArray.unbind();
     }
 
     /**
-     * Calculates the total size of the vertices of all currently stored Meshes. In other words,
-     * the number of floats stored in each vertex in each mesh is combined.
-     *
-     * @return the total size of the vertices
+     * Uploads the meshes of all instance groups of this frame one after another into the instance mesh buffers,
+     * unless the same groups were uploaded before and none of their meshes has been modified since. Meshes which are
+     * instanced every frame therefore only cross the bus when they change.
      */
-    private int calculateTotalVerticesSize() {
-        int len = 0;
-        for (Mesh mesh : meshes) {
-            // Vertex buffer without transform values
-            final FloatBuffer buffer = mesh.getVertices();
-            // Calculate count of vertices in the current Mesh
-            final int count = buffer.limit() / (vertexAttribs.getVertexSize() - TRANSFORM_SIZE);
-            // Calculate the amount of floats in the current mesh
-            len += count * vertexAttribs.getVertexSize();
+    private void uploadInstanceMeshes() {
+        boolean upToDate = true;
+        int groupCount = 0, vertexFloats = 0, indexCount = 0;
+        for (InstanceGroup group : instanceGroups.values()) {
+            if (group.count == 0)
+                continue;
+            if (groupCount >= uploadedInstanceGroups.size() || uploadedInstanceGroups.get(groupCount) != group
+                    || uploadedInstanceVersions[groupCount] != group.mesh.getVersion())
+                upToDate = false;
+            vertexFloats += group.mesh.getVertexDataSize();
+            indexCount += group.mesh.getIndexCount();
+            groupCount++;
+        }
+        if (upToDate && groupCount == uploadedInstanceGroups.size())
+            return;
+
+        final int vertexSize = instanceMeshAttribs.getVertexSize();
+        final FloatBuffer vertices = frameArena.mallocFloat(vertexFloats);
+        final IntBuffer indices = frameArena.mallocInt(indexCount);
+        int vertexOffset = 0, indexOffset = 0;
+        if (uploadedInstanceVersions.length < groupCount)
+            uploadedInstanceVersions = new int[Math.max(groupCount, uploadedInstanceVersions.length * 2)];
+        uploadedInstanceGroups.clear();
+        for (InstanceGroup group : instanceGroups.values()) {
+            if (group.count == 0)
+                continue;
+            group.baseVertex = vertexOffset / vertexSize;
+            group.firstIndex = indexOffset;
+            group.mesh.copyVertices(vertices, vertexOffset);
+            group.mesh.copyIndices(indices, indexOffset);
+            vertexOffset += group.mesh.getVertexDataSize();
+            indexOffset += group.mesh.getIndexCount();
+            uploadedInstanceVersions[uploadedInstanceGroups.size()] = group.mesh.getVersion();
+            uploadedInstanceGroups.add(group);
         }
-        return len;
+        instanceMeshBuffer.data(vertices.limit(vertexOffset), Buffer.Usage.DYNAMIC_DRAW);
+        instanceElementBuffer.data(indices.limit(indexOffset), Buffer.Usage.DYNAMIC_DRAW);
+    }
+
+    /**
+     * Disposes of the buffers used by the MeshBatch.
+     */
+    @Override
+    public void dispose() {
+        buffer.dispose();
+        elementBuffer.dispose();
+        vertexArray.dispose();
+        instanceMeshBuffer.dispose();
+        instanceElementBuffer.dispose();
+        instanceBuffer.dispose();
+        instanceVertexArray.dispose();
+        if (indirectBuffer != null)
+            indirectBuffer.dispose();
+        frameArena.dispose();
+        ResourceRegistry.unregister(this);
     }
 
     /**
@@ -186,9 +743,53 @@ public class MeshBatch extends Batch {
      * @param mesh The Mesh to add to the batch.
      */
     public void mesh(Mesh mesh) {
+        ensureMeshCapacity(meshes.size() + 1);
+        meshTransformed[meshes.size()] = false;
         meshes.add(mesh);
     }
 
+    /**
+     * Adds a Mesh in local space to the batch for rendering. Its positions, the first three floats of every vertex,
+     * are transformed on the CPU after merging, with sine and cosine of the rotation computed once per submission.
+     * The Transform is copied, so it may be changed right after this call.
+     *
+     * @param mesh      The Mesh to add to the batch.
+     * @param transform The transformation from the local space of the mesh into world space.
+     * @throws IllegalStateException If a mesh arena is set, resident meshes have to be drawn in world space or with
+     *                               {@link MeshBatch#meshInstanced(Mesh, Transform[])}.
+     */
+    public void mesh(Mesh mesh, Transform transform) {
+        if (meshArena != null)
+            throw new IllegalStateException("Can not draw transformed meshes from a MeshArena");
+
+        final int index = meshes.size();
+        ensureMeshCapacity(index + 1);
+        TransformKernels.toAffine(transform, affine);
+        System.arraycopy(affine, 0, meshAffines, index * TransformKernels.AFFINE_SIZE, affine.length);
+        meshTransformed[index] = true;
+        transformedMeshCount++;
+        meshes.add(mesh);
+    }
+
+    private void ensureMeshCapacity(int count) {
+        if (meshTransformed.length >= count)
+            return;
+        final int capacity = Math.max(count, meshTransformed.length * 2);
+        meshTransformed = Arrays.copyOf(meshTransformed, capacity);
+        meshAffines = Arrays.copyOf(meshAffines, capacity * TransformKernels.AFFINE_SIZE);
+    }
+
+    /**
+     * Adds the level of a MeshLod matching its projected size to the batch for rendering. The level is selected from
+     * the current view and projection matrix, see {@link MeshLod#select(float, float, float)}.
+     *
+     * @param lod The MeshLod to add to the batch.
+     */
+    public void mesh(MeshLod lod) {
+        final float projectedRadius = lod.getProjectedRadius(viewMatrix.mul(projectionMatrix, clipMatrix));
+        mesh(lod.getLevel(lod.select(projectedRadius, lodThreshold, lodHysteresis)));
+    }
+
     /**
      * Adds instances of a Mesh with specified transformations to the batch for instanced rendering.
      *
@@ -197,7 +798,33 @@ public class MeshBatch extends Batch {
      * @param instances  The number of instances to render.
      */
     public void meshInstanced(Mesh mesh, Transform[] transforms, int instances) {
+        if (instanceShader == null)
+            throw new IllegalStateException("Can not draw instanced meshes without an instance shader");
+        if (instances > transforms.length)
+            throw new IllegalArgumentException("Tried to draw " + instances + " instances with only " +
+                    transforms.length + " transforms");
 
+        InstanceGroup group = instanceGroups.get(mesh);
+        if (group == null) {
+            group = new InstanceGroup(mesh);
+            instanceGroups.put(mesh, group);
+        }
+
+        group.ensureCapacity(group.count + instances);
+        final Bounds bounds = mesh.getBounds(instanceMeshAttribs.getVertexSize());
+        final Vector3f center = bounds.getCenter();
+        for (int i = 0; i < instances; i++) {
+            final int instance = group.count + i;
+            Maths.toMatrix(transforms[i], instanceMatrix).get(group.matrices, instance * INSTANCE_MATRIX_SIZE);
+
+            // The bounding sphere of the instance, transformed like its vertices
+            final Matrix4f m = instanceMatrix;
+            group.centerX[instance] = m.m00() * center.x + m.m10() * center.y + m.m20() * center.z + m.m30();
+            group.centerY[instance] = m.m01() * center.x + m.m11() * center.y + m.m21() * center.z + m.m31();
+            group.centerZ[instance] = m.m02() * center.x + m.m12() * center.y + m.m22() * center.z + m.m32();
+            group.radius[instance] = bounds.getRadius() * Bounds.maxScale(m);
+        }
+        group.count += instances;
     }
 
     /**
@@ -209,4 +836,70 @@ public class MeshBatch extends Batch {
     public void meshInstanced(Mesh mesh, Transform[] transforms) {
         meshInstanced(mesh, transforms, transforms.length);
     }
+
+    /**
+     * Collects the instance matrices of all instances of one Mesh within a {@code begin()}/{@code end()} pair.
+     */
+    private static final class InstanceGroup {
+        private final Mesh mesh;
+        private float[] matrices;
+        private float[] centerX, centerY, centerZ, radius;
+        private int[] visible;
+        private int count, visibleCount;
+        // The location of the mesh in the instance mesh buffers, if no mesh arena is set
+        private int baseVertex, firstIndex;
+
+        private InstanceGroup(Mesh mesh) {
+            this.mesh = mesh;
+            this.matrices = new float[INSTANCE_MATRIX_SIZE];
+            this.centerX = new float[1];
+            this.centerY = new float[1];
+            this.centerZ = new float[1];
+            this.radius = new float[1];
+            this.visible = new int[1];
+        }
+
+        private void ensureCapacity(int instances) {
+            if (visible.length >= instances)
+                return;
+            final int capacity = Math.max(visible.length * 2, instances);
+            matrices = Arrays.copyOf(matrices, capacity * INSTANCE_MATRIX_SIZE);
+            centerX = Arrays.copyOf(centerX, capacity);
+            centerY = Arrays.copyOf(centerY, capacity);
+            centerZ = Arrays.copyOf(centerZ, capacity);
+            radius = Arrays.copyOf(radius, capacity);
+            visible = new int[capacity];
+        }
+    }
+
+    /**
+     * Holds the bounding boxes of the submitted meshes as structure of arrays, so they can be culled as one batch.
+     */
+    private static final class AabbArrays {
+        private float[] minX = new float[0], minY = new float[0], minZ = new float[0];
+        private float[] maxX = new float[0], maxY = new float[0], maxZ = new float[0];
+        private int[] visible = new int[0];
+
+        private void ensureCapacity(int count) {
+            if (visible.length >= count)
+                return;
+            final int capacity = Math.max(visible.length * 2, count);
+            minX = new float[capacity];
+            minY = new float[capacity];
+            minZ = new float[capacity];
+            maxX = new float[capacity];
+            maxY = new float[capacity];
+            maxZ = new float[capacity];
+            visible = new int[capacity];
+        }
+
+        private void set(int index, Bounds bounds) {
+            minX[index] = bounds.getMin().x;
+            minY[index] = bounds.getMin().y;
+            minZ[index] = bounds.getMin().z;
+            maxX[index] = bounds.getMax().x;
+            maxY[index] = bounds.getMax().y;
+            maxZ[index] = bounds.getMax().z;
+        }
+    }
 }
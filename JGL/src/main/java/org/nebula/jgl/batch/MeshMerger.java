@@ -0,0 +1,178 @@
+package org.nebula.jgl.batch;
+
+import org.nebula.jgl.data.buffer.Mesh;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <br>
+ * <h2>MeshMerger</h2>
+ * <br>
+ * The MeshMerger concatenates the vertices and indices of several Meshes into single buffers, so that they can be
+ * drawn with one draw call. The indices of every mesh are rebased onto the position of its first vertex in the merged
+ * vertex data.
+ * <p>
+ * {@link MeshMerger#prepare(List, int)} computes the exact vertex and index counts of all meshes and their offsets
+ * into the merged buffers up front. Vertices are then copied with one memory copy per mesh and indices are rebased in
+ * a tight loop over a reused scratch array. If the merged vertex count allows it, the indices can be emitted as
+ * unsigned shorts to halve the index data.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see MeshBatch
+ */
+public class MeshMerger {
+    /**
+     * The maximum number of vertices which can be addressed with unsigned short indices.
+     */
+    public static final int MAX_SHORT_INDEXED_VERTICES = 1 << 16;
+    private int[] vertexOffsets, indexOffsets;
+    private int[] indexScratch;
+    private short[] shortIndexScratch;
+    private int meshCount, vertexSize, vertexCount, indexCount;
+
+    public MeshMerger() {
+        this.vertexOffsets = new int[16];
+        this.indexOffsets = new int[16];
+        this.indexScratch = new int[0];
+        this.shortIndexScratch = new short[0];
+    }
+
+    /**
+     * Computes the vertex and index offsets of the given meshes within the merged buffers.
+     *
+     * @param meshes     The meshes to merge.
+     * @param vertexSize The number of floats per vertex shared by all meshes.
+     * @throws IllegalArgumentException If the vertex data of a mesh is not a multiple of the vertex size.
+     */
+    public void prepare(List<Mesh> meshes, int vertexSize) {
+        meshCount = meshes.size();
+        if (vertexOffsets.length < meshCount + 1) {
+            vertexOffsets = new int[Math.max(meshCount + 1, vertexOffsets.length * 2)];
+            indexOffsets = new int[vertexOffsets.length];
+        }
+
+        int vertices = 0, indices = 0;
+        for (int i = 0; i < meshCount; i++) {
+            final Mesh mesh = meshes.get(i);
+            vertexOffsets[i] = vertices;
+            indexOffsets[i] = indices;
+            vertices += mesh.getVertexCount(vertexSize);
+            indices += mesh.getIndexCount();
+        }
+        vertexOffsets[meshCount] = vertices;
+        indexOffsets[meshCount] = indices;
+
+        this.vertexSize = vertexSize;
+        vertexCount = vertices;
+        indexCount = indices;
+    }
+
+    /**
+     * Copies the vertices of all meshes into the given buffer.
+     *
+     * @param meshes The meshes passed to {@link MeshMerger#prepare(List, int)}.
+     * @param dest   A native buffer with room for at least {@link MeshMerger#getVertexDataSize()} floats.
+     */
+    public void mergeVertices(List<Mesh> meshes, FloatBuffer dest) {
+        for (int i = 0; i < meshCount; i++)
+            meshes.get(i).copyVertices(dest, vertexOffsets[i] * vertexSize);
+        dest.limit(getVertexDataSize());
+    }
+
+    /**
+     * Copies the rebased indices of all meshes into the given buffer.
+     *
+     * @param meshes The meshes passed to {@link MeshMerger#prepare(List, int)}.
+     * @param dest   A buffer with room for at least {@link MeshMerger#getIndexCount()} indices.
+     */
+    public void mergeIndices(List<Mesh> meshes, IntBuffer dest) {
+        final int[] indices = gatherIndices(meshes);
+        for (int i = 0; i < meshCount; i++)
+            rebase(indices, indexOffsets[i], indexOffsets[i + 1], vertexOffsets[i]);
+        dest.put(0, indices, 0, indexCount).limit(indexCount);
+    }
+
+    /**
+     * Copies the rebased indices of all meshes into the given buffer as unsigned shorts.
+     *
+     * @param meshes The meshes passed to {@link MeshMerger#prepare(List, int)}.
+     * @param dest   A buffer with room for at least {@link MeshMerger#getIndexCount()} indices.
+     * @throws IllegalStateException If the merged vertices can not be addressed with unsigned shorts.
+     */
+    public void mergeIndices(List<Mesh> meshes, ShortBuffer dest) {
+        if (!fitsShortIndices())
+            throw new IllegalStateException(vertexCount + " vertices can not be addressed with unsigned short indices");
+
+        final int[] indices = gatherIndices(meshes);
+        if (shortIndexScratch.length < indexCount)
+            shortIndexScratch = new short[Math.max(indexCount, shortIndexScratch.length * 2)];
+        final short[] shortIndices = shortIndexScratch;
+        for (int i = 0; i < meshCount; i++)
+            rebase(indices, shortIndices, indexOffsets[i], indexOffsets[i + 1], vertexOffsets[i]);
+        dest.put(0, shortIndices, 0, indexCount).limit(indexCount);
+    }
+
+    private int[] gatherIndices(List<Mesh> meshes) {
+        if (indexScratch.length < indexCount)
+            indexScratch = new int[Math.max(indexCount, indexScratch.length * 2)];
+        for (int i = 0; i < meshCount; i++)
+            meshes.get(i).copyIndices(indexScratch, indexOffsets[i]);
+        return indexScratch;
+    }
+
+    private static void rebase(int[] indices, int from, int to, int base) {
+        for (int i = from; i < to; i++)
+            indices[i] += base;
+    }
+
+    private static void rebase(int[] indices, short[] dest, int from, int to, int base) {
+        for (int i = from; i < to; i++)
+            dest[i] = (short) (indices[i] + base);
+    }
+
+    /**
+     * Checks whether the merged vertices can be addressed with unsigned short indices.
+     *
+     * @return True if the merged vertex count does not exceed {@link MeshMerger#MAX_SHORT_INDEXED_VERTICES}.
+     */
+    public boolean fitsShortIndices() {
+        return vertexCount <= MAX_SHORT_INDEXED_VERTICES;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getVertexDataSize() {
+        return vertexCount * vertexSize;
+    }
+
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    /**
+     * Gets the index of the first vertex of a mesh in the merged vertex data.
+     *
+     * @param mesh The position of the mesh in the merged list.
+     * @return The index of the first vertex of the mesh.
+     */
+    public int getVertexOffset(int mesh) {
+        return vertexOffsets[Objects.checkIndex(mesh, meshCount)];
+    }
+
+    /**
+     * Gets the index of the first index of a mesh in the merged index data.
+     *
+     * @param mesh The position of the mesh in the merged list.
+     * @return The position of the first index of the mesh.
+     */
+    public int getIndexOffset(int mesh) {
+        return indexOffsets[Objects.checkIndex(mesh, meshCount)];
+    }
+}
@@ -1,7 +1,11 @@
 package org.nebula.jgl.batch;
 
 import org.joml.Vector2f;
+import org.nebula.base.util.FloatArrayBuffer;
+import org.nebula.base.util.IntArrayBuffer;
+import org.nebula.base.util.Object2IntIdentityMap;
 import org.nebula.base.util.Pool;
+import org.nebula.base.util.PoolStats;
 import org.nebula.jgl.JGL;
 import org.nebula.jgl.data.Vertex;
 import org.nebula.jgl.data.buffer.Buffer;
@@ -36,16 +40,29 @@ import static org.nebula.jgl.data.buffer.Buffer.*;
  * @see Pool
  */
 public class RenderBatch extends Batch {
+    /**
+     * The maximum number of idle vertices kept for reuse.
+     */
+    public static final int VERTEX_POOL_SIZE = 1 << 16;
+    /**
+     * The number of frames after which vertices that were not needed in these frames are released.
+     */
+    public static final int VERTEX_POOL_TRIM_INTERVAL = 120;
+
     private final VertexArray triVao, quadVao, lineVao;
     private final Buffer triBuffer, quadBuffer, quadElementBuffer, lineBuffer;
     private final List<Vertex> triVertices, quadVertices, lineVertices;
     private final List<Texture> textures;
+    private final Object2IntIdentityMap<Texture> textureSlots;
+    private final FloatArrayBuffer vertexData;
+    private final IntArrayBuffer quadIndices;
     private final Pool<Vertex> vertexPool;
     private final int maxTextures;
     private final int[] slots;
     private boolean rendering;
     private float z;
     private boolean wireframeEnabled;
+    private int framesSinceTrim;
 
     /**
      * Constructs a RenderBatch with the specified maximum number of textures.
@@ -56,7 +73,7 @@ public class RenderBatch extends Batch {
         super();
         this.maxTextures = maxTextures;
 
-        this.vertexPool = new Pool<>() {
+        this.vertexPool = new Pool<>(VERTEX_POOL_SIZE) {
             @Override
             protected Vertex newPoolable() {
                 return new Vertex();
@@ -81,6 +98,9 @@ public class RenderBatch extends Batch {
         lineVertices = new ArrayList<>();
 
         textures = new ArrayList<>();
+        textureSlots = new Object2IntIdentityMap<>(maxTextures);
+        vertexData = new FloatArrayBuffer();
+        quadIndices = new IntArrayBuffer();
 
         rendering = false;
 
@@ -136,11 +156,16 @@ public class RenderBatch extends Batch {
         vertexPool.addAll(triVertices);
         vertexPool.addAll(quadVertices);
         vertexPool.addAll(lineVertices);
+        if (++framesSinceTrim == VERTEX_POOL_TRIM_INTERVAL) {
+            vertexPool.trim();
+            framesSinceTrim = 0;
+        }
 
         triVertices.clear();
         quadVertices.clear();
         lineVertices.clear();
         textures.clear();
+        textureSlots.clear();
 
         z = 0f;
     }
@@ -155,13 +180,9 @@ public class RenderBatch extends Batch {
         glEnable(GL_DEPTH_TEST);
         glDepthFunc(GL_LESS);
 
-        float[] triangleVertices = getVerticesFromList(triVertices);
-        float[] quadVertices = getVerticesFromList(this.quadVertices);
-        float[] lineVertices = getVerticesFromList(this.lineVertices);
-
-        triBuffer.data(triangleVertices, Usage.STATIC_DRAW);
-        quadBuffer.data(quadVertices, Usage.STATIC_DRAW);
-        lineBuffer.data(lineVertices, Usage.STATIC_DRAW);
+        uploadVertices(triVertices, triBuffer);
+        uploadVertices(quadVertices, quadBuffer);
+        uploadVertices(lineVertices, lineBuffer);
 
         shader.bind();
 
@@ -224,42 +245,33 @@ public class RenderBatch extends Batch {
      * Generates the element buffer for quad rendering.
      */
     private void generateQuadElementBuffer() {
-        int[] indices = new int[quadVertices.size() * 6 / 4];
-
-        for (int i = 0; i < quadVertices.size(); i += 4) {
-            int offsetArrayIndex = i * 6 / 4;
-            int offset = i;
+        quadIndices.clear();
+        quadIndices.ensureCapacity(quadVertices.size() * 6 / 4);
 
+        for (int offset = 0; offset < quadVertices.size(); offset += 4) {
             // Triangle 1
-            indices[offsetArrayIndex] = offset + 3;
-            indices[offsetArrayIndex + 1] = offset + 2;
-            indices[offsetArrayIndex + 2] = offset;
-
+            quadIndices.add(offset + 3, offset + 2, offset);
             // Triangle 2
-            indices[offsetArrayIndex + 3] = offset;
-            indices[offsetArrayIndex + 4] = offset + 2;
-            indices[offsetArrayIndex + 5] = offset + 1;
+            quadIndices.add(offset, offset + 2, offset + 1);
         }
 
-        quadElementBuffer.data(indices, Usage.STATIC_DRAW);
+        quadElementBuffer.data(quadIndices.view(), Usage.STATIC_DRAW);
     }
 
     /**
-     * Converts the stored vertices from a list to a float array for rendering.
+     * Uploads the attributes of the stored vertices to a buffer. They are collected in native memory that is reused
+     * between frames, so no arrays are allocated.
      *
-     * @param vertexList The list of vertices to convert.
-     * @return The float array containing vertex data.
+     * @param vertices The vertices to upload.
+     * @param buffer   The buffer to upload to.
      */
-    private float[] getVerticesFromList(List<Vertex> vertexList) {
-        float[] vertices = new float[VERTEX_SIZE * vertexList.size()];
+    private void uploadVertices(List<Vertex> vertices, Buffer buffer) {
+        vertexData.clear();
+        vertexData.ensureCapacity(VERTEX_SIZE * vertices.size());
+        for (int i = 0; i < vertices.size(); i++)
+            vertices.get(i).get(vertexData);
 
-        for (int i = 0; i < vertices.length; i += Vertex.VERTEX_SIZE) {
-            Vertex vertex = vertexList.get(i / VERTEX_SIZE);
-            float[] array = vertex.toArray();
-            System.arraycopy(array, 0, vertices, i, array.length);
-        }
-
-        return vertices;
+        buffer.data(vertexData.view(), Usage.STATIC_DRAW);
     }
 
     /**
@@ -303,7 +315,7 @@ public class RenderBatch extends Batch {
         addTexture(tex);
 
         final float[] uvs = texture.getUvs();
-        final int texId = textures.indexOf(texture.getTexture());
+        final int texId = textureSlots.get(tex, -1);
 
 
 
@@ -415,7 +427,7 @@ public class RenderBatch extends Batch {
         addTexture(tex);
 
         final float[] uvs = texture.getUvs();
-        final int texId = textures.indexOf(texture.getTexture());
+        final int texId = textureSlots.get(tex, -1);
 
         triVertices.add(vertexPool.get().set(x1, y1, z, color, uvs[0], uvs[1], texId));
         triVertices.add(vertexPool.get().set(x2, y2, z, color, uvs[2], uvs[3], texId));
@@ -424,10 +436,12 @@ public class RenderBatch extends Batch {
     }
 
     private void addTexture(Texture texture) {
-        if (!textures.contains(texture) && canFit(texture))
-            textures.add(texture);
-        else if (!textures.contains(texture) && !canFit(texture))
+        if (textureSlots.containsKey(texture))
+            return;
+        if (!canFit(texture))
             throw new RuntimeException("Tried to add texture to RenderBatch even though there was no space");
+        textureSlots.put(texture, textures.size());
+        textures.add(texture);
     }
 
     /**
@@ -505,7 +519,7 @@ public class RenderBatch extends Batch {
      * @return True if the texture can fit, false otherwise.
      */
     public boolean canFit(Texture texture) {
-        return textures.contains(texture) || textures.size() < maxTextures;
+        return textureSlots.containsKey(texture) || textures.size() < maxTextures;
     }
 
     /**
@@ -518,6 +532,15 @@ public class RenderBatch extends Batch {
         return canFit(texture.getTexture());
     }
 
+    /**
+     * Gets the counters of the pool that recycles vertices between frames.
+     *
+     * @return A snapshot of the vertex pool counters.
+     */
+    public PoolStats getVertexPoolStats() {
+        return vertexPool.getStats();
+    }
+
     /**
      * Disposes of the vertex arrays and buffers used by the RenderBatch.
      */
@@ -530,5 +553,7 @@ public class RenderBatch extends Batch {
         quadBuffer.dispose();
         quadElementBuffer.dispose();
         lineBuffer.dispose();
+        vertexData.dispose();
+        quadIndices.dispose();
     }
 }
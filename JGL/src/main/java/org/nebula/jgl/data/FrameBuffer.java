@@ -1,10 +1,12 @@
 package org.nebula.jgl.data;
 
+import org.nebula.base.interfaces.IDisposable;
+import org.nebula.base.util.ResourceRegistry;
 import org.nebula.jgl.data.texture.Texture;
 
 import static org.lwjgl.opengl.GL33C.*;
 
-public class FrameBuffer {
+public class FrameBuffer implements IDisposable {
     private final int id;
     private final Texture texture;
     private final int renderBuffer;
@@ -30,6 +32,8 @@ public class FrameBuffer {
             throw new IllegalStateException("FrameBuffer construction was not completed | FrameBuffer status: " + glCheckFramebufferStatus(GL_FRAMEBUFFER));
 
         unbind();
+        // The color texture is tracked by itself, this accounts for the depth and stencil render buffer
+        ResourceRegistry.register(this, ResourceRegistry.Memory.GPU, (long) width * height * 4);
     }
 
     public Texture getTexture() {
@@ -52,9 +56,11 @@ public class FrameBuffer {
         glBindFramebuffer(GL_FRAMEBUFFER, 0);
     }
 
+    @Override
     public void dispose() {
         glDeleteFramebuffers(id);
         texture.dispose();
         glDeleteRenderbuffers(renderBuffer);
+        ResourceRegistry.unregister(this);
     }
 }
@@ -1,6 +1,7 @@
 package org.nebula.jgl.data;
 
 import org.joml.Vector2f;
+import org.nebula.base.util.FloatArrayBuffer;
 import org.nebula.base.util.Poolable;
 
 public class Vertex implements Poolable {
@@ -133,6 +134,18 @@ public class Vertex implements Poolable {
         this.textureId = textureId;
     }
 
+    /**
+     * Appends the attributes of this vertex in the layout of {@link #toArray()}.
+     *
+     * @param dest The buffer to append to.
+     */
+    public void get(FloatArrayBuffer dest) {
+        dest.add(x, y, z);
+        dest.add(red, green, blue, alpha);
+        dest.add(u, v);
+        dest.add(textureId);
+    }
+
     public float[] toArray() {
         return new float[]{
                 x, y, z,
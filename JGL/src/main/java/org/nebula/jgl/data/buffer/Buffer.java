@@ -1,12 +1,15 @@
 package org.nebula.jgl.data.buffer;
 
 import org.nebula.base.interfaces.IDisposable;
+import org.nebula.base.util.ResourceRegistry;
 
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 
 import static org.lwjgl.opengl.GL33C.*;
+import static org.lwjgl.opengl.GL40C.GL_DRAW_INDIRECT_BUFFER;
 
 /**
  * <br>
@@ -30,6 +33,7 @@ public class Buffer implements IDisposable {
     public Buffer(Type type) {
         id = glGenBuffers();
         this.bufferType = type.getGlConstant();
+        ResourceRegistry.register(this, ResourceRegistry.Memory.GPU, 0);
     }
 
     public int getId() {
@@ -59,6 +63,7 @@ public class Buffer implements IDisposable {
     public void data(float[] data, Usage usage) {
         bind();
         glBufferData(bufferType, data, usage.getGlConstant());
+        ResourceRegistry.resize(this, (long) data.length * Float.BYTES);
     }
 
     /**
@@ -70,6 +75,7 @@ public class Buffer implements IDisposable {
     public void data(FloatBuffer data, Usage usage) {
         bind();
         glBufferData(bufferType, data, usage.getGlConstant());
+        ResourceRegistry.resize(this, (long) data.remaining() * Float.BYTES);
     }
 
     /**
@@ -81,6 +87,7 @@ public class Buffer implements IDisposable {
     public void data(int[] data, Usage usage) {
         bind();
         glBufferData(bufferType, data, usage.getGlConstant());
+        ResourceRegistry.resize(this, (long) data.length * Integer.BYTES);
     }
 
     /**
@@ -92,11 +99,41 @@ public class Buffer implements IDisposable {
     public void data(IntBuffer data, Usage usage) {
         bind();
         glBufferData(bufferType, data, usage.getGlConstant());
+        ResourceRegistry.resize(this, (long) data.remaining() * Integer.BYTES);
+    }
+
+    /**
+     * Stores the specified ShortBuffer data in the buffer with the given usage pattern.
+     *
+     * @param data  The ShortBuffer data to be stored in the buffer.
+     * @param usage The buffer usage pattern indicating how the data will be accessed and modified.
+     */
+    public void data(ShortBuffer data, Usage usage) {
+        bind();
+        glBufferData(bufferType, data, usage.getGlConstant());
+        ResourceRegistry.resize(this, (long) data.remaining() * Short.BYTES);
     }
 
     public void data(long data, Usage usage, Datatype dataType) {
         bind();
         glBufferData(bufferType, data * dataType.bytes, usage.getGlConstant());
+        ResourceRegistry.resize(this, data * dataType.bytes);
+    }
+
+    /**
+     * Allocates uninitialized storage through another binding point than the type of the buffer, see
+     * {@link Buffer#subData(IntBuffer, long, Type)}.
+     *
+     * @param data     The number of elements.
+     * @param usage    The buffer usage pattern.
+     * @param dataType The datatype of the elements.
+     * @param target   The binding point used for the upload, which is unbound afterwards.
+     */
+    public void data(long data, Usage usage, Datatype dataType, Type target) {
+        glBindBuffer(target.getGlConstant(), id);
+        glBufferData(target.getGlConstant(), data * dataType.bytes, usage.getGlConstant());
+        glBindBuffer(target.getGlConstant(), 0);
+        ResourceRegistry.resize(this, data * dataType.bytes);
     }
 
     public void subData(float[] data, long offset) {
@@ -119,6 +156,37 @@ public class Buffer implements IDisposable {
         glBufferSubData(bufferType, offset * Integer.BYTES, data);
     }
 
+    /**
+     * Uploads ints through another binding point than the type of the buffer. Binding an element array buffer replaces
+     * the element buffer of the bound vertex array, uploading through {@link Type#COPY_WRITE_BUFFER} does not.
+     *
+     * @param data   The ints to upload.
+     * @param offset The offset in ints.
+     * @param target The binding point used for the upload, which is unbound afterwards.
+     */
+    public void subData(IntBuffer data, long offset, Type target) {
+        glBindBuffer(target.getGlConstant(), id);
+        glBufferSubData(target.getGlConstant(), offset * Integer.BYTES, data);
+        glBindBuffer(target.getGlConstant(), 0);
+    }
+
+    /**
+     * Copies a range of bytes from another buffer into this buffer on the GPU, without a round trip through client
+     * memory. The source and destination ranges must not overlap if both are the same buffer.
+     *
+     * @param source      The buffer to copy from.
+     * @param readOffset  The byte offset in the source buffer.
+     * @param writeOffset The byte offset in this buffer.
+     * @param size        The number of bytes to copy.
+     */
+    public void copySubData(Buffer source, long readOffset, long writeOffset, long size) {
+        glBindBuffer(GL_COPY_READ_BUFFER, source.id);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, id);
+        glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, readOffset, writeOffset, size);
+        glBindBuffer(GL_COPY_READ_BUFFER, 0);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+    }
+
     public ByteBuffer map(ReadPolicy readPolicy) {
         bind();
         return glMapBuffer(bufferType, readPolicy.glConstant);
@@ -141,6 +209,7 @@ public class Buffer implements IDisposable {
     @Override
     public void dispose() {
         glDeleteBuffers(id);
+        ResourceRegistry.unregister(this);
     }
 
     /**
@@ -176,7 +245,20 @@ public class Buffer implements IDisposable {
 
     public enum Type {
         ARRAY_BUFFER(GL_ARRAY_BUFFER),
-        ELEMENT_ARRAY_BUFFER(GL_ELEMENT_ARRAY_BUFFER);
+        ELEMENT_ARRAY_BUFFER(GL_ELEMENT_ARRAY_BUFFER),
+        /**
+         * Holds draw commands for indirect draw calls, requires OpenGL 4.0.
+         */
+        DRAW_INDIRECT_BUFFER(GL_DRAW_INDIRECT_BUFFER),
+        /**
+         * Source of pixel transfers to textures, which then read from a byte offset in the buffer.
+         */
+        PIXEL_UNPACK_BUFFER(GL_PIXEL_UNPACK_BUFFER),
+        /**
+         * Destination of buffer copies. Binding a buffer to it changes no vertex array state, which makes it a neutral
+         * binding point for uploads.
+         */
+        COPY_WRITE_BUFFER(GL_COPY_WRITE_BUFFER);
 
         private final int glConstant;
 
@@ -0,0 +1,232 @@
+package org.nebula.jgl.data.buffer;
+
+import org.nebula.base.util.IntIntHashMap;
+
+import java.util.Arrays;
+
+/**
+ * <br>
+ * <h2>FreeListAllocator</h2>
+ * <br>
+ * The FreeListAllocator hands out ranges of a linear address space of a fixed capacity. It does not own any memory;
+ * offsets and sizes are expressed in arbitrary units, e.g. vertices or indices of a GPU buffer.
+ * <p>
+ * Free ranges are indexed by their start and their end, so a freed range is coalesced with its neighbours in constant
+ * time. They are also bucketed by size class, the power of two below their size. Allocation picks the best fitting
+ * range of the size class of the request and otherwise any range of the next larger non-empty class, which always
+ * fits. Neither allocating nor freeing allocates memory unless the bookkeeping grows.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see MeshArena
+ */
+public class FreeListAllocator {
+    private static final int SIZE_CLASSES = Integer.SIZE - 1;
+    private static final int INITIAL_CLASS_CAPACITY = 8;
+
+    private final IntIntHashMap freeSizes, freeStartsByEnd, classPositions;
+    private final IntIntHashMap allocations;
+    private final int[][] classStarts;
+    private final int[] classCounts;
+    private int nonEmptyClasses;
+    private int capacity, used;
+
+    /**
+     * Constructs a FreeListAllocator whose whole capacity is free.
+     *
+     * @param capacity The number of units which can be allocated.
+     */
+    public FreeListAllocator(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        this.freeSizes = new IntIntHashMap();
+        this.freeStartsByEnd = new IntIntHashMap();
+        this.classPositions = new IntIntHashMap();
+        this.allocations = new IntIntHashMap();
+        this.classStarts = new int[SIZE_CLASSES][];
+        this.classCounts = new int[SIZE_CLASSES];
+        this.capacity = capacity;
+        if (capacity > 0)
+            addFreeRange(0, capacity);
+    }
+
+    private static int sizeClass(int size) {
+        return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(size);
+    }
+
+    private void addFreeRange(int start, int size) {
+        freeSizes.put(start, size);
+        freeStartsByEnd.put(start + size, start);
+
+        final int sizeClass = sizeClass(size);
+        int[] starts = classStarts[sizeClass];
+        if (starts == null)
+            starts = classStarts[sizeClass] = new int[INITIAL_CLASS_CAPACITY];
+        else if (classCounts[sizeClass] == starts.length)
+            starts = classStarts[sizeClass] = Arrays.copyOf(starts, starts.length * 2);
+        classPositions.put(start, classCounts[sizeClass]);
+        starts[classCounts[sizeClass]++] = start;
+        nonEmptyClasses |= 1 << sizeClass;
+    }
+
+    /**
+     * Removes a free range from the indices, moving the last range of its size class into its place.
+     *
+     * @return The size of the removed range.
+     */
+    private int removeFreeRange(int start) {
+        final int size = freeSizes.remove(start, -1);
+        freeStartsByEnd.remove(start + size, -1);
+
+        final int sizeClass = sizeClass(size);
+        final int position = classPositions.remove(start, -1);
+        final int last = classStarts[sizeClass][--classCounts[sizeClass]];
+        if (position != classCounts[sizeClass]) {
+            classStarts[sizeClass][position] = last;
+            classPositions.put(last, position);
+        }
+        if (classCounts[sizeClass] == 0)
+            nonEmptyClasses &= ~(1 << sizeClass);
+        return size;
+    }
+
+    /**
+     * Allocates a range of the given size.
+     *
+     * @param size The number of units to allocate.
+     * @return The offset of the allocated range, or -1 if no free range is large enough.
+     */
+    public int allocate(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("Allocation size must be positive: " + size);
+
+        // Ranges of the same size class may be too small, so the class is searched for the best fit
+        final int sizeClass = sizeClass(size);
+        final int[] starts = classStarts[sizeClass];
+        int bestStart = -1, bestSize = Integer.MAX_VALUE;
+        for (int i = 0; i < classCounts[sizeClass]; i++) {
+            final int rangeSize = freeSizes.get(starts[i], 0);
+            if (rangeSize >= size && rangeSize < bestSize) {
+                bestStart = starts[i];
+                bestSize = rangeSize;
+                if (rangeSize == size)
+                    break;
+            }
+        }
+
+        if (bestStart < 0) {
+            final int larger = sizeClass + 1 < SIZE_CLASSES ? nonEmptyClasses & -(1 << sizeClass + 1) : 0;
+            if (larger == 0)
+                return -1;
+            final int largerClass = Integer.numberOfTrailingZeros(larger);
+            bestStart = classStarts[largerClass][classCounts[largerClass] - 1];
+            bestSize = freeSizes.get(bestStart, 0);
+        }
+
+        removeFreeRange(bestStart);
+        if (bestSize > size)
+            addFreeRange(bestStart + size, bestSize - size);
+        allocations.put(bestStart, size);
+        used += size;
+        return bestStart;
+    }
+
+    /**
+     * Frees the range starting at the given offset and merges it with adjacent free ranges.
+     *
+     * @param offset The offset returned by {@link FreeListAllocator#allocate(int)}.
+     * @throws IllegalArgumentException If no allocation starts at the given offset.
+     */
+    public void free(int offset) {
+        final int size = allocations.remove(offset, -1);
+        if (size < 0)
+            throw new IllegalArgumentException("No allocation at offset " + offset);
+        used -= size;
+
+        int start = offset, end = offset + size;
+        final int previousStart = freeStartsByEnd.get(start, -1);
+        if (previousStart >= 0) {
+            removeFreeRange(previousStart);
+            start = previousStart;
+        }
+        if (freeSizes.containsKey(end))
+            end += removeFreeRange(end);
+
+        addFreeRange(start, end - start);
+    }
+
+    /**
+     * Increases the capacity of this allocator. The added units are appended as free range at the end.
+     *
+     * @param newCapacity The new capacity, which must not be smaller than the current one.
+     */
+    public void grow(int newCapacity) {
+        if (newCapacity < capacity)
+            throw new IllegalArgumentException("Can not shrink FreeListAllocator from " + capacity + " to " + newCapacity);
+        if (newCapacity == capacity)
+            return;
+
+        final int oldCapacity = capacity;
+        capacity = newCapacity;
+        allocations.put(oldCapacity, newCapacity - oldCapacity);
+        used += newCapacity - oldCapacity;
+        free(oldCapacity);
+    }
+
+    /**
+     * Forgets all allocations, making the whole capacity available again.
+     */
+    public void reset() {
+        freeSizes.clear();
+        freeStartsByEnd.clear();
+        classPositions.clear();
+        allocations.clear();
+        Arrays.fill(classCounts, 0);
+        nonEmptyClasses = 0;
+        used = 0;
+        if (capacity > 0)
+            addFreeRange(0, capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getUsed() {
+        return used;
+    }
+
+    public int getFree() {
+        return capacity - used;
+    }
+
+    public int getAllocationCount() {
+        return allocations.size();
+    }
+
+    /**
+     * Gets the size of the largest free range, which is the largest size that can currently be allocated.
+     *
+     * @return The size of the largest free range.
+     */
+    public int getLargestFreeRange() {
+        if (nonEmptyClasses == 0)
+            return 0;
+        final int largestClass = sizeClass(nonEmptyClasses);
+        int largest = 0;
+        for (int i = 0; i < classCounts[largestClass]; i++)
+            largest = Math.max(largest, freeSizes.get(classStarts[largestClass][i], 0));
+        return largest;
+    }
+
+    /**
+     * Gets the external fragmentation of the free space, which is {@code 1 - largestFreeRange / totalFree}.
+     * A value of 0 means all free units are contiguous.
+     *
+     * @return The fragmentation in the range [0, 1].
+     */
+    public float getFragmentation() {
+        final int free = getFree();
+        return free == 0 ? 0 : 1f - (float) getLargestFreeRange() / free;
+    }
+}
@@ -2,7 +2,9 @@ package org.nebula.jgl.data.buffer;
 
 import org.lwjgl.system.MemoryUtil;
 import org.nebula.base.interfaces.IDisposable;
+import org.nebula.base.util.ResourceRegistry;
 import org.nebula.jgl.data.shader.Shader;
+import org.nebula.math.Bounds;
 import org.nebula.math.Transform;
 
 import java.nio.Buffer;
@@ -27,6 +29,10 @@ public class Mesh implements IDisposable {
     private FloatBuffer vertices;
     private IntBuffer indices;
     private final Shader shader;
+    private int version;
+    private boolean ownsVertices = true, ownsIndices = true;
+    private Bounds bounds;
+    private int boundsVersion, boundsVertexSize;
 
     /**
      * Constructs a Mesh object with the given array of vertices.
@@ -43,6 +49,7 @@ public class Mesh implements IDisposable {
         this.indices = MemoryUtil.memAllocInt(vertices.length);
         this.vertices.put(0, vertices);
         initIndices();
+        track();
     }
 
     public Mesh(Shader shader, float[] vertices, int[] indices) {
@@ -51,6 +58,7 @@ public class Mesh implements IDisposable {
         this.indices = MemoryUtil.memAllocInt(indices.length);
         this.vertices.put(0, vertices);
         this.indices.put(0, indices);
+        track();
     }
 
     /**
@@ -69,6 +77,7 @@ public class Mesh implements IDisposable {
         this.vertices = vertices;
         this.indices = MemoryUtil.memAllocInt(vertices.limit());
         initIndices();
+        track();
     }
 
     /**
@@ -87,6 +96,7 @@ public class Mesh implements IDisposable {
         validateBuffer(indices, "Tried to use indirect IntBuffer as indices for Mesh");
         this.vertices = vertices;
         this.indices = indices;
+        track();
     }
 
     /**
@@ -100,6 +110,33 @@ public class Mesh implements IDisposable {
         this(Shader.getCurrentlyBoundShader(), vertices, indices);
     }
 
+    /**
+     * Creates a Mesh which uses the given buffers without taking ownership of them. The buffers are never freed by the
+     * Mesh, which allows wrapping memory that is managed elsewhere, e.g. regions of a memory-mapped file.
+     *
+     * @param shader   The shader of the mesh.
+     * @param vertices The FloatBuffer containing the vertices of the mesh.
+     * @param indices  The IntBuffer containing the indices of the mesh.
+     * @return The Mesh wrapping the buffers.
+     * @throws IllegalArgumentException If an indirect FloatBuffer or IntBuffer is provided.
+     */
+    public static Mesh wrap(Shader shader, FloatBuffer vertices, IntBuffer indices) {
+        final Mesh mesh = new Mesh(shader, vertices, indices);
+        mesh.ownsVertices = false;
+        mesh.ownsIndices = false;
+        mesh.track();
+        return mesh;
+    }
+
+    /**
+     * Reports the native memory owned by this mesh to the {@link ResourceRegistry}.
+     */
+    private void track() {
+        ResourceRegistry.register(this, ResourceRegistry.Memory.NATIVE,
+                (ownsVertices ? (long) vertices.capacity() * Float.BYTES : 0) +
+                        (ownsIndices ? (long) indices.capacity() * Integer.BYTES : 0));
+    }
+
     /**
      * Initializes the indices of the mesh. The indices will have sequential values starting from 0.
      */
@@ -138,6 +175,105 @@ public class Mesh implements IDisposable {
         return indices.asReadOnlyBuffer();
     }
 
+    /**
+     * Gets the number of floats stored in the vertices of the mesh.
+     *
+     * @return The size of the vertex data in floats.
+     */
+    public int getVertexDataSize() {
+        return vertices.limit();
+    }
+
+    /**
+     * Gets the number of vertices of the mesh for the given vertex layout size.
+     *
+     * @param vertexSize The number of floats per vertex.
+     * @return The number of vertices of the mesh.
+     * @throws IllegalArgumentException If the vertex data is not a multiple of the vertex size.
+     */
+    public int getVertexCount(int vertexSize) {
+        if (vertices.limit() % vertexSize != 0)
+            throw new IllegalArgumentException("Mesh with " + vertices.limit() +
+                    " floats does not consist of vertices with " + vertexSize + " floats");
+        return vertices.limit() / vertexSize;
+    }
+
+    public int getIndexCount() {
+        return indices.limit();
+    }
+
+    /**
+     * Gets the bounds of the vertex positions of the mesh. The bounds are computed on first use and cached until the
+     * vertices are replaced.
+     *
+     * @param vertexSize The number of floats per vertex, whose first three floats are the position.
+     * @return The cached bounds of the mesh, which must not be modified.
+     */
+    public Bounds getBounds(int vertexSize) {
+        if (bounds == null || boundsVersion != version || boundsVertexSize != vertexSize) {
+            if (bounds == null)
+                bounds = new Bounds();
+            bounds.set(vertices, vertexSize);
+            boundsVersion = version;
+            boundsVertexSize = vertexSize;
+        }
+        return bounds;
+    }
+
+    /**
+     * Sets the bounds of the vertex positions, e.g. bounds stored alongside the vertices, so that they are not computed
+     * from the vertices on first use. The bounds may enclose the vertices loosely and are kept until the vertices are
+     * replaced.
+     *
+     * @param bounds     The bounds, which are copied.
+     * @param vertexSize The number of floats per vertex the bounds are valid for.
+     */
+    public void setBounds(Bounds bounds, int vertexSize) {
+        if (this.bounds == null)
+            this.bounds = new Bounds();
+        this.bounds.set(bounds);
+        boundsVersion = version;
+        boundsVertexSize = vertexSize;
+    }
+
+    /**
+     * Copies all vertices of the mesh into the given native FloatBuffer with a single memory copy.
+     *
+     * @param dest   The FloatBuffer to copy into.
+     * @param offset The index of the float in {@code dest} to copy the first vertex float to.
+     * @throws IndexOutOfBoundsException If the vertices do not fit into {@code dest} at the given offset.
+     */
+    public void copyVertices(FloatBuffer dest, int offset) {
+        Objects.checkFromIndexSize(offset, vertices.limit(), dest.capacity());
+        MemoryUtil.memCopy(MemoryUtil.memAddress0(vertices),
+                MemoryUtil.memAddress0(dest) + (long) offset * Float.BYTES,
+                (long) vertices.limit() * Float.BYTES);
+    }
+
+    /**
+     * Copies all indices of the mesh into the given array.
+     *
+     * @param dest   The array to copy into.
+     * @param offset The index in {@code dest} to copy the first index to.
+     */
+    public void copyIndices(int[] dest, int offset) {
+        indices.get(0, dest, offset, indices.limit());
+    }
+
+    /**
+     * Copies all indices of the mesh into the given native IntBuffer with a single memory copy.
+     *
+     * @param dest   The IntBuffer to copy into.
+     * @param offset The index of the int in {@code dest} to copy the first index to.
+     * @throws IndexOutOfBoundsException If the indices do not fit into {@code dest} at the given offset.
+     */
+    public void copyIndices(IntBuffer dest, int offset) {
+        Objects.checkFromIndexSize(offset, indices.limit(), dest.capacity());
+        MemoryUtil.memCopy(MemoryUtil.memAddress0(indices),
+                MemoryUtil.memAddress0(dest) + (long) offset * Integer.BYTES,
+                (long) indices.limit() * Integer.BYTES);
+    }
+
     /**
      * Sets the vertices of the mesh using the provided FloatBuffer.
      *
@@ -147,22 +283,45 @@ public class Mesh implements IDisposable {
     public void setVertices(FloatBuffer vertices) {
         if (vertices == this.vertices) return;
         validateBuffer(vertices, "Tried to use indirect FloatBuffer as vertices for Mesh");
-        MemoryUtil.memFree(this.vertices);
+        if (ownsVertices)
+            MemoryUtil.memFree(this.vertices);
         this.vertices = vertices;
-        MemoryUtil.memFree(indices);
+        ownsVertices = true;
+        if (ownsIndices)
+            MemoryUtil.memFree(indices);
         indices = MemoryUtil.memAllocInt(vertices.limit());
+        ownsIndices = true;
         initIndices();
+        version++;
+        track();
     }
 
     /**
-     * Sets the vertices of the mesh using the provided array of floats.
+     * Sets the vertices of the mesh using the provided array of floats. If the mesh owns buffers that are large
+     * enough, the vertices and indices are written into them instead of allocating new ones.
      *
      * @param vertices The new array of floats representing the vertices of the mesh.
      */
     public void setVertices(float[] vertices) {
-        FloatBuffer buffer = MemoryUtil.memAllocFloat(vertices.length);
-        buffer.put(0, vertices);
-        setVertices(buffer);
+        if (!ownsVertices || this.vertices.capacity() < vertices.length) {
+            FloatBuffer buffer = MemoryUtil.memAllocFloat(vertices.length);
+            buffer.put(0, vertices);
+            setVertices(buffer);
+            return;
+        }
+
+        this.vertices.clear().put(0, vertices).limit(vertices.length);
+        if (ownsIndices && indices.capacity() >= vertices.length) {
+            indices.clear().limit(vertices.length);
+        } else {
+            if (ownsIndices)
+                MemoryUtil.memFree(indices);
+            indices = MemoryUtil.memAllocInt(vertices.length);
+            ownsIndices = true;
+        }
+        initIndices();
+        version++;
+        track();
     }
 
     /**
@@ -174,16 +333,26 @@ public class Mesh implements IDisposable {
     public void setIndices(IntBuffer indices) {
         if (indices == this.indices) return;
         validateBuffer(indices, "Tried to use indirect IntBuffer as indices for Mesh");
-        MemoryUtil.memFree(this.indices);
+        if (ownsIndices)
+            MemoryUtil.memFree(this.indices);
         this.indices = indices;
+        ownsIndices = true;
+        version++;
+        track();
     }
 
     /**
-     * Sets the indices of the mesh using the provided array of integers.
+     * Sets the indices of the mesh using the provided array of integers, reusing the owned index buffer if it is large
+     * enough.
      *
      * @param indices The new array of integers representing the indices of the mesh.
      */
     public void setIndices(int[] indices) {
+        if (ownsIndices && this.indices.capacity() >= indices.length) {
+            this.indices.clear().put(0, indices).limit(indices.length);
+            version++;
+            return;
+        }
         IntBuffer buffer = MemoryUtil.memAllocInt(indices.length);
         buffer.put(0, indices);
         setIndices(buffer);
@@ -226,11 +395,35 @@ public class Mesh implements IDisposable {
     }
 
     /**
-     * {@inheritDoc}
+     * Gets the modification count of this mesh. It is incremented whenever the vertices or indices are replaced,
+     * which allows caches of the mesh data (e.g. {@link MeshArena}) to detect stale copies.
+     *
+     * @return The modification count of the mesh.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Checks whether the mesh owns its vertex and index memory, which is the case unless it was created with
+     * {@link Mesh#wrap(Shader, FloatBuffer, IntBuffer)} and its buffers have not been replaced since.
+     *
+     * @return true if {@link Mesh#dispose()} frees the vertex or index memory, false otherwise
+     */
+    public boolean isOwningMemory() {
+        return ownsVertices || ownsIndices;
+    }
+
+    /**
+     * Frees the vertices and indices of the mesh. Buffers passed to the constructors or setters are owned by the mesh
+     * and freed, buffers wrapped with {@link Mesh#wrap(Shader, FloatBuffer, IntBuffer)} are left untouched.
      */
     @Override
     public void dispose() {
-        MemoryUtil.memFree(vertices);
-        MemoryUtil.memFree(indices);
+        if (ownsVertices)
+            MemoryUtil.memFree(vertices);
+        if (ownsIndices)
+            MemoryUtil.memFree(indices);
+        ResourceRegistry.unregister(this);
     }
 }
@@ -0,0 +1,330 @@
+package org.nebula.jgl.data.buffer;
+
+import org.nebula.base.interfaces.IDisposable;
+import org.nebula.jgl.data.shader.VertexAttribs;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <br>
+ * <h2>MeshArena</h2>
+ * <br>
+ * The MeshArena keeps the vertices and indices of many Meshes resident on the GPU in one large vertex buffer and one
+ * large element buffer. Each Mesh is sub-allocated once and uploaded only when it is new or has been modified since its
+ * last upload (see {@link Mesh#getVersion()}). Indices are stored unmodified, so resident meshes have to be drawn with
+ * a base vertex, e.g. {@code glDrawElementsBaseVertex}.
+ * <p>
+ * If an allocation does not fit, the arena first compacts its contents if there is enough free but fragmented space
+ * and otherwise grows its buffers. Both operations recreate the GL buffers and copy the resident data on the GPU, which
+ * is signalled through {@link MeshArena#getGeneration()} so that vertex arrays can be reconfigured.
+ * </p>
+ * <p>
+ * Meshes are tracked by identity. A Mesh which is disposed has to be {@link MeshArena#evict(Mesh) evicted} first.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see FreeListAllocator
+ * @see org.nebula.jgl.batch.MeshBatch
+ */
+public class MeshArena implements IDisposable {
+    private static final int GROWTH_FACTOR = 2;
+    private final VertexAttribs layout;
+    private final int vertexSize;
+    private final Map<Mesh, Region> regions;
+    private FreeListAllocator vertexAllocator, indexAllocator;
+    private Buffer vertexBuffer, indexBuffer;
+    private boolean autoCompactEnabled;
+    private int generation;
+    private long bytesUploaded;
+
+    /**
+     * Constructs a MeshArena for meshes with the given vertex layout.
+     *
+     * @param layout         The vertex layout of all meshes stored in this arena.
+     * @param vertexCapacity The number of vertices the arena can initially hold.
+     * @param indexCapacity  The number of indices the arena can initially hold.
+     */
+    public MeshArena(VertexAttribs layout, int vertexCapacity, int indexCapacity) {
+        this.layout = layout;
+        this.vertexSize = layout.getVertexSize();
+        this.regions = new IdentityHashMap<>();
+        this.autoCompactEnabled = true;
+        createBuffers(vertexCapacity, indexCapacity);
+    }
+
+    private void createBuffers(int vertexCapacity, int indexCapacity) {
+        vertexAllocator = new FreeListAllocator(vertexCapacity);
+        indexAllocator = new FreeListAllocator(indexCapacity);
+        vertexBuffer = new Buffer(Buffer.Type.ARRAY_BUFFER);
+        vertexBuffer.data((long) vertexCapacity * vertexSize, Buffer.Usage.DYNAMIC_DRAW, Buffer.Datatype.FLOAT);
+        indexBuffer = new Buffer(Buffer.Type.ELEMENT_ARRAY_BUFFER);
+        // Binding the element buffer would replace the one of whatever vertex array is bound, so it is not bound
+        indexBuffer.data(indexCapacity, Buffer.Usage.DYNAMIC_DRAW, Buffer.Datatype.UNSIGNED_INT,
+                Buffer.Type.COPY_WRITE_BUFFER);
+        generation++;
+    }
+
+    /**
+     * Makes the given Mesh resident in this arena. The mesh data is only uploaded if the mesh is not resident yet or
+     * was modified since its last upload.
+     *
+     * @param mesh The Mesh to make resident.
+     * @return The region of the arena which holds the mesh.
+     * @throws IllegalArgumentException If the mesh is empty or its vertices do not match the layout of this arena.
+     */
+    public Region makeResident(Mesh mesh) {
+        Region region = regions.get(mesh);
+        if (region != null && region.version() == mesh.getVersion())
+            return region;
+
+        final int vertexFloats = mesh.getVertices().limit();
+        final int indexCount = mesh.getIndices().limit();
+        if (vertexFloats == 0 || indexCount == 0)
+            throw new IllegalArgumentException("Can not make an empty Mesh resident");
+        if (vertexFloats % vertexSize != 0)
+            throw new IllegalArgumentException("Mesh vertices do not match the arena layout " + layout);
+        final int vertexCount = vertexFloats / vertexSize;
+
+        if (region != null && (region.vertexCount() != vertexCount || region.indexCount() != indexCount)) {
+            // Forget the old region first, otherwise making room would copy it into the rebuilt buffers
+            regions.remove(mesh);
+            release(region);
+            region = null;
+        }
+        if (region == null)
+            region = allocate(vertexCount, indexCount, mesh.getVersion());
+        else
+            region = new Region(region.baseVertex(), vertexCount, region.firstIndex(), indexCount, mesh.getVersion());
+
+        vertexBuffer.subData(mesh.getVertices(), (long) region.baseVertex() * vertexSize);
+        indexBuffer.subData(mesh.getIndices(), region.firstIndex(), Buffer.Type.COPY_WRITE_BUFFER);
+        bytesUploaded += (long) vertexFloats * Float.BYTES + (long) indexCount * Integer.BYTES;
+
+        regions.put(mesh, region);
+        return region;
+    }
+
+    private Region allocate(int vertexCount, int indexCount, int version) {
+        int baseVertex = vertexAllocator.allocate(vertexCount);
+        int firstIndex = baseVertex < 0 ? -1 : indexAllocator.allocate(indexCount);
+        if (baseVertex < 0 || firstIndex < 0) {
+            if (baseVertex >= 0)
+                vertexAllocator.free(baseVertex);
+            makeRoom(vertexCount, indexCount);
+            baseVertex = vertexAllocator.allocate(vertexCount);
+            firstIndex = indexAllocator.allocate(indexCount);
+        }
+        return new Region(baseVertex, vertexCount, firstIndex, indexCount, version);
+    }
+
+    /**
+     * Compacts or grows the arena so that an allocation of the given size is guaranteed to succeed.
+     */
+    private void makeRoom(int vertexCount, int indexCount) {
+        int vertexCapacity = vertexAllocator.getCapacity();
+        int indexCapacity = indexAllocator.getCapacity();
+        final boolean fitsCompacted = vertexAllocator.getFree() >= vertexCount && indexAllocator.getFree() >= indexCount;
+
+        if (!autoCompactEnabled || !fitsCompacted) {
+            vertexCapacity = Math.max(vertexCapacity * GROWTH_FACTOR, vertexAllocator.getUsed() + vertexCount);
+            indexCapacity = Math.max(indexCapacity * GROWTH_FACTOR, indexAllocator.getUsed() + indexCount);
+        }
+        rebuild(vertexCapacity, indexCapacity);
+    }
+
+    /**
+     * Removes all gaps between resident meshes by copying them into freshly allocated buffers. This is done
+     * automatically if an allocation fails because of fragmentation and auto compaction is enabled.
+     */
+    public void compact() {
+        rebuild(vertexAllocator.getCapacity(), indexAllocator.getCapacity());
+    }
+
+    private void rebuild(int vertexCapacity, int indexCapacity) {
+        final Buffer oldVertexBuffer = vertexBuffer, oldIndexBuffer = indexBuffer;
+        createBuffers(vertexCapacity, indexCapacity);
+
+        final List<Mesh> meshes = new ArrayList<>(regions.keySet());
+        meshes.sort(Comparator.comparingInt(mesh -> regions.get(mesh).baseVertex()));
+        final long vertexSizeBytes = (long) vertexSize * Float.BYTES;
+        for (Mesh mesh : meshes) {
+            final Region old = regions.get(mesh);
+            final int baseVertex = vertexAllocator.allocate(old.vertexCount());
+            final int firstIndex = indexAllocator.allocate(old.indexCount());
+
+            vertexBuffer.copySubData(oldVertexBuffer, old.baseVertex() * vertexSizeBytes,
+                    baseVertex * vertexSizeBytes, old.vertexCount() * vertexSizeBytes);
+            indexBuffer.copySubData(oldIndexBuffer, (long) old.firstIndex() * Integer.BYTES,
+                    (long) firstIndex * Integer.BYTES, (long) old.indexCount() * Integer.BYTES);
+
+            regions.put(mesh, new Region(baseVertex, old.vertexCount(), firstIndex, old.indexCount(), old.version()));
+        }
+
+        oldVertexBuffer.dispose();
+        oldIndexBuffer.dispose();
+    }
+
+    private void release(Region region) {
+        vertexAllocator.free(region.baseVertex());
+        indexAllocator.free(region.firstIndex());
+    }
+
+    /**
+     * Removes the given Mesh from this arena, freeing its region for other meshes.
+     *
+     * @param mesh The Mesh to evict.
+     * @return True if the mesh was resident, false otherwise.
+     */
+    public boolean evict(Mesh mesh) {
+        final Region region = regions.remove(mesh);
+        if (region == null)
+            return false;
+        release(region);
+        return true;
+    }
+
+    public boolean isResident(Mesh mesh) {
+        return regions.containsKey(mesh);
+    }
+
+    /**
+     * Gets the region of a resident Mesh without uploading it.
+     *
+     * @param mesh The Mesh to look up.
+     * @return The region of the mesh, or null if it is not resident.
+     */
+    public Region getRegion(Mesh mesh) {
+        return regions.get(mesh);
+    }
+
+    /**
+     * Evicts all meshes from this arena.
+     */
+    public void clear() {
+        regions.clear();
+        vertexAllocator.reset();
+        indexAllocator.reset();
+    }
+
+    public VertexAttribs getLayout() {
+        return layout;
+    }
+
+    public Buffer getVertexBuffer() {
+        return vertexBuffer;
+    }
+
+    public Buffer getIndexBuffer() {
+        return indexBuffer;
+    }
+
+    /**
+     * Gets the generation of the arena buffers. It changes whenever the buffers are recreated by compaction or
+     * growth, after which vertex arrays sourcing from the old buffers have to be reconfigured.
+     *
+     * @return The generation of the arena buffers.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    public boolean isAutoCompactEnabled() {
+        return autoCompactEnabled;
+    }
+
+    public void setAutoCompactEnabled(boolean autoCompactEnabled) {
+        this.autoCompactEnabled = autoCompactEnabled;
+    }
+
+    public int getResidentMeshCount() {
+        return regions.size();
+    }
+
+    /**
+     * Gets the number of bytes occupied by resident meshes.
+     *
+     * @return The number of resident bytes.
+     */
+    public long getResidentBytes() {
+        return (long) vertexAllocator.getUsed() * vertexSize * Float.BYTES
+                + (long) indexAllocator.getUsed() * Integer.BYTES;
+    }
+
+    /**
+     * Gets the number of bytes allocated on the GPU for this arena.
+     *
+     * @return The capacity in bytes.
+     */
+    public long getCapacityBytes() {
+        return (long) vertexAllocator.getCapacity() * vertexSize * Float.BYTES
+                + (long) indexAllocator.getCapacity() * Integer.BYTES;
+    }
+
+    /**
+     * Gets the fragmentation of the free vertex space, see {@link FreeListAllocator#getFragmentation()}.
+     *
+     * @return The vertex fragmentation in the range [0, 1].
+     */
+    public float getVertexFragmentation() {
+        return vertexAllocator.getFragmentation();
+    }
+
+    /**
+     * Gets the fragmentation of the free index space, see {@link FreeListAllocator#getFragmentation()}.
+     *
+     * @return The index fragmentation in the range [0, 1].
+     */
+    public float getIndexFragmentation() {
+        return indexAllocator.getFragmentation();
+    }
+
+    /**
+     * Gets the number of mesh bytes uploaded to the GPU since construction or the last call of
+     * {@link MeshArena#resetBytesUploaded()}. Copies made during compaction and growth are not counted, since they
+     * do not cross the bus.
+     *
+     * @return The number of uploaded bytes.
+     */
+    public long getBytesUploaded() {
+        return bytesUploaded;
+    }
+
+    public void resetBytesUploaded() {
+        bytesUploaded = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void dispose() {
+        regions.clear();
+        vertexBuffer.dispose();
+        indexBuffer.dispose();
+    }
+
+    /**
+     * The location of a resident Mesh inside a MeshArena.
+     *
+     * @param baseVertex  The index of the first vertex of the mesh in the vertex buffer.
+     * @param vertexCount The number of vertices of the mesh.
+     * @param firstIndex  The index of the first index of the mesh in the element buffer.
+     * @param indexCount  The number of indices of the mesh.
+     * @param version     The version of the mesh which was uploaded.
+     */
+    public record Region(int baseVertex, int vertexCount, int firstIndex, int indexCount, int version) {
+
+        /**
+         * Gets the byte offset of the first index, as expected by the indices parameter of GL draw calls.
+         *
+         * @return The byte offset of the first index.
+         */
+        public long indexOffsetBytes() {
+            return (long) firstIndex * Integer.BYTES;
+        }
+    }
+}
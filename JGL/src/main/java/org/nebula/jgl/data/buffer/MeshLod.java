@@ -0,0 +1,213 @@
+package org.nebula.jgl.data.buffer;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.nebula.base.interfaces.IDisposable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <br>
+ * <h2>MeshLod</h2>
+ * <br>
+ * The MeshLod class holds a chain of progressively simplified versions of a Mesh together with the bounding sphere
+ * of the mesh and the error of every level.
+ * <p>
+ * Level 0 is always the original mesh. The errors are relative to the bounding sphere radius, so the on-screen error
+ * of a level is its error multiplied with the projected radius of the mesh. {@link MeshLod#select(float, float, float)}
+ * picks the coarsest level whose on-screen error stays below a threshold and remembers the selected level, so that
+ * meshes hovering around a threshold do not pop back and forth every frame.
+ * </p>
+ * <p>
+ * LOD chains are generated with {@link MeshSimplifier}; {@link MeshLod#generate(List, int, float...)} generates the
+ * chains of several meshes in parallel.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see MeshSimplifier
+ * @see org.nebula.jgl.batch.MeshBatch
+ */
+public class MeshLod implements IDisposable {
+    private final Mesh[] levels;
+    private final float[] errors;
+    private final Vector3f center;
+    private final float radius;
+    private int currentLevel;
+
+    /**
+     * Constructs a MeshLod from existing levels.
+     *
+     * @param levels The meshes of all levels, starting with the full detail mesh.
+     * @param errors The error of every level relative to the radius, in ascending order.
+     * @param center The center of the bounding sphere.
+     * @param radius The radius of the bounding sphere.
+     */
+    public MeshLod(Mesh[] levels, float[] errors, Vector3f center, float radius) {
+        if (levels.length == 0 || levels.length != errors.length)
+            throw new IllegalArgumentException("MeshLod needs at least one level and one error per level");
+        this.levels = levels.clone();
+        this.errors = errors.clone();
+        this.center = new Vector3f(center);
+        this.radius = radius;
+    }
+
+    /**
+     * Generates the LOD chain of a Mesh. Every error target produces one level, unless simplifying to it does not
+     * remove any further triangles. The levels are optimized for the vertex cache and only contain the vertices they
+     * reference.
+     *
+     * @param mesh         The full detail mesh.
+     * @param vertexSize   The number of floats per vertex.
+     * @param errorTargets The maximum errors of the levels relative to the mesh size, in ascending order.
+     * @return The LOD chain of the mesh.
+     */
+    public static MeshLod generate(Mesh mesh, int vertexSize, float... errorTargets) {
+        final int vertexCount = mesh.getVertexCount(vertexSize);
+        final float[] vertices = new float[mesh.getVertexDataSize()];
+        mesh.getVertices().get(0, vertices);
+        final int[] indices = new int[mesh.getIndexCount()];
+        mesh.copyIndices(indices, 0);
+
+        final Vector3f center = new Vector3f();
+        final float radius = boundingSphere(vertices, vertexSize, vertexCount, center);
+
+        final Mesh[] levels = new Mesh[errorTargets.length + 1];
+        final float[] errors = new float[errorTargets.length + 1];
+        levels[0] = mesh;
+        int levelCount = 1;
+        int previousIndexCount = indices.length;
+
+        for (float target : errorTargets) {
+            final int[] simplified = MeshSimplifier.simplify(vertices, indices, vertexSize, 0, target, null);
+            if (simplified.length >= previousIndexCount)
+                continue;
+            previousIndexCount = simplified.length;
+
+            final int[] optimized = MeshOptimizer.optimizeVertexCache(simplified, vertexCount);
+            final float[] levelVertices = MeshOptimizer.optimizeVertexFetch(vertices, optimized, vertexSize);
+            levels[levelCount] = new Mesh(mesh.getShader(), levelVertices, optimized);
+            // The simplifier measures relative to the half extent of the bounding box, which never exceeds the
+            // radius, so the target is a conservative bound of the error relative to the radius
+            errors[levelCount] = Math.max(target, errors[levelCount - 1]);
+            levelCount++;
+        }
+
+        return new MeshLod(Arrays.copyOf(levels, levelCount), Arrays.copyOf(errors, levelCount),
+                center, radius);
+    }
+
+    /**
+     * Generates the LOD chains of several meshes in parallel.
+     *
+     * @param meshes       The full detail meshes.
+     * @param vertexSize   The number of floats per vertex.
+     * @param errorTargets The maximum errors of the levels relative to the mesh size, in ascending order.
+     * @return The LOD chains in the order of the given meshes.
+     */
+    public static List<MeshLod> generate(List<Mesh> meshes, int vertexSize, float... errorTargets) {
+        return meshes.parallelStream()
+                .map(mesh -> generate(mesh, vertexSize, errorTargets))
+                .toList();
+    }
+
+    private static float boundingSphere(float[] vertices, int vertexSize, int vertexCount, Vector3f center) {
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        for (int v = 0; v < vertexCount; v++) {
+            final int o = v * vertexSize;
+            minX = Math.min(minX, vertices[o]);
+            minY = Math.min(minY, vertices[o + 1]);
+            minZ = Math.min(minZ, vertices[o + 2]);
+            maxX = Math.max(maxX, vertices[o]);
+            maxY = Math.max(maxY, vertices[o + 1]);
+            maxZ = Math.max(maxZ, vertices[o + 2]);
+        }
+        if (vertexCount == 0)
+            return 0;
+        center.set((minX + maxX) / 2, (minY + maxY) / 2, (minZ + maxZ) / 2);
+
+        float radiusSquared = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            final int o = v * vertexSize;
+            final float dx = vertices[o] - center.x, dy = vertices[o + 1] - center.y, dz = vertices[o + 2] - center.z;
+            radiusSquared = Math.max(radiusSquared, dx * dx + dy * dy + dz * dz);
+        }
+        return (float) Math.sqrt(radiusSquared);
+    }
+
+    /**
+     * Calculates the radius of the bounding sphere projected to normalized device coordinates. Under a perspective
+     * projection the radius shrinks with the distance, and meshes surrounding the camera are reported as infinitely
+     * large, so they are drawn at full detail. Under an orthographic projection only the scale of the projection
+     * counts.
+     *
+     * @param clipMatrix The combined view and projection matrix, as uploaded to the shaders.
+     * @return The projected radius.
+     */
+    public float getProjectedRadius(Matrix4f clipMatrix) {
+        final float scaleY = (float) Math.sqrt(clipMatrix.m01() * clipMatrix.m01() + clipMatrix.m11() * clipMatrix.m11()
+                + clipMatrix.m21() * clipMatrix.m21());
+        // Only perspective projections make w depend on the depth
+        if (clipMatrix.m23() == 0)
+            return radius * scaleY;
+
+        final float w = clipMatrix.m03() * center.x + clipMatrix.m13() * center.y + clipMatrix.m23() * center.z
+                + clipMatrix.m33();
+        if (w <= radius)
+            return Float.POSITIVE_INFINITY;
+        return radius * scaleY / w;
+    }
+
+    /**
+     * Selects the coarsest level whose on-screen error does not exceed the threshold. A level change only happens
+     * once the threshold is crossed by the given hysteresis fraction, which prevents popping between two levels.
+     *
+     * @param projectedRadius The projected radius of the bounding sphere, in the same unit as the threshold.
+     * @param threshold       The maximum on-screen error.
+     * @param hysteresis      The fraction the threshold has to be crossed by before the level changes, e.g. 0.25.
+     * @return The selected level.
+     */
+    public int select(float projectedRadius, float threshold, float hysteresis) {
+        int level = currentLevel;
+        while (level + 1 < levels.length && errors[level + 1] * projectedRadius * (1 + hysteresis) <= threshold)
+            level++;
+        while (level > 0 && errors[level] * projectedRadius > threshold * (1 + hysteresis))
+            level--;
+        currentLevel = level;
+        return level;
+    }
+
+    /**
+     * Disposes all generated levels. The full detail mesh at level 0 is owned by the caller and is not disposed.
+     */
+    @Override
+    public void dispose() {
+        for (int i = 1; i < levels.length; i++)
+            levels[i].dispose();
+    }
+
+    public Mesh getLevel(int level) {
+        return levels[level];
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    public float getError(int level) {
+        return errors[level];
+    }
+
+    public int getCurrentLevel() {
+        return currentLevel;
+    }
+
+    public Vector3f getCenter() {
+        return center;
+    }
+
+    public float getRadius() {
+        return radius;
+    }
+}
@@ -0,0 +1,515 @@
+package org.nebula.jgl.data.buffer;
+
+import java.util.Arrays;
+
+/**
+ * <br>
+ * <h2>MeshOptimizer</h2>
+ * <br>
+ * The MeshOptimizer reorders and deduplicates mesh data to make it cheaper for the GPU to process, without changing
+ * what is rendered. It works on the CPU only and can be used offline on imported assets as well as at runtime.
+ * <p>
+ * The full pipeline ({@link MeshOptimizer#optimize(Mesh, int)}) runs the following steps in order:
+ * </p>
+ * <ol>
+ *     <li>Vertex welding: identical vertices are merged and an index buffer referencing the unique vertices is
+ *     built ({@link MeshOptimizer#generateVertexRemap(float[], int[], int, int[])}).</li>
+ *     <li>Vertex cache optimization: triangles are reordered with Tom Forsyth's linear-speed algorithm to maximize
+ *     post-transform vertex cache hits ({@link MeshOptimizer#optimizeVertexCache(int[], int)}).</li>
+ *     <li>Overdraw optimization: the cache-optimized triangle order is split into clusters which are sorted so that
+ *     outward facing clusters are drawn first, as long as the vertex cache efficiency does not degrade by more than a
+ *     threshold ({@link MeshOptimizer#optimizeOverdraw(int[], float[], int, float)}).</li>
+ *     <li>Vertex fetch optimization: vertices are reordered by first use, so that vertex fetches are as sequential as
+ *     possible ({@link MeshOptimizer#optimizeVertexFetch(float[], int[], int)}).</li>
+ * </ol>
+ * <p>
+ * The efficiency of an index buffer can be measured with
+ * {@link MeshOptimizer#analyzeVertexCache(int[], int, int)}, which simulates a FIFO post-transform cache and reports
+ * the average cache miss ratio (ACMR, transformed vertices per triangle) and the average transform to vertex ratio
+ * (ATVR, transformed vertices per unique vertex).
+ * </p>
+ * <p>
+ * Positions are expected in the first three floats of every vertex.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see Mesh
+ */
+public final class MeshOptimizer {
+    /**
+     * The FIFO cache size used to analyze vertex cache efficiency, which is representative for current GPUs.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 16;
+    /**
+     * The maximum ACMR degradation accepted by the overdraw optimization of {@link MeshOptimizer#optimize(Mesh, int)}.
+     */
+    public static final float DEFAULT_OVERDRAW_THRESHOLD = 1.05f;
+
+    // Constants of Tom Forsyth's "Linear-Speed Vertex Cache Optimisation"
+    private static final int FORSYTH_CACHE_SIZE = 32;
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+
+    private MeshOptimizer() {
+    }
+
+    /**
+     * Runs the full optimization pipeline on the given Mesh and returns an optimized copy. The given mesh is not
+     * modified. A mesh whose indices do not address its vertices (e.g. created from vertices only) is treated as a
+     * non-indexed triangle list.
+     *
+     * @param mesh       The Mesh to optimize.
+     * @param vertexSize The number of floats per vertex.
+     * @return The optimized mesh and the vertex cache statistics before and after the optimization.
+     */
+    public static Result optimize(Mesh mesh, int vertexSize) {
+        final int vertexCount = mesh.getVertexCount(vertexSize);
+        final float[] vertices = new float[mesh.getVertexDataSize()];
+        mesh.getVertices().get(0, vertices);
+
+        int[] indices = new int[mesh.getIndexCount()];
+        mesh.copyIndices(indices, 0);
+        if (!addressesVertices(indices, vertexCount))
+            indices = sequentialIndices(vertexCount);
+
+        final Statistics before = analyzeVertexCache(indices, vertexCount, DEFAULT_CACHE_SIZE);
+
+        final int[] remap = new int[vertexCount];
+        final int uniqueVertices = generateVertexRemap(vertices, indices, vertexSize, remap);
+        float[] optimizedVertices = remapVertices(vertices, vertexSize, remap, uniqueVertices);
+        int[] optimizedIndices = remapIndices(indices, remap);
+
+        optimizedIndices = optimizeVertexCache(optimizedIndices, uniqueVertices);
+        optimizedIndices = optimizeOverdraw(optimizedIndices, optimizedVertices, vertexSize,
+                DEFAULT_OVERDRAW_THRESHOLD);
+        optimizedVertices = optimizeVertexFetch(optimizedVertices, optimizedIndices, vertexSize);
+
+        final Statistics after = analyzeVertexCache(optimizedIndices, optimizedVertices.length / vertexSize,
+                DEFAULT_CACHE_SIZE);
+        return new Result(new Mesh(mesh.getShader(), optimizedVertices, optimizedIndices), before, after);
+    }
+
+    private static boolean addressesVertices(int[] indices, int vertexCount) {
+        if (indices.length % 3 != 0)
+            return false;
+        for (int index : indices)
+            if (index < 0 || index >= vertexCount)
+                return false;
+        return true;
+    }
+
+    private static int[] sequentialIndices(int vertexCount) {
+        final int[] indices = new int[vertexCount - vertexCount % 3];
+        for (int i = 0; i < indices.length; i++)
+            indices[i] = i;
+        return indices;
+    }
+
+    /**
+     * Generates a remap table which maps every vertex to the first vertex with identical contents. Only vertices
+     * referenced by the indices are remapped, all others are mapped to -1.
+     *
+     * @param vertices   The vertex data.
+     * @param indices    The indices referencing the vertices, or null if the vertices form a triangle list.
+     * @param vertexSize The number of floats per vertex.
+     * @param remap      An array with one entry per vertex to store the remap table in.
+     * @return The number of unique vertices, which are numbered from 0 in order of first use.
+     */
+    public static int generateVertexRemap(float[] vertices, int[] indices, int vertexSize, int[] remap) {
+        final int vertexCount = vertices.length / vertexSize;
+        Arrays.fill(remap, 0, vertexCount, -1);
+
+        // Open addressing hash table from vertex contents to the first vertex with these contents
+        final int tableSize = Integer.highestOneBit(Math.max(vertexCount, 1) * 2) << 1;
+        final int[] table = new int[tableSize];
+        Arrays.fill(table, -1);
+
+        int unique = 0;
+        final int count = indices == null ? vertexCount : indices.length;
+        for (int i = 0; i < count; i++) {
+            final int vertex = indices == null ? i : indices[i];
+            if (remap[vertex] != -1)
+                continue;
+
+            int slot = hashVertex(vertices, vertex, vertexSize) & (tableSize - 1);
+            while (table[slot] != -1 && !equalVertices(vertices, table[slot], vertex, vertexSize))
+                slot = (slot + 1) & (tableSize - 1);
+
+            if (table[slot] == -1) {
+                table[slot] = vertex;
+                remap[vertex] = unique++;
+            } else {
+                remap[vertex] = remap[table[slot]];
+            }
+        }
+        return unique;
+    }
+
+    private static int hashVertex(float[] vertices, int vertex, int vertexSize) {
+        int hash = 0;
+        for (int i = vertex * vertexSize, end = i + vertexSize; i < end; i++) {
+            final float value = vertices[i];
+            // +0.0 and -0.0 are considered equal
+            hash = 31 * hash + (value == 0 ? 0 : Float.floatToIntBits(value));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equalVertices(float[] vertices, int a, int b, int vertexSize) {
+        for (int i = 0; i < vertexSize; i++)
+            if (vertices[a * vertexSize + i] != vertices[b * vertexSize + i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Builds the deduplicated vertex data described by a remap table.
+     *
+     * @param vertices     The original vertex data.
+     * @param vertexSize   The number of floats per vertex.
+     * @param remap        The remap table generated by
+     *                     {@link MeshOptimizer#generateVertexRemap(float[], int[], int, int[])}.
+     * @param uniqueCount  The number of unique vertices.
+     * @return The vertex data of the unique vertices.
+     */
+    public static float[] remapVertices(float[] vertices, int vertexSize, int[] remap, int uniqueCount) {
+        final float[] result = new float[uniqueCount * vertexSize];
+        for (int vertex = 0; vertex < vertices.length / vertexSize; vertex++)
+            if (remap[vertex] != -1)
+                System.arraycopy(vertices, vertex * vertexSize, result, remap[vertex] * vertexSize, vertexSize);
+        return result;
+    }
+
+    /**
+     * Rewrites indices through a remap table.
+     *
+     * @param indices The original indices, or null if the vertices form a triangle list.
+     * @param remap   The remap table.
+     * @return The remapped indices.
+     */
+    public static int[] remapIndices(int[] indices, int[] remap) {
+        if (indices == null)
+            return remap.clone();
+        final int[] result = new int[indices.length];
+        for (int i = 0; i < indices.length; i++)
+            result[i] = remap[indices[i]];
+        return result;
+    }
+
+    /**
+     * Reorders triangles to improve the hit rate of the post-transform vertex cache, using Tom Forsyth's
+     * linear-speed vertex cache optimization.
+     *
+     * @param indices     The triangle list indices.
+     * @param vertexCount The number of vertices referenced by the indices.
+     * @return The reordered indices.
+     */
+    public static int[] optimizeVertexCache(int[] indices, int vertexCount) {
+        final int triangleCount = indices.length / 3;
+        if (triangleCount == 0)
+            return indices.clone();
+
+        // Triangle adjacency of every vertex, in compressed form
+        final int[] remaining = new int[vertexCount];
+        for (int index : indices)
+            remaining[index]++;
+        final int[] adjacencyOffsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++)
+            adjacencyOffsets[v + 1] = adjacencyOffsets[v] + remaining[v];
+        final int[] adjacency = new int[indices.length];
+        final int[] fill = Arrays.copyOf(adjacencyOffsets, vertexCount);
+        for (int i = 0; i < indices.length; i++)
+            adjacency[fill[indices[i]]++] = i / 3;
+
+        final int[] cachePosition = new int[vertexCount];
+        Arrays.fill(cachePosition, -1);
+        final float[] vertexScores = new float[vertexCount];
+        for (int v = 0; v < vertexCount; v++)
+            vertexScores[v] = vertexScore(cachePosition[v], remaining[v]);
+
+        final float[] triangleScores = new float[triangleCount];
+        final boolean[] emitted = new boolean[triangleCount];
+        for (int t = 0; t < triangleCount; t++)
+            triangleScores[t] = vertexScores[indices[3 * t]] + vertexScores[indices[3 * t + 1]]
+                    + vertexScores[indices[3 * t + 2]];
+
+        final int[] cache = new int[FORSYTH_CACHE_SIZE + 3];
+        final int[] newCache = new int[FORSYTH_CACHE_SIZE + 3];
+        int cacheCount = 0;
+
+        // Vertices of emitted triangles, which may still have triangles left once the cache runs out of candidates
+        final int[] deadEnds = new int[indices.length];
+        int deadEndCount = 0;
+
+        final int[] result = new int[triangleCount * 3];
+        int bestTriangle = -1, scanCursor = 0;
+
+        for (int emittedCount = 0; emittedCount < triangleCount; emittedCount++) {
+            // No candidate among the cached vertices, continue at the most recent vertex with remaining triangles
+            while (bestTriangle < 0 && deadEndCount > 0) {
+                final int v = deadEnds[--deadEndCount];
+                if (remaining[v] > 0)
+                    bestTriangle = adjacency[adjacencyOffsets[v]];
+            }
+            // Otherwise start over at the next unemitted triangle, the cursor never moves back
+            if (bestTriangle < 0) {
+                while (emitted[scanCursor])
+                    scanCursor++;
+                bestTriangle = scanCursor;
+            }
+
+            final int triangle = bestTriangle;
+            emitted[triangle] = true;
+            System.arraycopy(indices, triangle * 3, result, emittedCount * 3, 3);
+
+            // Move the triangle's vertices to the front of the LRU cache
+            int newCount = 0;
+            for (int k = 0; k < 3; k++) {
+                final int v = indices[triangle * 3 + k];
+                newCache[newCount++] = v;
+                deadEnds[deadEndCount++] = v;
+                removeAdjacency(adjacency, adjacencyOffsets, remaining, v, triangle);
+            }
+            for (int i = 0; i < cacheCount; i++) {
+                final int v = cache[i];
+                if (v != newCache[0] && v != newCache[1] && v != newCache[2])
+                    newCache[newCount++] = v;
+            }
+
+            // Rescore all vertices whose cache position changed and their triangles
+            for (int i = 0; i < newCount; i++) {
+                final int v = newCache[i];
+                cachePosition[v] = i < FORSYTH_CACHE_SIZE ? i : -1;
+                final float score = vertexScore(cachePosition[v], remaining[v]);
+                final float delta = score - vertexScores[v];
+                vertexScores[v] = score;
+
+                for (int a = adjacencyOffsets[v], end = a + remaining[v]; a < end; a++)
+                    triangleScores[adjacency[a]] += delta;
+            }
+
+            // Pick the best triangle of the cached vertices only once all of their scores are final
+            cacheCount = Math.min(newCount, FORSYTH_CACHE_SIZE);
+            bestTriangle = -1;
+            float bestScore = -1;
+            for (int i = 0; i < cacheCount; i++) {
+                final int v = newCache[i];
+                for (int a = adjacencyOffsets[v], end = a + remaining[v]; a < end; a++) {
+                    final int t = adjacency[a];
+                    if (triangleScores[t] > bestScore) {
+                        bestScore = triangleScores[t];
+                        bestTriangle = t;
+                    }
+                }
+            }
+
+            System.arraycopy(newCache, 0, cache, 0, cacheCount);
+        }
+
+        return result;
+    }
+
+    private static void removeAdjacency(int[] adjacency, int[] offsets, int[] remaining, int vertex, int triangle) {
+        final int start = offsets[vertex], end = start + remaining[vertex];
+        for (int a = start; a < end; a++) {
+            if (adjacency[a] == triangle) {
+                adjacency[a] = adjacency[end - 1];
+                remaining[vertex]--;
+                return;
+            }
+        }
+    }
+
+    private static float vertexScore(int cachePosition, int remainingTriangles) {
+        if (remainingTriangles == 0)
+            return -1;
+
+        float score = 0;
+        if (cachePosition >= 0) {
+            if (cachePosition < 3) {
+                // The vertices of the last triangle get a fixed score to discourage reusing the same edge twice
+                score = LAST_TRIANGLE_SCORE;
+            } else {
+                final float scaler = 1f / (FORSYTH_CACHE_SIZE - 3);
+                score = (float) Math.pow(1f - (cachePosition - 3) * scaler, CACHE_DECAY_POWER);
+            }
+        }
+        // Vertices with few remaining triangles are preferred, so that they leave the working set quickly
+        score += VALENCE_BOOST_SCALE * (float) Math.pow(remainingTriangles, -VALENCE_BOOST_POWER);
+        return score;
+    }
+
+    /**
+     * Reorders clusters of triangles to reduce overdraw. The triangle order is split into clusters at points where
+     * the vertex cache is flushed anyway; the clusters are then sorted so that the ones facing away from the mesh
+     * center, which tend to occlude the others, are drawn first. If this degrades the ACMR by more than the given
+     * threshold, the original order is kept.
+     *
+     * @param indices    The triangle list indices, ideally already optimized for the vertex cache.
+     * @param vertices   The vertex data.
+     * @param vertexSize The number of floats per vertex.
+     * @param threshold  The maximum accepted ratio of the resulting ACMR to the original ACMR, e.g. 1.05.
+     * @return The reordered indices.
+     */
+    public static int[] optimizeOverdraw(int[] indices, float[] vertices, int vertexSize, float threshold) {
+        final int triangleCount = indices.length / 3;
+        final int vertexCount = vertices.length / vertexSize;
+        if (triangleCount < 2)
+            return indices.clone();
+
+        // Cluster boundaries are triangles whose vertices all miss the cache
+        final int[] clusterStarts = new int[triangleCount + 1];
+        int clusterCount = 0;
+        final int[] timestamps = new int[vertexCount];
+        int timestamp = DEFAULT_CACHE_SIZE + 1;
+        for (int t = 0; t < triangleCount; t++) {
+            int misses = 0;
+            for (int k = 0; k < 3; k++) {
+                final int v = indices[t * 3 + k];
+                if (timestamp - timestamps[v] > DEFAULT_CACHE_SIZE) {
+                    timestamps[v] = timestamp++;
+                    misses++;
+                }
+            }
+            if (t == 0 || misses == 3)
+                clusterStarts[clusterCount++] = t;
+        }
+        clusterStarts[clusterCount] = triangleCount;
+        if (clusterCount < 2)
+            return indices.clone();
+
+        // Mesh centroid
+        float mx = 0, my = 0, mz = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            mx += vertices[v * vertexSize];
+            my += vertices[v * vertexSize + 1];
+            mz += vertices[v * vertexSize + 2];
+        }
+        mx /= vertexCount;
+        my /= vertexCount;
+        mz /= vertexCount;
+
+        // Sort key of every cluster: distance of its area weighted centroid along its average normal
+        final float[] keys = new float[clusterCount];
+        final Integer[] order = new Integer[clusterCount];
+        for (int c = 0; c < clusterCount; c++) {
+            float cx = 0, cy = 0, cz = 0, nx = 0, ny = 0, nz = 0, area = 0;
+            for (int t = clusterStarts[c]; t < clusterStarts[c + 1]; t++) {
+                final int a = indices[t * 3] * vertexSize;
+                final int b = indices[t * 3 + 1] * vertexSize;
+                final int d = indices[t * 3 + 2] * vertexSize;
+                final float e1x = vertices[b] - vertices[a], e1y = vertices[b + 1] - vertices[a + 1],
+                        e1z = vertices[b + 2] - vertices[a + 2];
+                final float e2x = vertices[d] - vertices[a], e2y = vertices[d + 1] - vertices[a + 1],
+                        e2z = vertices[d + 2] - vertices[a + 2];
+                final float tx = e1y * e2z - e1z * e2y, ty = e1z * e2x - e1x * e2z, tz = e1x * e2y - e1y * e2x;
+                final float triangleArea = (float) Math.sqrt(tx * tx + ty * ty + tz * tz);
+
+                cx += (vertices[a] + vertices[b] + vertices[d]) / 3f * triangleArea;
+                cy += (vertices[a + 1] + vertices[b + 1] + vertices[d + 1]) / 3f * triangleArea;
+                cz += (vertices[a + 2] + vertices[b + 2] + vertices[d + 2]) / 3f * triangleArea;
+                nx += tx;
+                ny += ty;
+                nz += tz;
+                area += triangleArea;
+            }
+            final float normalLength = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (area > 0 && normalLength > 0) {
+                keys[c] = ((cx / area - mx) * nx + (cy / area - my) * ny + (cz / area - mz) * nz) / normalLength;
+            }
+            order[c] = c;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(keys[b], keys[a]));
+
+        final int[] result = new int[indices.length];
+        int written = 0;
+        for (int c : order) {
+            final int length = (clusterStarts[c + 1] - clusterStarts[c]) * 3;
+            System.arraycopy(indices, clusterStarts[c] * 3, result, written, length);
+            written += length;
+        }
+
+        final float originalAcmr = analyzeVertexCache(indices, vertexCount, DEFAULT_CACHE_SIZE).acmr();
+        final float resultAcmr = analyzeVertexCache(result, vertexCount, DEFAULT_CACHE_SIZE).acmr();
+        return resultAcmr <= originalAcmr * threshold ? result : indices.clone();
+    }
+
+    /**
+     * Reorders vertices in the order they are first referenced by the indices and removes unreferenced vertices.
+     * The indices are rewritten in place.
+     *
+     * @param vertices   The vertex data.
+     * @param indices    The indices, which are rewritten to reference the reordered vertices.
+     * @param vertexSize The number of floats per vertex.
+     * @return The reordered vertex data.
+     */
+    public static float[] optimizeVertexFetch(float[] vertices, int[] indices, int vertexSize) {
+        final int[] remap = new int[vertices.length / vertexSize];
+        Arrays.fill(remap, -1);
+
+        int next = 0;
+        for (int i = 0; i < indices.length; i++) {
+            final int v = indices[i];
+            if (remap[v] == -1)
+                remap[v] = next++;
+            indices[i] = remap[v];
+        }
+        return remapVertices(vertices, vertexSize, remap, next);
+    }
+
+    /**
+     * Simulates a FIFO post-transform vertex cache of the given size on the indices.
+     *
+     * @param indices     The triangle list indices.
+     * @param vertexCount The number of vertices referenced by the indices.
+     * @param cacheSize   The number of entries of the simulated cache.
+     * @return The vertex cache statistics.
+     */
+    public static Statistics analyzeVertexCache(int[] indices, int vertexCount, int cacheSize) {
+        final int[] timestamps = new int[vertexCount];
+        final boolean[] referenced = new boolean[vertexCount];
+        int timestamp = cacheSize + 1;
+        int transformed = 0, unique = 0;
+
+        for (int index : indices) {
+            if (timestamp - timestamps[index] > cacheSize) {
+                timestamps[index] = timestamp++;
+                transformed++;
+            }
+            if (!referenced[index]) {
+                referenced[index] = true;
+                unique++;
+            }
+        }
+
+        final int triangles = indices.length / 3;
+        return new Statistics(triangles, unique, transformed,
+                triangles == 0 ? 0 : (float) transformed / triangles,
+                unique == 0 ? 0 : (float) transformed / unique);
+    }
+
+    /**
+     * Post-transform vertex cache statistics of an index buffer.
+     *
+     * @param triangles   The number of triangles.
+     * @param vertices    The number of unique vertices referenced.
+     * @param transformed The number of vertex shader invocations.
+     * @param acmr        The average cache miss ratio, transformed vertices per triangle. 0.5 is optimal for
+     *                    regular grids, 3 is the worst case.
+     * @param atvr        The average transform to vertex ratio, transformed vertices per unique vertex. 1 is optimal.
+     */
+    public record Statistics(int triangles, int vertices, int transformed, float acmr, float atvr) {
+    }
+
+    /**
+     * The result of {@link MeshOptimizer#optimize(Mesh, int)}.
+     *
+     * @param mesh   The optimized mesh, which has to be disposed by the caller.
+     * @param before The vertex cache statistics of the original mesh.
+     * @param after  The vertex cache statistics of the optimized mesh.
+     */
+    public record Result(Mesh mesh, Statistics before, Statistics after) {
+    }
+}
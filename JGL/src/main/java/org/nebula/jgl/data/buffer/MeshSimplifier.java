@@ -0,0 +1,312 @@
+package org.nebula.jgl.data.buffer;
+
+import java.util.Arrays;
+
+/**
+ * <br>
+ * <h2>MeshSimplifier</h2>
+ * <br>
+ * The MeshSimplifier reduces the triangle count of a mesh by collapsing edges in the order of their quadric error
+ * (Garland and Heckbert, "Surface Simplification Using Quadric Error Metrics").
+ * <p>
+ * Edges are collapsed onto one of their end points, so no new vertices are created and the attributes of the
+ * remaining vertices stay valid. Vertices on open borders and attribute seams (vertices that are split in the index
+ * buffer, e.g. because of differing texture coordinates) are locked, which keeps the silhouette of open meshes and
+ * prevents cracks along seams. Collapses that would flip a triangle are rejected.
+ * </p>
+ * <p>
+ * Errors are measured as distances relative to the radius of the mesh's bounding box, so an error of 0.01 permits the
+ * surface to deviate by one percent of the mesh size. Positions are expected in the first three floats of every
+ * vertex. The simplifier does not touch any shared state and can be used from several threads at once.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see MeshLod
+ * @see MeshOptimizer
+ */
+public final class MeshSimplifier {
+    private static final int QUADRIC_SIZE = 11;
+    private static final int MAX_PASSES = 100;
+    private static final double DEGENERATE_EPSILON = 1e-6;
+
+    private MeshSimplifier() {
+    }
+
+    /**
+     * Simplifies a triangle list until the target index count is reached or no edge can be collapsed within the
+     * target error.
+     *
+     * @param vertices         The vertex data.
+     * @param indices          The triangle list indices, which are not modified.
+     * @param vertexSize       The number of floats per vertex.
+     * @param targetIndexCount The index count to reduce the mesh to.
+     * @param targetError      The maximum error relative to the mesh size.
+     * @param resultError      An optional array whose first element receives the relative error reached, may be null.
+     * @return The indices of the simplified mesh, referencing the original vertices.
+     */
+    public static int[] simplify(float[] vertices, int[] indices, int vertexSize, int targetIndexCount,
+                                 float targetError, float[] resultError) {
+        if (indices.length % 3 != 0)
+            throw new IllegalArgumentException("Index count " + indices.length + " is not a multiple of 3");
+
+        final int vertexCount = vertices.length / vertexSize;
+        final float[] positions = normalizedPositions(vertices, vertexSize, vertexCount);
+        final boolean[] locked = findLockedVertices(indices, vertexCount);
+        final double[] quadrics = computeQuadrics(positions, indices, vertexCount);
+
+        int[] current = indices.clone();
+        int indexCount = current.length;
+        final double maxCost = (double) targetError * targetError;
+        double reachedCost = 0;
+
+        final int[] touched = new int[vertexCount];
+        final int[] adjacencyOffsets = new int[vertexCount + 1];
+        int[] adjacency = new int[indexCount];
+
+        for (int pass = 1; pass <= MAX_PASSES && indexCount > targetIndexCount; pass++) {
+            buildAdjacency(current, indexCount, vertexCount, adjacencyOffsets, adjacency);
+
+            // Candidate collapses, sorted by cost: cost bits in the upper half, source corner in the lower half
+            final long[] candidates = new long[indexCount];
+            int candidateCount = 0;
+            for (int i = 0; i < indexCount; i++) {
+                final int v = current[i];
+                if (locked[v])
+                    continue;
+                final double cost = collapseCost(quadrics, positions, v, nextCorner(current, i));
+                if (cost <= maxCost)
+                    candidates[candidateCount++] = ((long) Float.floatToIntBits((float) cost) << 32) | i;
+            }
+            if (candidateCount == 0)
+                break;
+            Arrays.sort(candidates, 0, candidateCount);
+
+            int collapses = 0;
+            int removedIndices = 0;
+            for (int c = 0; c < candidateCount && indexCount - removedIndices > targetIndexCount; c++) {
+                final int corner = (int) candidates[c];
+                final int v = current[corner];
+                // Triangles changed during this pass only contain touched vertices, so the edge is still valid
+                final int u = nextCorner(current, corner);
+                if (touched[v] == pass || touched[u] == pass || v == u)
+                    continue;
+                if (flipsTriangles(positions, current, adjacency, adjacencyOffsets, v, u))
+                    continue;
+
+                for (int a = adjacencyOffsets[v]; a < adjacencyOffsets[v + 1]; a++) {
+                    final int triangle = adjacency[a] * 3;
+                    for (int k = 0; k < 3; k++) {
+                        touched[current[triangle + k]] = pass;
+                        if (current[triangle + k] == v)
+                            current[triangle + k] = u;
+                    }
+                    if (isDegenerate(current, triangle))
+                        removedIndices += 3;
+                }
+                for (int q = 0; q < QUADRIC_SIZE; q++)
+                    quadrics[u * QUADRIC_SIZE + q] += quadrics[v * QUADRIC_SIZE + q];
+                reachedCost = Math.max(reachedCost, Float.intBitsToFloat((int) (candidates[c] >>> 32)));
+                collapses++;
+            }
+
+            indexCount = removeDegenerates(current, indexCount);
+            if (collapses == 0)
+                break;
+        }
+
+        if (resultError != null)
+            resultError[0] = (float) Math.sqrt(reachedCost);
+        return Arrays.copyOf(current, indexCount);
+    }
+
+    /**
+     * Returns the vertex following the given corner within its triangle. Every directed edge of the mesh is formed by
+     * a corner and its successor, so iterating over all corners visits every edge in both directions.
+     */
+    private static int nextCorner(int[] indices, int corner) {
+        return indices[corner - corner % 3 + (corner + 1) % 3];
+    }
+
+    /**
+     * Copies the positions scaled into the unit cube, so that errors are relative to the mesh size.
+     */
+    private static float[] normalizedPositions(float[] vertices, int vertexSize, int vertexCount) {
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        for (int v = 0; v < vertexCount; v++) {
+            final int o = v * vertexSize;
+            minX = Math.min(minX, vertices[o]);
+            minY = Math.min(minY, vertices[o + 1]);
+            minZ = Math.min(minZ, vertices[o + 2]);
+            maxX = Math.max(maxX, vertices[o]);
+            maxY = Math.max(maxY, vertices[o + 1]);
+            maxZ = Math.max(maxZ, vertices[o + 2]);
+        }
+        final float extent = Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ)) / 2;
+        final float scale = extent > 0 ? 1 / extent : 1;
+
+        final float[] positions = new float[vertexCount * 3];
+        for (int v = 0; v < vertexCount; v++) {
+            positions[v * 3] = (vertices[v * vertexSize] - minX) * scale;
+            positions[v * 3 + 1] = (vertices[v * vertexSize + 1] - minY) * scale;
+            positions[v * 3 + 2] = (vertices[v * vertexSize + 2] - minZ) * scale;
+        }
+        return positions;
+    }
+
+    /**
+     * Locks all vertices on edges which are not shared by exactly two triangles. This covers open borders, attribute
+     * seams and non-manifold edges.
+     */
+    private static boolean[] findLockedVertices(int[] indices, int vertexCount) {
+        final long[] edges = new long[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            final int a = indices[i];
+            final int b = nextCorner(indices, i);
+            edges[i] = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+        }
+        Arrays.sort(edges);
+
+        final boolean[] locked = new boolean[vertexCount];
+        for (int start = 0, end; start < edges.length; start = end) {
+            end = start + 1;
+            while (end < edges.length && edges[end] == edges[start])
+                end++;
+            if (end - start != 2) {
+                locked[(int) (edges[start] >>> 32)] = true;
+                locked[(int) edges[start]] = true;
+            }
+        }
+        return locked;
+    }
+
+    /**
+     * Accumulates the area weighted plane quadrics of all triangles into their vertices. Every quadric stores the
+     * upper triangle of the symmetric 4x4 matrix followed by the accumulated weight.
+     */
+    private static double[] computeQuadrics(float[] positions, int[] indices, int vertexCount) {
+        final double[] quadrics = new double[vertexCount * QUADRIC_SIZE];
+        for (int t = 0; t < indices.length; t += 3) {
+            final int a = indices[t] * 3, b = indices[t + 1] * 3, c = indices[t + 2] * 3;
+            final double e1x = positions[b] - positions[a], e1y = positions[b + 1] - positions[a + 1],
+                    e1z = positions[b + 2] - positions[a + 2];
+            final double e2x = positions[c] - positions[a], e2y = positions[c + 1] - positions[a + 1],
+                    e2z = positions[c + 2] - positions[a + 2];
+            double nx = e1y * e2z - e1z * e2y, ny = e1z * e2x - e1x * e2z, nz = e1x * e2y - e1y * e2x;
+            final double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length == 0)
+                continue;
+            nx /= length;
+            ny /= length;
+            nz /= length;
+            final double d = -(nx * positions[a] + ny * positions[a + 1] + nz * positions[a + 2]);
+            final double area = length / 2;
+
+            for (int k = 0; k < 3; k++) {
+                final int o = indices[t + k] * QUADRIC_SIZE;
+                quadrics[o] += area * nx * nx;
+                quadrics[o + 1] += area * nx * ny;
+                quadrics[o + 2] += area * nx * nz;
+                quadrics[o + 3] += area * nx * d;
+                quadrics[o + 4] += area * ny * ny;
+                quadrics[o + 5] += area * ny * nz;
+                quadrics[o + 6] += area * ny * d;
+                quadrics[o + 7] += area * nz * nz;
+                quadrics[o + 8] += area * nz * d;
+                quadrics[o + 9] += area * d * d;
+                quadrics[o + 10] += area;
+            }
+        }
+        return quadrics;
+    }
+
+    /**
+     * Evaluates the combined quadric of both vertices at the position of u, which is the squared distance of u to the
+     * planes around v and u, averaged by area.
+     */
+    private static double collapseCost(double[] quadrics, float[] positions, int v, int u) {
+        final int qv = v * QUADRIC_SIZE, qu = u * QUADRIC_SIZE;
+        final double x = positions[u * 3], y = positions[u * 3 + 1], z = positions[u * 3 + 2];
+        double error = 0;
+        final double[] q = quadrics;
+        error += (q[qv] + q[qu]) * x * x;
+        error += 2 * (q[qv + 1] + q[qu + 1]) * x * y;
+        error += 2 * (q[qv + 2] + q[qu + 2]) * x * z;
+        error += 2 * (q[qv + 3] + q[qu + 3]) * x;
+        error += (q[qv + 4] + q[qu + 4]) * y * y;
+        error += 2 * (q[qv + 5] + q[qu + 5]) * y * z;
+        error += 2 * (q[qv + 6] + q[qu + 6]) * y;
+        error += (q[qv + 7] + q[qu + 7]) * z * z;
+        error += 2 * (q[qv + 8] + q[qu + 8]) * z;
+        error += q[qv + 9] + q[qu + 9];
+        final double weight = q[qv + 10] + q[qu + 10];
+        return weight > 0 ? Math.abs(error) / weight : 0;
+    }
+
+    private static boolean flipsTriangles(float[] positions, int[] indices, int[] adjacency, int[] offsets,
+                                          int v, int u) {
+        for (int a = offsets[v]; a < offsets[v + 1]; a++) {
+            final int triangle = adjacency[a] * 3;
+            final int i0 = indices[triangle], i1 = indices[triangle + 1], i2 = indices[triangle + 2];
+            // Triangles containing the collapsed edge are removed, so they can not flip
+            if (i0 == u || i1 == u || i2 == u)
+                continue;
+
+            if (isFlipped(positions, i0, i1, i2, i0 == v ? u : i0, i1 == v ? u : i1, i2 == v ? u : i2))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether moving a vertex flips the triangle or makes it degenerate, which is the case if the sine of the
+     * angle between its new edges is close to zero.
+     */
+    private static boolean isFlipped(float[] positions, int a, int b, int c, int newA, int newB, int newC) {
+        final double[] before = cross(positions, a, b, c);
+        final double[] after = cross(positions, newA, newB, newC);
+        final double dot = before[0] * after[0] + before[1] * after[1] + before[2] * after[2];
+        final double areaSquared = after[0] * after[0] + after[1] * after[1] + after[2] * after[2];
+        return dot <= 0 || areaSquared <= DEGENERATE_EPSILON * after[3] * after[4];
+    }
+
+    /**
+     * Calculates the cross product of the edges of a triangle, followed by the squared lengths of both edges.
+     */
+    private static double[] cross(float[] positions, int a, int b, int c) {
+        final double e1x = positions[b * 3] - positions[a * 3], e1y = positions[b * 3 + 1] - positions[a * 3 + 1],
+                e1z = positions[b * 3 + 2] - positions[a * 3 + 2];
+        final double e2x = positions[c * 3] - positions[a * 3], e2y = positions[c * 3 + 1] - positions[a * 3 + 1],
+                e2z = positions[c * 3 + 2] - positions[a * 3 + 2];
+        return new double[]{e1y * e2z - e1z * e2y, e1z * e2x - e1x * e2z, e1x * e2y - e1y * e2x,
+                e1x * e1x + e1y * e1y + e1z * e1z, e2x * e2x + e2y * e2y + e2z * e2z};
+    }
+
+    private static void buildAdjacency(int[] indices, int indexCount, int vertexCount, int[] offsets,
+                                       int[] adjacency) {
+        Arrays.fill(offsets, 0);
+        for (int i = 0; i < indexCount; i++)
+            offsets[indices[i] + 1]++;
+        for (int v = 0; v < vertexCount; v++)
+            offsets[v + 1] += offsets[v];
+        final int[] fill = Arrays.copyOf(offsets, vertexCount);
+        for (int i = 0; i < indexCount; i++)
+            adjacency[fill[indices[i]]++] = i / 3;
+    }
+
+    private static boolean isDegenerate(int[] indices, int triangle) {
+        final int a = indices[triangle], b = indices[triangle + 1], c = indices[triangle + 2];
+        return a == b || b == c || a == c;
+    }
+
+    private static int removeDegenerates(int[] indices, int indexCount) {
+        int written = 0;
+        for (int t = 0; t < indexCount; t += 3) {
+            if (isDegenerate(indices, t))
+                continue;
+            System.arraycopy(indices, t, indices, written, 3);
+            written += 3;
+        }
+        return written;
+    }
+}
@@ -1,6 +1,7 @@
 package org.nebula.jgl.data.buffer;
 
 import org.nebula.base.interfaces.IDisposable;
+import org.nebula.base.util.ResourceRegistry;
 
 import static org.lwjgl.opengl.GL33C.*;
 
@@ -10,6 +11,7 @@ public class VertexArray implements IDisposable {
 
     public VertexArray() {
         this.id = glGenVertexArrays();
+        ResourceRegistry.register(this, ResourceRegistry.Memory.GPU, 0);
     }
 
     public void bind() {
@@ -22,6 +24,7 @@ public class VertexArray implements IDisposable {
     public void unbind() {
         if (isBound()) {
             glBindVertexArray(0);
+            current = null;
         }
     }
 
@@ -36,6 +39,11 @@ public class VertexArray implements IDisposable {
         enableVertexAttributeArray(index);
     }
 
+    public void vertexAttribDivisor(int index, int divisor) {
+        bind();
+        glVertexAttribDivisor(index, divisor);
+    }
+
     public void disableVertexAttribArray(int position) {
         bind();
         glDisableVertexAttribArray(position);
@@ -48,5 +56,6 @@ public class VertexArray implements IDisposable {
     @Override
     public void dispose() {
         glDeleteVertexArrays(id);
+        ResourceRegistry.unregister(this);
     }
 }
@@ -1,16 +1,21 @@
 package org.nebula.jgl.data.shader;
 
 import org.joml.*;
+import org.lwjgl.system.MemoryStack;
 import org.nebula.base.interfaces.IDisposable;
+import org.nebula.base.util.Object2IntIdentityMap;
+import org.nebula.base.util.ResourceRegistry;
 import org.nebula.jgl.data.buffer.Buffer;
 
+import java.nio.IntBuffer;
 import java.util.AbstractMap;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static org.lwjgl.opengl.GL33C.*;
+import static org.lwjgl.system.MemoryStack.stackPush;
 
 /**
  * <br>
@@ -39,6 +44,7 @@ import static org.lwjgl.opengl.GL33C.*;
 public class Shader implements IDisposable {
     public static final String PROJECTION_MAT_NAME = "uProjection";
     public static final String VIEW_MAT_NAME = "uView";
+    public static final String INSTANCE_TRANSFORM_NAME = "iTransform";
     private static final Map<String, GLSLDatatype> glslDatatypeMap = Map.ofEntries(
             entry("float", new GLSLDatatype(1, Float.BYTES, Buffer.Datatype.FLOAT)),
             entry("vec2", new GLSLDatatype(2, 2 * Float.BYTES, Buffer.Datatype.FLOAT)),
@@ -84,10 +90,13 @@ public class Shader implements IDisposable {
             entry("sampler3D", new GLSLDatatype(1, Integer.BYTES, Buffer.Datatype.INT)),
             entry("samplerCube", new GLSLDatatype(1, Integer.BYTES, Buffer.Datatype.INT))
     );
+    private static final int MISSING_LOCATION = Integer.MIN_VALUE;
+    private static final int MAX_CACHED_NAME_INSTANCES = 256;
     private static Shader currentlyBoundShader;
     private final int id;
     private final VertexAttribs vertexAttribs;
-    private final HashMap<String, Integer> uniformLocations, attribLocations;
+    private final Locations uniformLocations, attribLocations;
+    private final Object2IntIdentityMap<String> uniformLocationCache;
 
     /**
      * Creates a new Shader with specified vertex and fragment shader sources.
@@ -96,8 +105,7 @@ public class Shader implements IDisposable {
      * @param fragmentSource the source code for the fragment shader
      */
     public Shader(final String vertexSource, final String fragmentSource) {
-        uniformLocations = new HashMap<>();
-        attribLocations = new HashMap<>();
+        uniformLocationCache = new Object2IntIdentityMap<>();
 
         this.vertexAttribs = parseAttribs(vertexSource);
 
@@ -132,6 +140,11 @@ public class Shader implements IDisposable {
 
         if (glGetProgrami(id, GL_VALIDATE_STATUS) == GL_FALSE)
             throw new ShaderValidationException(glGetProgramInfoLog(id));
+
+        uniformLocations = queryUniformLocations(id);
+        attribLocations = queryAttribLocations(id);
+
+        ResourceRegistry.register(this, ResourceRegistry.Memory.GPU, 0);
     }
 
     private static AbstractMap.SimpleEntry<String, GLSLDatatype> entry(String name, GLSLDatatype datatype) {
@@ -206,13 +219,13 @@ public class Shader implements IDisposable {
         }
     }
 
+    /**
+     * Retrieves the location of the specified active vertex attribute, as queried when the shader was linked.
+     *
+     * @param attribLocation the name of the vertex attribute
+     * @return the location of the vertex attribute, or -1 if the shader has no such active attribute
+     */
     public int getAttribLocation(final String attribLocation) {
-        if (!attribLocations.containsKey(attribLocation)) {
-            int loc = glGetAttribLocation(id, attribLocation);
-            attribLocations.put(attribLocation, loc);
-            return loc;
-        }
-
         return attribLocations.get(attribLocation);
     }
 
@@ -230,6 +243,27 @@ public class Shader implements IDisposable {
         return glGetUniformLocation(id, uniformName);
     }
 
+    /**
+     * Retrieves the location of the specified uniform variable from the locations queried when the shader was linked.
+     * Uniform names are usually constants, so the location is first looked up by the identity of the string, which
+     * neither hashes nor compares it. Other strings with the same name fall back to a binary search by name.
+     *
+     * @param uniformName the name of the uniform variable
+     * @return the location of the uniform variable, or -1 if the shader has no such active uniform
+     */
+    private int getCachedUniformLocation(final String uniformName) {
+        final int cached = uniformLocationCache.get(uniformName, MISSING_LOCATION);
+        if (cached != MISSING_LOCATION)
+            return cached;
+
+        final int location = uniformLocations.get(uniformName);
+        // Names built at runtime are new strings on every call and must not fill up the cache
+        if (uniformLocationCache.size() >= MAX_CACHED_NAME_INSTANCES)
+            uniformLocationCache.clear();
+        uniformLocationCache.put(uniformName, location);
+        return location;
+    }
+
     /**
      * Uploads a float value to the specified uniform variable.
      *
@@ -237,11 +271,8 @@ public class Shader implements IDisposable {
      * @param value       the float value to upload
      */
     public void uploadUniformFloat(final String uniformName, final float value) {
-        if (!uniformLocations.containsKey(uniformName))
-            uniformLocations.put(uniformName, getUniformLocation(uniformName));
-
         bind();
-        final int uniformLoc = uniformLocations.get(uniformName);
+        final int uniformLoc = getCachedUniformLocation(uniformName);
         glUniform1f(uniformLoc, value);
     }
 
@@ -252,11 +283,8 @@ public class Shader implements IDisposable {
      * @param value       the integer value to upload
      */
     public void uploadUniformInt(final String uniformName, final int value) {
-        if (!uniformLocations.containsKey(uniformName))
-            uniformLocations.put(uniformName, getUniformLocation(uniformName));
-
         bind();
-        final int uniformLoc = uniformLocations.get(uniformName);
+        final int uniformLoc = getCachedUniformLocation(uniformName);
         glUniform1i(uniformLoc, value);
     }
 
@@ -267,11 +295,8 @@ public class Shader implements IDisposable {
      * @param value       the Vector2f value to upload
      */
     public void uploadUniformVec2f(final String uniformName, final Vector2f value) {
-        if (!uniformLocations.containsKey(uniformName))
-            uniformLocations.put(uniformName, getUniformLocation(uniformName));
-
         bind();
-        final int uniformLoc = uniformLocations.get(uniformName);
+        final int uniformLoc = getCachedUniformLocation(uniformName);
         glUniform2f(uniformLoc, value.x, value.y);
     }
 
@@ -282,11 +307,8 @@ public class Shader implements IDisposable {
      * @param value       the Vector3f value to upload
      */
     public void uploadUniformVec3f(final String uniformName, final Vector3f value) {
-        if (!uniformLocations.containsKey(uniformName))
-            uniformLocations.put(uniformName, getUniformLocation(uniformName));
-
         bind();
-        final int uniformLoc = uniformLocations.get(uniformName);
+        final int uniformLoc = getCachedUniformLocation(uniformName);
         glUniform3f(uniformLoc, value.x, value.y, value.z);
     }
 
@@ -297,11 +319,8 @@ public class Shader implements IDisposable {
      * @param value       the Vector4f value to upload
      */
     public void uploadUniformVec4f(final String uniformName, final Vector4f value) {
-        if (!uniformLocations.containsKey(uniformName))
-            uniformLocations.put(uniformName, getUniformLocation(uniformName));
-
         bind();
-        final int uniformLoc = uniformLocations.get(uniformName);
+        final int uniformLoc = getCachedUniformLocation(uniformName);
         glUniform4f(uniformLoc, value.x, value.y, value.z, value.w);
     }
 
@@ -312,11 +331,8 @@ public class Shader implements IDisposable {
      * @param value       the boolean value to upload
      */
     public void uploadUniformBool(final String uniformName, final boolean value) {
-        if (!uniformLocations.containsKey(uniformName))
-            uniformLocations.put(uniformName, getUniformLocation(uniformName));
-
         bind();
-        final int uniformLoc = uniformLocations.get(uniformName);
+        final int uniformLoc = getCachedUniformLocation(uniformName);
         glUniform1i(uniformLoc, value ? 1 : 0);
     }
 
@@ -327,11 +343,8 @@ public class Shader implements IDisposable {
      * @param value       the Vector2i value to upload
      */
     public void uploadUniformVec2i(final String uniformName, final Vector2i value) {
-        if (!uniformLocations.containsKey(uniformName))
-            uniformLocations.put(uniformName, getUniformLocation(uniformName));
-
         bind();
-        final int uniformLoc = uniformLocations.get(uniformName);
+        final int uniformLoc = getCachedUniformLocation(uniformName);
         glUniform2i(uniformLoc, value.x, value.y);
     }
 
@@ -342,11 +355,8 @@ public class Shader implements IDisposable {
      * @param value       the Vector3i value to upload
      */
     public void uploadUniformVec3i(final String uniformName, final Vector3i value) {
-        if (!uniformLocations.containsKey(uniformName))
-            uniformLocations.put(uniformName, getUniformLocation(uniformName));
-
         bind();
-        final int uniformLoc = uniformLocations.get(uniformName);
+        final int uniformLoc = getCachedUniformLocation(uniformName);
         glUniform3i(uniformLoc, value.x, value.y, value.z);
     }
 
@@ -357,11 +367,8 @@ public class Shader implements IDisposable {
      * @param value       the Vector4i value to upload
      */
     public void uploadUniformVec4i(final String uniformName, final Vector4i value) {
-        if (!uniformLocations.containsKey(uniformName))
-            uniformLocations.put(uniformName, getUniformLocation(uniformName));
-
         bind();
-        final int uniformLoc = uniformLocations.get(uniformName);
+        final int uniformLoc = getCachedUniformLocation(uniformName);
         glUniform4i(uniformLoc, value.x, value.y, value.z, value.w);
     }
 
@@ -372,12 +379,11 @@ public class Shader implements IDisposable {
      * @param value       the Matrix2f value to upload
      */
     public void uploadUniformMat2f(final String uniformName, final Matrix2f value) {
-        if (!uniformLocations.containsKey(uniformName))
-            uniformLocations.put(uniformName, getUniformLocation(uniformName));
-
         bind();
-        final int uniformLoc = uniformLocations.get(uniformName);
-        glUniformMatrix2fv(uniformLoc, false, value.get(new float[4]));
+        final int uniformLoc = getCachedUniformLocation(uniformName);
+        try (MemoryStack stack = stackPush()) {
+            glUniformMatrix2fv(uniformLoc, false, value.get(stack.mallocFloat(4)));
+        }
     }
 
     /**
@@ -387,12 +393,11 @@ public class Shader implements IDisposable {
      * @param value       the Matrix3f value to upload
      */
     public void uploadUniformMat3f(final String uniformName, final Matrix3f value) {
-        if (!uniformLocations.containsKey(uniformName))
-            uniformLocations.put(uniformName, getUniformLocation(uniformName));
-
         bind();
-        final int uniformLoc = uniformLocations.get(uniformName);
-        glUniformMatrix3fv(uniformLoc, false, value.get(new float[9]));
+        final int uniformLoc = getCachedUniformLocation(uniformName);
+        try (MemoryStack stack = stackPush()) {
+            glUniformMatrix3fv(uniformLoc, false, value.get(stack.mallocFloat(9)));
+        }
     }
 
     /**
@@ -402,20 +407,16 @@ public class Shader implements IDisposable {
      * @param value       the Matrix4f value to upload
      */
     public void uploadUniformMat4f(final String uniformName, final Matrix4f value) {
-        if (!uniformLocations.containsKey(uniformName))
-            uniformLocations.put(uniformName, getUniformLocation(uniformName));
-
         bind();
-        final int uniformLoc = uniformLocations.get(uniformName);
-        glUniformMatrix4fv(uniformLoc, false, value.get(new float[16]));
+        final int uniformLoc = getCachedUniformLocation(uniformName);
+        try (MemoryStack stack = stackPush()) {
+            glUniformMatrix4fv(uniformLoc, false, value.get(stack.mallocFloat(16)));
+        }
     }
 
     public void uploadUniformIntArray(String uniformName, int[] value) {
-        if (!uniformLocations.containsKey(uniformName))
-            uniformLocations.put(uniformName, getUniformLocation(uniformName));
-
         bind();
-        final int uniformLoc = uniformLocations.get(uniformName);
+        final int uniformLoc = getCachedUniformLocation(uniformName);
         glUniform1iv(uniformLoc, value);
     }
 
@@ -450,6 +451,87 @@ public class Shader implements IDisposable {
     @Override
     public void dispose() {
         glDeleteProgram(id);
+        ResourceRegistry.unregister(this);
+    }
+
+    /**
+     * Queries the locations of all active uniforms of a linked program. Elements of uniform arrays are added under
+     * their own names as well, e.g. {@code uLights[2]}, and the first element also under the name of the array.
+     */
+    private static Locations queryUniformLocations(int program) {
+        final int count = glGetProgrami(program, GL_ACTIVE_UNIFORMS);
+        final Locations locations = new Locations(count);
+        try (MemoryStack stack = stackPush()) {
+            final IntBuffer size = stack.mallocInt(1), type = stack.mallocInt(1);
+            for (int i = 0; i < count; i++) {
+                final String name = glGetActiveUniform(program, i, size, type);
+                final int location = glGetUniformLocation(program, name);
+                // Uniforms of interface blocks have no location
+                if (location < 0)
+                    continue;
+                locations.add(name, location);
+                if (!name.endsWith("[0]"))
+                    continue;
+                final String array = name.substring(0, name.length() - 3);
+                locations.add(array, location);
+                for (int element = 1; element < size.get(0); element++) {
+                    final String elementName = array + '[' + element + ']';
+                    locations.add(elementName, glGetUniformLocation(program, elementName));
+                }
+            }
+        }
+        return locations;
+    }
+
+    private static Locations queryAttribLocations(int program) {
+        final int count = glGetProgrami(program, GL_ACTIVE_ATTRIBUTES);
+        final Locations locations = new Locations(count);
+        try (MemoryStack stack = stackPush()) {
+            final IntBuffer size = stack.mallocInt(1), type = stack.mallocInt(1);
+            for (int i = 0; i < count; i++) {
+                final String name = glGetActiveAttrib(program, i, size, type);
+                locations.add(name, glGetAttribLocation(program, name));
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * The locations of a program in arrays sorted by name, so that they are looked up without hashing the name or
+     * boxing the location.
+     */
+    private static final class Locations {
+        private String[] names;
+        private int[] locations;
+        private int size;
+
+        private Locations(int capacity) {
+            names = new String[java.lang.Math.max(capacity, 1)];
+            locations = new int[names.length];
+        }
+
+        /**
+         * Inserts a location at its sorted position. Programs have few uniforms, so this only runs at link time.
+         */
+        private void add(String name, int location) {
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                locations = Arrays.copyOf(locations, size * 2);
+            }
+            int index = size++;
+            while (index > 0 && names[index - 1].compareTo(name) > 0) {
+                names[index] = names[index - 1];
+                locations[index] = locations[index - 1];
+                index--;
+            }
+            names[index] = name;
+            locations[index] = location;
+        }
+
+        private int get(String name) {
+            final int index = Arrays.binarySearch(names, 0, size, name);
+            return index < 0 ? -1 : locations[index];
+        }
     }
 
     private record GLSLDatatype(int size, int bytes, Buffer.Datatype dataType) {
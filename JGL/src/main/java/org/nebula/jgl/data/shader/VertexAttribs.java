@@ -35,6 +35,35 @@ public class VertexAttribs {
         return vertexAttribs[index];
     }
 
+    /**
+     * Gets the vertex attribute with the given name.
+     *
+     * @param name the name of the attribute as declared in the vertex shader
+     * @return the vertex attribute, or null if no attribute with the given name exists
+     */
+    public VertexAttrib get(String name) {
+        for (VertexAttrib va : vertexAttribs)
+            if (va.getName().equals(name))
+                return va;
+        return null;
+    }
+
+    /**
+     * Creates a copy of these vertex attributes which does not contain the attribute with the given name.
+     *
+     * @param name the name of the attribute to exclude
+     * @return the remaining vertex attributes
+     */
+    public VertexAttribs without(String name) {
+        return new VertexAttribs(Arrays.stream(vertexAttribs)
+                .filter(va -> !va.getName().equals(name))
+                .toArray(VertexAttrib[]::new));
+    }
+
+    public int size() {
+        return vertexAttribs.length;
+    }
+
     public void configure(VertexArray vertexArray) {
         int pointer = 0;
 
@@ -0,0 +1,185 @@
+package org.nebula.jgl.data.texture;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <br>
+ * <h2>DirtyRegion</h2>
+ * <br>
+ * The DirtyRegion class accumulates the rectangles of an image that have changed since its last upload, and merges
+ * them so that a frame full of small changes costs few uploads. A new rectangle is merged with an existing one when
+ * their bounding rectangle adds at most {@value #MERGE_WASTE_RATIO} times their area of unchanged pixels, e.g. when one
+ * contains the other or they lie side by side. Rectangles are clamped to the image.
+ * <p>
+ * At most a given number of rectangles is kept: beyond it, the two rectangles whose bounding rectangle wastes the
+ * fewest pixels are merged, so the number of uploads per frame is bounded however scattered the changes are.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see DynamicTexture
+ */
+public class DirtyRegion {
+    public static final int DEFAULT_MAX_RECTANGLES = 16;
+    /**
+     * The fraction of unchanged pixels a merge may add to the changed pixels.
+     */
+    public static final float MERGE_WASTE_RATIO = 0.25f;
+
+    /**
+     * A rectangle in pixels, with its top left corner at {@code x}, {@code y}.
+     */
+    public record Rectangle(int x, int y, int width, int height) {
+        public long area() {
+            return (long) width * height;
+        }
+
+        public Rectangle union(Rectangle other) {
+            final int minX = Math.min(x, other.x), minY = Math.min(y, other.y);
+            return new Rectangle(minX, minY, Math.max(x + width, other.x + other.width) - minX,
+                    Math.max(y + height, other.y + other.height) - minY);
+        }
+
+        public long intersectionArea(Rectangle other) {
+            final long overlapX = Math.min(x + width, other.x + other.width) - Math.max(x, other.x);
+            final long overlapY = Math.min(y + height, other.y + other.height) - Math.max(y, other.y);
+            return overlapX > 0 && overlapY > 0 ? overlapX * overlapY : 0;
+        }
+
+        /**
+         * Gets the number of pixels the union of the rectangles covers that neither of them does.
+         */
+        private long waste(Rectangle other) {
+            return union(other).area() - covered(other);
+        }
+
+        private long covered(Rectangle other) {
+            return area() + other.area() - intersectionArea(other);
+        }
+    }
+
+    private final int width, height, maxRectangles;
+    private final List<Rectangle> rectangles;
+
+    public DirtyRegion(int width, int height) {
+        this(width, height, DEFAULT_MAX_RECTANGLES);
+    }
+
+    /**
+     * Constructs an empty DirtyRegion.
+     *
+     * @param width         The width of the image in pixels.
+     * @param height        The height of the image in pixels.
+     * @param maxRectangles The maximal number of rectangles, i.e. of uploads per frame.
+     */
+    public DirtyRegion(int width, int height, int maxRectangles) {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Invalid image size: " + width + "x" + height);
+        if (maxRectangles <= 0)
+            throw new IllegalArgumentException("Max rectangle count must be positive: " + maxRectangles);
+        this.width = width;
+        this.height = height;
+        this.maxRectangles = maxRectangles;
+        this.rectangles = new ArrayList<>(maxRectangles + 1);
+    }
+
+    /**
+     * Marks a rectangle as changed.
+     *
+     * @param x      The left edge in pixels.
+     * @param y      The top edge in pixels.
+     * @param width  The width in pixels.
+     * @param height The height in pixels.
+     */
+    public void add(int x, int y, int width, int height) {
+        final int minX = Math.max(x, 0), minY = Math.max(y, 0);
+        final int maxX = (int) Math.min((long) x + width, this.width), maxY = (int) Math.min((long) y + height,
+                this.height);
+        if (maxX <= minX || maxY <= minY)
+            return;
+
+        Rectangle rectangle = new Rectangle(minX, minY, maxX - minX, maxY - minY);
+        // Merging may grow the rectangle over others, so merge until nothing is close enough
+        for (int i = 0; i < rectangles.size(); i++) {
+            final Rectangle other = rectangles.get(i);
+            if (other.waste(rectangle) <= other.covered(rectangle) * MERGE_WASTE_RATIO) {
+                rectangle = rectangle.union(other);
+                rectangles.remove(i);
+                i = -1;
+            }
+        }
+        rectangles.add(rectangle);
+
+        while (rectangles.size() > maxRectangles)
+            mergeCheapestPair();
+    }
+
+    /**
+     * Marks the whole image as changed.
+     */
+    public void invalidate() {
+        rectangles.clear();
+        rectangles.add(new Rectangle(0, 0, width, height));
+    }
+
+    private void mergeCheapestPair() {
+        int first = 0, second = 1;
+        long cheapest = Long.MAX_VALUE;
+        for (int i = 0; i < rectangles.size(); i++)
+            for (int j = i + 1; j < rectangles.size(); j++) {
+                final long waste = rectangles.get(i).waste(rectangles.get(j));
+                if (waste < cheapest) {
+                    cheapest = waste;
+                    first = i;
+                    second = j;
+                }
+            }
+        final Rectangle merged = rectangles.get(first).union(rectangles.get(second));
+        rectangles.remove(second);
+        rectangles.remove(first);
+        // Re-adding merges it with rectangles it now overlaps
+        add(merged.x, merged.y, merged.width, merged.height);
+    }
+
+    /**
+     * Gets the changed rectangles, which may overlap.
+     *
+     * @return An unmodifiable view of the rectangles.
+     */
+    public List<Rectangle> getRectangles() {
+        return Collections.unmodifiableList(rectangles);
+    }
+
+    /**
+     * Gets the number of pixels an upload of all rectangles covers.
+     *
+     * @return The sum of the rectangle areas.
+     */
+    public long getArea() {
+        long area = 0;
+        for (Rectangle rectangle : rectangles)
+            area += rectangle.area();
+        return area;
+    }
+
+    public boolean isEmpty() {
+        return rectangles.isEmpty();
+    }
+
+    public void clear() {
+        rectangles.clear();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getMaxRectangles() {
+        return maxRectangles;
+    }
+}
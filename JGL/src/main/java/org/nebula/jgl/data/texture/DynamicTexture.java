@@ -0,0 +1,159 @@
+package org.nebula.jgl.data.texture;
+
+import org.nebula.base.interfaces.IDisposable;
+import org.nebula.base.util.ResourceRegistry;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * <br>
+ * <h2>DynamicTexture</h2>
+ * <br>
+ * The DynamicTexture class keeps a client-side copy of a texture that is changed every now and then, e.g. a painted
+ * canvas, a minimap or a tiled map streamed in piece by piece. Changes are made to the copy and marked in a
+ * {@link DirtyRegion}, {@link #flush()} then uploads only the changed rectangles, straight out of the copy.
+ * <p>
+ * If the changed rectangles cover at least {@value #FULL_UPLOAD_RATIO} of the texture, the whole texture is uploaded
+ * at once instead. Mip levels, if the sampler state uses them, are regenerated once per flush.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see Texture#update(int, int, int, int, ByteBuffer, int)
+ */
+public class DynamicTexture implements IDisposable {
+    public static final float FULL_UPLOAD_RATIO = 0.5f;
+
+    private final Texture texture;
+    private final ByteBuffer pixels;
+    private final DirtyRegion dirtyRegion;
+    private long uploadedBytes;
+
+    public DynamicTexture(int width, int height, int channels) {
+        this(width, height, channels, SamplerState.LINEAR, DirtyRegion.DEFAULT_MAX_RECTANGLES);
+    }
+
+    /**
+     * Constructs a DynamicTexture with cleared pixels.
+     *
+     * @param width         The width in pixels.
+     * @param height        The height in pixels.
+     * @param channels      The number of channels, 3 for RGB or 4 for RGBA.
+     * @param samplerState  How the texture is sampled.
+     * @param maxRectangles The maximal number of uploads per flush.
+     */
+    public DynamicTexture(int width, int height, int channels, SamplerState samplerState, int maxRectangles) {
+        if (channels != 3 && channels != 4)
+            throw new IllegalArgumentException("Channel count must be 3 or 4: " + channels);
+        this.dirtyRegion = new DirtyRegion(width, height, maxRectangles);
+        this.pixels = memCalloc(Math.multiplyExact(Math.multiplyExact(width, height), channels));
+        this.texture = new Texture(width, height, channels, pixels, samplerState);
+        texture.unbind();
+        ResourceRegistry.register(this, ResourceRegistry.Memory.NATIVE, pixels.capacity());
+    }
+
+    /**
+     * Gets the client-side copy of the pixels, row by row with one byte per channel. Changes have to be marked with
+     * {@link #markDirty(int, int, int, int)} to be uploaded.
+     *
+     * @return The pixels.
+     */
+    public ByteBuffer getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Marks a rectangle of the pixels as changed.
+     *
+     * @param x      The left edge in pixels.
+     * @param y      The top edge in pixels.
+     * @param width  The width in pixels.
+     * @param height The height in pixels.
+     */
+    public void markDirty(int x, int y, int width, int height) {
+        dirtyRegion.add(x, y, width, height);
+    }
+
+    /**
+     * Copies tightly packed pixels into a rectangle of the client-side copy and marks it as changed.
+     *
+     * @param x      The left edge in pixels.
+     * @param y      The top edge in pixels.
+     * @param width  The width in pixels.
+     * @param height The height in pixels.
+     * @param source The pixels of the rectangle, from the buffer position on.
+     */
+    public void write(int x, int y, int width, int height, ByteBuffer source) {
+        final int textureWidth = texture.getWidth(), channels = texture.getChannels();
+        if (x < 0 || y < 0 || width < 0 || height < 0 || x + width > textureWidth || y + height > texture.getHeight())
+            throw new IllegalArgumentException("Rectangle " + x + ", " + y + ", " + width + "x" + height +
+                    " is out of the bounds of the " + textureWidth + "x" + texture.getHeight() + " texture");
+        final int rowBytes = width * channels;
+        if (source.remaining() < (long) rowBytes * height)
+            throw new IllegalArgumentException("Rectangle needs " + (long) rowBytes * height + " bytes, but only " +
+                    source.remaining() + " remain");
+
+        final long from = memAddress(source), to = memAddress(pixels);
+        for (int row = 0; row < height; row++)
+            memCopy(from + (long) row * rowBytes, to + ((long) (y + row) * textureWidth + x) * channels, rowBytes);
+        dirtyRegion.add(x, y, width, height);
+    }
+
+    /**
+     * Uploads the changed rectangles, to be called once per frame before the texture is drawn.
+     *
+     * @return The number of uploads.
+     */
+    public int flush() {
+        if (dirtyRegion.isEmpty())
+            return 0;
+
+        final int width = texture.getWidth(), channels = texture.getChannels();
+        int uploads = 0;
+        if (dirtyRegion.getArea() >= (long) (width * (double) texture.getHeight() * FULL_UPLOAD_RATIO)) {
+            texture.update(0, 0, width, texture.getHeight(), pixels);
+            uploadedBytes += pixels.capacity();
+            uploads++;
+        } else {
+            for (DirtyRegion.Rectangle rectangle : dirtyRegion.getRectangles()) {
+                final int offset = (rectangle.y() * width + rectangle.x()) * channels;
+                texture.update(rectangle.x(), rectangle.y(), rectangle.width(), rectangle.height(),
+                        pixels.slice(offset, pixels.capacity() - offset), width);
+                uploadedBytes += rectangle.area() * channels;
+                uploads++;
+            }
+        }
+        texture.generateMipmaps();
+        texture.unbind();
+        dirtyRegion.clear();
+        return uploads;
+    }
+
+    public Texture getTexture() {
+        return texture;
+    }
+
+    public DirtyRegion getDirtyRegion() {
+        return dirtyRegion;
+    }
+
+    /**
+     * Gets the number of bytes uploaded by {@link #flush()} so far.
+     *
+     * @return The uploaded bytes.
+     */
+    public long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    /**
+     * Disposes the texture and frees the client-side copy.
+     */
+    @Override
+    public void dispose() {
+        texture.dispose();
+        memFree(pixels);
+        ResourceRegistry.unregister(this);
+    }
+}
@@ -0,0 +1,108 @@
+package org.nebula.jgl.data.texture;
+
+import org.nebula.base.interfaces.IDisposable;
+import org.nebula.base.util.ResourceRegistry;
+import org.nebula.jgl.JGL;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.EXTTextureFilterAnisotropic.GL_TEXTURE_MAX_ANISOTROPY_EXT;
+import static org.lwjgl.opengl.GL33C.*;
+
+/**
+ * <br>
+ * <h2>Sampler</h2>
+ * <br>
+ * The Sampler class wraps an OpenGL sampler object. Samplers are shared: {@link #get(SamplerState)} returns the same
+ * sampler for equal states, so any number of textures with a handful of distinct states only create a handful of
+ * samplers.
+ * <p>
+ * A sampler bound to a texture unit overrides the sampling parameters of every texture bound to that unit.
+ * {@link Texture#bindToSlot(int)} binds the sampler of the texture along with it.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see SamplerState
+ */
+public final class Sampler implements IDisposable {
+    private static final Map<SamplerState, Sampler> SAMPLERS = new HashMap<>();
+    private final int id;
+    private final SamplerState state;
+    private boolean disposed;
+
+    private Sampler(SamplerState state) {
+        this.state = state;
+        id = glGenSamplers();
+        glSamplerParameteri(id, GL_TEXTURE_MIN_FILTER, state.minFilter());
+        glSamplerParameteri(id, GL_TEXTURE_MAG_FILTER, state.magFilter());
+        glSamplerParameteri(id, GL_TEXTURE_WRAP_S, state.wrapS());
+        glSamplerParameteri(id, GL_TEXTURE_WRAP_T, state.wrapT());
+        if (state.anisotropy() > 1 && JGL.isAnisotropicFilteringSupported())
+            glSamplerParameterf(id, GL_TEXTURE_MAX_ANISOTROPY_EXT, Math.min(state.anisotropy(), JGL.getMaxAnisotropy()));
+        ResourceRegistry.register(this, ResourceRegistry.Memory.GPU, 0);
+    }
+
+    /**
+     * Gets the shared sampler of a state, creating it on first use.
+     *
+     * @param state The sampler state.
+     * @return The sampler.
+     */
+    public static Sampler get(SamplerState state) {
+        Sampler sampler = SAMPLERS.get(state);
+        if (sampler == null) {
+            sampler = new Sampler(state);
+            SAMPLERS.put(state, sampler);
+        }
+        return sampler;
+    }
+
+    /**
+     * Gets the number of live samplers, i.e. the number of distinct states in use.
+     *
+     * @return The sampler count.
+     */
+    public static int getSamplerCount() {
+        return SAMPLERS.size();
+    }
+
+    /**
+     * Deletes all samplers, e.g. before the OpenGL context is destroyed. Textures get new samplers when they are
+     * bound again.
+     */
+    public static void disposeAll() {
+        for (Sampler sampler : SAMPLERS.values().toArray(new Sampler[0]))
+            sampler.dispose();
+    }
+
+    public void bind(int unit) {
+        glBindSampler(unit, id);
+    }
+
+    public static void unbind(int unit) {
+        glBindSampler(unit, 0);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public SamplerState getState() {
+        return state;
+    }
+
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    @Override
+    public void dispose() {
+        if (disposed)
+            return;
+        disposed = true;
+        glDeleteSamplers(id);
+        SAMPLERS.remove(state);
+        ResourceRegistry.unregister(this);
+    }
+}
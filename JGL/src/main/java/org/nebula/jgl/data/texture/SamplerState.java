@@ -0,0 +1,86 @@
+package org.nebula.jgl.data.texture;
+
+import static org.lwjgl.opengl.GL33C.*;
+
+/**
+ * <br>
+ * <h2>SamplerState</h2>
+ * <br>
+ * The SamplerState record describes how a texture is sampled: its minification and magnification filters, its wrap
+ * modes and its degree of anisotropy. Equal states share one {@link Sampler}, so a state should be reused rather than
+ * varied per texture.
+ * <p>
+ * A texture whose state uses a mipmap minification filter gets a full mip chain: cooked textures bring their own
+ * levels, all others generate them on upload.
+ * </p>
+ *
+ * @param minFilter  The minification filter, e.g. {@code GL_LINEAR_MIPMAP_LINEAR}.
+ * @param magFilter  The magnification filter, {@code GL_NEAREST} or {@code GL_LINEAR}.
+ * @param wrapS      The wrap mode along the s axis, e.g. {@code GL_REPEAT}.
+ * @param wrapT      The wrap mode along the t axis.
+ * @param anisotropy The degree of anisotropy, 1 to disable anisotropic filtering. It is clamped to the maximum of the
+ *                   context.
+ * @author Anton Schoenfeld
+ * @see Sampler
+ * @see Texture
+ */
+public record SamplerState(int minFilter, int magFilter, int wrapS, int wrapT, float anisotropy) {
+    public static final SamplerState NEAREST = new SamplerState(GL_NEAREST, GL_NEAREST, GL_REPEAT, GL_REPEAT, 1);
+    public static final SamplerState LINEAR = new SamplerState(GL_LINEAR, GL_LINEAR, GL_REPEAT, GL_REPEAT, 1);
+    /**
+     * Nearest filtering with the nearest mip level, which keeps pixel art crisp without aliasing when minified.
+     */
+    public static final SamplerState NEAREST_MIPMAPPED = new SamplerState(GL_NEAREST_MIPMAP_NEAREST, GL_NEAREST,
+            GL_REPEAT, GL_REPEAT, 1);
+    /**
+     * Linear filtering within and between mip levels.
+     */
+    public static final SamplerState TRILINEAR = new SamplerState(GL_LINEAR_MIPMAP_LINEAR, GL_LINEAR, GL_REPEAT,
+            GL_REPEAT, 1);
+
+    public SamplerState {
+        if (magFilter != GL_NEAREST && magFilter != GL_LINEAR)
+            throw new IllegalArgumentException("Invalid magnification filter: " + magFilter);
+        if (!(anisotropy >= 1))
+            throw new IllegalArgumentException("Anisotropy must be at least 1: " + anisotropy);
+    }
+
+    /**
+     * Gets the state for the filtering of the old {@code useAntiAliasing} flag.
+     *
+     * @param useAntiAliasing Whether the texture is filtered linearly instead of by the nearest pixel.
+     * @param mipmapped       Whether the texture has mip levels to filter between.
+     * @return The sampler state.
+     */
+    public static SamplerState of(boolean useAntiAliasing, boolean mipmapped) {
+        if (mipmapped)
+            return useAntiAliasing ? TRILINEAR : NEAREST_MIPMAPPED;
+        return useAntiAliasing ? LINEAR : NEAREST;
+    }
+
+    /**
+     * Gets whether the minification filter samples mip levels.
+     *
+     * @return Whether the texture needs a mip chain.
+     */
+    public boolean usesMipmaps() {
+        return minFilter == GL_NEAREST_MIPMAP_NEAREST || minFilter == GL_LINEAR_MIPMAP_NEAREST
+                || minFilter == GL_NEAREST_MIPMAP_LINEAR || minFilter == GL_LINEAR_MIPMAP_LINEAR;
+    }
+
+    public SamplerState withFilters(int minFilter, int magFilter) {
+        return new SamplerState(minFilter, magFilter, wrapS, wrapT, anisotropy);
+    }
+
+    public SamplerState withWrap(int wrap) {
+        return new SamplerState(minFilter, magFilter, wrap, wrap, anisotropy);
+    }
+
+    public SamplerState withWrap(int wrapS, int wrapT) {
+        return new SamplerState(minFilter, magFilter, wrapS, wrapT, anisotropy);
+    }
+
+    public SamplerState withAnisotropy(float anisotropy) {
+        return new SamplerState(minFilter, magFilter, wrapS, wrapT, anisotropy);
+    }
+}
@@ -1,14 +1,27 @@
 package org.nebula.jgl.data.texture;
 
 import org.nebula.base.interfaces.IDisposable;
+import org.nebula.base.util.ResourceRegistry;
 import org.nebula.io.ByteBufferedImage;
+import org.nebula.io.CookedTexture;
 import org.nebula.io.Files;
 
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
 import static org.lwjgl.opengl.GL33C.*;
 import static org.lwjgl.system.MemoryUtil.NULL;
 
 public class Texture implements IDisposable {
+    /**
+     * The texture unit made active by the last {@link #bindToSlot(int)} and the units with a bound sampler.
+     */
+    private static final BitSet UNITS_WITH_SAMPLER = new BitSet();
+    private static int activeUnit;
     private final int id, width, height, channels;
+    private final long sizeInBytes;
+    private final SamplerState samplerState;
+    private Sampler sampler;
 
 
     public Texture(int width, int height) {
@@ -16,15 +29,17 @@ public class Texture implements IDisposable {
         this.width = width;
         this.height = height;
         this.channels = 3;
+        this.sizeInBytes = (long) width * height * channels;
+        this.samplerState = SamplerState.LINEAR;
 
         bind();
         glTexImage2D(
                 GL_TEXTURE_2D, 0, GL_RGB, width, height, 0,
                 GL_RGB, GL_UNSIGNED_BYTE, NULL
         );
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+        applySamplerState(1);
         unbind();
+        ResourceRegistry.register(this, ResourceRegistry.Memory.GPU, sizeInBytes);
     }
 
     public Texture(final String resourceName) {
@@ -39,35 +54,235 @@ public class Texture implements IDisposable {
         this(Files.readImageFromResource(resourceName), useAntiAliasing);
     }
 
+    public Texture(final String resourceName, SamplerState samplerState) {
+        this(Files.readImageFromResource(resourceName), samplerState);
+    }
+
     public Texture(final ByteBufferedImage image, boolean useAntiAliasing) {
+        this(image, SamplerState.of(useAntiAliasing, false));
+    }
+
+    public Texture(final ByteBufferedImage image, SamplerState samplerState) {
+        this(image.getWidth(), image.getHeight(), image.getChannels(), image.getBytes(), samplerState);
+        image.dispose();
+    }
+
+    /**
+     * Creates a texture with uninitialized storage for its full size level, to be filled with
+     * {@code glTexSubImage2D}, e.g. by a {@link TextureUploader}. If the sampler state uses mipmaps, the mip levels are
+     * allocated as well and have to be generated again after the upload. No pixel unpack buffer may be bound, OpenGL
+     * would read the storage from it.
+     *
+     * @param width        The width in pixels.
+     * @param height       The height in pixels.
+     * @param channels     The number of channels, 3 for RGB or 4 for RGBA.
+     * @param samplerState How the texture is sampled.
+     */
+    public Texture(int width, int height, int channels, SamplerState samplerState) {
+        this(width, height, channels, (ByteBuffer) null, samplerState);
+    }
+
+    /**
+     * Creates a texture from pixels in memory.
+     *
+     * @param width           The width in pixels.
+     * @param height          The height in pixels.
+     * @param channels        The number of channels, 3 for RGB or 4 for RGBA.
+     * @param pixels          The pixels, row by row with one byte per channel.
+     * @param useAntiAliasing Whether the texture is filtered linearly instead of by the nearest pixel.
+     */
+    public Texture(int width, int height, int channels, ByteBuffer pixels, boolean useAntiAliasing) {
+        this(width, height, channels, pixels, SamplerState.of(useAntiAliasing, false));
+    }
+
+    /**
+     * Creates a texture from pixels in memory. If the sampler state uses mipmaps, the mip chain is generated with
+     * {@code glGenerateMipmap}.
+     *
+     * @param width        The width in pixels.
+     * @param height       The height in pixels.
+     * @param channels     The number of channels, 3 for RGB or 4 for RGBA.
+     * @param pixels       The pixels, row by row with one byte per channel.
+     * @param samplerState How the texture is sampled.
+     */
+    public Texture(int width, int height, int channels, ByteBuffer pixels, SamplerState samplerState) {
         id = glGenTextures();
         glBindTexture(GL_TEXTURE_2D, id);
 
-        // Set texture parameters
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT); // Repeat texture when stretched
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT);
-        final int magFilter = useAntiAliasing ? GL_LINEAR : GL_NEAREST;
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, magFilter);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, magFilter);
+        this.width = width;
+        this.height = height;
+        this.channels = channels;
+        this.samplerState = samplerState;
+
+        final int colorMode = channels == 4 ? GL_RGBA : GL_RGB;
+        // Rows are tightly packed, which breaks the default alignment of four bytes for RGB images of odd widths
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        glTexImage2D(GL_TEXTURE_2D, 0, colorMode, width, height, 0, colorMode, GL_UNSIGNED_BYTE, pixels);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 4);
+        final long baseSize = (long) width * height * channels;
+        if (samplerState.usesMipmaps()) {
+            glGenerateMipmap(GL_TEXTURE_2D);
+            // The mip chain adds a third of the base level
+            sizeInBytes = baseSize + baseSize / 3;
+        } else {
+            sizeInBytes = baseSize;
+        }
+        applySamplerState(samplerState.usesMipmaps() ? getMipCount(width, height) : 1);
+        ResourceRegistry.register(this, ResourceRegistry.Memory.GPU, sizeInBytes);
+    }
 
-        width = image.getWidth();
-        height = image.getHeight();
-        channels = image.getChannels();
+    /**
+     * Creates a texture from a cooked texture, uploading every cooked mip level as it is stored.
+     *
+     * @param cooked          The cooked texture, which is disposed after the upload.
+     * @param useAntiAliasing Whether the texture is filtered linearly instead of by the nearest pixel.
+     */
+    public Texture(final CookedTexture cooked, boolean useAntiAliasing) {
+        this(cooked, SamplerState.of(useAntiAliasing, cooked.getMipCount() > 1));
+    }
 
-        final int colorMode = image.getChannels() == 4 ? GL_RGBA : GL_RGB;
-        glTexImage2D(GL_TEXTURE_2D, 0, colorMode, image.getWidth(), image.getHeight(),
-                0, colorMode, GL_UNSIGNED_BYTE, image.getBytes());
+    /**
+     * Creates a texture from a cooked texture, uploading every cooked mip level as it is stored. If the sampler state
+     * uses mipmaps but only the full size level was cooked, the mip chain is generated with {@code glGenerateMipmap}.
+     *
+     * @param cooked       The cooked texture, which is disposed after the upload.
+     * @param samplerState How the texture is sampled.
+     */
+    public Texture(final CookedTexture cooked, SamplerState samplerState) {
+        id = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, id);
 
-        image.dispose();
+        this.width = cooked.getWidth();
+        this.height = cooked.getHeight();
+        this.channels = cooked.getChannels();
+        this.samplerState = samplerState;
+
+        glPixelStorei(GL_UNPACK_ALIGNMENT, CookedTexture.ROW_ALIGNMENT);
+        int mipCount = samplerState.usesMipmaps() ? cooked.getMipCount() : 1;
+        long bytes = 0;
+        for (int level = 0; level < mipCount; level++) {
+            final ByteBuffer pixels = cooked.getLevel(level);
+            glTexImage2D(GL_TEXTURE_2D, level, cooked.getInternalFormat(), cooked.getLevelWidth(level),
+                    cooked.getLevelHeight(level), 0, cooked.getFormat(), GL_UNSIGNED_BYTE, pixels);
+            bytes += pixels.remaining();
+        }
+        cooked.dispose();
+        if (samplerState.usesMipmaps() && mipCount == 1) {
+            glGenerateMipmap(GL_TEXTURE_2D);
+            mipCount = getMipCount(width, height);
+            bytes += bytes / 3;
+        }
+        this.sizeInBytes = bytes;
+        applySamplerState(mipCount);
+        ResourceRegistry.register(this, ResourceRegistry.Memory.GPU, sizeInBytes);
+    }
+
+    private static int getMipCount(int width, int height) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+    }
+
+    /**
+     * Sets the sampling parameters of the bound texture to its state, for when it is bound without its sampler, and
+     * limits sampling to the uploaded mip levels.
+     */
+    private void applySamplerState(int mipCount) {
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, samplerState.wrapS());
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, samplerState.wrapT());
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, samplerState.magFilter());
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, samplerState.minFilter());
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, mipCount - 1);
+        sampler = Sampler.get(samplerState);
+    }
+
+    /**
+     * Replaces a region of the full size level with tightly packed pixels.
+     *
+     * @param x      The left edge of the region in pixels.
+     * @param y      The top edge of the region in pixels.
+     * @param width  The width of the region in pixels.
+     * @param height The height of the region in pixels.
+     * @param pixels The pixels of the region, row by row with one byte per channel, from the buffer position on.
+     * @see #update(int, int, int, int, ByteBuffer, int)
+     */
+    public void update(int x, int y, int width, int height, ByteBuffer pixels) {
+        update(x, y, width, height, pixels, width);
+    }
+
+    /**
+     * Replaces a region of the full size level with pixels taken from a larger image, so that a region of a
+     * client-side copy can be uploaded without copying it out first. Rows are read {@code rowLength} pixels apart and
+     * need no alignment. Mip levels are not updated, call {@link #generateMipmaps()} after the last update of a frame if
+     * the sampler state uses them.
+     *
+     * @param x         The left edge of the region in pixels.
+     * @param y         The top edge of the region in pixels.
+     * @param width     The width of the region in pixels.
+     * @param height    The height of the region in pixels.
+     * @param pixels    The pixels, from the buffer position on, where the top left pixel of the region is.
+     * @param rowLength The number of pixels from the start of one row to the start of the next in {@code pixels}.
+     */
+    public void update(int x, int y, int width, int height, ByteBuffer pixels, int rowLength) {
+        if (x < 0 || y < 0 || width < 0 || height < 0 || x + width > this.width || y + height > this.height)
+            throw new IllegalArgumentException("Region " + x + ", " + y + ", " + width + "x" + height +
+                    " is out of the bounds of the " + this.width + "x" + this.height + " texture");
+        if (rowLength < width)
+            throw new IllegalArgumentException("Row length " + rowLength + " is less than the width " + width);
+        if (width == 0 || height == 0)
+            return;
+        final long required = ((long) (height - 1) * rowLength + width) * channels;
+        if (pixels.remaining() < required)
+            throw new IllegalArgumentException("Region needs " + required + " bytes, but only " + pixels.remaining() +
+                    " remain");
+
+        glBindTexture(GL_TEXTURE_2D, id);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        glPixelStorei(GL_UNPACK_ROW_LENGTH, rowLength == width ? 0 : rowLength);
+        glTexSubImage2D(GL_TEXTURE_2D, 0, x, y, width, height, channels == 4 ? GL_RGBA : GL_RGB, GL_UNSIGNED_BYTE,
+                pixels);
+        glPixelStorei(GL_UNPACK_ROW_LENGTH, 0);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 4);
     }
 
+    /**
+     * Regenerates the mip levels from the full size level, e.g. after it has been updated. Does nothing if the sampler
+     * state does not use mipmaps.
+     */
+    public void generateMipmaps() {
+        if (!samplerState.usesMipmaps())
+            return;
+        glBindTexture(GL_TEXTURE_2D, id);
+        glGenerateMipmap(GL_TEXTURE_2D);
+    }
+
+    /**
+     * Binds the texture to the active texture unit without a sampler, so that it is sampled with its own parameters.
+     * A sampler left on the unit by {@link #bindToSlot(int)} is unbound, it would override them.
+     */
     public void bind() {
+        unbindSampler();
         glBindTexture(GL_TEXTURE_2D, id);
     }
 
+    /**
+     * Binds the texture and its shared {@link Sampler} to a texture unit, which becomes the active unit.
+     *
+     * @param slot The index of the texture unit.
+     */
     public void bindToSlot(int slot) {
         glActiveTexture(GL_TEXTURE0 + slot);
+        activeUnit = slot;
         glBindTexture(GL_TEXTURE_2D, id);
+        if (sampler.isDisposed())
+            sampler = Sampler.get(samplerState);
+        sampler.bind(slot);
+        UNITS_WITH_SAMPLER.set(slot);
+    }
+
+    private static void unbindSampler() {
+        if (UNITS_WITH_SAMPLER.get(activeUnit)) {
+            Sampler.unbind(activeUnit);
+            UNITS_WITH_SAMPLER.clear(activeUnit);
+        }
     }
 
     public int getId() {
@@ -86,12 +301,27 @@ public class Texture implements IDisposable {
         return channels;
     }
 
+    /**
+     * Gets the estimated GPU memory of the texture, including all uploaded mip levels.
+     *
+     * @return The size in bytes.
+     */
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public SamplerState getSamplerState() {
+        return samplerState;
+    }
+
     @Override
     public void dispose() {
         glDeleteTextures(id);
+        ResourceRegistry.unregister(this);
     }
 
     public void unbind() {
+        unbindSampler();
         glBindTexture(GL_TEXTURE_2D, 0);
     }
 }
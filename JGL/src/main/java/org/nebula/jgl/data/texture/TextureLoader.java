@@ -0,0 +1,335 @@
+package org.nebula.jgl.data.texture;
+
+import org.nebula.base.interfaces.IDisposable;
+import org.nebula.io.ByteBufferedImage;
+import org.nebula.io.FileBuffer;
+import org.nebula.io.Files;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+/**
+ * <br>
+ * <h2>TextureLoader</h2>
+ * <br>
+ * The TextureLoader class loads textures without blocking the render thread. Image files are read into direct buffers
+ * on virtual threads and decoded with stb on a bounded pool of platform threads, only the upload to OpenGL happens on
+ * the render thread. Uploads go through the pixel unpack buffers of a {@link TextureUploader}, so the transfer to the
+ * GPU overlaps with rendering.
+ * <p>
+ * Every load returns a {@link Handle} right away, which serves a placeholder texture until the texture is ready.
+ * Decoded images are queued and uploaded by {@link #processUploads()}, which is meant to be called once per frame and
+ * stops when the upload budget of the frame in bytes or time is spent, so that many finished loads at once do not
+ * cause a hitch. At least one texture is uploaded per call, even if it exceeds the budget, unless all buffers of the
+ * uploader are still in flight.
+ * </p>
+ * <p>
+ * Except for {@link #load(String)} and {@link #loadFile(String)}, which can be called from any thread, all methods must
+ * be called on the thread owning the OpenGL context. The futures of the handles are completed on that thread as well,
+ * so their callbacks may use OpenGL.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see Texture
+ * @see Files#decodeImage(ByteBuffer)
+ */
+public class TextureLoader implements IDisposable {
+    public static final long DEFAULT_UPLOAD_BUDGET_BYTES = 16 << 20;
+    public static final long DEFAULT_UPLOAD_BUDGET_NANOS = 2_000_000;
+
+    /**
+     * A texture that is being loaded.
+     */
+    public static final class Handle {
+        private final String name;
+        private final SamplerState samplerState;
+        private final Texture placeholder;
+        private final CompletableFuture<Texture> future;
+        private ByteBufferedImage image;
+        private Throwable error;
+        private volatile Texture texture;
+
+        private Handle(String name, SamplerState samplerState, Texture placeholder) {
+            this.name = name;
+            this.samplerState = samplerState;
+            this.placeholder = placeholder;
+            this.future = new CompletableFuture<>();
+        }
+
+        /**
+         * Gets the texture if it is ready, or the placeholder otherwise.
+         *
+         * @return The texture to draw.
+         */
+        public Texture get() {
+            final Texture texture = this.texture;
+            return texture != null ? texture : placeholder;
+        }
+
+        public boolean isReady() {
+            return texture != null;
+        }
+
+        public boolean isFailed() {
+            return future.isCompletedExceptionally();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets a future that is completed with the texture after it has been uploaded, or exceptionally if it could not
+         * be read or decoded.
+         *
+         * @return The future of the texture.
+         */
+        public CompletableFuture<Texture> getFuture() {
+            return future;
+        }
+    }
+
+    private final ExecutorService ioExecutor, decodeExecutor;
+    private final Queue<Handle> uploads;
+    private final TextureUploader uploader;
+    private final AtomicInteger pendingCount;
+    private final Texture placeholder;
+    private long uploadBudgetBytes, uploadBudgetNanos;
+    private volatile boolean disposed;
+
+    /**
+     * Constructs a TextureLoader that decodes on half of the available processors.
+     */
+    public TextureLoader() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * Constructs a TextureLoader.
+     *
+     * @param decodeThreads The number of threads decoding images.
+     */
+    public TextureLoader(int decodeThreads) {
+        if (decodeThreads <= 0)
+            throw new IllegalArgumentException("Decode thread count must be positive: " + decodeThreads);
+
+        this.ioExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        this.decodeExecutor = Executors.newFixedThreadPool(decodeThreads,
+                Thread.ofPlatform().name("TextureLoader-decode-", 0).daemon().factory());
+        this.uploads = new ConcurrentLinkedQueue<>();
+        this.pendingCount = new AtomicInteger();
+        this.uploader = new TextureUploader();
+        this.placeholder = createPlaceholder();
+        this.uploadBudgetBytes = DEFAULT_UPLOAD_BUDGET_BYTES;
+        this.uploadBudgetNanos = DEFAULT_UPLOAD_BUDGET_NANOS;
+    }
+
+    /**
+     * Creates a 2x2 magenta and black checkerboard, which stands out as missing texture.
+     */
+    private static Texture createPlaceholder() {
+        final ByteBuffer pixels = memAlloc(4 * 4);
+        try {
+            for (int i = 0; i < 4; i++) {
+                final byte value = (byte) ((i + i / 2) % 2 == 0 ? 0xFF : 0);
+                pixels.put(value).put((byte) 0).put(value).put((byte) 0xFF);
+            }
+            pixels.flip();
+            return new Texture(2, 2, 4, pixels, false);
+        } finally {
+            memFree(pixels);
+        }
+    }
+
+    /**
+     * Starts loading a texture from a resource.
+     *
+     * @param resourceName The name of the image resource.
+     * @return The handle of the texture.
+     */
+    public Handle load(String resourceName) {
+        return load(resourceName, false);
+    }
+
+    public Handle load(String resourceName, boolean useAntiAliasing) {
+        return load(resourceName, SamplerState.of(useAntiAliasing, false));
+    }
+
+    /**
+     * Starts loading a texture from a resource. Mip levels are generated on upload if the state uses them.
+     *
+     * @param resourceName The name of the image resource.
+     * @param samplerState How the texture is sampled.
+     * @return The handle of the texture.
+     */
+    public Handle load(String resourceName, SamplerState samplerState) {
+        return load(resourceName, () -> Files.readResourceBuffer(resourceName), samplerState);
+    }
+
+    /**
+     * Starts loading a texture from a file.
+     *
+     * @param filePath The path of the image file.
+     * @return The handle of the texture.
+     */
+    public Handle loadFile(String filePath) {
+        return loadFile(filePath, false);
+    }
+
+    public Handle loadFile(String filePath, boolean useAntiAliasing) {
+        return loadFile(filePath, SamplerState.of(useAntiAliasing, false));
+    }
+
+    public Handle loadFile(String filePath, SamplerState samplerState) {
+        return load(filePath, () -> Files.readFileBuffer(filePath), samplerState);
+    }
+
+    private Handle load(String name, Supplier<FileBuffer> reader, SamplerState samplerState) {
+        if (disposed)
+            throw new IllegalStateException("TextureLoader is disposed");
+
+        final Handle handle = new Handle(name, samplerState, placeholder);
+        pendingCount.incrementAndGet();
+        CompletableFuture.supplyAsync(reader, ioExecutor)
+                .thenApplyAsync(TextureLoader::decode, decodeExecutor)
+                .whenComplete((image, error) -> {
+                    if (disposed) {
+                        if (image != null)
+                            image.dispose();
+                        return;
+                    }
+                    handle.image = image;
+                    handle.error = error instanceof CompletionException && error.getCause() != null ?
+                            error.getCause() : error;
+                    uploads.add(handle);
+                });
+        return handle;
+    }
+
+    private static ByteBufferedImage decode(FileBuffer file) {
+        try {
+            return Files.decodeImage(file.getBytes());
+        } finally {
+            file.dispose();
+        }
+    }
+
+    /**
+     * Uploads decoded textures until the budget of this frame is spent.
+     *
+     * @return The number of uploaded textures.
+     */
+    public int processUploads() {
+        final long start = System.nanoTime();
+        long bytes = 0;
+        int count = 0;
+        uploader.update();
+
+        Handle handle;
+        while ((handle = uploads.peek()) != null) {
+            if (handle.error != null) {
+                uploads.poll();
+                pendingCount.decrementAndGet();
+                handle.future.completeExceptionally(handle.error);
+                continue;
+            }
+
+            final long size = handle.image.getBytes().remaining();
+            if (count > 0 && (bytes + size > uploadBudgetBytes || System.nanoTime() - start > uploadBudgetNanos))
+                break;
+            if (!uploader.isReady())
+                break;
+
+            uploads.poll();
+            pendingCount.decrementAndGet();
+            final Texture texture = uploader.upload(handle.image, handle.samplerState);
+            handle.image = null;
+            handle.texture = texture;
+            handle.future.complete(texture);
+            bytes += size;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Uploads all textures that have been requested so far, blocking until they are decoded, e.g. behind a loading
+     * screen.
+     */
+    public void finishAll() {
+        while (pendingCount.get() > 0) {
+            if (processUploads() == 0)
+                LockSupport.parkNanos(100_000);
+        }
+    }
+
+    /**
+     * Gets the number of textures that are not yet uploaded.
+     *
+     * @return The number of textures being read, decoded or waiting for their upload.
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Gets the uploader, e.g. to monitor its queue depth and bytes in flight.
+     *
+     * @return The uploader of this loader.
+     */
+    public TextureUploader getUploader() {
+        return uploader;
+    }
+
+    public Texture getPlaceholder() {
+        return placeholder;
+    }
+
+    public long getUploadBudgetBytes() {
+        return uploadBudgetBytes;
+    }
+
+    public void setUploadBudgetBytes(long uploadBudgetBytes) {
+        this.uploadBudgetBytes = uploadBudgetBytes;
+    }
+
+    public long getUploadBudgetNanos() {
+        return uploadBudgetNanos;
+    }
+
+    public void setUploadBudgetNanos(long uploadBudgetNanos) {
+        this.uploadBudgetNanos = uploadBudgetNanos;
+    }
+
+    /**
+     * Stops all loads and disposes the placeholder. Textures that have already been uploaded are owned by their
+     * handles and are not disposed.
+     */
+    @Override
+    public void dispose() {
+        disposed = true;
+        ioExecutor.shutdownNow();
+        decodeExecutor.shutdownNow();
+
+        Handle handle;
+        while ((handle = uploads.poll()) != null) {
+            if (handle.image != null)
+                handle.image.dispose();
+            handle.future.cancel(false);
+        }
+        pendingCount.set(0);
+        uploader.dispose();
+        placeholder.dispose();
+    }
+}
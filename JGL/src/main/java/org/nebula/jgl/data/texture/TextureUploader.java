@@ -0,0 +1,220 @@
+package org.nebula.jgl.data.texture;
+
+import org.nebula.base.interfaces.IDisposable;
+import org.nebula.io.ByteBufferedImage;
+import org.nebula.jgl.data.buffer.Buffer;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL33C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * <br>
+ * <h2>TextureUploader</h2>
+ * <br>
+ * The TextureUploader class uploads decoded images to textures through a ring of pixel unpack buffers. An upload copies
+ * the pixels into a mapped buffer of the ring and issues {@code glTexSubImage2D} from an offset in that buffer, which
+ * returns right away: the driver transfers the pixels to the texture while the frame is rendered, instead of copying
+ * them out of client memory before the call returns.
+ * <p>
+ * A buffer is reused once the GPU has passed the fence placed after its transfer. Uploads are in flight until then,
+ * {@link #getQueueDepth()} and {@link #getBytesInFlight()} tell how many and how large they are. When every buffer is
+ * in flight, {@link #upload(ByteBufferedImage, SamplerState)} returns {@code null} and the image should be queued for a
+ * later frame.
+ * </p>
+ * <p>
+ * All methods must be called on the thread owning the OpenGL context. The returned texture can be drawn at once,
+ * OpenGL orders the draw after the transfer.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see TextureLoader
+ */
+public class TextureUploader implements IDisposable {
+    public static final int DEFAULT_BUFFER_COUNT = 3;
+
+    private static final class Slot {
+        private final Buffer buffer = new Buffer(Buffer.Type.PIXEL_UNPACK_BUFFER);
+        private long capacity, fence, bytes;
+    }
+
+    private final Slot[] slots;
+    private int next, queueDepth;
+    private long bytesInFlight, bytesUploaded;
+
+    /**
+     * Constructs a TextureUploader with {@value DEFAULT_BUFFER_COUNT} buffers.
+     */
+    public TextureUploader() {
+        this(DEFAULT_BUFFER_COUNT);
+    }
+
+    /**
+     * Constructs a TextureUploader. Each buffer grows to the largest image uploaded through it.
+     *
+     * @param bufferCount The number of pixel unpack buffers, i.e. the maximal number of uploads in flight.
+     */
+    public TextureUploader(int bufferCount) {
+        if (bufferCount <= 0)
+            throw new IllegalArgumentException("Buffer count must be positive: " + bufferCount);
+        slots = new Slot[bufferCount];
+        for (int i = 0; i < bufferCount; i++)
+            slots[i] = new Slot();
+    }
+
+    /**
+     * Uploads an image to a new texture if a buffer is free. If the sampler state uses mipmaps, the mip chain is
+     * generated from the uploaded level.
+     *
+     * @param image        The image, which is disposed after the upload.
+     * @param samplerState How the texture is sampled.
+     * @return The texture, or {@code null} if all buffers are in flight and the image was not uploaded.
+     */
+    public Texture upload(ByteBufferedImage image, SamplerState samplerState) {
+        final Slot slot = slots[next];
+        if (!retire(slot))
+            return null;
+
+        final ByteBuffer pixels = image.getBytes();
+        final int size = pixels.remaining();
+        final int width = image.getWidth(), height = image.getHeight(), channels = image.getChannels();
+        // Created before the buffer is bound, otherwise allocating its storage would read from the buffer
+        final Texture texture = new Texture(width, height, channels, samplerState);
+        slot.buffer.bind();
+        if (size > slot.capacity) {
+            slot.buffer.data(size, Buffer.Usage.STREAM_DRAW, Buffer.Datatype.UNSIGNED_BYTE);
+            slot.capacity = size;
+        }
+        // The fence has passed, so the buffer can be written without waiting for the GPU
+        final ByteBuffer mapped = glMapBufferRange(GL_PIXEL_UNPACK_BUFFER, 0, size,
+                GL_MAP_WRITE_BIT | GL_MAP_INVALIDATE_BUFFER_BIT | GL_MAP_UNSYNCHRONIZED_BIT);
+        if (mapped == null) {
+            slot.buffer.unbind();
+            texture.dispose();
+            throw new RuntimeException("Failed to map pixel unpack buffer of " + size + " bytes");
+        }
+        memCopy(memAddress(pixels), memAddress(mapped), size);
+        final boolean intact = glUnmapBuffer(GL_PIXEL_UNPACK_BUFFER);
+
+        texture.bind();
+        final int format = channels == 4 ? GL_RGBA : GL_RGB;
+        // Rows of RGB images are tightly packed, so they are not aligned to the default of four bytes
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        if (intact) {
+            glTexSubImage2D(GL_TEXTURE_2D, 0, 0, 0, width, height, format, GL_UNSIGNED_BYTE, 0L);
+            slot.buffer.unbind();
+        } else {
+            // The buffer contents were lost while mapped, e.g. on a mode switch, so upload from client memory instead
+            slot.buffer.unbind();
+            glTexSubImage2D(GL_TEXTURE_2D, 0, 0, 0, width, height, format, GL_UNSIGNED_BYTE, pixels);
+        }
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 4);
+        texture.generateMipmaps();
+        texture.unbind();
+        image.dispose();
+
+        slot.fence = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        slot.bytes = size;
+        queueDepth++;
+        bytesInFlight += size;
+        bytesUploaded += size;
+        next = (next + 1) % slots.length;
+        return texture;
+    }
+
+    /**
+     * Gets whether the next upload finds a free buffer.
+     *
+     * @return Whether {@link #upload(ByteBufferedImage, SamplerState)} would upload an image now.
+     */
+    public boolean isReady() {
+        return retire(slots[next]);
+    }
+
+    /**
+     * Frees the buffers of all uploads the GPU has finished, without waiting for the others.
+     */
+    public void update() {
+        for (Slot slot : slots)
+            retire(slot);
+    }
+
+    /**
+     * Blocks until the GPU has finished all uploads in flight.
+     */
+    public void finish() {
+        for (Slot slot : slots) {
+            if (slot.fence == NULL)
+                continue;
+            glClientWaitSync(slot.fence, GL_SYNC_FLUSH_COMMANDS_BIT, Long.MAX_VALUE);
+            retire(slot);
+        }
+    }
+
+    /**
+     * Frees the buffer of a slot if its upload has finished.
+     *
+     * @return Whether the slot is free.
+     */
+    private boolean retire(Slot slot) {
+        if (slot.fence == NULL)
+            return true;
+        // Flushing makes sure the fence is eventually reached even if nothing else is submitted
+        final int status = glClientWaitSync(slot.fence, GL_SYNC_FLUSH_COMMANDS_BIT, 0);
+        if (status != GL_ALREADY_SIGNALED && status != GL_CONDITION_SATISFIED)
+            return false;
+        glDeleteSync(slot.fence);
+        slot.fence = NULL;
+        queueDepth--;
+        bytesInFlight -= slot.bytes;
+        slot.bytes = 0;
+        return true;
+    }
+
+    /**
+     * Gets the number of uploads the GPU has not finished yet.
+     *
+     * @return The number of buffers in flight, as of the last call to {@link #update()} or an upload.
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Gets the number of bytes of the uploads the GPU has not finished yet.
+     *
+     * @return The bytes in flight.
+     */
+    public long getBytesInFlight() {
+        return bytesInFlight;
+    }
+
+    /**
+     * Gets the number of bytes uploaded since this uploader was constructed.
+     *
+     * @return The uploaded bytes.
+     */
+    public long getBytesUploaded() {
+        return bytesUploaded;
+    }
+
+    public int getBufferCount() {
+        return slots.length;
+    }
+
+    /**
+     * Deletes the buffers. OpenGL keeps them alive until the uploads in flight have finished.
+     */
+    @Override
+    public void dispose() {
+        for (Slot slot : slots) {
+            if (slot.fence != NULL)
+                glDeleteSync(slot.fence);
+            slot.fence = NULL;
+            slot.buffer.dispose();
+        }
+        queueDepth = 0;
+        bytesInFlight = 0;
+    }
+}
@@ -0,0 +1,310 @@
+package org.nebula.jgl.io;
+
+import org.nebula.jgl.data.buffer.Mesh;
+import org.nebula.jgl.data.buffer.MeshOptimizer;
+import org.nebula.jgl.data.shader.Shader;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * <br>
+ * <h2>GltfImporter</h2>
+ * <br>
+ * The GltfImporter imports the meshes of glTF 2.0 assets, either as {@code .gltf} JSON with embedded base64 or
+ * external buffers, or as binary {@code .glb} containers.
+ * <p>
+ * Binary data is memory-mapped and read in place. Every triangle primitive becomes one indexed {@link Mesh}; the
+ * primitives are decoded in parallel and identical vertices are welded with {@link MeshOptimizer}. Positions, normals
+ * and the first set of texture coordinates are imported, node transforms are not applied.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see ImportedMesh
+ */
+public class GltfImporter {
+    private static final int GLB_MAGIC = 0x46546C67;
+    private static final int GLB_CHUNK_JSON = 0x4E4F534A;
+    private static final int GLB_CHUNK_BIN = 0x004E4942;
+    private static final int MODE_TRIANGLES = 4;
+    private static final int BYTE = 5120, UNSIGNED_BYTE = 5121, SHORT = 5122, UNSIGNED_SHORT = 5123,
+            UNSIGNED_INT = 5125, FLOAT = 5126;
+    private static final String DATA_URI_PREFIX = "data:";
+    private static final String BASE64_MARKER = ";base64,";
+
+    private final Path path;
+    private final Map<String, Object> root;
+    private final ByteBuffer[] buffers;
+
+    private GltfImporter(Path path, Map<String, Object> root, ByteBuffer binaryChunk) {
+        this.path = path;
+        this.root = root;
+
+        final List<Object> bufferList = list(root, "buffers");
+        this.buffers = new ByteBuffer[bufferList.size()];
+        for (int i = 0; i < buffers.length; i++)
+            buffers[i] = loadBuffer(map(bufferList.get(i)), binaryChunk);
+    }
+
+    /**
+     * Imports the meshes of a glTF asset with the currently bound shader.
+     *
+     * @param path The path of the {@code .gltf} or {@code .glb} file.
+     * @return One mesh per triangle primitive, in the order of the meshes and their primitives.
+     */
+    public static List<ImportedMesh> load(Path path) {
+        return load(path, Shader.getCurrentlyBoundShader());
+    }
+
+    /**
+     * Imports the meshes of a glTF asset.
+     *
+     * @param path   The path of the {@code .gltf} or {@code .glb} file.
+     * @param shader The shader of the imported meshes.
+     * @return One mesh per triangle primitive, in the order of the meshes and their primitives.
+     * @throws IllegalArgumentException If the asset is invalid or uses unsupported features.
+     */
+    public static List<ImportedMesh> load(Path path, Shader shader) {
+        final ByteBuffer file = mapFile(path);
+
+        final String json;
+        ByteBuffer binaryChunk = null;
+        if (file.limit() >= 12 && file.getInt(0) == GLB_MAGIC) {
+            if (file.getInt(4) != 2)
+                throw new IllegalArgumentException("Unsupported glTF version " + file.getInt(4) + " in " + path);
+            int offset = 12;
+            String jsonChunk = null;
+            while (offset + 8 <= file.limit()) {
+                final int length = file.getInt(offset), type = file.getInt(offset + 4);
+                if (offset + 8L + length > file.limit())
+                    throw new IllegalArgumentException("Truncated GLB chunk in " + path);
+                final ByteBuffer chunk = file.slice(offset + 8, length).order(ByteOrder.LITTLE_ENDIAN);
+                if (type == GLB_CHUNK_JSON)
+                    jsonChunk = StandardCharsets.UTF_8.decode(chunk).toString();
+                else if (type == GLB_CHUNK_BIN && binaryChunk == null)
+                    binaryChunk = chunk;
+                offset += 8 + length;
+            }
+            json = Objects.requireNonNull(jsonChunk, "GLB file without JSON chunk");
+        } else {
+            json = StandardCharsets.UTF_8.decode(file).toString();
+        }
+
+        final GltfImporter importer = new GltfImporter(path, map(Json.parse(json)), binaryChunk);
+        return importer.importMeshes(shader);
+    }
+
+    private static ByteBuffer mapFile(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("glTF file " + path + " exceeds " + Integer.MAX_VALUE + " bytes");
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private ByteBuffer loadBuffer(Map<String, Object> buffer, ByteBuffer binaryChunk) {
+        final String uri = (String) buffer.get("uri");
+        if (uri == null) {
+            if (binaryChunk == null)
+                throw new IllegalArgumentException("glTF buffer without uri outside of a GLB file in " + path);
+            return binaryChunk;
+        }
+        if (uri.startsWith(DATA_URI_PREFIX)) {
+            final int marker = uri.indexOf(BASE64_MARKER);
+            if (marker < 0)
+                throw new IllegalArgumentException("Unsupported data uri in " + path);
+            return ByteBuffer.wrap(Base64.getDecoder().decode(uri.substring(marker + BASE64_MARKER.length())))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        final Path parent = path.toAbsolutePath().getParent();
+        return mapFile(parent.resolve(URLDecoder.decode(uri, StandardCharsets.UTF_8)));
+    }
+
+    private List<ImportedMesh> importMeshes(Shader shader) {
+        record Primitive(String name, Map<String, Object> primitive) {
+        }
+
+        final List<Primitive> primitives = new ArrayList<>();
+        final List<Object> meshes = list(root, "meshes");
+        for (int m = 0; m < meshes.size(); m++) {
+            final Map<String, Object> mesh = map(meshes.get(m));
+            final String name = mesh.get("name") instanceof String meshName ? meshName : "mesh" + m;
+            final List<Object> meshPrimitives = list(mesh, "primitives");
+            for (int p = 0; p < meshPrimitives.size(); p++) {
+                final Map<String, Object> primitive = map(meshPrimitives.get(p));
+                if (integer(primitive, "mode", MODE_TRIANGLES) != MODE_TRIANGLES)
+                    continue;
+                primitives.add(new Primitive(meshPrimitives.size() == 1 ? name : name + "#" + p, primitive));
+            }
+        }
+
+        return primitives.parallelStream()
+                .map(primitive -> importPrimitive(primitive.name(), primitive.primitive(), shader))
+                .toList();
+    }
+
+    private ImportedMesh importPrimitive(String name, Map<String, Object> primitive, Shader shader) {
+        final Map<String, Object> attributes = map(primitive.get("attributes"));
+        final Object position = attributes.get("POSITION");
+        if (position == null)
+            throw new IllegalArgumentException("glTF primitive " + name + " without positions in " + path);
+        final Object uv = attributes.get("TEXCOORD_0");
+        final Object normal = attributes.get("NORMAL");
+
+        final int vertexSize = 3 + (uv != null ? 2 : 0) + (normal != null ? 3 : 0);
+        final Map<String, Object> positionAccessor = accessor(position);
+        final int vertexCount = integer(positionAccessor, "count", 0);
+        final float[] vertices = new float[vertexCount * vertexSize];
+
+        readFloats(positionAccessor, 3, vertexCount, vertices, 0, vertexSize);
+        if (uv != null)
+            readFloats(accessor(uv), 2, vertexCount, vertices, 3, vertexSize);
+        if (normal != null)
+            readFloats(accessor(normal), 3, vertexCount, vertices, uv != null ? 5 : 3, vertexSize);
+
+        int[] indices;
+        if (primitive.get("indices") != null) {
+            indices = readIndices(accessor(primitive.get("indices")), vertexCount);
+        } else {
+            indices = new int[vertexCount];
+            for (int i = 0; i < vertexCount; i++)
+                indices[i] = i;
+        }
+
+        final int[] remap = new int[vertexCount];
+        final int uniqueVertices = MeshOptimizer.generateVertexRemap(vertices, indices, vertexSize, remap);
+        final float[] welded = MeshOptimizer.remapVertices(vertices, vertexSize, remap, uniqueVertices);
+        indices = MeshOptimizer.remapIndices(indices, remap);
+
+        return new ImportedMesh(name, new Mesh(shader, welded, indices), ImportedMesh.layout(uv != null,
+                normal != null));
+    }
+
+    private Map<String, Object> accessor(Object index) {
+        final Map<String, Object> accessor = map(list(root, "accessors").get(((Number) index).intValue()));
+        if (accessor.containsKey("sparse"))
+            throw new IllegalArgumentException("Sparse glTF accessors are not supported in " + path);
+        return accessor;
+    }
+
+    /**
+     * Gets the data of an accessor, starting at its first element.
+     *
+     * @param stride Receives the distance between elements in bytes, or 0 if tightly packed.
+     */
+    private ByteBuffer accessorData(Map<String, Object> accessor, int[] stride) {
+        if (accessor.get("bufferView") == null)
+            throw new IllegalArgumentException("glTF accessors without buffer view are not supported in " + path);
+        final Map<String, Object> view = map(list(root, "bufferViews").get(integer(accessor, "bufferView", 0)));
+        final ByteBuffer buffer = buffers[integer(view, "buffer", 0)];
+        final int offset = integer(view, "byteOffset", 0) + integer(accessor, "byteOffset", 0);
+        final int length = integer(view, "byteLength", 0) - integer(accessor, "byteOffset", 0);
+        stride[0] = integer(view, "byteStride", 0);
+        if (offset < 0 || length < 0 || offset + length > buffer.limit())
+            throw new IllegalArgumentException("glTF buffer view exceeds its buffer in " + path);
+        return buffer.slice(offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void readFloats(Map<String, Object> accessor, int components, int count, float[] dest, int offset,
+                            int destStride) {
+        if (integer(accessor, "count", 0) != count)
+            throw new IllegalArgumentException("glTF attributes of a primitive differ in count in " + path);
+        final int componentType = integer(accessor, "componentType", 0);
+        final boolean normalized = Boolean.TRUE.equals(accessor.get("normalized"));
+        if (componentType != FLOAT && !normalized)
+            throw new IllegalArgumentException("Unsupported glTF vertex component type " + componentType + " in "
+                    + path);
+
+        final int componentSize = componentSize(componentType);
+        final int[] stride = new int[1];
+        final ByteBuffer data = accessorData(accessor, stride);
+        final int elementStride = stride[0] != 0 ? stride[0] : components * componentSize;
+        if (count > 0 && (long) (count - 1) * elementStride + (long) components * componentSize > data.limit())
+            throw new IllegalArgumentException("glTF accessor exceeds its buffer view in " + path);
+
+        for (int i = 0; i < count; i++) {
+            final int element = i * elementStride;
+            for (int k = 0; k < components; k++) {
+                final int at = element + k * componentSize;
+                dest[i * destStride + offset + k] = switch (componentType) {
+                    case FLOAT -> data.getFloat(at);
+                    case UNSIGNED_BYTE -> (data.get(at) & 0xFF) / 255f;
+                    case UNSIGNED_SHORT -> (data.getShort(at) & 0xFFFF) / 65535f;
+                    case BYTE -> Math.max(data.get(at) / 127f, -1);
+                    case SHORT -> Math.max(data.getShort(at) / 32767f, -1);
+                    default -> throw new IllegalArgumentException("Unsupported glTF vertex component type " +
+                            componentType + " in " + path);
+                };
+            }
+        }
+    }
+
+    private int[] readIndices(Map<String, Object> accessor, int vertexCount) {
+        final int count = integer(accessor, "count", 0);
+        final int componentType = integer(accessor, "componentType", 0);
+        final int componentSize = componentSize(componentType);
+        final int[] stride = new int[1];
+        final ByteBuffer data = accessorData(accessor, stride);
+        final int elementStride = stride[0] != 0 ? stride[0] : componentSize;
+        if (count > 0 && (long) (count - 1) * elementStride + componentSize > data.limit())
+            throw new IllegalArgumentException("glTF index accessor exceeds its buffer view in " + path);
+
+        final int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            final int at = i * elementStride;
+            indices[i] = switch (componentType) {
+                case UNSIGNED_BYTE -> data.get(at) & 0xFF;
+                case UNSIGNED_SHORT -> data.getShort(at) & 0xFFFF;
+                case UNSIGNED_INT -> data.getInt(at);
+                default -> throw new IllegalArgumentException("Invalid glTF index component type " +
+                        componentType + " in " + path);
+            };
+            if (indices[i] < 0 || indices[i] >= vertexCount)
+                throw new IllegalArgumentException("glTF index " + indices[i] + " out of range in " + path);
+        }
+        return indices;
+    }
+
+    private static int componentSize(int componentType) {
+        return switch (componentType) {
+            case BYTE, UNSIGNED_BYTE -> 1;
+            case SHORT, UNSIGNED_SHORT -> 2;
+            case UNSIGNED_INT, FLOAT -> 4;
+            default -> throw new IllegalArgumentException("Unknown glTF component type " + componentType);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> map(Object value) {
+        if (!(value instanceof Map))
+            throw new IllegalArgumentException("Expected JSON object in glTF file");
+        return (Map<String, Object>) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> list(Map<String, Object> object, String key) {
+        final Object value = object.get(key);
+        if (value == null)
+            return List.of();
+        if (!(value instanceof List))
+            throw new IllegalArgumentException("Expected JSON array '" + key + "' in glTF file");
+        return (List<Object>) value;
+    }
+
+    private static int integer(Map<String, Object> object, String key, int defaultValue) {
+        return object.get(key) instanceof Number number ? number.intValue() : defaultValue;
+    }
+}
@@ -0,0 +1,54 @@
+package org.nebula.jgl.io;
+
+import org.nebula.jgl.data.buffer.Mesh;
+import org.nebula.jgl.data.shader.Shader;
+import org.nebula.jgl.data.shader.VertexAttribs;
+
+/**
+ * A Mesh produced by one of the model importers together with its name and vertex layout.
+ * <p>
+ * Imported vertices always start with the position, followed by the texture coordinates and the normal if the source
+ * provides them. The layout is declared as {@code layout(location = 0) in vec3 vPos;},
+ * {@code layout(location = 2) in vec2 vUv;} and {@code layout(location = 3) in vec3 vNormal;}, see
+ * {@link ImportedMesh#layoutSource(boolean, boolean)}, so vertex shaders using these declarations match the mesh.
+ * </p>
+ *
+ * @param name   The name of the object, group or mesh in the source file.
+ * @param mesh   The indexed mesh, which is owned by the caller.
+ * @param layout The vertex layout of the mesh.
+ * @author Anton Schoenfeld
+ * @see ObjImporter
+ * @see GltfImporter
+ */
+public record ImportedMesh(String name, Mesh mesh, VertexAttribs layout) {
+    public static final String POSITION_NAME = "vPos";
+    public static final String UV_NAME = "vUv";
+    public static final String NORMAL_NAME = "vNormal";
+
+    /**
+     * Creates the vertex shader attribute declarations of an imported vertex layout.
+     *
+     * @param uvs     Whether the vertices contain texture coordinates.
+     * @param normals Whether the vertices contain normals.
+     * @return The GLSL attribute declarations.
+     */
+    public static String layoutSource(boolean uvs, boolean normals) {
+        final StringBuilder source = new StringBuilder("layout(location = 0) in vec3 " + POSITION_NAME + ";\n");
+        if (uvs)
+            source.append("layout(location = 2) in vec2 " + UV_NAME + ";\n");
+        if (normals)
+            source.append("layout(location = 3) in vec3 " + NORMAL_NAME + ";\n");
+        return source.toString();
+    }
+
+    /**
+     * Creates an imported vertex layout, parsed with {@link Shader#parseAttribs(String)}.
+     *
+     * @param uvs     Whether the vertices contain texture coordinates.
+     * @param normals Whether the vertices contain normals.
+     * @return The vertex layout.
+     */
+    public static VertexAttribs layout(boolean uvs, boolean normals) {
+        return Shader.parseAttribs(layoutSource(uvs, normals));
+    }
+}
@@ -0,0 +1,169 @@
+package org.nebula.jgl.io;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal JSON parser for the metadata of asset formats. Objects are parsed into {@link Map Maps}, arrays into
+ * {@link List Lists}, numbers into {@link Double Doubles}, and strings, booleans and null into their Java
+ * counterparts.
+ *
+ * @author Anton Schoenfeld
+ */
+final class Json {
+    private final String source;
+    private int position;
+
+    private Json(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Parses a JSON document.
+     *
+     * @param source The JSON source.
+     * @return The parsed value.
+     * @throws IllegalArgumentException If the source is not valid JSON.
+     */
+    static Object parse(String source) {
+        final Json json = new Json(source);
+        final Object value = json.parseValue();
+        json.skipWhitespace();
+        if (json.position != source.length())
+            throw json.error("Unexpected trailing characters");
+        return value;
+    }
+
+    private Object parseValue() {
+        skipWhitespace();
+        if (position >= source.length())
+            throw error("Unexpected end of JSON");
+        return switch (source.charAt(position)) {
+            case '{' -> parseObject();
+            case '[' -> parseArray();
+            case '"' -> parseString();
+            case 't' -> literal("true", Boolean.TRUE);
+            case 'f' -> literal("false", Boolean.FALSE);
+            case 'n' -> literal("null", null);
+            default -> parseNumber();
+        };
+    }
+
+    private Map<String, Object> parseObject() {
+        final Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"')
+                throw error("Expected object key");
+            final String key = parseString();
+            skipWhitespace();
+            expect(':');
+            object.put(key, parseValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect('}');
+                return object;
+            }
+        }
+    }
+
+    private List<Object> parseArray() {
+        final List<Object> array = new ArrayList<>();
+        position++;
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+        while (true) {
+            array.add(parseValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect(']');
+                return array;
+            }
+        }
+    }
+
+    private String parseString() {
+        position++;
+        final StringBuilder builder = new StringBuilder();
+        while (true) {
+            if (position >= source.length())
+                throw error("Unterminated string");
+            final char c = source.charAt(position++);
+            if (c == '"')
+                return builder.toString();
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+            if (position >= source.length())
+                throw error("Unterminated escape sequence");
+            final char escaped = source.charAt(position++);
+            switch (escaped) {
+                case 'b' -> builder.append('\b');
+                case 'f' -> builder.append('\f');
+                case 'n' -> builder.append('\n');
+                case 'r' -> builder.append('\r');
+                case 't' -> builder.append('\t');
+                case 'u' -> {
+                    if (position + 4 > source.length())
+                        throw error("Invalid unicode escape");
+                    builder.append((char) Integer.parseInt(source, position, position + 4, 16));
+                    position += 4;
+                }
+                default -> builder.append(escaped);
+            }
+        }
+    }
+
+    private Double parseNumber() {
+        final int start = position;
+        while (position < source.length() && "+-0123456789.eE".indexOf(source.charAt(position)) >= 0)
+            position++;
+        try {
+            return Double.parseDouble(source.substring(start, position));
+        } catch (NumberFormatException e) {
+            throw error("Invalid number");
+        }
+    }
+
+    private Object literal(String literal, Object value) {
+        if (!source.startsWith(literal, position))
+            throw error("Invalid literal");
+        position += literal.length();
+        return value;
+    }
+
+    private void skipWhitespace() {
+        while (position < source.length() && Character.isWhitespace(source.charAt(position)))
+            position++;
+    }
+
+    private char peek() {
+        return position < source.length() ? source.charAt(position) : 0;
+    }
+
+    private void expect(char c) {
+        if (peek() != c)
+            throw error("Expected '" + c + "'");
+        position++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position + " of JSON document");
+    }
+}
@@ -0,0 +1,353 @@
+package org.nebula.jgl.io;
+
+import org.joml.Vector3f;
+import org.nebula.jgl.data.buffer.Buffer;
+import org.nebula.jgl.data.buffer.Mesh;
+import org.nebula.jgl.data.buffer.MeshLod;
+import org.nebula.jgl.data.shader.Shader;
+import org.nebula.jgl.data.shader.VertexAttrib;
+import org.nebula.jgl.data.shader.VertexAttribs;
+import org.nebula.math.Bounds;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <br>
+ * <h2>MeshFile</h2>
+ * <br>
+ * The MeshFile class reads and writes meshes in a binary container that can be loaded without parsing or copying.
+ * <p>
+ * A mesh file is stored in little endian byte order and consists of:
+ * </p>
+ * <ol>
+ *     <li>A 64 byte header: magic {@code "NMSH"}, format version, flags, attribute count, level count, floats per
+ *     vertex, the axis aligned bounding box (min, max) and the bounding sphere (center, radius).</li>
+ *     <li>The vertex layout, one entry per {@link VertexAttrib}: location, size, bytes, GL datatype and the UTF-8
+ *     name, padded to four bytes.</li>
+ *     <li>The level table, one 32 byte entry per level of detail: error, vertex count, index count, reserved, vertex
+ *     blob offset and index blob offset.</li>
+ *     <li>The vertex and index blobs of every level, each aligned to {@value MeshFile#ALIGNMENT} bytes.</li>
+ * </ol>
+ * <p>
+ * {@link MeshFile#load(Path, Shader)} memory-maps the file and wraps the blobs as the vertex and index buffers of the
+ * loaded meshes with {@link Mesh#wrap(Shader, FloatBuffer, IntBuffer)}. The meshes do not own their memory; the
+ * mapping stays valid for as long as the meshes are reachable. Files that are already in memory, e.g. resources, are
+ * loaded with {@link MeshFile#load(ByteBuffer, String, Shader)}.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see Mesh
+ * @see MeshLod
+ * @see VertexAttribs
+ */
+public class MeshFile {
+    /**
+     * The magic number at the start of every mesh file, {@code "NMSH"} in little endian byte order.
+     */
+    public static final int MAGIC = 'N' | 'M' << 8 | 'S' << 16 | 'H' << 24;
+    public static final int VERSION = 1;
+    public static final int ALIGNMENT = 16;
+    private static final int HEADER_SIZE = 64;
+    private static final int LEVEL_ENTRY_SIZE = 32;
+
+    private final VertexAttribs layout;
+    private final Mesh[] levels;
+    private final float[] errors;
+    private final Vector3f boundsMin, boundsMax, center;
+    private final float radius;
+
+    private MeshFile(VertexAttribs layout, Mesh[] levels, float[] errors, Vector3f boundsMin, Vector3f boundsMax,
+                     Vector3f center, float radius) {
+        this.layout = layout;
+        this.levels = levels;
+        this.errors = errors;
+        this.boundsMin = boundsMin;
+        this.boundsMax = boundsMax;
+        this.center = center;
+        this.radius = radius;
+    }
+
+    /**
+     * Writes a single Mesh without further levels of detail.
+     *
+     * @param path   The path of the file to write.
+     * @param layout The vertex layout of the mesh.
+     * @param mesh   The mesh to write.
+     */
+    public static void write(Path path, VertexAttribs layout, Mesh mesh) {
+        write(path, layout, new Mesh[]{mesh}, new float[]{0});
+    }
+
+    /**
+     * Writes all levels of a MeshLod.
+     *
+     * @param path   The path of the file to write.
+     * @param layout The vertex layout of the meshes.
+     * @param lod    The levels of detail to write.
+     */
+    public static void write(Path path, VertexAttribs layout, MeshLod lod) {
+        final Mesh[] levels = new Mesh[lod.getLevelCount()];
+        final float[] errors = new float[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = lod.getLevel(i);
+            errors[i] = lod.getError(i);
+        }
+        write(path, layout, levels, errors);
+    }
+
+    private static void write(Path path, VertexAttribs layout, Mesh[] levels, float[] errors) {
+        final int vertexSize = layout.getVertexSize();
+        final byte[][] names = new byte[layout.size()][];
+        int layoutSize = 0;
+        for (int i = 0; i < layout.size(); i++) {
+            names[i] = layout.get(i).getName().getBytes(StandardCharsets.UTF_8);
+            layoutSize += 5 * Integer.BYTES + align(names[i].length, Integer.BYTES);
+        }
+
+        // Blob offsets
+        final long[] vertexOffsets = new long[levels.length];
+        final long[] indexOffsets = new long[levels.length];
+        long offset = align(HEADER_SIZE + layoutSize + (long) levels.length * LEVEL_ENTRY_SIZE, ALIGNMENT);
+        for (int i = 0; i < levels.length; i++) {
+            // Validates that the vertices match the layout
+            levels[i].getVertexCount(vertexSize);
+            vertexOffsets[i] = offset;
+            offset = align(offset + (long) levels[i].getVertexDataSize() * Float.BYTES, ALIGNMENT);
+            indexOffsets[i] = offset;
+            offset = align(offset + (long) levels[i].getIndexCount() * Integer.BYTES, ALIGNMENT);
+        }
+        if (offset > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Mesh file would exceed the maximum size of " + Integer.MAX_VALUE +
+                    " bytes");
+
+        final ByteBuffer file = ByteBuffer.allocate((int) offset).order(ByteOrder.LITTLE_ENDIAN);
+        final Bounds bounds = levels[0].getBounds(vertexSize);
+        file.putInt(MAGIC).putInt(VERSION).putInt(0).putInt(layout.size()).putInt(levels.length).putInt(vertexSize);
+        if (!bounds.isEmpty()) {
+            putVector(file, bounds.getMin());
+            putVector(file, bounds.getMax());
+            putVector(file, bounds.getCenter());
+            file.putFloat(bounds.getRadius());
+        }
+
+        file.position(HEADER_SIZE);
+        for (int i = 0; i < layout.size(); i++) {
+            final VertexAttrib attrib = layout.get(i);
+            file.putInt(attrib.getLocation()).putInt(attrib.getSize()).putInt(attrib.getBytes())
+                    .putInt(attrib.getDataType().getGlConstant()).putInt(names[i].length).put(names[i]);
+            file.position(align(file.position(), Integer.BYTES));
+        }
+
+        for (int i = 0; i < levels.length; i++) {
+            file.putFloat(errors[i]).putInt(levels[i].getVertexCount(vertexSize)).putInt(levels[i].getIndexCount())
+                    .putInt(0).putLong(vertexOffsets[i]).putLong(indexOffsets[i]);
+        }
+
+        for (int i = 0; i < levels.length; i++) {
+            file.position((int) vertexOffsets[i]);
+            file.asFloatBuffer().put(levels[i].getVertices());
+            file.position((int) indexOffsets[i]);
+            file.asIntBuffer().put(levels[i].getIndices());
+        }
+
+        file.position(0);
+        final Path directory = path.toAbsolutePath().getParent();
+        try {
+            Files.createDirectories(directory);
+            // Written next to the target and moved over it, so readers never map a partially written file
+            final Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    while (file.hasRemaining())
+                        channel.write(file);
+                }
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void putVector(ByteBuffer buffer, Vector3f vector) {
+        buffer.putFloat(vector.x).putFloat(vector.y).putFloat(vector.z);
+    }
+
+    private static int align(int value, int alignment) {
+        return (value + alignment - 1) / alignment * alignment;
+    }
+
+    private static long align(long value, int alignment) {
+        return (value + alignment - 1) / alignment * alignment;
+    }
+
+    /**
+     * Memory-maps a mesh file and wraps its levels with the currently bound shader.
+     *
+     * @param path The path of the file to load.
+     * @return The loaded mesh file.
+     */
+    public static MeshFile load(Path path) {
+        return load(path, Shader.getCurrentlyBoundShader());
+    }
+
+    /**
+     * Memory-maps a mesh file and wraps its levels without copying the vertex and index data.
+     *
+     * @param path   The path of the file to load.
+     * @param shader The shader of the loaded meshes.
+     * @return The loaded mesh file.
+     * @throws IllegalArgumentException If the file is not a valid mesh file.
+     * @throws IllegalStateException    If the platform is not little endian, which would require a copy.
+     */
+    public static MeshFile load(Path path, Shader shader) {
+        final MappedByteBuffer map;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Mesh file " + path + " exceeds " + Integer.MAX_VALUE + " bytes");
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return load(map, path.toString(), shader);
+    }
+
+    /**
+     * Wraps the levels of a mesh file in memory without copying the vertex and index data, e.g. a file read with
+     * {@link org.nebula.io.Files#readResourceBuffer(String)}. The buffer must stay valid while the meshes are used.
+     *
+     * @param contents The contents of the mesh file, from position 0 to the limit.
+     * @param path     The path or resource name of the file, for error messages.
+     * @param shader   The shader of the loaded meshes.
+     * @return The loaded mesh file.
+     * @throws IllegalArgumentException If the contents are not a valid mesh file.
+     * @throws IllegalStateException    If the platform is not little endian, which would require a copy.
+     */
+    public static MeshFile load(ByteBuffer contents, String path, Shader shader) {
+        if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN)
+            throw new IllegalStateException("Mesh files can only be mapped on little endian platforms");
+        final ByteBuffer file = contents.duplicate().position(0).order(ByteOrder.LITTLE_ENDIAN);
+
+        if (file.limit() < HEADER_SIZE || file.getInt(0) != MAGIC)
+            throw new IllegalArgumentException(path + " is not a mesh file");
+        if (file.getInt(4) != VERSION)
+            throw new IllegalArgumentException("Unsupported mesh file version " + file.getInt(4) + " in " + path);
+
+        final int attribCount = file.getInt(12);
+        final int levelCount = file.getInt(16);
+        final int vertexSize = file.getInt(20);
+        final Vector3f boundsMin = new Vector3f(file.getFloat(24), file.getFloat(28), file.getFloat(32));
+        final Vector3f boundsMax = new Vector3f(file.getFloat(36), file.getFloat(40), file.getFloat(44));
+        final Vector3f center = new Vector3f(file.getFloat(48), file.getFloat(52), file.getFloat(56));
+        final float radius = file.getFloat(60);
+
+        file.position(HEADER_SIZE);
+        final VertexAttrib[] attribs = new VertexAttrib[attribCount];
+        for (int i = 0; i < attribCount; i++) {
+            final int location = file.getInt(), size = file.getInt(), bytes = file.getInt();
+            final Buffer.Datatype dataType = datatypeOf(file.getInt());
+            final byte[] name = new byte[file.getInt()];
+            file.get(name);
+            file.position(align(file.position(), Integer.BYTES));
+            attribs[i] = new VertexAttrib(new String(name, StandardCharsets.UTF_8), size, bytes, location, dataType);
+        }
+        final VertexAttribs layout = new VertexAttribs(attribs);
+        if (layout.getVertexSize() != vertexSize)
+            throw new IllegalArgumentException("Vertex layout of " + path + " does not match its vertex size");
+
+        // The bounds of the full detail level enclose every coarser level, so culling never scans the mapped vertices
+        final Bounds bounds = new Bounds().set(boundsMin, boundsMax, center, radius);
+        final Mesh[] levels = new Mesh[levelCount];
+        final float[] errors = new float[levelCount];
+        for (int i = 0; i < levelCount; i++) {
+            errors[i] = file.getFloat();
+            final int vertexCount = file.getInt(), indexCount = file.getInt();
+            file.getInt();
+            final long vertexOffset = file.getLong(), indexOffset = file.getLong();
+
+            final FloatBuffer vertices = slice(file, vertexOffset, (long) vertexCount * vertexSize * Float.BYTES, path)
+                    .asFloatBuffer();
+            final IntBuffer indices = slice(file, indexOffset, (long) indexCount * Integer.BYTES, path).asIntBuffer();
+            levels[i] = Mesh.wrap(shader, vertices, indices);
+            if (vertexCount > 0)
+                levels[i].setBounds(bounds, vertexSize);
+        }
+
+        return new MeshFile(layout, levels, errors, boundsMin, boundsMax, center, radius);
+    }
+
+    private static ByteBuffer slice(ByteBuffer file, long offset, long length, String path) {
+        if (offset < 0 || offset % ALIGNMENT != 0 || offset + length > file.limit())
+            throw new IllegalArgumentException("Corrupt blob at offset " + offset + " in mesh file " + path);
+        return file.slice((int) offset, (int) length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static Buffer.Datatype datatypeOf(int glConstant) {
+        for (Buffer.Datatype dataType : Buffer.Datatype.values())
+            if (dataType.getGlConstant() == glConstant)
+                return dataType;
+        throw new IllegalArgumentException("Unknown vertex attribute datatype " + glConstant);
+    }
+
+    /**
+     * Creates a MeshLod of all levels in this file. The levels share the mapped memory of this file.
+     *
+     * @return The MeshLod of this file.
+     */
+    public MeshLod toMeshLod() {
+        return new MeshLod(levels, errors, center, radius);
+    }
+
+    public VertexAttribs getLayout() {
+        return layout;
+    }
+
+    /**
+     * Gets the full detail mesh.
+     *
+     * @return The mesh at level 0.
+     */
+    public Mesh getMesh() {
+        return levels[0];
+    }
+
+    public Mesh getLevel(int level) {
+        return levels[level];
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    public float getError(int level) {
+        return errors[level];
+    }
+
+    public Vector3f getBoundsMin() {
+        return boundsMin;
+    }
+
+    public Vector3f getBoundsMax() {
+        return boundsMax;
+    }
+
+    public Vector3f getCenter() {
+        return center;
+    }
+
+    public float getRadius() {
+        return radius;
+    }
+}
@@ -0,0 +1,571 @@
+package org.nebula.jgl.io;
+
+import org.lwjgl.system.MemoryUtil;
+import org.nebula.jgl.data.buffer.Mesh;
+import org.nebula.jgl.data.shader.Shader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <br>
+ * <h2>ObjImporter</h2>
+ * <br>
+ * The ObjImporter imports Wavefront OBJ files as indexed meshes.
+ * <p>
+ * The file is memory-mapped in chunks that end on line boundaries and every chunk is tokenized on its own core, so
+ * neither the file contents nor any per-line strings are held on the heap. Afterwards, the faces of every object
+ * ({@code o}) or group ({@code g}) are triangulated and their position/texture/normal index triples are deduplicated
+ * into the vertices of one {@link Mesh} per object, again in parallel.
+ * </p>
+ * <p>
+ * Supported are {@code v}, {@code vt}, {@code vn}, polygonal {@code f} statements with absolute and relative indices,
+ * {@code o} and {@code g}. Materials, lines, points and free-form geometry are ignored.
+ * </p>
+ *
+ * @author Anton Schoenfeld
+ * @see ImportedMesh
+ */
+public class ObjImporter {
+    private static final String DEFAULT_NAME = "default";
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    private static final int MISSING = Integer.MIN_VALUE;
+
+    private ObjImporter() {
+    }
+
+    /**
+     * Imports an OBJ file with the currently bound shader.
+     *
+     * @param path The path of the file to import.
+     * @return One mesh per object or group with faces, in the order of their first appearance.
+     */
+    public static List<ImportedMesh> load(Path path) {
+        return load(path, Shader.getCurrentlyBoundShader());
+    }
+
+    /**
+     * Imports an OBJ file.
+     *
+     * @param path   The path of the file to import.
+     * @param shader The shader of the imported meshes.
+     * @return One mesh per object or group with faces, in the order of their first appearance.
+     */
+    public static List<ImportedMesh> load(Path path, Shader shader) {
+        final ByteBuffer[] chunkData;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            chunkData = mapChunks(channel);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        final Chunk[] chunks = Arrays.stream(chunkData).parallel()
+                .map(ObjImporter::parseChunk)
+                .toArray(Chunk[]::new);
+        final Model model = merge(chunks);
+
+        return model.groups.entrySet().parallelStream()
+                .map(group -> model.buildMesh(group.getKey(), group.getValue(), shader))
+                .toList();
+    }
+
+    /**
+     * Maps the file in chunks of roughly equal size, one to a few per core, which end after a line break.
+     */
+    private static ByteBuffer[] mapChunks(FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final int chunkCount = (int) Math.max(1, Math.min(size / MIN_CHUNK_SIZE,
+                Runtime.getRuntime().availableProcessors() * 4L));
+
+        final List<ByteBuffer> chunks = new ArrayList<>(chunkCount);
+        final ByteBuffer probe = ByteBuffer.allocate(256);
+        long start = 0;
+        for (int i = 1; i <= chunkCount && start < size; i++) {
+            long end = i == chunkCount ? size : Math.max(start, size * i / chunkCount);
+            // Move the end behind the next line break
+            while (end < size) {
+                probe.clear();
+                final int read = channel.read(probe, end);
+                int lineBreak = -1;
+                for (int b = 0; b < read && lineBreak < 0; b++)
+                    if (probe.get(b) == '\n')
+                        lineBreak = b;
+                if (lineBreak >= 0) {
+                    end += lineBreak + 1;
+                    break;
+                }
+                end += read;
+            }
+            if (end - start > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("OBJ line exceeds " + Integer.MAX_VALUE + " bytes");
+            chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+            start = end;
+        }
+        return chunks.toArray(ByteBuffer[]::new);
+    }
+
+    private static Chunk parseChunk(ByteBuffer data) {
+        final Chunk chunk = new Chunk();
+        final Tokenizer tokenizer = new Tokenizer(data);
+        final int[] corner = new int[6], first = new int[6], previous = new int[6];
+
+        while (tokenizer.hasMore()) {
+            tokenizer.skipSpaces();
+            final int keyword = tokenizer.keyword();
+            switch (keyword) {
+                case 'v' -> tokenizer.parseFloats(chunk.positions, 3);
+                case 'v' | 't' << 8 -> tokenizer.parseFloats(chunk.uvs, 2);
+                case 'v' | 'n' << 8 -> tokenizer.parseFloats(chunk.normals, 3);
+                case 'f' -> {
+                    int count = 0;
+                    while (tokenizer.skipSpaces()) {
+                        tokenizer.parseCorner(chunk, corner);
+                        if (count == 0) {
+                            System.arraycopy(corner, 0, first, 0, corner.length);
+                        } else if (count >= 2) {
+                            chunk.addCorner(first);
+                            chunk.addCorner(previous);
+                            chunk.addCorner(corner);
+                        }
+                        System.arraycopy(corner, 0, previous, 0, corner.length);
+                        count++;
+                    }
+                }
+                case 'o', 'g' -> {
+                    tokenizer.skipSpaces();
+                    chunk.groupNames.add(tokenizer.rest());
+                    chunk.groupStarts.add(chunk.corners.size() / 3);
+                }
+                default -> {
+                }
+            }
+            tokenizer.skipLine();
+        }
+        return chunk;
+    }
+
+    /**
+     * Concatenates the chunks, resolves relative indices and collects the corners of every group.
+     */
+    private static Model merge(Chunk[] chunks) {
+        int positionCount = 0, uvCount = 0, normalCount = 0, cornerCount = 0;
+        for (Chunk chunk : chunks) {
+            positionCount += chunk.positions.size();
+            uvCount += chunk.uvs.size();
+            normalCount += chunk.normals.size();
+            cornerCount += chunk.corners.size();
+        }
+
+        final Model model = new Model(new float[positionCount], new float[uvCount], new float[normalCount],
+                new int[cornerCount]);
+        int positionOffset = 0, uvOffset = 0, normalOffset = 0, cornerOffset = 0;
+        String group = DEFAULT_NAME;
+        for (Chunk chunk : chunks) {
+            chunk.positions.copyTo(model.positions, positionOffset);
+            chunk.uvs.copyTo(model.uvs, uvOffset);
+            chunk.normals.copyTo(model.normals, normalOffset);
+            chunk.corners.copyTo(model.corners, cornerOffset);
+
+            final int[] vertexOffsets = {positionOffset / 3, uvOffset / 2, normalOffset / 3};
+            for (int i = 0; i < chunk.relativeCorners.size(); i++) {
+                final int element = chunk.relativeCorners.get(i);
+                model.corners[cornerOffset + element] += vertexOffsets[element % 3];
+            }
+
+            // Corner ranges of the groups, the first range continues the last group of the previous chunk
+            final int chunkCorners = chunk.corners.size() / 3;
+            for (int i = -1; i < chunk.groupNames.size(); i++) {
+                final int start = i < 0 ? 0 : chunk.groupStarts.get(i);
+                final int end = i + 1 < chunk.groupNames.size() ? chunk.groupStarts.get(i + 1) : chunkCorners;
+                if (i >= 0)
+                    group = chunk.groupNames.get(i);
+                if (end > start) {
+                    final IntList ranges = model.groups.computeIfAbsent(group, name -> new IntList());
+                    ranges.add(cornerOffset / 3 + start);
+                    ranges.add(cornerOffset / 3 + end);
+                }
+            }
+
+            positionOffset += chunk.positions.size();
+            uvOffset += chunk.uvs.size();
+            normalOffset += chunk.normals.size();
+            cornerOffset += chunk.corners.size();
+        }
+        return model;
+    }
+
+    /**
+     * A growable int array.
+     */
+    static final class IntList {
+        private int[] data = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == data.length)
+                data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+        }
+
+        int get(int index) {
+            return data[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void copyTo(int[] dest, int offset) {
+            System.arraycopy(data, 0, dest, offset, size);
+        }
+    }
+
+    /**
+     * A growable float array.
+     */
+    static final class FloatList {
+        private float[] data = new float[64];
+        private int size;
+
+        void add(float value) {
+            if (size == data.length)
+                data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void copyTo(float[] dest, int offset) {
+            System.arraycopy(data, 0, dest, offset, size);
+        }
+    }
+
+    /**
+     * The parsed contents of one chunk. Corners are stored as position, texture and normal index triples, which are
+     * zero based and absolute unless listed in {@code relativeCorners}, in which case they are relative to the first
+     * element of the chunk.
+     */
+    private static final class Chunk {
+        private final FloatList positions = new FloatList(), uvs = new FloatList(), normals = new FloatList();
+        private final IntList corners = new IntList(), relativeCorners = new IntList(), groupStarts = new IntList();
+        private final List<String> groupNames = new ArrayList<>();
+
+        /**
+         * Adds a corner parsed by {@link Tokenizer#parseCorner(Chunk, int[])}.
+         */
+        private void addCorner(int[] corner) {
+            for (int k = 0; k < 3; k++) {
+                if (corner[k + 3] != 0)
+                    relativeCorners.add(corners.size());
+                corners.add(corner[k]);
+            }
+        }
+    }
+
+    /**
+     * The merged contents of all chunks.
+     */
+    private static final class Model {
+        private final float[] positions, uvs, normals;
+        private final int[] corners;
+        private final Map<String, IntList> groups = new LinkedHashMap<>();
+
+        private Model(float[] positions, float[] uvs, float[] normals, int[] corners) {
+            this.positions = positions;
+            this.uvs = uvs;
+            this.normals = normals;
+            this.corners = corners;
+        }
+
+        /**
+         * Deduplicates the corners of a group into indexed vertices.
+         *
+         * @param ranges Pairs of first and end triple of the corner ranges of the group.
+         */
+        private ImportedMesh buildMesh(String name, IntList ranges, Shader shader) {
+            int cornerCount = 0;
+            boolean hasUvs = false, hasNormals = false;
+            for (int r = 0; r < ranges.size(); r += 2) {
+                for (int c = ranges.get(r); c < ranges.get(r + 1); c++) {
+                    hasUvs |= corners[c * 3 + 1] != MISSING;
+                    hasNormals |= corners[c * 3 + 2] != MISSING;
+                }
+                cornerCount += ranges.get(r + 1) - ranges.get(r);
+            }
+
+            // Open addressing table from corner triples to vertex indices
+            final int tableSize = Integer.highestOneBit(Math.max(cornerCount, 1) * 2) << 1;
+            final int[] table = new int[tableSize];
+            Arrays.fill(table, -1);
+            final int[] uniqueCorners = new int[cornerCount];
+            final IntBuffer indices = MemoryUtil.memAllocInt(cornerCount);
+            int vertexCount = 0, written = 0;
+
+            for (int r = 0; r < ranges.size(); r += 2) {
+                for (int c = ranges.get(r); c < ranges.get(r + 1); c++) {
+                    final int p = corners[c * 3], t = corners[c * 3 + 1], n = corners[c * 3 + 2];
+                    int slot = (((p * 31) + t) * 31 + n) * 0x9E3779B9 & (tableSize - 1);
+                    while (table[slot] != -1) {
+                        final int other = uniqueCorners[table[slot]] * 3;
+                        if (corners[other] == p && corners[other + 1] == t && corners[other + 2] == n)
+                            break;
+                        slot = (slot + 1) & (tableSize - 1);
+                    }
+                    if (table[slot] == -1) {
+                        table[slot] = vertexCount;
+                        uniqueCorners[vertexCount++] = c;
+                    }
+                    indices.put(written++, table[slot]);
+                }
+            }
+
+            final int vertexSize = 3 + (hasUvs ? 2 : 0) + (hasNormals ? 3 : 0);
+            final FloatBuffer vertices = MemoryUtil.memAllocFloat(vertexCount * vertexSize);
+            int o = 0;
+            for (int v = 0; v < vertexCount; v++) {
+                final int c = uniqueCorners[v] * 3;
+                final int p = checkIndex(corners[c], positions.length / 3, "position") * 3;
+                vertices.put(o++, positions[p]).put(o++, positions[p + 1]).put(o++, positions[p + 2]);
+                if (hasUvs) {
+                    final int t = corners[c + 1] == MISSING ? -1 : checkIndex(corners[c + 1], uvs.length / 2, "uv");
+                    vertices.put(o++, t < 0 ? 0 : uvs[t * 2]).put(o++, t < 0 ? 0 : uvs[t * 2 + 1]);
+                }
+                if (hasNormals) {
+                    final int n = corners[c + 2] == MISSING ? -1 : checkIndex(corners[c + 2], normals.length / 3,
+                            "normal");
+                    vertices.put(o++, n < 0 ? 0 : normals[n * 3]).put(o++, n < 0 ? 0 : normals[n * 3 + 1])
+                            .put(o++, n < 0 ? 0 : normals[n * 3 + 2]);
+                }
+            }
+
+            return new ImportedMesh(name, new Mesh(shader, vertices, indices),
+                    ImportedMesh.layout(hasUvs, hasNormals));
+        }
+
+        private static int checkIndex(int index, int count, String element) {
+            if (index < 0 || index >= count)
+                throw new IllegalArgumentException("OBJ face references " + element + " " + (index + 1) +
+                        " of " + count);
+            return index;
+        }
+    }
+
+    /**
+     * Reads the tokens of a chunk directly from its mapped bytes.
+     */
+    private static final class Tokenizer {
+        private static final double[] POWERS_OF_TEN = new double[23];
+
+        static {
+            POWERS_OF_TEN[0] = 1;
+            for (int i = 1; i < POWERS_OF_TEN.length; i++)
+                POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+
+        private final ByteBuffer data;
+        private final int limit;
+        private int position;
+
+        private Tokenizer(ByteBuffer data) {
+            this.data = data;
+            this.limit = data.limit();
+        }
+
+        private boolean hasMore() {
+            return position < limit;
+        }
+
+        /**
+         * Skips spaces and tabs.
+         *
+         * @return true if a token follows on the current line, false otherwise
+         */
+        private boolean skipSpaces() {
+            while (position < limit && (data.get(position) == ' ' || data.get(position) == '\t'))
+                position++;
+            return position < limit && !isLineEnd(data.get(position));
+        }
+
+        private void skipLine() {
+            while (position < limit && data.get(position) != '\n')
+                position++;
+            position++;
+        }
+
+        private static boolean isLineEnd(byte b) {
+            return b == '\n' || b == '\r';
+        }
+
+        private static boolean isDelimiter(byte b) {
+            return b == ' ' || b == '\t' || isLineEnd(b);
+        }
+
+        /**
+         * Reads a keyword of up to two characters packed into an int, or 0 if the keyword is longer.
+         */
+        private int keyword() {
+            int keyword = 0, length = 0;
+            while (position < limit && !isDelimiter(data.get(position))) {
+                if (length < 2)
+                    keyword |= (data.get(position) & 0xFF) << (8 * length);
+                length++;
+                position++;
+            }
+            return length <= 2 ? keyword : 0;
+        }
+
+        /**
+         * Reads the remainder of the line, without trailing whitespace.
+         */
+        private String rest() {
+            final int start = position;
+            int end = start;
+            while (end < limit && !isLineEnd(data.get(end)))
+                end++;
+            while (end > start && isDelimiter(data.get(end - 1)))
+                end--;
+            final byte[] bytes = new byte[end - start];
+            data.get(start, bytes);
+            position = end;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void parseFloats(FloatList dest, int count) {
+            for (int i = 0; i < count; i++) {
+                if (!skipSpaces())
+                    throw new IllegalArgumentException("OBJ vertex statement with less than " + count + " values");
+                dest.add(parseFloat());
+            }
+        }
+
+        private float parseFloat() {
+            final int start = position;
+            boolean negative = false;
+            if (data.get(position) == '-' || data.get(position) == '+')
+                negative = data.get(position++) == '-';
+
+            long mantissa = 0;
+            int digits = 0, exponent = 0;
+            byte b;
+            while (position < limit && (b = data.get(position)) >= '0' && b <= '9') {
+                if (digits++ < 18)
+                    mantissa = mantissa * 10 + (b - '0');
+                else
+                    exponent++;
+                position++;
+            }
+            if (position < limit && data.get(position) == '.') {
+                position++;
+                while (position < limit && (b = data.get(position)) >= '0' && b <= '9') {
+                    if (digits++ < 18) {
+                        mantissa = mantissa * 10 + (b - '0');
+                        exponent--;
+                    }
+                    position++;
+                }
+            }
+            if (position < limit && (data.get(position) == 'e' || data.get(position) == 'E')) {
+                position++;
+                boolean negativeExponent = false;
+                if (position < limit && (data.get(position) == '-' || data.get(position) == '+'))
+                    negativeExponent = data.get(position++) == '-';
+                int value = 0, exponentDigits = 0;
+                while (position < limit && (b = data.get(position)) >= '0' && b <= '9') {
+                    value = Math.min(value * 10 + (b - '0'), 1000);
+                    exponentDigits++;
+                    position++;
+                }
+                // An exponent without digits, e.g. at the end of the file, is left to the slow path to reject
+                if (exponentDigits == 0)
+                    return parseFloatSlow(start);
+                exponent += negativeExponent ? -value : value;
+            }
+            if (position < limit && !isDelimiter(data.get(position)) || digits == 0)
+                return parseFloatSlow(start);
+
+            double value = mantissa;
+            if (exponent < 0)
+                value = -exponent < POWERS_OF_TEN.length ? value / POWERS_OF_TEN[-exponent] : value * Math.pow(10,
+                        exponent);
+            else if (exponent > 0)
+                value = exponent < POWERS_OF_TEN.length ? value * POWERS_OF_TEN[exponent] : value * Math.pow(10,
+                        exponent);
+            return (float) (negative ? -value : value);
+        }
+
+        /**
+         * Parses tokens the fast path does not handle, e.g. {@code nan} or {@code inf}.
+         */
+        private float parseFloatSlow(int start) {
+            position = start;
+            while (position < limit && !isDelimiter(data.get(position)))
+                position++;
+            final byte[] bytes = new byte[position - start];
+            data.get(start, bytes);
+            try {
+                return Float.parseFloat(new String(bytes, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number in OBJ file: " + new String(bytes,
+                        StandardCharsets.US_ASCII), e);
+            }
+        }
+
+        /**
+         * Parses a face corner of the form {@code v}, {@code v/vt}, {@code v//vn} or {@code v/vt/vn} into the
+         * position, texture and normal index followed by one flag per index which is set if the index is relative.
+         * Absolute indices are converted to zero based indices, relative indices are resolved against the start of
+         * the chunk.
+         */
+        private void parseCorner(Chunk chunk, int[] corner) {
+            Arrays.fill(corner, 0);
+            resolve(corner, 0, parseIndex(), chunk.positions.size() / 3);
+            corner[1] = corner[2] = MISSING;
+            if (position < limit && data.get(position) == '/') {
+                position++;
+                if (position < limit && data.get(position) != '/')
+                    resolve(corner, 1, parseIndex(), chunk.uvs.size() / 2);
+                if (position < limit && data.get(position) == '/') {
+                    position++;
+                    resolve(corner, 2, parseIndex(), chunk.normals.size() / 3);
+                }
+            }
+            while (position < limit && !isDelimiter(data.get(position)))
+                position++;
+        }
+
+        private static void resolve(int[] corner, int element, int index, int chunkCount) {
+            if (index == 0)
+                throw new IllegalArgumentException("OBJ index 0 is invalid");
+            corner[element] = index > 0 ? index - 1 : chunkCount + index;
+            corner[element + 3] = index < 0 ? 1 : 0;
+        }
+
+        private int parseIndex() {
+            boolean negative = false;
+            if (position < limit && data.get(position) == '-') {
+                negative = true;
+                position++;
+            }
+            int value = 0;
+            byte b;
+            while (position < limit && (b = data.get(position)) >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                position++;
+            }
+            return negative ? -value : value;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.nebula;
+
+import org.junit.Test;
+import org.nebula.base.interfaces.IDisposable;
+import org.nebula.jgl.asset.AssetManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AssetManagerTest {
+
+    private static final class FakeAsset implements IDisposable {
+        private final String path;
+        private final long size;
+        private boolean disposed;
+
+        private FakeAsset(String path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+
+        @Override
+        public void dispose() {
+            disposed = true;
+        }
+    }
+
+    private final List<FakeAsset> loaded = new ArrayList<>();
+
+    private AssetManager createManager(long budget) {
+        final AssetManager manager = new AssetManager(budget);
+        manager.registerLoader(FakeAsset.class, path -> {
+            final FakeAsset asset = new FakeAsset(path, 100);
+            loaded.add(asset);
+            return asset;
+        }, asset -> asset.size);
+        return manager;
+    }
+
+    @Test
+    public void deduplicatesByPath() {
+        final AssetManager manager = createManager(1000);
+        final AssetManager.Handle<FakeAsset> a = manager.acquire(FakeAsset.class, "a");
+        final AssetManager.Handle<FakeAsset> b = manager.acquire(FakeAsset.class, "a");
+        assertSame(a.get(), b.get());
+        assertEquals(1, loaded.size());
+
+        final AssetManager.Metrics metrics = manager.getMetrics();
+        assertEquals(1, metrics.hits());
+        assertEquals(1, metrics.misses());
+        assertEquals(100, metrics.residentBytes());
+        manager.dispose();
+        assertTrue(loaded.get(0).disposed);
+    }
+
+    @Test
+    public void evictsUnreferencedBeforeLeastRecentlyUsed() {
+        final AssetManager manager = createManager(250);
+        final AssetManager.Handle<FakeAsset> a = manager.acquire(FakeAsset.class, "a");
+        final AssetManager.Handle<FakeAsset> b = manager.acquire(FakeAsset.class, "b");
+        b.dispose();
+        manager.update();
+        a.get();
+        manager.update();
+
+        // Loading c exceeds the budget, b is unreferenced and goes first
+        final AssetManager.Handle<FakeAsset> c = manager.acquire(FakeAsset.class, "c");
+        assertTrue(loaded.get(1).disposed);
+        assertTrue(a.isResident());
+        assertEquals(200, manager.getResidentBytes());
+
+        // All assets are referenced, the least recently used one is evicted and reloaded on use
+        manager.update();
+        c.get();
+        manager.acquire(FakeAsset.class, "d");
+        assertFalse(a.isResident());
+        assertTrue(c.isResident());
+        assertEquals("a", a.get().path);
+        assertEquals(5, loaded.size());
+        assertEquals(2, manager.getMetrics().evictions());
+    }
+
+    @Test
+    public void neverEvictsAssetsUsedThisFrame() {
+        final AssetManager manager = createManager(150);
+        final AssetManager.Handle<FakeAsset> a = manager.acquire(FakeAsset.class, "a");
+        final AssetManager.Handle<FakeAsset> b = manager.acquire(FakeAsset.class, "b");
+        assertTrue(a.isResident() && b.isResident());
+        assertEquals(200, manager.getResidentBytes());
+
+        manager.update();
+        b.get();
+        manager.update();
+        assertFalse(a.isResident());
+        assertTrue(b.isResident());
+    }
+
+    @Test
+    public void purgesUnreferencedAssets() {
+        final AssetManager manager = createManager(1000);
+        final AssetManager.Handle<FakeAsset> a = manager.acquire(FakeAsset.class, "a");
+        manager.acquire(FakeAsset.class, "b").dispose();
+        manager.purgeUnreferenced();
+        assertTrue(a.isResident());
+        assertEquals(100, manager.getResidentBytes());
+        assertTrue(loaded.get(1).disposed);
+
+        a.dispose();
+        assertThrows(IllegalStateException.class, a::get);
+    }
+}
@@ -0,0 +1,54 @@
+package org.nebula;
+
+import org.junit.Test;
+import org.nebula.jgl.data.texture.DirtyRegion;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DirtyRegionTest {
+
+    @Test
+    public void mergesOverlappingAndAdjacentRectangles() {
+        final DirtyRegion region = new DirtyRegion(256, 256);
+        region.add(10, 10, 20, 20);
+        region.add(15, 15, 10, 10);
+        region.add(30, 10, 20, 20);
+        assertEquals(List.of(new DirtyRegion.Rectangle(10, 10, 40, 20)), region.getRectangles());
+
+        // Far apart rectangles are kept separate
+        region.add(200, 200, 8, 8);
+        assertEquals(2, region.getRectangles().size());
+        assertEquals(40 * 20 + 8 * 8, region.getArea());
+    }
+
+    @Test
+    public void clampsToTheImage() {
+        final DirtyRegion region = new DirtyRegion(64, 32);
+        region.add(-10, 20, 30, 30);
+        region.add(100, 0, 10, 10);
+        region.add(5, 5, 0, 10);
+        assertEquals(List.of(new DirtyRegion.Rectangle(0, 20, 20, 12)), region.getRectangles());
+    }
+
+    @Test
+    public void boundsTheRectangleCount() {
+        final DirtyRegion region = new DirtyRegion(4096, 4096, 4);
+        for (int i = 0; i < 100; i++)
+            region.add(i * 37 % 4000, i * 91 % 4000, 4, 4);
+        assertTrue(region.getRectangles().size() <= 4);
+
+        // Every marked pixel is still covered
+        for (int i = 0; i < 100; i++) {
+            final int x = i * 37 % 4000, y = i * 91 % 4000;
+            assertTrue(region.getRectangles().stream().anyMatch(rectangle -> rectangle.x() <= x &&
+                    rectangle.y() <= y && rectangle.x() + rectangle.width() >= x + 4 &&
+                    rectangle.y() + rectangle.height() >= y + 4));
+        }
+        region.clear();
+        assertTrue(region.isEmpty());
+        region.invalidate();
+        assertEquals(4096L * 4096, region.getArea());
+    }
+}
@@ -0,0 +1,94 @@
+package org.nebula;
+
+import org.joml.Vector3f;
+import org.nebula.io.Files;
+import org.nebula.jgl.batch.RenderBatch;
+import org.nebula.jgl.camera.OrthographicCamera;
+import org.nebula.jgl.data.shader.Shader;
+import org.nebula.jgl.data.texture.DynamicTexture;
+import org.nebula.jglfw.GLFWWindow;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+/**
+ * Paints a few brush stamps onto a 4096x4096 canvas every frame. Only the changed rectangles are uploaded, the number
+ * of uploads and the uploaded bytes are printed every second next to the size of a full upload.
+ */
+public class DynamicTextureTest {
+    private static final int SIZE = 4096, BRUSH = 32, STAMPS_PER_FRAME = 24;
+
+    private final RenderBatch batch;
+    private final GLFWWindow window;
+    private final OrthographicCamera camera;
+    private final DynamicTexture canvas;
+    private final ByteBuffer brush;
+    private final Random random = new Random(7);
+    private float brushX = SIZE / 2f, brushY = SIZE / 2f;
+    private long lastReport = System.nanoTime(), lastBytes;
+    private int frames, uploads;
+
+    public DynamicTextureTest() {
+        final float size = 1;
+        camera = new OrthographicCamera(new Vector3f(), -size, size, -size, size, -size, size);
+        window = new GLFWWindow(getClass().getName());
+        window.setRenderer(this::draw);
+        window.createGLCapabilities();
+
+        this.batch = new RenderBatch();
+        Shader shader = new Shader(Files.readResourceAsString("shaders/default/default.vert"),
+                Files.readResourceAsString("shaders/default/default.frag"));
+        batch.setShader(shader);
+
+        canvas = new DynamicTexture(SIZE, SIZE, 4);
+        brush = memAlloc(BRUSH * BRUSH * 4);
+
+        window.loop();
+        window.dispose();
+        batch.dispose();
+        canvas.dispose();
+        memFree(brush);
+    }
+
+    public static void main(String[] args) {
+        new DynamicTextureTest();
+    }
+
+    private void paint() {
+        for (int i = 0; i < STAMPS_PER_FRAME; i++) {
+            // A random walk, like a stroke of the mouse
+            brushX = Math.clamp(brushX + random.nextFloat(-12, 12), 0, SIZE - BRUSH);
+            brushY = Math.clamp(brushY + random.nextFloat(-12, 12), 0, SIZE - BRUSH);
+            final byte red = (byte) (brushX / SIZE * 255), blue = (byte) (brushY / SIZE * 255);
+            brush.clear();
+            for (int pixel = 0; pixel < BRUSH * BRUSH; pixel++)
+                brush.put(red).put((byte) 0x80).put(blue).put((byte) 0xFF);
+            brush.flip();
+            canvas.write((int) brushX, (int) brushY, BRUSH, BRUSH, brush);
+        }
+    }
+
+    private void draw() {
+        paint();
+        uploads += canvas.flush();
+        frames++;
+        if (System.nanoTime() - lastReport > 1_000_000_000L) {
+            System.out.printf("%d frames, %.1f uploads and %d KiB per frame, a full upload is %d KiB%n", frames,
+                    (double) uploads / frames, (canvas.getUploadedBytes() - lastBytes) / frames >> 10,
+                    (long) SIZE * SIZE * 4 >> 10);
+            lastReport = System.nanoTime();
+            lastBytes = canvas.getUploadedBytes();
+            frames = 0;
+            uploads = 0;
+        }
+
+        batch.setViewMatrix(camera.getView());
+        batch.setProjectionMatrix(camera.getProjection());
+        batch.begin();
+        batch.texture(canvas.getTexture(), -1, -1, 2, 2);
+        batch.end();
+    }
+}
@@ -0,0 +1,99 @@
+package org.nebula;
+
+import org.junit.Test;
+import org.nebula.jgl.data.buffer.FreeListAllocator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FreeListAllocatorTest {
+
+    @Test
+    public void allocatesUntilFull() {
+        FreeListAllocator allocator = new FreeListAllocator(100);
+        assertEquals(0, allocator.allocate(40));
+        assertEquals(40, allocator.allocate(60));
+        assertEquals(-1, allocator.allocate(1));
+        assertEquals(100, allocator.getUsed());
+    }
+
+    @Test
+    public void coalescesFreedNeighbours() {
+        FreeListAllocator allocator = new FreeListAllocator(30);
+        int a = allocator.allocate(10);
+        int b = allocator.allocate(10);
+        int c = allocator.allocate(10);
+
+        allocator.free(a);
+        allocator.free(c);
+        assertEquals(10, allocator.getLargestFreeRange());
+        assertEquals(0.5f, allocator.getFragmentation(), 1e-6f);
+
+        allocator.free(b);
+        assertEquals(30, allocator.getLargestFreeRange());
+        assertEquals(0f, allocator.getFragmentation(), 1e-6f);
+    }
+
+    @Test
+    public void prefersBestFittingRange() {
+        FreeListAllocator allocator = new FreeListAllocator(100);
+        int a = allocator.allocate(50);
+        allocator.allocate(10);
+        int c = allocator.allocate(5);
+        allocator.allocate(35);
+
+        allocator.free(a);
+        allocator.free(c);
+        assertEquals(c, allocator.allocate(5));
+    }
+
+    @Test
+    public void growAppendsFreeSpace() {
+        FreeListAllocator allocator = new FreeListAllocator(10);
+        allocator.allocate(5);
+        allocator.grow(20);
+        assertEquals(15, allocator.getLargestFreeRange());
+        assertEquals(5, allocator.allocate(15));
+    }
+
+    @Test
+    public void neverHandsOutOverlappingRanges() {
+        FreeListAllocator allocator = new FreeListAllocator(4096);
+        boolean[] taken = new boolean[4096];
+        List<int[]> allocations = new ArrayList<>();
+        Random random = new Random(11);
+        for (int step = 0; step < 20_000; step++) {
+            if (allocations.isEmpty() || random.nextInt(3) != 0) {
+                int size = 1 + random.nextInt(random.nextBoolean() ? 8 : 300);
+                int offset = allocator.allocate(size);
+                if (offset < 0) {
+                    assertTrue(allocator.getLargestFreeRange() < size);
+                    continue;
+                }
+                for (int i = offset; i < offset + size; i++) {
+                    assertFalse(taken[i]);
+                    taken[i] = true;
+                }
+                allocations.add(new int[]{offset, size});
+            } else {
+                int[] allocation = allocations.remove(random.nextInt(allocations.size()));
+                allocator.free(allocation[0]);
+                Arrays.fill(taken, allocation[0], allocation[0] + allocation[1], false);
+            }
+        }
+
+        for (int[] allocation : allocations)
+            allocator.free(allocation[0]);
+        assertEquals(0, allocator.getUsed());
+        assertEquals(4096, allocator.getLargestFreeRange());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownOffsets() {
+        new FreeListAllocator(10).free(3);
+    }
+}
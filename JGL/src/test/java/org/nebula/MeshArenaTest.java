@@ -0,0 +1,101 @@
+package org.nebula;
+
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.lwjgl.opengl.GL;
+import org.nebula.jgl.data.buffer.Buffer;
+import org.nebula.jgl.data.buffer.Mesh;
+import org.nebula.jgl.data.buffer.MeshArena;
+import org.nebula.jgl.data.shader.VertexAttrib;
+import org.nebula.jgl.data.shader.VertexAttribs;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static org.lwjgl.glfw.GLFW.*;
+import static org.lwjgl.opengl.GL33C.*;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+/**
+ * Runs against a hidden window's OpenGL context and is skipped where no context can be created, e.g. without a display.
+ */
+public class MeshArenaTest {
+    private static final VertexAttribs LAYOUT = new VertexAttribs(new VertexAttrib[]{
+            new VertexAttrib("vPos", 3, 3 * Float.BYTES, 0, Buffer.Datatype.FLOAT)
+    });
+    private static long window = NULL;
+
+    @BeforeClass
+    public static void createContext() {
+        Assume.assumeTrue("GLFW is not available", glfwInit());
+        glfwDefaultWindowHints();
+        glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 3);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3);
+        glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
+        window = glfwCreateWindow(16, 16, MeshArenaTest.class.getName(), NULL, NULL);
+        if (window == NULL)
+            glfwTerminate();
+        Assume.assumeTrue("No OpenGL 3.3 context", window != NULL);
+        glfwMakeContextCurrent(window);
+        GL.createCapabilities();
+    }
+
+    @AfterClass
+    public static void destroyContext() {
+        if (window == NULL)
+            return;
+        GL.setCapabilities(null);
+        glfwDestroyWindow(window);
+        glfwTerminate();
+    }
+
+    private static Mesh mesh(int vertexCount, float value) {
+        final float[] vertices = new float[vertexCount * 3];
+        Arrays.fill(vertices, value);
+        final int[] indices = new int[vertexCount];
+        for (int i = 0; i < vertexCount; i++)
+            indices[i] = i;
+        return new Mesh(null, vertices, indices);
+    }
+
+    private static float[] residentVertices(MeshArena arena, MeshArena.Region region) {
+        final float[] vertices = new float[region.vertexCount() * 3];
+        arena.getVertexBuffer().bind();
+        glGetBufferSubData(GL_ARRAY_BUFFER, (long) region.baseVertex() * 3 * Float.BYTES, vertices);
+        return vertices;
+    }
+
+    @Test
+    public void resizingAResidentMeshInAFullArenaKeepsOthersIntact() {
+        final MeshArena arena = new MeshArena(LAYOUT, 10, 10);
+        final Mesh a = mesh(4, 1), b = mesh(4, 2);
+        arena.makeResident(a);
+        final int generation = arena.getGeneration();
+        arena.makeResident(b);
+
+        // Growing a leaves its old range as a gap in front of b, so the arena has to compact
+        final float[] vertices = new float[6 * 3];
+        Arrays.fill(vertices, 3);
+        a.setVertices(vertices);
+        a.setIndices(new int[]{0, 1, 2, 3, 4, 5});
+        final MeshArena.Region resized = arena.makeResident(a);
+        assertNotEquals(generation, arena.getGeneration());
+        assertTrue(resized.baseVertex() >= 0 && resized.firstIndex() >= 0);
+        assertEquals(6, resized.vertexCount());
+        assertEquals(2, arena.getResidentMeshCount());
+        // Nothing leaked, so the compacted arena was not grown
+        assertEquals((10L * 3 * Float.BYTES) + 10L * Integer.BYTES, arena.getCapacityBytes());
+        assertEquals(arena.getCapacityBytes(), arena.getResidentBytes());
+
+        final MeshArena.Region other = arena.getRegion(b);
+        assertTrue(resized.baseVertex() + 6 <= other.baseVertex() || other.baseVertex() + 4 <= resized.baseVertex());
+        for (float value : residentVertices(arena, resized))
+            assertEquals(3, value, 0);
+        for (float value : residentVertices(arena, other))
+            assertEquals(2, value, 0);
+        arena.dispose();
+    }
+}
@@ -32,10 +32,10 @@ public class MeshBatchTest {
                 Files.readResourceAsString("shaders/meshbatch/meshbatch.frag"));
         meshBatch = new MeshBatch();
         final float[] vertices = {
-                -75f, -75f, 1, 0, 0, 1, // Lower left
-                75f, -75f, 0, 0, 1, 1, // Lower right
-                -75f, 75f, 0, 1, 0, 1, // Upper left
-                75f, 75f, 1, 0, 1, 1, // Upper right
+                -75f, -75f, 0, 1, 0, 0, 1, // Lower left
+                75f, -75f, 0, 0, 0, 1, 1, // Lower right
+                -75f, 75f, 0, 0, 1, 0, 1, // Upper left
+                75f, 75f, 0, 1, 0, 1, 1, // Upper right
         };
         final int[] indices = {
                 0, 1, 2,
@@ -0,0 +1,143 @@
+package org.nebula;
+
+import org.joml.Vector3f;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nebula.jgl.data.buffer.Buffer;
+import org.nebula.jgl.data.buffer.Mesh;
+import org.nebula.jgl.data.buffer.MeshLod;
+import org.nebula.jgl.data.shader.VertexAttrib;
+import org.nebula.jgl.data.shader.VertexAttribs;
+import org.nebula.jgl.io.MeshFile;
+import org.nebula.math.Bounds;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class MeshFileTest {
+    private static final VertexAttribs LAYOUT = new VertexAttribs(new VertexAttrib[]{
+            new VertexAttrib("vPos", 3, 3 * Float.BYTES, 0, Buffer.Datatype.FLOAT),
+            new VertexAttrib("vCol", 4, 4 * Float.BYTES, 1, Buffer.Datatype.FLOAT)
+    });
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static float[] quadVertices() {
+        return new float[]{
+                -1, -2, 0, 1, 0, 0, 1,
+                1, -2, 0, 0, 1, 0, 1,
+                1, 2, 1, 0, 0, 1, 1,
+                -1, 2, 0, 1, 1, 1, 1
+        };
+    }
+
+    private static float[] vertices(Mesh mesh) {
+        float[] vertices = new float[mesh.getVertexDataSize()];
+        mesh.getVertices().get(0, vertices);
+        return vertices;
+    }
+
+    private static int[] indices(Mesh mesh) {
+        int[] indices = new int[mesh.getIndexCount()];
+        mesh.copyIndices(indices, 0);
+        return indices;
+    }
+
+    @Test
+    public void roundTripsLevelsLayoutAndBounds() throws IOException {
+        Mesh full = new Mesh(null, quadVertices(), new int[]{0, 1, 2, 0, 2, 3});
+        Mesh coarse = new Mesh(null, new float[]{-1, -2, 0, 1, 0, 0, 1, 1, -2, 0, 0, 1, 0, 1, 1, 2, 1, 0, 0, 1, 1},
+                new int[]{0, 1, 2});
+        MeshLod lod = new MeshLod(new Mesh[]{full, coarse}, new float[]{0, 0.5f}, new Vector3f(), 1);
+        Path path = folder.newFile("quad.mesh").toPath();
+        try {
+            MeshFile.write(path, LAYOUT, lod);
+            MeshFile file = MeshFile.load(path, null);
+
+            assertEquals(2, file.getLevelCount());
+            assertArrayEquals(vertices(full), vertices(file.getLevel(0)), 0f);
+            assertArrayEquals(indices(full), indices(file.getLevel(0)));
+            assertArrayEquals(vertices(coarse), vertices(file.getLevel(1)), 0f);
+            assertArrayEquals(indices(coarse), indices(file.getLevel(1)));
+            assertEquals(0.5f, file.getError(1), 0f);
+
+            assertEquals(LAYOUT.toString(), file.getLayout().toString());
+            assertEquals(new Vector3f(-1, -2, 0), file.getBoundsMin());
+            assertEquals(new Vector3f(1, 2, 1), file.getBoundsMax());
+            assertEquals(new Vector3f(0, 0, 0.5f), file.getCenter());
+            assertEquals(Math.sqrt(1 + 4 + 0.25), file.getRadius(), 1e-6);
+            assertEquals(2, file.toMeshLod().getLevelCount());
+            assertEquals(0, Files.size(path) % MeshFile.ALIGNMENT);
+
+            // Every level takes the stored bounds instead of scanning its vertices
+            Bounds stored = new Bounds(new Vector3f(-1, -2, 0), new Vector3f(1, 2, 1));
+            assertEquals(stored, file.getLevel(0).getBounds(LAYOUT.getVertexSize()));
+            assertEquals(stored, file.getLevel(1).getBounds(LAYOUT.getVertexSize()));
+        } finally {
+            full.dispose();
+            coarse.dispose();
+        }
+    }
+
+    @Test
+    public void wrapsMappedMemoryWithoutOwnership() throws IOException {
+        Mesh mesh = new Mesh(null, quadVertices(), new int[]{0, 1, 2, 0, 2, 3});
+        Path path = folder.newFile("owned.mesh").toPath();
+        MeshFile.write(path, LAYOUT, mesh);
+        mesh.dispose();
+
+        Mesh loaded = MeshFile.load(path, null).getMesh();
+        assertTrue(loaded.getVertices().isDirect());
+        assertFalse(loaded.isOwningMemory());
+
+        // Replacing a mapped buffer must not free it, the replacement is owned by the mesh
+        loaded.setIndices(new int[]{0, 1, 2});
+        assertTrue(loaded.isOwningMemory());
+        assertEquals(3, loaded.getIndexCount());
+        assertEquals(1f, loaded.getVertices().get(7), 0f);
+        loaded.dispose();
+    }
+
+    @Test
+    public void loadsFilesAlreadyInMemory() throws IOException {
+        Mesh mesh = new Mesh(null, quadVertices(), new int[]{0, 1, 2, 0, 2, 3});
+        Path path = folder.newFile("memory.mesh").toPath();
+        MeshFile.write(path, LAYOUT, mesh);
+
+        // Like a pooled resource buffer: larger than the file and not positioned at its start
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer contents = ByteBuffer.allocateDirect(bytes.length + 64).put(bytes).flip().position(8);
+        Mesh loaded = MeshFile.load(contents, "memory.mesh", null).getMesh();
+        assertArrayEquals(quadVertices(), vertices(loaded), 0f);
+        assertArrayEquals(new int[]{0, 1, 2, 0, 2, 3}, indices(loaded));
+        assertEquals(8, contents.position());
+        mesh.dispose();
+    }
+
+    @Test
+    public void replacesExistingFilesWithoutLeavingTemporaryFiles() throws IOException {
+        Mesh mesh = new Mesh(null, quadVertices(), new int[]{0, 1, 2, 0, 2, 3});
+        Path path = folder.newFile("replaced.mesh").toPath();
+        Files.write(path, new byte[1024]);
+        MeshFile.write(path, LAYOUT, mesh);
+
+        assertArrayEquals(quadVertices(), vertices(MeshFile.load(path, null).getMesh()), 0f);
+        try (var files = Files.list(path.getParent())) {
+            assertEquals(1, files.count());
+        }
+        mesh.dispose();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsForeignFiles() throws IOException {
+        Path path = folder.newFile("foreign.mesh").toPath();
+        Files.write(path, new byte[128]);
+        MeshFile.load(path, null);
+    }
+}
@@ -0,0 +1,76 @@
+package org.nebula;
+
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.nebula.io.Files;
+import org.nebula.jgl.batch.MeshBatch;
+import org.nebula.jgl.camera.OrthographicCamera;
+import org.nebula.jgl.data.buffer.Mesh;
+import org.nebula.jgl.data.shader.Shader;
+import org.nebula.jglfw.GLFWWindow;
+import org.nebula.math.Transform;
+
+public class MeshInstancingTest {
+    private static final int GRID_SIZE = 100;
+    private final MeshBatch meshBatch;
+    private final GLFWWindow window;
+    private final Mesh mesh;
+    private final OrthographicCamera camera;
+    private final Transform[] transforms;
+
+    public MeshInstancingTest() {
+        final float size = 1;
+        camera = new OrthographicCamera(new Vector3f(), -size, size, -size, size, -size, size);
+        window = new GLFWWindow(getClass().getName());
+        window.createGLCapabilities();
+        window.setWindowIcon(Files.readImageFromResource("images/nebula.png"));
+
+        Shader shader = new Shader(Files.readResourceAsString("shaders/meshbatch/instanced.vert"),
+                Files.readResourceAsString("shaders/meshbatch/meshbatch.frag"));
+        meshBatch = new MeshBatch();
+        meshBatch.setInstanceShader(shader);
+
+        final float half = 0.4f / GRID_SIZE;
+        final float[] vertices = {
+                -half, -half, 0, 1, 0, 0, 1, // Lower left
+                half, -half, 0, 0, 0, 1, 1, // Lower right
+                -half, half, 0, 0, 1, 0, 1, // Upper left
+                half, half, 0, 1, 0, 1, 1, // Upper right
+        };
+        final int[] indices = {
+                0, 1, 2,
+                1, 3, 2
+        };
+        mesh = new Mesh(shader, vertices, indices);
+
+        transforms = new Transform[GRID_SIZE * GRID_SIZE];
+        for (int i = 0; i < transforms.length; i++) {
+            final float x = -1 + (i % GRID_SIZE + 0.5f) * 2f / GRID_SIZE;
+            final float y = -1 + (i / GRID_SIZE + 0.5f) * 2f / GRID_SIZE;
+            transforms[i] = new Transform(new Vector3f(x, y, 0), new Vector2f());
+        }
+
+        window.setRenderer(this::draw);
+        window.loop();
+
+        window.dispose();
+        shader.dispose();
+        mesh.dispose();
+        meshBatch.dispose();
+    }
+
+    public static void main(String[] args) {
+        new MeshInstancingTest();
+    }
+
+    private void draw() {
+        for (Transform transform : transforms)
+            transform.getRotation().x += 1f;
+
+        meshBatch.setViewMatrix(camera.getView());
+        meshBatch.setProjectionMatrix(camera.getProjection());
+        meshBatch.begin();
+        meshBatch.meshInstanced(mesh, transforms);
+        meshBatch.end();
+    }
+}
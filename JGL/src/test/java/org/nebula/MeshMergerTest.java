@@ -0,0 +1,166 @@
+package org.nebula;
+
+import org.junit.After;
+import org.junit.Test;
+import org.lwjgl.system.MemoryUtil;
+import org.nebula.jgl.batch.MeshMerger;
+import org.nebula.jgl.data.buffer.Mesh;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MeshMergerTest {
+    private static final int VERTEX_SIZE = 7;
+    private final List<Mesh> meshes = new ArrayList<>();
+
+    @After
+    public void disposeMeshes() {
+        meshes.forEach(Mesh::dispose);
+        meshes.clear();
+    }
+
+    private void createMeshes(int count, int maxVertices, long seed) {
+        Random random = new Random(seed);
+        for (int m = 0; m < count; m++) {
+            final int vertexCount = 3 + random.nextInt(maxVertices);
+            final float[] vertices = new float[vertexCount * VERTEX_SIZE];
+            for (int i = 0; i < vertices.length; i++)
+                vertices[i] = random.nextFloat();
+            // Index count deliberately differs from the vertex count, unlike a trivial index list
+            final int[] indices = new int[3 * (1 + random.nextInt(2 * vertexCount))];
+            for (int i = 0; i < indices.length; i++)
+                indices[i] = random.nextInt(vertexCount);
+            meshes.add(new Mesh(null, vertices, indices));
+        }
+    }
+
+    /**
+     * Straightforward element-by-element merge the optimized implementation is checked against.
+     */
+    private static float[] referenceVertices(List<Mesh> meshes) {
+        List<Float> merged = new ArrayList<>();
+        for (Mesh mesh : meshes) {
+            FloatBuffer vertices = mesh.getVertices();
+            while (vertices.hasRemaining())
+                merged.add(vertices.get());
+        }
+        float[] result = new float[merged.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = merged.get(i);
+        return result;
+    }
+
+    private static int[] referenceIndices(List<Mesh> meshes) {
+        List<Integer> merged = new ArrayList<>();
+        int base = 0;
+        for (Mesh mesh : meshes) {
+            IntBuffer indices = mesh.getIndices();
+            while (indices.hasRemaining())
+                merged.add(indices.get() + base);
+            base += mesh.getVertices().limit() / VERTEX_SIZE;
+        }
+        return merged.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    public void mergesVerticesLikeReference() {
+        createMeshes(50, 40, 1);
+        MeshMerger merger = new MeshMerger();
+        merger.prepare(meshes, VERTEX_SIZE);
+
+        FloatBuffer merged = MemoryUtil.memAllocFloat(merger.getVertexDataSize());
+        try {
+            merger.mergeVertices(meshes, merged);
+            float[] actual = new float[merged.limit()];
+            merged.get(0, actual);
+            assertArrayEquals(referenceVertices(meshes), actual, 0f);
+        } finally {
+            MemoryUtil.memFree(merged);
+        }
+    }
+
+    @Test
+    public void mergesIntIndicesLikeReference() {
+        createMeshes(50, 40, 2);
+        MeshMerger merger = new MeshMerger();
+        merger.prepare(meshes, VERTEX_SIZE);
+
+        IntBuffer merged = MemoryUtil.memAllocInt(merger.getIndexCount());
+        try {
+            merger.mergeIndices(meshes, merged);
+            int[] actual = new int[merged.limit()];
+            merged.get(0, actual);
+            assertArrayEquals(referenceIndices(meshes), actual);
+        } finally {
+            MemoryUtil.memFree(merged);
+        }
+    }
+
+    @Test
+    public void mergesShortIndicesLikeReference() {
+        createMeshes(400, 300, 3);
+        MeshMerger merger = new MeshMerger();
+        merger.prepare(meshes, VERTEX_SIZE);
+        assertTrue(merger.getVertexCount() > Short.MAX_VALUE);
+        assertTrue(merger.fitsShortIndices());
+
+        ShortBuffer merged = MemoryUtil.memAllocShort(merger.getIndexCount());
+        try {
+            merger.mergeIndices(meshes, merged);
+            int[] expected = referenceIndices(meshes);
+            assertEquals(expected.length, merged.limit());
+            for (int i = 0; i < expected.length; i++)
+                assertEquals(expected[i], Short.toUnsignedInt(merged.get(i)));
+        } finally {
+            MemoryUtil.memFree(merged);
+        }
+    }
+
+    @Test
+    public void computesPrefixSumOffsets() {
+        createMeshes(10, 20, 4);
+        MeshMerger merger = new MeshMerger();
+        merger.prepare(meshes, VERTEX_SIZE);
+
+        int vertices = 0, indices = 0;
+        for (int i = 0; i < meshes.size(); i++) {
+            assertEquals(vertices, merger.getVertexOffset(i));
+            assertEquals(indices, merger.getIndexOffset(i));
+            vertices += meshes.get(i).getVertexCount(VERTEX_SIZE);
+            indices += meshes.get(i).getIndexCount();
+        }
+        assertEquals(vertices, merger.getVertexCount());
+        assertEquals(indices, merger.getIndexCount());
+    }
+
+    @Test
+    public void reusesScratchAcrossFrames() {
+        createMeshes(20, 30, 5);
+        MeshMerger merger = new MeshMerger();
+        IntBuffer merged = MemoryUtil.memAllocInt(1 << 16);
+        try {
+            merger.prepare(meshes, VERTEX_SIZE);
+            merger.mergeIndices(meshes, merged);
+            merger.prepare(meshes.subList(5, 10), VERTEX_SIZE);
+            merger.mergeIndices(meshes.subList(5, 10), merged);
+
+            int[] actual = new int[merged.limit()];
+            merged.get(0, actual);
+            assertArrayEquals(referenceIndices(meshes.subList(5, 10)), actual);
+        } finally {
+            MemoryUtil.memFree(merged);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsVerticesNotMatchingLayout() {
+        meshes.add(new Mesh(null, new float[VERTEX_SIZE + 1], new int[]{0, 0, 0}));
+        new MeshMerger().prepare(meshes, VERTEX_SIZE);
+    }
+}
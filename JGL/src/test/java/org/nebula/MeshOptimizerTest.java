@@ -0,0 +1,139 @@
+package org.nebula;
+
+import org.junit.Test;
+import org.nebula.jgl.data.buffer.Mesh;
+import org.nebula.jgl.data.buffer.MeshOptimizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MeshOptimizerTest {
+    private static final int VERTEX_SIZE = 7;
+    private static final int GRID_SIZE = 32;
+
+    /**
+     * Builds a GRID_SIZE x GRID_SIZE quad grid as an unindexed triangle soup with shuffled triangles.
+     */
+    private static float[] shuffledGridSoup(long seed) {
+        List<float[]> triangles = new ArrayList<>();
+        for (int y = 0; y < GRID_SIZE; y++) {
+            for (int x = 0; x < GRID_SIZE; x++) {
+                triangles.add(triangle(x, y, x + 1, y, x, y + 1));
+                triangles.add(triangle(x + 1, y, x + 1, y + 1, x, y + 1));
+            }
+        }
+        Collections.shuffle(triangles, new Random(seed));
+
+        float[] vertices = new float[triangles.size() * 3 * VERTEX_SIZE];
+        for (int t = 0; t < triangles.size(); t++)
+            System.arraycopy(triangles.get(t), 0, vertices, t * 3 * VERTEX_SIZE, 3 * VERTEX_SIZE);
+        return vertices;
+    }
+
+    private static float[] triangle(int x0, int y0, int x1, int y1, int x2, int y2) {
+        return new float[]{
+                x0, y0, 0, 1, 1, 1, 1,
+                x1, y1, 0, 1, 1, 1, 1,
+                x2, y2, 0, 1, 1, 1, 1
+        };
+    }
+
+    private static List<String> triangleSet(float[] vertices, int[] indices) {
+        List<String> triangles = new ArrayList<>();
+        for (int t = 0; t < indices.length / 3; t++) {
+            List<String> corners = new ArrayList<>();
+            for (int k = 0; k < 3; k++) {
+                int v = indices[t * 3 + k] * VERTEX_SIZE;
+                corners.add(vertices[v] + "," + vertices[v + 1] + "," + vertices[v + 2]);
+            }
+            Collections.sort(corners);
+            triangles.add(String.join(";", corners));
+        }
+        Collections.sort(triangles);
+        return triangles;
+    }
+
+    @Test
+    public void weldsAndImprovesVertexCache() {
+        float[] soup = shuffledGridSoup(1);
+        Mesh mesh = new Mesh(soup);
+        MeshOptimizer.Result result = MeshOptimizer.optimize(mesh, VERTEX_SIZE);
+        Mesh optimized = result.mesh();
+        try {
+            assertEquals((GRID_SIZE + 1) * (GRID_SIZE + 1), optimized.getVertexCount(VERTEX_SIZE));
+            assertEquals(2 * GRID_SIZE * GRID_SIZE * 3, optimized.getIndexCount());
+
+            assertEquals(3f, result.before().acmr(), 0f);
+            assertTrue(result.after().acmr() < 1f);
+            assertTrue(result.after().atvr() < 1.5f);
+
+            float[] vertices = new float[optimized.getVertexDataSize()];
+            optimized.getVertices().get(0, vertices);
+            int[] indices = new int[optimized.getIndexCount()];
+            optimized.copyIndices(indices, 0);
+            int[] sequential = new int[soup.length / VERTEX_SIZE];
+            for (int i = 0; i < sequential.length; i++)
+                sequential[i] = i;
+            assertEquals(triangleSet(soup, sequential), triangleSet(vertices, indices));
+        } finally {
+            mesh.dispose();
+            optimized.dispose();
+        }
+    }
+
+    @Test
+    public void vertexCacheOptimizationKeepsTriangles() {
+        float[] soup = shuffledGridSoup(2);
+        int[] remap = new int[soup.length / VERTEX_SIZE];
+        int unique = MeshOptimizer.generateVertexRemap(soup, null, VERTEX_SIZE, remap);
+        float[] vertices = MeshOptimizer.remapVertices(soup, VERTEX_SIZE, remap, unique);
+        int[] indices = MeshOptimizer.remapIndices(null, remap);
+
+        int[] optimized = MeshOptimizer.optimizeVertexCache(indices, unique);
+        assertEquals(triangleSet(vertices, indices), triangleSet(vertices, optimized));
+        assertTrue(MeshOptimizer.analyzeVertexCache(optimized, unique, MeshOptimizer.DEFAULT_CACHE_SIZE).acmr()
+                < MeshOptimizer.analyzeVertexCache(indices, unique, MeshOptimizer.DEFAULT_CACHE_SIZE).acmr());
+    }
+
+    @Test(timeout = 10000)
+    public void vertexCacheOptimizationStaysLinearOnFragmentedMeshes() {
+        // Disjoint triangles never leave a candidate in the cache, every triangle is found by the fallback search
+        int[] indices = new int[300000 * 3];
+        for (int i = 0; i < indices.length; i++)
+            indices[i] = i;
+
+        assertArrayEquals(indices, MeshOptimizer.optimizeVertexCache(indices, indices.length));
+    }
+
+    @Test
+    public void vertexFetchOrdersByFirstUse() {
+        float[] vertices = {
+                0, 0, 0, 0, 0, 0, 0,
+                1, 0, 0, 0, 0, 0, 0,
+                2, 0, 0, 0, 0, 0, 0,
+                3, 0, 0, 0, 0, 0, 0
+        };
+        int[] indices = {3, 1, 0, 0, 1, 3};
+        float[] fetched = MeshOptimizer.optimizeVertexFetch(vertices, indices, VERTEX_SIZE);
+
+        assertArrayEquals(new int[]{0, 1, 2, 2, 1, 0}, indices);
+        assertEquals(3 * VERTEX_SIZE, fetched.length);
+        assertEquals(3f, fetched[0], 0f);
+        assertEquals(1f, fetched[VERTEX_SIZE], 0f);
+        assertEquals(0f, fetched[2 * VERTEX_SIZE], 0f);
+    }
+
+    @Test
+    public void analyzesFifoCache() {
+        MeshOptimizer.Statistics statistics = MeshOptimizer.analyzeVertexCache(new int[]{0, 1, 2, 2, 1, 3}, 4, 16);
+        assertEquals(2, statistics.triangles());
+        assertEquals(4, statistics.vertices());
+        assertEquals(4, statistics.transformed());
+        assertEquals(2f, statistics.acmr(), 0f);
+        assertEquals(1f, statistics.atvr(), 0f);
+    }
+}
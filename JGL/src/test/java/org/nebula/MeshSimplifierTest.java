@@ -0,0 +1,204 @@
+package org.nebula;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.junit.Test;
+import org.nebula.jgl.camera.OrthographicCamera;
+import org.nebula.jgl.data.buffer.Mesh;
+import org.nebula.jgl.data.buffer.MeshLod;
+import org.nebula.jgl.data.buffer.MeshSimplifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MeshSimplifierTest {
+    private static final int VERTEX_SIZE = 7;
+
+    private static float[] gridVertices(int size) {
+        float[] vertices = new float[(size + 1) * (size + 1) * VERTEX_SIZE];
+        for (int y = 0; y <= size; y++) {
+            for (int x = 0; x <= size; x++) {
+                int o = (y * (size + 1) + x) * VERTEX_SIZE;
+                vertices[o] = x;
+                vertices[o + 1] = y;
+                vertices[o + 3] = vertices[o + 4] = vertices[o + 5] = vertices[o + 6] = 1;
+            }
+        }
+        return vertices;
+    }
+
+    private static int[] gridIndices(int size) {
+        int[] indices = new int[size * size * 6];
+        int i = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int v = y * (size + 1) + x;
+                indices[i++] = v;
+                indices[i++] = v + 1;
+                indices[i++] = v + size + 1;
+                indices[i++] = v + 1;
+                indices[i++] = v + size + 2;
+                indices[i++] = v + size + 1;
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Builds a closed latitude/longitude sphere with shared vertices along the seam and at the poles.
+     */
+    private static Mesh sphere(int rings, int segments) {
+        int vertexCount = 2 + (rings - 1) * segments;
+        float[] vertices = new float[vertexCount * VERTEX_SIZE];
+        vertices[2] = 1;
+        vertices[VERTEX_SIZE + 2] = -1;
+        for (int r = 1; r < rings; r++) {
+            double theta = Math.PI * r / rings;
+            for (int s = 0; s < segments; s++) {
+                double phi = 2 * Math.PI * s / segments;
+                int o = (2 + (r - 1) * segments + s) * VERTEX_SIZE;
+                vertices[o] = (float) (Math.sin(theta) * Math.cos(phi));
+                vertices[o + 1] = (float) (Math.sin(theta) * Math.sin(phi));
+                vertices[o + 2] = (float) Math.cos(theta);
+            }
+        }
+
+        List<Integer> indices = new ArrayList<>();
+        for (int s = 0; s < segments; s++) {
+            int next = (s + 1) % segments;
+            indices.addAll(List.of(0, 2 + s, 2 + next));
+            int last = 2 + (rings - 2) * segments;
+            indices.addAll(List.of(1, last + next, last + s));
+        }
+        for (int r = 0; r < rings - 2; r++) {
+            for (int s = 0; s < segments; s++) {
+                int next = (s + 1) % segments;
+                int a = 2 + r * segments + s, b = 2 + r * segments + next;
+                int c = a + segments, d = b + segments;
+                indices.addAll(List.of(a, c, b, b, c, d));
+            }
+        }
+        return new Mesh(null, vertices, indices.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    @Test
+    public void collapsesFlatInteriorWithoutError() {
+        float[] vertices = gridVertices(20);
+        int[] indices = gridIndices(20);
+        float[] error = new float[1];
+        int[] simplified = MeshSimplifier.simplify(vertices, indices, VERTEX_SIZE, 0, 1e-4f, error);
+
+        assertTrue(simplified.length < indices.length / 4);
+        assertEquals(0, simplified.length % 3);
+        assertEquals(0f, error[0], 1e-4f);
+        // No triangle may have been flipped
+        for (int t = 0; t < simplified.length; t += 3) {
+            int a = simplified[t] * VERTEX_SIZE, b = simplified[t + 1] * VERTEX_SIZE, c = simplified[t + 2] * VERTEX_SIZE;
+            float cross = (vertices[b] - vertices[a]) * (vertices[c + 1] - vertices[a + 1])
+                    - (vertices[b + 1] - vertices[a + 1]) * (vertices[c] - vertices[a]);
+            assertTrue(cross > 0);
+        }
+    }
+
+    @Test
+    public void reducesClosedMeshToTarget() {
+        Mesh mesh = sphere(24, 32);
+        try {
+            float[] vertices = new float[mesh.getVertexDataSize()];
+            mesh.getVertices().get(0, vertices);
+            int[] indices = new int[mesh.getIndexCount()];
+            mesh.copyIndices(indices, 0);
+
+            float[] error = new float[1];
+            int[] simplified = MeshSimplifier.simplify(vertices, indices, VERTEX_SIZE, indices.length / 4, 1f, error);
+            assertTrue(simplified.length <= indices.length / 4);
+            assertTrue(simplified.length > 0);
+            assertTrue(error[0] > 0);
+        } finally {
+            mesh.dispose();
+        }
+    }
+
+    @Test
+    public void generatesLodChainsInParallel() {
+        List<Mesh> meshes = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            meshes.add(sphere(16 + 4 * i, 24 + 4 * i));
+        List<MeshLod> lods = MeshLod.generate(meshes, VERTEX_SIZE, 0.01f, 0.05f, 0.2f);
+        try {
+            assertEquals(meshes.size(), lods.size());
+            for (int i = 0; i < lods.size(); i++) {
+                MeshLod lod = lods.get(i);
+                assertSame(meshes.get(i), lod.getLevel(0));
+                assertTrue(lod.getLevelCount() > 1);
+                assertEquals(1f, lod.getRadius(), 1e-4f);
+                for (int level = 1; level < lod.getLevelCount(); level++) {
+                    assertTrue(lod.getLevel(level).getIndexCount() < lod.getLevel(level - 1).getIndexCount());
+                    assertTrue(lod.getError(level) > lod.getError(level - 1));
+                }
+            }
+        } finally {
+            lods.forEach(MeshLod::dispose);
+            meshes.forEach(Mesh::dispose);
+        }
+    }
+
+    @Test
+    public void selectsLevelsWithHysteresis() {
+        Mesh[] levels = new Mesh[3];
+        for (int i = 0; i < levels.length; i++)
+            levels[i] = new Mesh(null, new float[3 * VERTEX_SIZE], new int[]{0, 1, 2});
+        MeshLod lod = new MeshLod(levels, new float[]{0, 0.01f, 0.1f}, new Vector3f(), 1);
+        try {
+            assertEquals(1, lod.select(0.5f, 0.01f, 0.25f));
+            // Slightly above the threshold, but within the hysteresis band
+            assertEquals(1, lod.select(1.1f, 0.01f, 0.25f));
+            assertEquals(0, lod.select(1.3f, 0.01f, 0.25f));
+            // Back inside the band, the finer level is kept
+            assertEquals(0, lod.select(0.9f, 0.01f, 0.25f));
+            assertEquals(1, lod.select(0.7f, 0.01f, 0.25f));
+        } finally {
+            for (Mesh level : levels)
+                level.dispose();
+        }
+    }
+
+    @Test
+    public void selectsCoarseLevelsOfLargeMeshesUnderOrthographicCameras() {
+        Mesh[] levels = new Mesh[2];
+        for (int i = 0; i < levels.length; i++)
+            levels[i] = new Mesh(null, new float[3 * VERTEX_SIZE], new int[]{0, 1, 2});
+        // The radius exceeds the constant w of 1 of an orthographic projection
+        MeshLod lod = new MeshLod(levels, new float[]{0, 0.1f}, new Vector3f(), 4);
+        try {
+            OrthographicCamera near = new OrthographicCamera(new Vector3f(), -8, 8, -8, 8, -1, 1);
+            OrthographicCamera far = new OrthographicCamera(new Vector3f(), -400, 400, -400, 400, -1, 1);
+            float nearRadius = lod.getProjectedRadius(near.getView().mul(near.getProjection(), new Matrix4f()));
+            float farRadius = lod.getProjectedRadius(far.getView().mul(far.getProjection(), new Matrix4f()));
+            assertEquals(0.5f, nearRadius, 1e-6f);
+            assertEquals(0.01f, farRadius, 1e-6f);
+
+            assertEquals(0, lod.select(nearRadius, 0.01f, 0.25f));
+            assertEquals(1, lod.select(farRadius, 0.01f, 0.25f));
+        } finally {
+            for (Mesh level : levels)
+                level.dispose();
+        }
+    }
+
+    @Test
+    public void reportsMeshesAroundPerspectiveCamerasAsInfinite() {
+        Mesh[] levels = {new Mesh(null, new float[3 * VERTEX_SIZE], new int[]{0, 1, 2})};
+        MeshLod around = new MeshLod(levels, new float[]{0}, new Vector3f(0, 0, -2), 4);
+        MeshLod ahead = new MeshLod(levels, new float[]{0}, new Vector3f(0, 0, -40), 4);
+        Matrix4f perspective = new Matrix4f().perspective((float) Math.toRadians(60), 1, 0.1f, 100);
+        try {
+            assertEquals(Float.POSITIVE_INFINITY, around.getProjectedRadius(perspective), 0);
+            assertEquals(4 * perspective.m11() / 40, ahead.getProjectedRadius(perspective), 1e-6f);
+        } finally {
+            levels[0].dispose();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.nebula;
+
+import org.nebula.jgl.io.GltfImporter;
+import org.nebula.jgl.io.ImportedMesh;
+import org.nebula.jgl.io.ObjImporter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Measures the import throughput of {@link ObjImporter} and {@link GltfImporter} on synthetic grids with several
+ * million triangles. Pass the grid size as first argument, the default of 1000 produces two million triangles.
+ */
+public class ModelImportBenchmark {
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws IOException {
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        final Path directory = Files.createTempDirectory("model-import-benchmark");
+        final Path obj = directory.resolve("grid.obj");
+        final Path glb = directory.resolve("grid.glb");
+        try {
+            writeObj(obj, size);
+            writeGlb(glb, size);
+            final long triangles = 2L * size * size;
+
+            benchmark("OBJ", obj, triangles, path -> ObjImporter.load(path, null));
+            benchmark("GLB", glb, triangles, path -> GltfImporter.load(path, null));
+        } finally {
+            Files.deleteIfExists(obj);
+            Files.deleteIfExists(glb);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static void benchmark(String name, Path path, long triangles,
+                                  Function<Path, List<ImportedMesh>> importer) throws IOException {
+        final double megabytes = Files.size(path) / (1024.0 * 1024.0);
+        for (int run = 0; run < RUNS; run++) {
+            final long start = System.nanoTime();
+            final List<ImportedMesh> meshes = importer.apply(path);
+            final double seconds = (System.nanoTime() - start) / 1e9;
+            meshes.forEach(mesh -> mesh.mesh().dispose());
+
+            System.out.printf(Locale.ROOT, "%s run %d: %.1f MB in %.3f s, %.1f MB/s, %.2f M triangles/s%n",
+                    name, run, megabytes, seconds, megabytes / seconds, triangles / seconds / 1e6);
+        }
+    }
+
+    private static void writeObj(Path path, int size) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+            writer.write("o grid\n");
+            for (int y = 0; y <= size; y++) {
+                for (int x = 0; x <= size; x++) {
+                    writer.write(String.format(Locale.ROOT, "v %.6f %.6f %.6f%n", x / (float) size,
+                            (float) Math.sin(x * 0.1) * 0.05f, y / (float) size));
+                    writer.write(String.format(Locale.ROOT, "vt %.6f %.6f%n", x / (float) size, y / (float) size));
+                }
+            }
+            writer.write("vn 0.000000 1.000000 0.000000\n");
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    final int v = y * (size + 1) + x + 1;
+                    writer.write("f " + v + "/" + v + "/1 " + (v + 1) + "/" + (v + 1) + "/1 " +
+                            (v + size + 2) + "/" + (v + size + 2) + "/1 " + (v + size + 1) + "/" + (v + size + 1) +
+                            "/1\n");
+                }
+            }
+        }
+    }
+
+    private static void writeGlb(Path path, int size) throws IOException {
+        final int vertexCount = (size + 1) * (size + 1);
+        final int indexCount = size * size * 6;
+        final int positionBytes = vertexCount * 12, uvBytes = vertexCount * 8, indexBytes = indexCount * 4;
+        final int binLength = positionBytes + uvBytes + indexBytes;
+
+        final String json = ("{\"asset\":{\"version\":\"2.0\"},\"buffers\":[{\"byteLength\":%d}]," +
+                "\"bufferViews\":[{\"buffer\":0,\"byteOffset\":0,\"byteLength\":%d}," +
+                "{\"buffer\":0,\"byteOffset\":%d,\"byteLength\":%d},{\"buffer\":0,\"byteOffset\":%d,\"byteLength\":%d}]," +
+                "\"accessors\":[{\"bufferView\":0,\"componentType\":5126,\"count\":%d,\"type\":\"VEC3\"}," +
+                "{\"bufferView\":1,\"componentType\":5126,\"count\":%d,\"type\":\"VEC2\"}," +
+                "{\"bufferView\":2,\"componentType\":5125,\"count\":%d,\"type\":\"SCALAR\"}]," +
+                "\"meshes\":[{\"name\":\"grid\",\"primitives\":[{\"attributes\":{\"POSITION\":0,\"TEXCOORD_0\":1}," +
+                "\"indices\":2}]}]}").formatted(binLength, positionBytes, positionBytes, uvBytes,
+                positionBytes + uvBytes, indexBytes, vertexCount, vertexCount, indexCount);
+        final byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+        final int jsonLength = (jsonBytes.length + 3) & ~3;
+        final long fileLength = 12 + 8 + jsonLength + 8 + (long) binLength;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer file = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileLength)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            file.putInt(0x46546C67).putInt(2).putInt((int) fileLength);
+            file.putInt(jsonLength).putInt(0x4E4F534A).put(jsonBytes);
+            while (file.position() < 20 + jsonLength)
+                file.put((byte) ' ');
+            file.putInt(binLength).putInt(0x004E4942);
+
+            for (int y = 0; y <= size; y++)
+                for (int x = 0; x <= size; x++)
+                    file.putFloat(x / (float) size).putFloat((float) Math.sin(x * 0.1) * 0.05f)
+                            .putFloat(y / (float) size);
+            for (int y = 0; y <= size; y++)
+                for (int x = 0; x <= size; x++)
+                    file.putFloat(x / (float) size).putFloat(y / (float) size);
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    final int v = y * (size + 1) + x;
+                    file.putInt(v).putInt(v + 1).putInt(v + size + 2).putInt(v).putInt(v + size + 2)
+                            .putInt(v + size + 1);
+                }
+            }
+        }
+    }
+}
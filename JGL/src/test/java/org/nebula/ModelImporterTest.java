@@ -0,0 +1,200 @@
+package org.nebula;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nebula.jgl.io.GltfImporter;
+import org.nebula.jgl.io.ImportedMesh;
+import org.nebula.jgl.io.ObjImporter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ModelImporterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static float[] vertices(ImportedMesh mesh) {
+        float[] vertices = new float[mesh.mesh().getVertexDataSize()];
+        mesh.mesh().getVertices().get(0, vertices);
+        return vertices;
+    }
+
+    private static int[] indices(ImportedMesh mesh) {
+        int[] indices = new int[mesh.mesh().getIndexCount()];
+        mesh.mesh().copyIndices(indices, 0);
+        return indices;
+    }
+
+    private static void dispose(List<ImportedMesh> meshes) {
+        meshes.forEach(mesh -> mesh.mesh().dispose());
+    }
+
+    @Test
+    public void importsObjObjectsWithSharedCorners() throws IOException {
+        Path path = folder.newFile("quad.obj").toPath();
+        Files.writeString(path, """
+                # quad and triangle
+                o Quad
+                v 0 0 0
+                v 1 0 0
+                v 1 1 0
+                v 0 1 0
+                vt 0 0
+                vt 1 0
+                vt 1 1
+                vt 0 1
+                vn 0 0 1
+                f 1/1/1 2/2/1 3/3/1 4/4/1
+                o Triangle
+                v 2 0 0\r
+                v 3 0 0\r
+                v 2.5 1e0 -0.5\r
+                f -3//1 -2//1 -1//1\r
+                """);
+        List<ImportedMesh> meshes = ObjImporter.load(path, null);
+        try {
+            assertEquals(2, meshes.size());
+            ImportedMesh quad = meshes.get(0);
+            assertEquals("Quad", quad.name());
+            assertEquals(8, quad.layout().getVertexSize());
+            assertNotNull(quad.layout().get(ImportedMesh.UV_NAME));
+            assertArrayEquals(new int[]{0, 1, 2, 0, 2, 3}, indices(quad));
+            assertArrayEquals(new float[]{1, 1, 0, 1, 1, 0, 0, 1}, Arrays.copyOfRange(vertices(quad), 16, 24),
+                    0f);
+
+            ImportedMesh triangle = meshes.get(1);
+            assertEquals("Triangle", triangle.name());
+            assertEquals(6, triangle.layout().getVertexSize());
+            assertNull(triangle.layout().get(ImportedMesh.UV_NAME));
+            assertArrayEquals(new float[]{2, 0, 0, 0, 0, 1, 3, 0, 0, 0, 0, 1, 2.5f, 1, -0.5f, 0, 0, 1},
+                    vertices(triangle), 0f);
+        } finally {
+            dispose(meshes);
+        }
+    }
+
+    @Test
+    public void rejectsObjNumberEndingInExponent() throws IOException {
+        for (String contents : new String[]{"v 1 2 3e", "v 1 2 3e-", "v 1 2 3E\n"}) {
+            Path path = folder.newFile().toPath();
+            Files.writeString(path, contents);
+            Throwable error = assertThrows(RuntimeException.class, () -> ObjImporter.load(path, null));
+            while (!(error instanceof IllegalArgumentException) && error.getCause() != null)
+                error = error.getCause();
+            assertTrue(contents, error instanceof IllegalArgumentException);
+        }
+    }
+
+    @Test
+    public void importsMultiChunkObjWithRelativeIndices() throws IOException {
+        int size = 300;
+        Path path = folder.newFile("grid.obj").toPath();
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            writer.write("g grid\n");
+            for (int y = 0; y <= size; y++)
+                for (int x = 0; x <= size; x++)
+                    writer.write("v " + x + ".000000 " + y + ".000000 0.000000\n");
+            // Faces use relative indices pointing back across chunk boundaries
+            int vertexCount = (size + 1) * (size + 1);
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    int v = y * (size + 1) + x - vertexCount;
+                    writer.write("f " + v + " " + (v + 1) + " " + (v + size + 2) + " " + (v + size + 1) + "\n");
+                }
+            }
+        }
+        assertTrue(Files.size(path) > 2 << 20);
+
+        List<ImportedMesh> meshes = ObjImporter.load(path, null);
+        try {
+            assertEquals(1, meshes.size());
+            assertEquals((size + 1) * (size + 1), meshes.get(0).mesh().getVertexCount(3));
+            assertEquals(size * size * 6, meshes.get(0).mesh().getIndexCount());
+
+            float[] vertices = vertices(meshes.get(0));
+            int[] indices = indices(meshes.get(0));
+            int last = indices.length - 6;
+            assertEquals(size - 1, vertices[indices[last] * 3], 0f);
+            assertEquals(size, vertices[indices[last + 2] * 3 + 1], 0f);
+        } finally {
+            dispose(meshes);
+        }
+    }
+
+    private static ByteBuffer triangleBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(3 * 12 + 3 * 12 + 8).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putFloat(0).putFloat(0).putFloat(0).putFloat(1).putFloat(0).putFloat(0).putFloat(0).putFloat(1)
+                .putFloat(0);
+        for (int i = 0; i < 3; i++)
+            buffer.putFloat(0).putFloat(0).putFloat(1);
+        buffer.putShort((short) 0).putShort((short) 1).putShort((short) 2).putShort((short) 0);
+        return buffer.flip();
+    }
+
+    private static String gltfJson(String bufferUri, int byteLength) {
+        return """
+                {"asset":{"version":"2.0"},
+                 "buffers":[{%s"byteLength":%d}],
+                 "bufferViews":[{"buffer":0,"byteOffset":0,"byteLength":36},
+                                {"buffer":0,"byteOffset":36,"byteLength":36},
+                                {"buffer":0,"byteOffset":72,"byteLength":6}],
+                 "accessors":[{"bufferView":0,"componentType":5126,"count":3,"type":"VEC3"},
+                              {"bufferView":1,"componentType":5126,"count":3,"type":"VEC3"},
+                              {"bufferView":2,"componentType":5123,"count":3,"type":"SCALAR"}],
+                 "meshes":[{"name":"Triangle","primitives":[{"attributes":{"POSITION":0,"NORMAL":1},"indices":2}]}]}
+                """.formatted(bufferUri == null ? "" : "\"uri\":\"" + bufferUri + "\",", byteLength);
+    }
+
+    private static void assertTriangle(List<ImportedMesh> meshes) {
+        try {
+            assertEquals(1, meshes.size());
+            assertEquals("Triangle", meshes.get(0).name());
+            assertNotNull(meshes.get(0).layout().get(ImportedMesh.NORMAL_NAME));
+            assertArrayEquals(new int[]{0, 1, 2}, indices(meshes.get(0)));
+            assertArrayEquals(new float[]{0, 0, 0, 0, 0, 1, 1, 0, 0, 0, 0, 1, 0, 1, 0, 0, 0, 1},
+                    vertices(meshes.get(0)), 0f);
+        } finally {
+            dispose(meshes);
+        }
+    }
+
+    @Test
+    public void importsEmbeddedGltf() throws IOException {
+        ByteBuffer buffer = triangleBuffer();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        Path path = folder.newFile("triangle.gltf").toPath();
+        Files.writeString(path, gltfJson("data:application/octet-stream;base64," +
+                Base64.getEncoder().encodeToString(bytes), bytes.length));
+
+        assertTriangle(GltfImporter.load(path, null));
+    }
+
+    @Test
+    public void importsBinaryGltf() throws IOException {
+        ByteBuffer bin = triangleBuffer();
+        byte[] json = gltfJson(null, bin.remaining()).getBytes(StandardCharsets.UTF_8);
+        int jsonLength = (json.length + 3) & ~3;
+        ByteBuffer glb = ByteBuffer.allocate(12 + 8 + jsonLength + 8 + bin.remaining()).order(ByteOrder.LITTLE_ENDIAN);
+        glb.putInt(0x46546C67).putInt(2).putInt(glb.capacity());
+        glb.putInt(jsonLength).putInt(0x4E4F534A).put(json);
+        while (glb.position() < 20 + jsonLength)
+            glb.put((byte) ' ');
+        glb.putInt(bin.remaining()).putInt(0x004E4942).put(bin);
+
+        Path path = folder.newFile("triangle.glb").toPath();
+        Files.write(path, glb.array());
+        assertTriangle(GltfImporter.load(path, null));
+    }
+}
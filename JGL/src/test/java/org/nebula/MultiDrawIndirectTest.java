@@ -0,0 +1,149 @@
+package org.nebula;
+
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.lwjgl.glfw.GLFW;
+import org.nebula.io.Files;
+import org.nebula.jgl.batch.MeshBatch;
+import org.nebula.jgl.camera.OrthographicCamera;
+import org.nebula.jgl.data.buffer.Mesh;
+import org.nebula.jgl.data.buffer.MeshArena;
+import org.nebula.jgl.data.shader.Shader;
+import org.nebula.jglfw.GLFWWindow;
+import org.nebula.jglfw.listeners.IGLFWInputListener;
+import org.nebula.math.Transform;
+
+/**
+ * Draws a grid of distinct resident meshes and instance groups from a {@link MeshArena}. Press I to switch between
+ * multi draw indirect and one draw call per mesh; the draw calls and frame times of both paths are printed every
+ * second. Works on Mesa llvmpipe, e.g. with {@code LIBGL_ALWAYS_SOFTWARE=1}.
+ */
+public class MultiDrawIndirectTest {
+    private static final int GRID_SIZE = 64;
+    private static final int INSTANCE_GROUPS = 16;
+    private final MeshBatch meshBatch;
+    private final GLFWWindow window;
+    private final MeshArena arena;
+    private final Mesh[] meshes, instancedMeshes;
+    private final Transform[] transforms;
+    private final OrthographicCamera camera;
+    private long frameTime, frames, lastReport;
+
+    public MultiDrawIndirectTest() {
+        camera = new OrthographicCamera(new Vector3f(), -1, 1, -1, 1, -1, 1);
+        window = new GLFWWindow(getClass().getName());
+        window.createGLCapabilities();
+        window.setWindowIcon(Files.readImageFromResource("images/nebula.png"));
+
+        final Shader shader = new Shader(Files.readResourceAsString("shaders/meshbatch/meshbatch.vert"),
+                Files.readResourceAsString("shaders/meshbatch/meshbatch.frag"));
+        final Shader instanceShader = new Shader(Files.readResourceAsString("shaders/meshbatch/instanced.vert"),
+                Files.readResourceAsString("shaders/meshbatch/meshbatch.frag"));
+        meshBatch = new MeshBatch();
+        meshBatch.setShader(shader);
+        meshBatch.setInstanceShader(instanceShader);
+        arena = new MeshArena(shader.getVertexAttribs(), GRID_SIZE * GRID_SIZE * 4, GRID_SIZE * GRID_SIZE * 6);
+        meshBatch.setMeshArena(arena);
+        System.out.println("Multi draw indirect supported: " + meshBatch.isMultiDrawIndirectSupported());
+
+        // Every cell of the left half is a distinct mesh in world space
+        meshes = new Mesh[GRID_SIZE * GRID_SIZE];
+        final float cell = 1f / GRID_SIZE;
+        for (int i = 0; i < meshes.length; i++) {
+            final float x = -1 + (i % GRID_SIZE) * cell, y = -1 + (i / GRID_SIZE) * 2 * cell;
+            meshes[i] = quad(x, y, cell * 0.8f, cell * 1.6f, (i % GRID_SIZE) * cell, (i / GRID_SIZE) * cell);
+        }
+
+        // The right half holds instances of several distinct meshes
+        instancedMeshes = new Mesh[INSTANCE_GROUPS];
+        for (int i = 0; i < INSTANCE_GROUPS; i++)
+            instancedMeshes[i] = quad(-cell / 2, -cell / 2, cell, cell, i / (float) INSTANCE_GROUPS, 1, 0.5f);
+        transforms = new Transform[GRID_SIZE * GRID_SIZE / INSTANCE_GROUPS];
+        for (int i = 0; i < transforms.length; i++)
+            transforms[i] = new Transform(new Vector3f(), new Vector2f());
+
+        window.addInputListener(new IGLFWInputListener() {
+            @Override
+            public void onCursorPositionChange(GLFWWindow window, double x, double y) {
+
+            }
+
+            @Override
+            public void onKeyAction(GLFWWindow window, int key, int scanCode, int action, int mods) {
+                if (action == GLFW.GLFW_PRESS && key == GLFW.GLFW_KEY_I) {
+                    meshBatch.setMultiDrawIndirectEnabled(!meshBatch.isMultiDrawIndirectEnabled());
+                    frameTime = frames = 0;
+                }
+            }
+
+            @Override
+            public void onMouseButtonAction(GLFWWindow window, int button, int action, int mods) {
+
+            }
+        });
+
+        window.setRenderer(this::draw);
+        window.loop();
+
+        window.dispose();
+        shader.dispose();
+        instanceShader.dispose();
+        for (Mesh mesh : meshes)
+            mesh.dispose();
+        for (Mesh mesh : instancedMeshes)
+            mesh.dispose();
+        arena.dispose();
+        meshBatch.dispose();
+    }
+
+    public static void main(String[] args) {
+        new MultiDrawIndirectTest();
+    }
+
+    private static Mesh quad(float x, float y, float width, float height, float r, float g) {
+        return quad(x, y, width, height, r, g, 1);
+    }
+
+    private static Mesh quad(float x, float y, float width, float height, float r, float g, float b) {
+        final float[] vertices = {
+                x, y, 0, r, g, b, 1, // Lower left
+                x + width, y, 0, r, g, b, 1, // Lower right
+                x, y + height, 0, r, g, b, 1, // Upper left
+                x + width, y + height, 0, r, g, b, 1, // Upper right
+        };
+        final int[] indices = {
+                0, 1, 2,
+                1, 3, 2
+        };
+        return new Mesh(vertices, indices);
+    }
+
+    private void draw() {
+        final long start = System.nanoTime();
+        meshBatch.setViewMatrix(camera.getView());
+        meshBatch.setProjectionMatrix(camera.getProjection());
+        meshBatch.begin();
+        for (Mesh mesh : meshes)
+            meshBatch.mesh(mesh);
+
+        final float cell = 1f / GRID_SIZE;
+        for (int group = 0; group < INSTANCE_GROUPS; group++) {
+            for (int i = 0; i < transforms.length; i++) {
+                final int index = group * transforms.length + i;
+                transforms[i].getTranslation().set(cell * (index % GRID_SIZE + 0.5f),
+                        -1 + 2 * cell * (index / GRID_SIZE + 0.5f), 0);
+            }
+            meshBatch.meshInstanced(instancedMeshes[group], transforms);
+        }
+        meshBatch.end();
+
+        frameTime += System.nanoTime() - start;
+        frames++;
+        if (System.currentTimeMillis() - lastReport >= 1000) {
+            lastReport = System.currentTimeMillis();
+            System.out.printf("%s: %d draw calls, %.3f ms per frame on the CPU%n",
+                    meshBatch.isMultiDrawIndirectEnabled() ? "Multi draw indirect" : "Per mesh draws",
+                    meshBatch.getDrawCallCount(), frameTime / 1e6 / Math.max(frames, 1));
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.nebula;
+
+import org.junit.Test;
+import org.nebula.jgl.data.texture.SamplerState;
+
+import static org.junit.Assert.*;
+import static org.lwjgl.opengl.GL33C.*;
+
+public class SamplerStateTest {
+
+    @Test
+    public void equalStatesAreInterchangeable() {
+        final SamplerState state = new SamplerState(GL_LINEAR_MIPMAP_LINEAR, GL_LINEAR, GL_REPEAT, GL_REPEAT, 1);
+        assertEquals(SamplerState.TRILINEAR, state);
+        assertEquals(SamplerState.TRILINEAR.hashCode(), state.hashCode());
+        assertNotEquals(SamplerState.TRILINEAR, state.withAnisotropy(8));
+        assertEquals(SamplerState.LINEAR, SamplerState.LINEAR.withWrap(GL_CLAMP_TO_EDGE).withWrap(GL_REPEAT));
+    }
+
+    @Test
+    public void mapsTheAntiAliasingFlag() {
+        assertSame(SamplerState.NEAREST, SamplerState.of(false, false));
+        assertSame(SamplerState.LINEAR, SamplerState.of(true, false));
+        assertSame(SamplerState.NEAREST_MIPMAPPED, SamplerState.of(false, true));
+        assertSame(SamplerState.TRILINEAR, SamplerState.of(true, true));
+        assertTrue(SamplerState.TRILINEAR.usesMipmaps());
+        assertFalse(SamplerState.LINEAR.usesMipmaps());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMipmapMagnification() {
+        SamplerState.LINEAR.withFilters(GL_LINEAR, GL_LINEAR_MIPMAP_LINEAR);
+    }
+}
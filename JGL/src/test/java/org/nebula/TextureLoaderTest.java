@@ -0,0 +1,73 @@
+package org.nebula;
+
+import org.joml.Vector3f;
+import org.nebula.io.Files;
+import org.nebula.jgl.batch.RenderBatch;
+import org.nebula.jgl.camera.OrthographicCamera;
+import org.nebula.jgl.data.shader.Shader;
+import org.nebula.jgl.data.texture.TextureLoader;
+import org.nebula.jglfw.GLFWWindow;
+
+/**
+ * Loads the same image into a grid of textures in the background. The placeholder is drawn until a texture has been
+ * uploaded, at most one texture is uploaded per frame. Each upload reports how many pixel buffer transfers are still in
+ * flight.
+ */
+public class TextureLoaderTest {
+    private static final int GRID = 4;
+
+    private final RenderBatch batch;
+    private final GLFWWindow window;
+    private final OrthographicCamera camera;
+    private final TextureLoader loader;
+    private final TextureLoader.Handle[] handles;
+
+    public TextureLoaderTest() {
+        final float size = 1;
+        camera = new OrthographicCamera(new Vector3f(), -size, size, -size, size, -size, size);
+        window = new GLFWWindow(getClass().getName());
+        window.setRenderer(this::draw);
+        window.createGLCapabilities();
+
+        this.batch = new RenderBatch();
+        Shader shader = new Shader(Files.readResourceAsString("shaders/default/default.vert"),
+                Files.readResourceAsString("shaders/default/default.frag"));
+        batch.setShader(shader);
+
+        loader = new TextureLoader();
+        loader.setUploadBudgetBytes(0);
+        handles = new TextureLoader.Handle[GRID * GRID];
+        for (int i = 0; i < handles.length; i++) {
+            handles[i] = loader.load("images/nebula.png", true);
+            final int index = i;
+            handles[i].getFuture().thenAccept(texture -> System.out.printf("Uploaded texture %d, %d uploads with %d " +
+                    "bytes in flight%n", index, loader.getUploader().getQueueDepth(),
+                    loader.getUploader().getBytesInFlight()));
+        }
+
+        window.loop();
+        window.dispose();
+        batch.dispose();
+        for (TextureLoader.Handle handle : handles)
+            if (handle.isReady())
+                handle.get().dispose();
+        loader.dispose();
+    }
+
+    public static void main(String[] args) {
+        new TextureLoaderTest();
+    }
+
+    private void draw() {
+        loader.processUploads();
+
+        batch.setViewMatrix(camera.getView());
+        batch.setProjectionMatrix(camera.getProjection());
+
+        batch.begin();
+        final float cell = 2f / GRID;
+        for (int i = 0; i < handles.length; i++)
+            batch.texture(handles[i].get(), -1 + i % GRID * cell, -1 + i / GRID * cell, cell, cell);
+        batch.end();
+    }
+}
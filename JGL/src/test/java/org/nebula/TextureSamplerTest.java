@@ -0,0 +1,68 @@
+package org.nebula;
+
+import org.joml.Vector3f;
+import org.nebula.io.Files;
+import org.nebula.jgl.batch.RenderBatch;
+import org.nebula.jgl.camera.OrthographicCamera;
+import org.nebula.jgl.data.shader.Shader;
+import org.nebula.jgl.data.texture.Sampler;
+import org.nebula.jgl.data.texture.SamplerState;
+import org.nebula.jgl.data.texture.Texture;
+import org.nebula.jglfw.GLFWWindow;
+
+/**
+ * Draws the same image minified with four sampler states, from left to right: nearest, linear, trilinear and trilinear
+ * with 16x anisotropy. Each column is a strip of shrinking copies, the mipmapped columns should shimmer far less.
+ */
+public class TextureSamplerTest {
+    private static final SamplerState[] STATES = {SamplerState.NEAREST, SamplerState.LINEAR, SamplerState.TRILINEAR,
+            SamplerState.TRILINEAR.withAnisotropy(16)};
+    private static final int COPIES = 8;
+
+    private final RenderBatch batch;
+    private final GLFWWindow window;
+    private final OrthographicCamera camera;
+    private final Texture[] textures = new Texture[STATES.length];
+
+    public TextureSamplerTest() {
+        camera = new OrthographicCamera(new Vector3f(), -1, 1, -1, 1, -1, 1);
+        window = new GLFWWindow(getClass().getName());
+        window.setRenderer(this::draw);
+        window.createGLCapabilities();
+
+        batch = new RenderBatch();
+        batch.setShader(new Shader(Files.readResourceAsString("shaders/default/default.vert"),
+                Files.readResourceAsString("shaders/default/default.frag")));
+        for (int i = 0; i < STATES.length; i++)
+            textures[i] = new Texture("images/nebula.png", STATES[i]);
+        System.out.println(Sampler.getSamplerCount() + " samplers for " + textures.length + " textures");
+
+        window.loop();
+        window.dispose();
+        batch.dispose();
+        for (Texture texture : textures)
+            texture.dispose();
+        Sampler.disposeAll();
+    }
+
+    public static void main(String[] args) {
+        new TextureSamplerTest();
+    }
+
+    private void draw() {
+        batch.setViewMatrix(camera.getView());
+        batch.setProjectionMatrix(camera.getProjection());
+
+        batch.begin();
+        final float column = 2f / STATES.length;
+        for (int i = 0; i < textures.length; i++) {
+            float y = -1, size = column;
+            for (int copy = 0; copy < COPIES; copy++) {
+                batch.texture(textures[i], -1 + i * column, y, size, size);
+                y += size;
+                size /= 2;
+            }
+        }
+        batch.end();
+    }
+}
@@ -0,0 +1,15 @@
+#version 330 core
+
+uniform mat4 uView;
+uniform mat4 uProjection;
+
+layout(location = 0) in vec3 vPos;
+layout(location = 1) in vec4 vCol;
+layout(location = 2) in mat4 iTransform;
+
+out vec4 fCol;
+
+void main() {
+    fCol = vCol;
+    gl_Position = uView * uProjection * iTransform * vec4(vPos, 1);
+}